@@ -0,0 +1,18 @@
+package com.fiap.consultas.application.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemNotificacaoDTO {
+    private UUID consultaId;
+    private String localConsulta;
+    private String dataConsulta;
+}
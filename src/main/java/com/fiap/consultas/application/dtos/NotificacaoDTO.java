@@ -1,11 +1,13 @@
 package com.fiap.consultas.application.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fiap.consultas.domain.enums.TipoNotificacao;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
 import java.util.UUID;
 
 @Data
@@ -22,4 +24,8 @@ public class NotificacaoDTO {
     private String nomeMedico;
     private String dataConsulta;
     private TipoNotificacao tipoNotificacao;
+
+    // Preenchido só quando o paciente tem mais de uma consulta no ciclo; os campos acima descrevem a primeira delas.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ItemNotificacaoDTO> consultasAgrupadas;
 }
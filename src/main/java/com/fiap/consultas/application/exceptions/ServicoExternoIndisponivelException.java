@@ -0,0 +1,12 @@
+package com.fiap.consultas.application.exceptions;
+
+public class ServicoExternoIndisponivelException extends RuntimeException {
+
+    public ServicoExternoIndisponivelException(String mensagem) {
+        super(mensagem);
+    }
+
+    public ServicoExternoIndisponivelException(String mensagem, Throwable causa) {
+        super(mensagem, causa);
+    }
+}
@@ -0,0 +1,7 @@
+package com.fiap.consultas.application.ports;
+
+import com.fiap.consultas.domain.entities.Consulta;
+
+public interface AgendadorLembretesPort {
+    void programar(Consulta consulta);
+}
@@ -1,94 +1,223 @@
 package com.fiap.consultas.application.usecases;
 
+import com.fiap.consultas.application.dtos.ItemNotificacaoDTO;
 import com.fiap.consultas.application.dtos.NotificacaoDTO;
 import com.fiap.consultas.application.dtos.PacienteDTO;
+import com.fiap.consultas.application.exceptions.ServicoExternoIndisponivelException;
 import com.fiap.consultas.application.ports.NotificacaoServicePort;
 import com.fiap.consultas.application.ports.PacienteServicePort;
 import com.fiap.consultas.domain.entities.Consulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
 import com.fiap.consultas.domain.enums.TipoNotificacao;
 import com.fiap.consultas.domain.repositories.ConsultaRepository;
-import lombok.RequiredArgsConstructor;
+import com.fiap.consultas.domain.repositories.NotificacaoEnviadaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class EnviarNotificacaoConfirmacaoUseCase {
 
+    private static final Comparator<Consulta> POR_PACIENTE_E_DATA = Comparator.comparing(Consulta::getPacienteCpf)
+            .thenComparing(Consulta::getDataHora);
+
     private final ConsultaRepository consultaRepository;
     private final PacienteServicePort pacienteServicePort;
     private final NotificacaoServicePort notificacaoServicePort;
+    private final NotificacaoEnviadaRepository notificacaoEnviadaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int concorrenciaMaxima;
+
+    public EnviarNotificacaoConfirmacaoUseCase(ConsultaRepository consultaRepository,
+                                               PacienteServicePort pacienteServicePort,
+                                               NotificacaoServicePort notificacaoServicePort,
+                                               NotificacaoEnviadaRepository notificacaoEnviadaRepository,
+                                               TransactionTemplate transactionTemplate,
+                                               @Value("${consultas.notificacoes.concorrencia-maxima:8}") int concorrenciaMaxima) {
+        if (concorrenciaMaxima < 1) {
+            throw new IllegalArgumentException("A concorrência máxima deve ser positiva");
+        }
+        this.consultaRepository = consultaRepository;
+        this.pacienteServicePort = pacienteServicePort;
+        this.notificacaoServicePort = notificacaoServicePort;
+        this.notificacaoEnviadaRepository = notificacaoEnviadaRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.concorrenciaMaxima = concorrenciaMaxima;
+    }
 
-    @Scheduled(fixedRate = 10000)
+    // Os jobs percorrem a onda por um cursor ordenado por paciente; a transação só mantém o cursor aberto.
+    @Scheduled(fixedRateString = "${consultas.lembretes.reconciliacao-ms:600000}")
+    @Transactional(readOnly = true)
     public void executar() {
         LocalDateTime dataAtual = LocalDateTime.now();
         LocalDateTime duasSemanasFuturo = dataAtual.plusWeeks(2);
 
-        List<Consulta> consultasAgendadas = consultaRepository.buscarPorStatus(StatusConsulta.AGENDADA);
-
-        for (Consulta consulta : consultasAgendadas) {
-            if (estaProximoDuasSemanas(consulta.getDataHora(), duasSemanasFuturo)) {
-                enviarNotificacaoConfirmacao(consulta);
-            }
+        try (Stream<Consulta> consultasProximas = consultaRepository.percorrerParaNotificacao(
+                StatusConsulta.AGENDADA, dataAtual, duasSemanasFuturo, TipoNotificacao.CONFIRMACAO_CONSULTA)) {
+            enviarNotificacoes(consultasProximas, TipoNotificacao.CONFIRMACAO_CONSULTA);
         }
     }
 
-    @Scheduled(fixedRate = 10000)
+    @Scheduled(fixedRateString = "${consultas.lembretes.reconciliacao-ms:600000}")
+    @Transactional(readOnly = true)
     public void enviarLembreteDiaAnterior() {
-        LocalDateTime dataAtual = LocalDateTime.now();
-        LocalDateTime amanha = dataAtual.plusDays(1);
-        List<Consulta> consultasConfirmadas = consultaRepository.buscarPorStatus(StatusConsulta.CONFIRMADA);
+        LocalDateTime inicioDeAmanha = LocalDate.now().plusDays(1).atStartOfDay();
+
+        try (Stream<Consulta> consultasDeAmanha = consultaRepository.percorrerParaNotificacao(
+                StatusConsulta.CONFIRMADA, inicioDeAmanha, inicioDeAmanha.plusDays(1), TipoNotificacao.AVISO_UM_DIA_ANTES)) {
+            enviarNotificacoes(consultasDeAmanha, TipoNotificacao.AVISO_UM_DIA_ANTES);
+        }
+    }
 
-        for (Consulta consulta : consultasConfirmadas) {
-            if (ehAmanha(consulta.getDataHora(), amanha)) {
-                enviarNotificacaoDiaAnterior(consulta);
+    // Devolve os ids que não foram notificados: os que a busca não encontrou (já notificados, com outro status ou ainda
+    // não visíveis) e os dos pacientes adiados ou com falha. As falhas já foram logadas e não sobem, para que o
+    // agendador reprograme só esses lembretes.
+    public Set<UUID> enviarLembretes(TipoNotificacao tipo, Collection<UUID> consultaIds) {
+        List<Consulta> consultas = switch (tipo) {
+            case CONFIRMACAO_CONSULTA -> {
+                LocalDateTime dataAtual = LocalDateTime.now();
+                yield consultaRepository.buscarParaNotificacao(consultaIds, StatusConsulta.AGENDADA,
+                        dataAtual, dataAtual.plusWeeks(2), tipo);
             }
+            case AVISO_UM_DIA_ANTES -> {
+                LocalDateTime inicioDeAmanha = LocalDate.now().plusDays(1).atStartOfDay();
+                yield consultaRepository.buscarParaNotificacao(consultaIds, StatusConsulta.CONFIRMADA,
+                        inicioDeAmanha, inicioDeAmanha.plusDays(1), tipo);
+            }
+            default -> throw new IllegalArgumentException("Tipo de lembrete não suportado: " + tipo);
+        };
+
+        Set<UUID> naoNotificadas = new HashSet<>(consultaIds);
+        naoNotificadas.removeAll(enviarNotificacoes(consultas.stream().sorted(POR_PACIENTE_E_DATA), tipo, new ConcurrentLinkedQueue<>()));
+        return naoNotificadas;
+    }
+
+    private void enviarNotificacoes(Stream<Consulta> consultas, TipoNotificacao tipo) {
+        Queue<RuntimeException> falhas = new ConcurrentLinkedQueue<>();
+        enviarNotificacoes(consultas, tipo, falhas);
+        // Falhas inesperadas continuam interrompendo o ciclo, mas só depois que as demais tarefas terminaram;
+        // cada paciente com falha já foi logado, e as falhas seguintes vão como suprimidas da primeira.
+        if (!falhas.isEmpty()) {
+            RuntimeException primeira = falhas.poll();
+            falhas.forEach(primeira::addSuppressed);
+            throw primeira;
         }
     }
 
-    private boolean estaProximoDuasSemanas(LocalDateTime dataConsulta, LocalDateTime duasSemanasFuturo) {
-        return dataConsulta.isAfter(LocalDateTime.now()) &&
-            (dataConsulta.isBefore(duasSemanasFuturo) || dataConsulta.isEqual(duasSemanasFuturo));
+    // As consultas chegam ordenadas por paciente e data; cada sequência do mesmo CPF vira uma tarefa numa virtual thread.
+    // A permissão é obtida antes de criar a tarefa, então a leitura do cursor pausa enquanto "concorrencia-maxima"
+    // pacientes estão em andamento e só esses grupos ficam em memória. Devolve os ids das consultas notificadas.
+    private Set<UUID> enviarNotificacoes(Stream<Consulta> consultas, TipoNotificacao tipo, Queue<RuntimeException> falhas) {
+        Semaphore permissoes = new Semaphore(concorrenciaMaxima);
+        Set<UUID> notificadas = ConcurrentHashMap.newKeySet();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            agruparPorPaciente(consultas, grupo -> {
+                adquirir(permissoes);
+                executor.execute(() -> {
+                    try {
+                        if (enviarNotificacaoDoPaciente(grupo, tipo)) {
+                            grupo.forEach(consulta -> notificadas.add(consulta.getId()));
+                        }
+                    } catch (RuntimeException e) {
+                        log.error("Falha ao notificar as consultas {}: {}", grupo.stream().map(Consulta::getId).toList(), e.getMessage(), e);
+                        falhas.add(e);
+                    } finally {
+                        permissoes.release();
+                    }
+                });
+            });
+        }
+        return notificadas;
     }
-    private boolean ehAmanha(LocalDateTime dataConsulta, LocalDateTime amanha) {
-        return dataConsulta.toLocalDate().equals(amanha.toLocalDate());
+
+    private void agruparPorPaciente(Stream<Consulta> consultas, Consumer<List<Consulta>> despachar) {
+        List<Consulta> grupo = new ArrayList<>();
+        Iterator<Consulta> iterador = consultas.iterator();
+        while (iterador.hasNext()) {
+            Consulta consulta = iterador.next();
+            if (!grupo.isEmpty() && !grupo.getFirst().getPacienteCpf().equals(consulta.getPacienteCpf())) {
+                despachar.accept(grupo);
+                grupo = new ArrayList<>();
+            }
+            grupo.add(consulta);
+        }
+        if (!grupo.isEmpty()) {
+            despachar.accept(grupo);
+        }
     }
 
-    private void enviarNotificacaoConfirmacao(Consulta consulta) {
-        PacienteDTO paciente = pacienteServicePort.buscarPacientePorCpf(consulta.getPacienteCpf());
+    private void adquirir(Semaphore permissoes) {
+        try {
+            permissoes.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Envio de notificações interrompido", e);
+        }
+    }
 
-        NotificacaoDTO notificacao = NotificacaoDTO.builder()
-                .consultaId(consulta.getId())
+    private boolean enviarNotificacaoDoPaciente(List<Consulta> consultas, TipoNotificacao tipo) {
+        PacienteDTO paciente;
+        try {
+            paciente = pacienteServicePort.buscarPacientePorCpf(consultas.getFirst().getPacienteCpf());
+        } catch (ServicoExternoIndisponivelException e) {
+            consultas.forEach(consulta ->
+                    log.warn("Notificação da consulta {} adiada para o próximo ciclo: {}", consulta.getId(), e.getMessage()));
+            return false;
+        }
+
+        // A linha do outbox e o registro das consultas notificadas são gravados juntos: ou a notificação sai e nenhuma
+        // consulta volta na próxima onda, ou nada é gravado e o paciente é notificado no próximo ciclo.
+        List<UUID> consultaIds = consultas.stream().map(Consulta::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            notificacaoServicePort.enviarNotificacao(criarNotificacao(consultas, paciente, tipo));
+            notificacaoEnviadaRepository.registrar(consultaIds, tipo);
+        });
+        return true;
+    }
+
+    private NotificacaoDTO criarNotificacao(List<Consulta> consultas, PacienteDTO paciente, TipoNotificacao tipo) {
+        Consulta primeira = consultas.getFirst();
+        return NotificacaoDTO.builder()
+                .consultaId(primeira.getId())
                 .nomePaciente(paciente.getNome())
                 .email(paciente.getEmail())
                 .telefone(paciente.getTelefone())
-                .consulta(consulta.getId().toString())
-                .localConsulta(consulta.getLocalConsulta())
-                .dataConsulta(consulta.getDataHora().toString())
-                .tipoNotificacao(TipoNotificacao.CONFIRMACAO_CONSULTA)
+                .consulta(primeira.getId().toString())
+                .localConsulta(primeira.getLocalConsulta())
+                .dataConsulta(primeira.getDataHora().toString())
+                .tipoNotificacao(tipo)
+                .consultasAgrupadas(consultas.size() > 1 ? consultas.stream().map(this::criarItem).toList() : null)
                 .build();
-
-        notificacaoServicePort.enviarNotificacao(notificacao);
     }
 
-    private void enviarNotificacaoDiaAnterior(Consulta consulta) {
-        PacienteDTO paciente = pacienteServicePort.buscarPacientePorCpf(consulta.getPacienteCpf());
-
-        NotificacaoDTO notificacao = NotificacaoDTO.builder()
+    private ItemNotificacaoDTO criarItem(Consulta consulta) {
+        return ItemNotificacaoDTO.builder()
                 .consultaId(consulta.getId())
-                .nomePaciente(paciente.getNome())
-                .email(paciente.getEmail())
-                .telefone(paciente.getTelefone())
-                .consulta(consulta.getId().toString())
                 .localConsulta(consulta.getLocalConsulta())
                 .dataConsulta(consulta.getDataHora().toString())
-                .tipoNotificacao(TipoNotificacao.AVISO_UM_DIA_ANTES)
                 .build();
-
-        notificacaoServicePort.enviarNotificacao(notificacao);
     }
 }
\ No newline at end of file
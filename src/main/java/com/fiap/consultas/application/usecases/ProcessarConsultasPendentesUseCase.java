@@ -3,6 +3,8 @@ package com.fiap.consultas.application.usecases;
 import com.fiap.consultas.application.dtos.MedicoDTO;
 import com.fiap.consultas.application.dtos.NotificacaoDTO;
 import com.fiap.consultas.application.dtos.PacienteDTO;
+import com.fiap.consultas.application.exceptions.ServicoExternoIndisponivelException;
+import com.fiap.consultas.application.ports.AgendadorLembretesPort;
 import com.fiap.consultas.application.ports.MedicoServicePort;
 import com.fiap.consultas.application.ports.NotificacaoServicePort;
 import com.fiap.consultas.application.ports.PacienteServicePort;
@@ -12,17 +14,19 @@ import com.fiap.consultas.domain.entities.Paciente;
 import com.fiap.consultas.domain.enums.PrioridadeConsulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
 import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.domain.repositories.ConfirmacaoProcessadaRepository;
 import com.fiap.consultas.domain.repositories.ConsultaRepository;
+import com.fiap.consultas.domain.repositories.NotificacaoEnviadaRepository;
 import com.fiap.consultas.domain.services.AgendamentoService;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -36,9 +40,14 @@ public class ProcessarConsultasPendentesUseCase {
     private final MedicoServicePort medicoServicePort;
     private final NotificacaoServicePort notificacaoServicePort;
     private final AgendamentoService agendamentoService;
+    private final NotificacaoEnviadaRepository notificacaoEnviadaRepository;
+    private final ConfirmacaoProcessadaRepository confirmacaoProcessadaRepository;
+    private final AgendadorLembretesPort agendadorLembretesPort;
+    private final TransactionTemplate transactionTemplate;
 
+    // Cada consulta é agendada na sua própria transação: se outro processo alterou a consulta (ou a remanejada) desde
+    // a leitura, a versão diverge, só aquela consulta é desfeita e ela volta a ser avaliada no próximo ciclo.
     @Scheduled(fixedRate = 10000)
-    @Transactional
     public void executar() {
         List<Consulta> consultasPendentes = consultaRepository.buscarConsultasPendentesAgendamento();
 
@@ -46,11 +55,17 @@ public class ProcessarConsultasPendentesUseCase {
 
         for (Consulta consulta : consultasPendentes) {
             try {
-                if (consulta.isPrioridadeUrgente()) {
-                    processarConsultaUrgente(consulta);
-                } else {
-                    processarConsultaNormal(consulta);
-                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (consulta.isPrioridadeUrgente()) {
+                        processarConsultaUrgente(consulta);
+                    } else {
+                        processarConsultaNormal(consulta);
+                    }
+                });
+            } catch (ServicoExternoIndisponivelException e) {
+                log.warn("Consulta {} adiada para o próximo ciclo: {}", consulta.getId(), e.getMessage());
+            } catch (OptimisticLockingFailureException e) {
+                log.info("Consulta {} alterada concorrentemente; será reavaliada no próximo ciclo", consulta.getId());
             } catch (Exception e) {
                 log.error("Erro ao processar consulta {}: {}", consulta.getId(), e.getMessage(), e);
             }
@@ -102,20 +117,26 @@ public class ProcessarConsultasPendentesUseCase {
         consultaUrgente.setDataHora(dataHoraOriginal);
         consultaUrgente.setLocalConsulta(consultaParaRemarcar.getLocalConsulta());
         consultaUrgente.setStatus(StatusConsulta.AGENDADA);
-        consultaRepository.salvar(consultaUrgente);
 
+        // As duas consultas são gravadas juntas no fim; durante a busca o horário original segue ocupado pela remarcada.
         LocalDateTime novoHorario = agendamentoService.encontrarProximoHorarioDisponivel(medicos, consultaParaRemarcar.getEspecialidade(), paciente.getCidade());
 
         if (novoHorario != null) {
             consultaParaRemarcar.reagendar(novoHorario);
-            consultaRepository.salvar(consultaParaRemarcar);
+        } else {
+            consultaParaRemarcar.marcarParaRemanejo();
+        }
+        consultaRepository.salvarTodos(List.of(consultaUrgente, consultaParaRemarcar));
+        agendadorLembretesPort.programar(consultaUrgente);
 
+        if (novoHorario != null) {
             notificarReagendar(consultaParaRemarcar);
         } else {
-            consultaParaRemarcar.marcarParaRemanejo();
-            consultaRepository.salvar(consultaParaRemarcar);
             notificarEntradaNaListaDeEspera(consultaParaRemarcar, paciente);
         }
+        notificacaoEnviadaRepository.removerPorConsulta(consultaParaRemarcar.getId());
+        confirmacaoProcessadaRepository.removerPorConsulta(consultaParaRemarcar.getId());
+        agendadorLembretesPort.programar(consultaParaRemarcar);
         enviarNotificacaoConsultaAgendada(consultaUrgente, paciente, medico);
     }
 
@@ -138,6 +159,7 @@ public class ProcessarConsultasPendentesUseCase {
         consulta.setLocalConsulta("Consultório " + medicoSelecionado.getNome());
         consulta.setStatus(StatusConsulta.AGENDADA);
         consultaRepository.salvar(consulta);
+        agendadorLembretesPort.programar(consulta);
         enviarNotificacaoConsultaAgendada(consulta, paciente, medicoSelecionado);
     }
 
@@ -147,16 +169,11 @@ public class ProcessarConsultasPendentesUseCase {
         }
         LocalDateTime inicioDoDia = dataHora.toLocalDate().atStartOfDay();
         LocalDateTime fimDoDia = inicioDoDia.plusDays(1);
-        Map<String, Long> consultasPorMedico = new HashMap<>();
-
-        for (Medico medico : medicosDisponiveis) {
-            List<Consulta> consultasDoMedico = consultaRepository.buscarConsultasPorMedicoEIntervalo(medico.getId(), inicioDoDia, fimDoDia);
-
-            consultasPorMedico.put(medico.getId(), (long) consultasDoMedico.size());
-        }
+        Map<String, Long> consultasPorMedico = consultaRepository.contarConsultasPorMedicosEIntervalo(
+                medicosDisponiveis.stream().map(Medico::getId).toList(), inicioDoDia, fimDoDia);
 
         return medicosDisponiveis.stream()
-                .min(Comparator.comparing(m -> consultasPorMedico.get(m.getId())))
+                .min(Comparator.comparing(m -> consultasPorMedico.getOrDefault(m.getId(), 0L)))
                 .orElse(medicosDisponiveis.getFirst());
     }
 
@@ -181,6 +198,7 @@ public class ProcessarConsultasPendentesUseCase {
         consulta.setLocalConsulta("Consultório " + medicoSelecionado.getNome());
         consulta.setStatus(StatusConsulta.AGENDADA);
         consultaRepository.salvar(consulta);
+        agendadorLembretesPort.programar(consulta);
         enviarNotificacaoConsultaAgendada(consulta, paciente, medicoSelecionado);
     }
 
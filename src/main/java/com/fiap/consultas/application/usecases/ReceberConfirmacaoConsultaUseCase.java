@@ -1,47 +1,109 @@
 package com.fiap.consultas.application.usecases;
 
 import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
-import com.fiap.consultas.domain.entities.Consulta;
+import com.fiap.consultas.application.ports.AgendadorLembretesPort;
 import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.repositories.ConfirmacaoProcessadaRepository;
 import com.fiap.consultas.domain.repositories.ConsultaRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ReceberConfirmacaoConsultaUseCase {
 
+    static final int MAXIMO_TENTATIVAS_CONFLITO = 3;
+
     private final ConsultaRepository consultaRepository;
+    private final AgendadorLembretesPort agendadorLembretesPort;
+    private final ConfirmacaoProcessadaRepository confirmacaoProcessadaRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Um conflito de concorrência (deadlock, trava não obtida, versão alterada, outro consumidor registrando a mesma
+    // consulta) desfaz a transação e o lote é reaplicado sobre o estado atual; esgotadas as tentativas a exceção volta
+    // para o consumidor, que aplica cada confirmação sozinha (passando de novo por aqui) e manda para a fila de
+    // reprocessamento as que ainda falharem.
+    public int executarLote(List<ConfirmacaoConsultaDTO> confirmacoes) {
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return Objects.requireNonNullElse(transactionTemplate.execute(status -> aplicarLote(confirmacoes)), 0);
+            } catch (ConcurrencyFailureException | DuplicateKeyException e) {
+                if (tentativa >= MAXIMO_TENTATIVAS_CONFLITO) {
+                    throw e;
+                }
+                log.info("Conflito ao aplicar lote de {} confirmações; reaplicando (tentativa {}): {}",
+                        confirmacoes.size(), tentativa + 1, e.getMessage());
+            }
+        }
+    }
+
+    // Aplica o lote inteiro numa transação: um UPDATE por status e uma leitura para reprogramar os lembretes.
+    // Se a consulta respondeu mais de uma vez no mesmo lote vale a última resposta; respostas já processadas em lotes
+    // anteriores são descartadas e só consultas ainda AGENDADAS mudam de status, então uma resposta tardia não
+    // cancela uma consulta já confirmada.
+    private int aplicarLote(List<ConfirmacaoConsultaDTO> confirmacoes) {
+        Map<UUID, Boolean> respostas = new LinkedHashMap<>();
+        for (ConfirmacaoConsultaDTO confirmacao : confirmacoes) {
+            converterId(confirmacao).ifPresent(id -> respostas.put(id, confirmacao.isConfirmada()));
+        }
 
-    @Transactional
-    public boolean executar(ConfirmacaoConsultaDTO confirmacao) {
-        UUID consultaId = UUID.fromString(confirmacao.getConsultaId());
-        Optional<Consulta> optionalConsulta = consultaRepository.buscarPorId(consultaId);
+        Set<UUID> processadas = confirmacaoProcessadaRepository.filtrarProcessadas(respostas.keySet());
+        if (!processadas.isEmpty()) {
+            log.info("{} confirmações duplicadas descartadas", processadas.size());
+            respostas.keySet().removeAll(processadas);
+        }
+        if (respostas.isEmpty()) {
+            return 0;
+        }
 
-        if (optionalConsulta.isEmpty()) {
-            log.error("Confirmacao recebida para consulta inexistente %s".formatted(confirmacao.getConsultaId()));
-            return false;
+        // O registro vem antes dos UPDATEs e só as consultas registradas por esta transação têm a resposta aplicada.
+        Set<UUID> registradas = confirmacaoProcessadaRepository.registrar(respostas.keySet());
+        if (registradas.size() < respostas.size()) {
+            log.info("{} confirmações já processadas por outro consumidor descartadas", respostas.size() - registradas.size());
+            respostas.keySet().retainAll(registradas);
+        }
+        if (respostas.isEmpty()) {
+            return 0;
         }
-        Consulta consulta = optionalConsulta.get();
 
-        processarConfirmacaoConsulta(consulta, confirmacao.isConfirmada());
+        Map<Boolean, List<UUID>> idsPorResposta = respostas.entrySet().stream()
+                .collect(Collectors.partitioningBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+
+        int confirmadas = consultaRepository.atualizarStatus(idsPorResposta.get(true), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA);
+        int canceladas = consultaRepository.atualizarStatus(idsPorResposta.get(false), StatusConsulta.AGENDADA, StatusConsulta.CANCELADA);
+        int atualizadas = confirmadas + canceladas;
+
+        if (atualizadas < respostas.size()) {
+            log.warn("{} confirmações do lote referem-se a consultas inexistentes ou que não estão mais agendadas",
+                    respostas.size() - atualizadas);
+        }
 
-        return true;
+        consultaRepository.buscarPorIds(respostas.keySet()).forEach(agendadorLembretesPort::programar);
+        log.info("Lote de {} confirmações aplicado: {} confirmadas, {} canceladas", confirmacoes.size(), confirmadas, canceladas);
+        return atualizadas;
     }
 
-    private void processarConfirmacaoConsulta(Consulta consulta, boolean confirmada) {
-        if (confirmada) {
-            consulta.confirmar();
-            consultaRepository.salvar(consulta);
-        } else {
-            consulta.setStatus(StatusConsulta.CANCELADA);
-            consultaRepository.salvar(consulta);
+    private Optional<UUID> converterId(ConfirmacaoConsultaDTO confirmacao) {
+        try {
+            return Optional.of(UUID.fromString(confirmacao.getConsultaId()));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            log.error("Confirmacao recebida com id de consulta invalido {}", confirmacao.getConsultaId());
+            return Optional.empty();
         }
     }
 }
@@ -26,6 +26,7 @@ public class Consulta {
     private StatusConsulta status;
     private LocalDateTime dataCriacao;
     private LocalDateTime dataAtualizacao;
+    private Long versao;
 
     public boolean isRemarcavel() {
         return StatusConsulta.AGENDADA.equals(this.status);
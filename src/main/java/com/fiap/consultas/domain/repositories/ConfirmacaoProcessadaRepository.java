@@ -0,0 +1,11 @@
+package com.fiap.consultas.domain.repositories;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+public interface ConfirmacaoProcessadaRepository {
+    Set<UUID> filtrarProcessadas(Collection<UUID> consultaIds);
+    Set<UUID> registrar(Collection<UUID> consultaIds);
+    void removerPorConsulta(UUID consultaId);
+}
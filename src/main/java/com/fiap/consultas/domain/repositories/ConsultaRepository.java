@@ -2,19 +2,31 @@ package com.fiap.consultas.domain.repositories;
 
 import com.fiap.consultas.domain.entities.Consulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface ConsultaRepository {
     Consulta salvar(Consulta consulta);
+    List<Consulta> salvarTodos(Collection<Consulta> consultas);
     Optional<Consulta> buscarPorId(UUID id);
+    List<Consulta> buscarPorIds(Collection<UUID> ids);
+    int atualizarStatus(Collection<UUID> ids, StatusConsulta statusAtual, StatusConsulta novoStatus);
     List<Consulta> buscarPorStatus(StatusConsulta status);
+    List<Consulta> buscarParaNotificacao(StatusConsulta status, LocalDateTime inicio, LocalDateTime fim, TipoNotificacao tipo);
+    Stream<Consulta> percorrerParaNotificacao(StatusConsulta status, LocalDateTime inicio, LocalDateTime fim, TipoNotificacao tipo);
+    List<Consulta> buscarParaNotificacao(Collection<UUID> ids, StatusConsulta status, LocalDateTime inicio, LocalDateTime fim, TipoNotificacao tipo);
     List<Consulta> buscarConsultasNaoConfirmadasPorEspecialidadeECidade(String especialidade, String cidade);
     List<Consulta> buscarConsultasPendentesAgendamento();
     boolean existeConsultaNoHorario(String medicoId, LocalDateTime dataHora);
     List<Consulta> buscarConsultasPorMedicoEIntervalo(String medicoId, LocalDateTime inicio, LocalDateTime fim);
+    long contarConsultasPorMedicoEIntervalo(String medicoId, LocalDateTime inicio, LocalDateTime fim);
+    Map<String, Long> contarConsultasPorMedicosEIntervalo(Collection<String> medicoIds, LocalDateTime inicio, LocalDateTime fim);
 
 }
@@ -0,0 +1,11 @@
+package com.fiap.consultas.domain.repositories;
+
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+
+import java.util.Collection;
+import java.util.UUID;
+
+public interface NotificacaoEnviadaRepository {
+    void registrar(Collection<UUID> consultaIds, TipoNotificacao tipo);
+    void removerPorConsulta(UUID consultaId);
+}
@@ -0,0 +1,67 @@
+package com.fiap.consultas.infraestructure.config;
+
+import com.fiap.consultas.infraestructure.persistence.datasource.MonitorAtrasoReplica;
+import com.fiap.consultas.infraestructure.persistence.datasource.RoteamentoDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Só ativa com réplica configurada; sem ela o DataSource continua sendo o da autoconfiguração do Spring Boot.
+@Configuration
+@ConditionalOnProperty(name = "consultas.datasource.replica.habilitada", havingValue = "true")
+public class DataSourceConfig {
+
+    // Atraso em segundos da última transação aplicada; zero quando a réplica já aplicou tudo o que recebeu.
+    private static final String CONSULTA_ATRASO_POSTGRESQL = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() " +
+            "THEN 0 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    @Value("${consultas.datasource.replica.atraso-maximo-ms:5000}")
+    private long atrasoMaximoMs;
+
+    @Value("${consultas.datasource.replica.consulta-atraso:" + CONSULTA_ATRASO_POSTGRESQL + "}")
+    private String consultaAtraso;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimaria(DataSourceProperties propriedades) {
+        return propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("consultas.datasource.replica.hikari")
+    public HikariDataSource dataSourceReplica(@Value("${consultas.datasource.replica.url}") String url,
+                                              @Value("${consultas.datasource.replica.username:${spring.datasource.username:}}") String usuario,
+                                              @Value("${consultas.datasource.replica.password:${spring.datasource.password:}}") String senha) {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setJdbcUrl(url);
+        replica.setUsername(usuario);
+        replica.setPassword(senha);
+        replica.setReadOnly(true);
+        replica.setPoolName("consultas-replica");
+        return replica;
+    }
+
+    @Bean
+    public MonitorAtrasoReplica monitorAtrasoReplica(@Qualifier("dataSourceReplica") DataSource replica, MeterRegistry meterRegistry) {
+        return new MonitorAtrasoReplica(replica, consultaAtraso, Duration.ofMillis(atrasoMaximoMs), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrimaria") DataSource primaria,
+                                 @Qualifier("dataSourceReplica") DataSource replica,
+                                 MonitorAtrasoReplica monitorAtrasoReplica) {
+        return new LazyConnectionDataSourceProxy(new RoteamentoDataSource(primaria, replica, monitorAtrasoReplica));
+    }
+}
@@ -0,0 +1,83 @@
+package com.fiap.consultas.infraestructure.config;
+
+import com.fiap.consultas.infraestructure.messaging.CodecBinarioMensagens;
+import com.fiap.consultas.infraestructure.messaging.ConversorMensagemBinaria;
+import com.fiap.consultas.infraestructure.messaging.PoliticaReprocessamento;
+import com.fiap.consultas.infraestructure.messaging.TravasPorChave;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class MensageriaConfig {
+
+    @Value("${consultas.confirmacoes.particoes-trava:256}")
+    private int particoesTravaConfirmacoes;
+
+    @Value("${consultas.confirmacoes.reprocessamento.max-tentativas:5}")
+    private int maxTentativasReprocessamento;
+
+    @Value("${consultas.confirmacoes.reprocessamento.atraso-inicial-ms:1000}")
+    private long atrasoInicialReprocessamentoMs;
+
+    @Value("${consultas.confirmacoes.reprocessamento.atraso-maximo-ms:60000}")
+    private long atrasoMaximoReprocessamentoMs;
+
+    @Value("${spring.cloud.stream.bindings.reprocessarConfirmacaoConsulta-out-0.destination:confirmacao-consulta-reprocessamento}")
+    private String destinoReprocessamento;
+
+    @Value("${spring.cloud.stream.bindings.receberConfirmacaoConsulta-in-0.destination:confirmacao-consulta-dlx}")
+    private String destinoConfirmacoes;
+
+    @Bean
+    public TravasPorChave travasConfirmacoes() {
+        return new TravasPorChave(particoesTravaConfirmacoes);
+    }
+
+    @Bean
+    public PoliticaReprocessamento politicaReprocessamentoConfirmacoes() {
+        return new PoliticaReprocessamento(maxTentativasReprocessamento,
+                Duration.ofMillis(atrasoInicialReprocessamentoMs), Duration.ofMillis(atrasoMaximoReprocessamentoMs));
+    }
+
+    // Uma fila de espera por faixa de atraso, ligada ao exchange de reprocessamento pela própria faixa, com TTL fixo e
+    // dead-letter de volta ao exchange das confirmações. Como todas as mensagens de uma fila têm o mesmo atraso máximo,
+    // a que está no início nunca segura por mais tempo as que chegaram depois.
+    @Bean
+    public Declarables filasReprocessamentoConfirmacoes(PoliticaReprocessamento politicaReprocessamentoConfirmacoes) {
+        TopicExchange exchange = new TopicExchange(destinoReprocessamento);
+        List<Declarable> declaraveis = new ArrayList<>(List.of(exchange));
+        for (Duration faixa : politicaReprocessamentoConfirmacoes.faixas()) {
+            String chave = String.valueOf(faixa.toMillis());
+            Queue fila = QueueBuilder.durable(destinoReprocessamento + ".aguardando-" + chave)
+                    .ttl(Math.toIntExact(faixa.toMillis()))
+                    .deadLetterExchange(destinoConfirmacoes)
+                    .deadLetterRoutingKey("reprocessamento")
+                    .build();
+            declaraveis.add(fila);
+            declaraveis.add(BindingBuilder.bind(fila).to(exchange).with(chave));
+        }
+        return new Declarables(declaraveis);
+    }
+
+    @Bean
+    public CodecBinarioMensagens codecBinarioMensagens() {
+        return new CodecBinarioMensagens();
+    }
+
+    // Registrado como MessageConverter, o Spring Cloud Stream o usa sempre que o contentType da mensagem for o binário.
+    @Bean
+    public ConversorMensagemBinaria conversorMensagemBinaria(CodecBinarioMensagens codecBinarioMensagens) {
+        return new ConversorMensagemBinaria(codecBinarioMensagens);
+    }
+}
@@ -0,0 +1,67 @@
+package com.fiap.consultas.infraestructure.config;
+
+import com.fiap.consultas.infraestructure.http.Bulkhead;
+import com.fiap.consultas.infraestructure.http.CircuitBreaker;
+import com.fiap.consultas.infraestructure.http.ExecutorHedging;
+import com.fiap.consultas.infraestructure.http.ProtecaoServicoExterno;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class ServicosExternosConfig {
+
+    @Value("${microservices.resiliencia.max-chamadas-concorrentes:10}")
+    private int maxChamadasConcorrentes;
+
+    @Value("${microservices.resiliencia.tempo-espera-bulkhead-ms:200}")
+    private long tempoEsperaBulkheadMs;
+
+    @Value("${microservices.resiliencia.falhas-para-abrir-circuito:5}")
+    private int falhasParaAbrirCircuito;
+
+    @Value("${microservices.resiliencia.tempo-circuito-aberto-ms:30000}")
+    private long tempoCircuitoAbertoMs;
+
+    @Value("${microservices.pacientes.hedging.habilitado:false}")
+    private boolean hedgingPacientesHabilitado;
+
+    @Value("${microservices.pacientes.hedging.percentil:0.95}")
+    private double hedgingPacientesPercentil;
+
+    @Value("${microservices.pacientes.hedging.atraso-inicial-ms:200}")
+    private long hedgingPacientesAtrasoInicialMs;
+
+    @Value("${microservices.pacientes.hedging.atraso-minimo-ms:20}")
+    private long hedgingPacientesAtrasoMinimoMs;
+
+    @Value("${microservices.pacientes.hedging.proporcao-maxima:0.05}")
+    private double hedgingPacientesProporcaoMaxima;
+
+    @Bean
+    public ProtecaoServicoExterno protecaoPacientes(MeterRegistry meterRegistry) {
+        return criarProtecao("pacientes", meterRegistry);
+    }
+
+    @Bean
+    public ProtecaoServicoExterno protecaoMedicos(MeterRegistry meterRegistry) {
+        return criarProtecao("medicos", meterRegistry);
+    }
+
+    @Bean
+    public ExecutorHedging hedgingPacientes(MeterRegistry meterRegistry) {
+        return new ExecutorHedging("pacientes", hedgingPacientesHabilitado, hedgingPacientesPercentil,
+                Duration.ofMillis(hedgingPacientesAtrasoInicialMs), Duration.ofMillis(hedgingPacientesAtrasoMinimoMs),
+                hedgingPacientesProporcaoMaxima, meterRegistry);
+    }
+
+    private ProtecaoServicoExterno criarProtecao(String servico, MeterRegistry meterRegistry) {
+        Bulkhead bulkhead = new Bulkhead(maxChamadasConcorrentes, Duration.ofMillis(tempoEsperaBulkheadMs));
+        CircuitBreaker circuitBreaker = new CircuitBreaker(falhasParaAbrirCircuito, Duration.ofMillis(tempoCircuitoAbertoMs), Clock.systemUTC());
+        return new ProtecaoServicoExterno(servico, bulkhead, circuitBreaker, meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package com.fiap.consultas.infraestructure.http;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class Bulkhead {
+
+    private final int maxChamadasConcorrentes;
+    private final Duration tempoMaximoEspera;
+    private final Semaphore permissoes;
+
+    public Bulkhead(int maxChamadasConcorrentes, Duration tempoMaximoEspera) {
+        this.maxChamadasConcorrentes = maxChamadasConcorrentes;
+        this.tempoMaximoEspera = tempoMaximoEspera;
+        this.permissoes = new Semaphore(maxChamadasConcorrentes, true);
+    }
+
+    public boolean tentarEntrar() {
+        try {
+            return permissoes.tryAcquire(tempoMaximoEspera.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void sair() {
+        permissoes.release();
+    }
+
+    public int chamadasEmAndamento() {
+        return maxChamadasConcorrentes - permissoes.availablePermits();
+    }
+}
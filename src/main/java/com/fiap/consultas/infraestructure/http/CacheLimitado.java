@@ -0,0 +1,54 @@
+package com.fiap.consultas.infraestructure.http;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Cache LRU com capacidade máxima e validade por entrada; ao passar da capacidade sai a entrada usada há mais tempo.
+public class CacheLimitado<K, V> {
+
+    private final Duration validade;
+    private final Clock clock;
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+
+    public CacheLimitado(int capacidade, Duration validade, Clock clock) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("A capacidade do cache deve ser positiva");
+        }
+        this.validade = validade;
+        this.clock = clock;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> maisAntiga) {
+                return size() > capacidade;
+            }
+        };
+    }
+
+    public synchronized V obter(K chave) {
+        Entrada<V> entrada = entradas.get(chave);
+        if (entrada == null) {
+            return null;
+        }
+        if (clock.millis() >= entrada.expiraEmMs()) {
+            entradas.remove(chave);
+            return null;
+        }
+        return entrada.valor();
+    }
+
+    public synchronized void guardar(K chave, V valor) {
+        entradas.put(chave, new Entrada<>(valor, clock.millis() + validade.toMillis()));
+    }
+
+    public synchronized void remover(K chave) {
+        entradas.remove(chave);
+    }
+
+    public synchronized int tamanho() {
+        return entradas.size();
+    }
+
+    private record Entrada<V>(V valor, long expiraEmMs) { }
+}
@@ -0,0 +1,73 @@
+package com.fiap.consultas.infraestructure.http;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+public class CircuitBreaker {
+
+    public enum Estado {
+        FECHADO,
+        MEIO_ABERTO,
+        ABERTO
+    }
+
+    private final int falhasParaAbrir;
+    private final Duration tempoAberto;
+    private final Clock clock;
+
+    private Estado estado = Estado.FECHADO;
+    private int falhasConsecutivas;
+    private Instant abertoEm;
+    private boolean sondaEmAndamento;
+
+    public CircuitBreaker(int falhasParaAbrir, Duration tempoAberto, Clock clock) {
+        this.falhasParaAbrir = falhasParaAbrir;
+        this.tempoAberto = tempoAberto;
+        this.clock = clock;
+    }
+
+    public synchronized boolean permitirChamada() {
+        return switch (estado) {
+            case FECHADO -> true;
+            case ABERTO -> {
+                if (clock.instant().isBefore(abertoEm.plus(tempoAberto))) {
+                    yield false;
+                }
+                estado = Estado.MEIO_ABERTO;
+                sondaEmAndamento = true;
+                yield true;
+            }
+            case MEIO_ABERTO -> {
+                if (sondaEmAndamento) {
+                    yield false;
+                }
+                sondaEmAndamento = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void registrarSucesso() {
+        estado = Estado.FECHADO;
+        falhasConsecutivas = 0;
+        sondaEmAndamento = false;
+    }
+
+    public synchronized void registrarFalha() {
+        sondaEmAndamento = false;
+        falhasConsecutivas++;
+        if (estado == Estado.MEIO_ABERTO || falhasConsecutivas >= falhasParaAbrir) {
+            estado = Estado.ABERTO;
+            abertoEm = clock.instant();
+        }
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    public synchronized int getFalhasConsecutivas() {
+        return falhasConsecutivas;
+    }
+}
@@ -0,0 +1,191 @@
+package com.fiap.consultas.infraestructure.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Dispara uma segunda requisição idêntica quando a primeira demora mais que o percentil configurado
+// das latências recentes, retornando a resposta que chegar primeiro e cancelando a outra.
+public class ExecutorHedging implements AutoCloseable {
+
+    private final boolean habilitado;
+    private final double percentil;
+    private final Duration atrasoMinimo;
+    private final Duration atrasoInicial;
+    private final JanelaLatencias janelaLatencias;
+    private final OrcamentoHedging orcamento;
+    private final ExecutorService executor;
+    private final Timer vitoriasPrimaria;
+    private final Timer vitoriasHedge;
+    private final Counter hedgesDisparados;
+    private final Counter hedgesNegadosPorOrcamento;
+
+    public ExecutorHedging(String servico, boolean habilitado, double percentil, Duration atrasoInicial,
+                           Duration atrasoMinimo, double proporcaoMaxima, MeterRegistry meterRegistry) {
+        this(servico, habilitado, percentil, atrasoInicial, atrasoMinimo, proporcaoMaxima, meterRegistry,
+                new JanelaLatencias(500, 20));
+    }
+
+    ExecutorHedging(String servico, boolean habilitado, double percentil, Duration atrasoInicial,
+                    Duration atrasoMinimo, double proporcaoMaxima, MeterRegistry meterRegistry,
+                    JanelaLatencias janelaLatencias) {
+        this.habilitado = habilitado;
+        this.percentil = percentil;
+        this.atrasoInicial = atrasoInicial;
+        this.atrasoMinimo = atrasoMinimo;
+        this.janelaLatencias = janelaLatencias;
+        this.orcamento = new OrcamentoHedging(proporcaoMaxima);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.vitoriasPrimaria = criarTimer(servico, "primaria", meterRegistry);
+        this.vitoriasHedge = criarTimer(servico, "hedge", meterRegistry);
+        this.hedgesDisparados = Counter.builder("consultas.servico.externo.hedging.disparados")
+                .tag("servico", servico)
+                .register(meterRegistry);
+        this.hedgesNegadosPorOrcamento = Counter.builder("consultas.servico.externo.hedging.negados")
+                .tag("servico", servico)
+                .register(meterRegistry);
+    }
+
+    public <T> T executar(Supplier<T> chamada) {
+        if (!habilitado) {
+            return chamada.get();
+        }
+
+        orcamento.registrarRequisicao();
+        long inicio = System.nanoTime();
+        CompletableFuture<T> primaria = disparar(chamada, true);
+
+        try {
+            T resultado = primaria.get(calcularAtraso().toNanos(), TimeUnit.NANOSECONDS);
+            registrarVitoria(vitoriasPrimaria, inicio);
+            return resultado;
+        } catch (TimeoutException e) {
+            return executarComHedge(chamada, primaria, inicio);
+        } catch (ExecutionException e) {
+            throw desembrulhar(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Chamada interrompida", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T executarComHedge(Supplier<T> chamada, CompletableFuture<T> primaria, long inicio) {
+        if (!orcamento.tentarConsumir()) {
+            hedgesNegadosPorOrcamento.increment();
+            T resultado = aguardar(primaria);
+            registrarVitoria(vitoriasPrimaria, inicio);
+            return resultado;
+        }
+
+        hedgesDisparados.increment();
+        CompletableFuture<T> hedge = disparar(chamada, false);
+        CompletableFuture<Timer> vencedor = new CompletableFuture<>();
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        AtomicInteger falhas = new AtomicInteger();
+
+        primaria.whenComplete((valor, erro) -> concluir(resultado, vencedor, vitoriasPrimaria, valor, erro, falhas));
+        hedge.whenComplete((valor, erro) -> concluir(resultado, vencedor, vitoriasHedge, valor, erro, falhas));
+
+        T valor;
+        try {
+            valor = aguardar(resultado);
+        } finally {
+            // A requisição perdedora é interrompida para liberar a conexão; se ela já terminou, cancel não faz nada.
+            primaria.cancel(true);
+            hedge.cancel(true);
+        }
+        registrarVitoria(vencedor.join(), inicio);
+        return valor;
+    }
+
+    private static <T> void concluir(CompletableFuture<T> resultado, CompletableFuture<Timer> vencedor, Timer timer,
+                                     T valor, Throwable erro, AtomicInteger falhas) {
+        if (erro == null) {
+            if (resultado.complete(valor)) {
+                vencedor.complete(timer);
+            }
+        } else if (falhas.incrementAndGet() == 2) {
+            resultado.completeExceptionally(erro);
+        }
+    }
+
+    // O cancelamento do futuro é repassado à tarefa, interrompendo a virtual thread que aguarda a resposta.
+    // A janela só recebe a latência das primárias, que é a distribuição que define o atraso do hedge: com a latência
+    // vista pelo chamador, as vitórias do hedge baixariam o percentil a cada ciclo. Uma primária cancelada registra o
+    // tempo que já tinha esperado, um limite inferior da sua latência.
+    private <T> CompletableFuture<T> disparar(Supplier<T> chamada, boolean primaria) {
+        long inicio = System.nanoTime();
+        CompletableFuture<T> futuro = new CompletableFuture<>();
+        Future<?> tarefa = executor.submit(() -> {
+            try {
+                futuro.complete(chamada.get());
+            } catch (Throwable e) {
+                futuro.completeExceptionally(e);
+            }
+        });
+        futuro.whenComplete((valor, erro) -> {
+            if (primaria && (erro == null || futuro.isCancelled())) {
+                janelaLatencias.registrar(System.nanoTime() - inicio);
+            }
+            if (futuro.isCancelled()) {
+                tarefa.cancel(true);
+            }
+        });
+        return futuro;
+    }
+
+    private static void registrarVitoria(Timer vencedor, long inicio) {
+        vencedor.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
+    private Duration calcularAtraso() {
+        Duration atraso = janelaLatencias.percentil(percentil).orElse(atrasoInicial);
+        return atraso.compareTo(atrasoMinimo) < 0 ? atrasoMinimo : atraso;
+    }
+
+    private static <T> T aguardar(CompletableFuture<T> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            throw desembrulhar(e.getCause());
+        }
+    }
+
+    private static RuntimeException desembrulhar(Throwable causa) {
+        if (causa instanceof CompletionException && causa.getCause() != null) {
+            causa = causa.getCause();
+        }
+        if (causa instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (causa instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(causa);
+    }
+
+    private static Timer criarTimer(String servico, String vencedor, MeterRegistry meterRegistry) {
+        return Timer.builder("consultas.servico.externo.hedging.latencia")
+                .tag("servico", servico)
+                .tag("vencedor", vencedor)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,37 @@
+package com.fiap.consultas.infraestructure.http;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+public class JanelaLatencias {
+
+    private final long[] amostrasNanos;
+    private final int minimoAmostras;
+    private int proximaPosicao;
+    private int quantidade;
+
+    public JanelaLatencias(int capacidade, int minimoAmostras) {
+        this.amostrasNanos = new long[capacidade];
+        this.minimoAmostras = minimoAmostras;
+    }
+
+    public synchronized void registrar(long latenciaNanos) {
+        amostrasNanos[proximaPosicao] = latenciaNanos;
+        proximaPosicao = (proximaPosicao + 1) % amostrasNanos.length;
+        quantidade = Math.min(quantidade + 1, amostrasNanos.length);
+    }
+
+    public Optional<Duration> percentil(double percentil) {
+        long[] copia;
+        synchronized (this) {
+            if (quantidade < minimoAmostras) {
+                return Optional.empty();
+            }
+            copia = Arrays.copyOf(amostrasNanos, quantidade);
+        }
+        Arrays.sort(copia);
+        int indice = (int) Math.ceil(percentil * copia.length) - 1;
+        return Optional.of(Duration.ofNanos(copia[Math.clamp(indice, 0, copia.length - 1)]));
+    }
+}
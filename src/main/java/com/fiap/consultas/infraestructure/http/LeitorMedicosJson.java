@@ -0,0 +1,124 @@
+package com.fiap.consultas.infraestructure.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fiap.consultas.application.dtos.MedicoDTO;
+import com.fiap.consultas.domain.entities.HorarioTrabalho;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lê a lista de médicos direto do fluxo de tokens JSON para MedicoDTO/HorarioTrabalho,
+// sem materializar objetos intermediários do contrato do serviço de médicos.
+public class LeitorMedicosJson {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public List<MedicoDTO> ler(InputStream corpo) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(corpo)) {
+            JsonToken inicio = parser.nextToken();
+            if (inicio == null || inicio == JsonToken.VALUE_NULL) {
+                return List.of();
+            }
+            exigir(parser, inicio, JsonToken.START_ARRAY);
+
+            List<MedicoDTO> medicos = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                medicos.add(lerMedico(parser));
+            }
+            return medicos;
+        }
+    }
+
+    private MedicoDTO lerMedico(JsonParser parser) throws IOException {
+        exigir(parser, parser.currentToken(), JsonToken.START_OBJECT);
+        MedicoDTO medico = new MedicoDTO();
+        List<HorarioTrabalho> horarios = List.of();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = parser.currentName();
+            JsonToken valor = parser.nextToken();
+            switch (campo) {
+                case "id" -> medico.setId(lerTexto(parser, valor));
+                case "nome" -> medico.setNome(lerTexto(parser, valor));
+                case "especialidade" -> medico.setEspecialidade(lerTexto(parser, valor));
+                case "cidade" -> medico.setCidade(lerTexto(parser, valor));
+                case "horariosTrabalho" -> horarios = lerHorarios(parser, valor);
+                default -> parser.skipChildren();
+            }
+        }
+
+        medico.setHorariosTrabalho(horarios);
+        return medico;
+    }
+
+    private List<HorarioTrabalho> lerHorarios(JsonParser parser, JsonToken inicio) throws IOException {
+        if (inicio == JsonToken.VALUE_NULL) {
+            return List.of();
+        }
+        exigir(parser, inicio, JsonToken.START_ARRAY);
+
+        List<HorarioTrabalho> horarios = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            horarios.add(lerHorario(parser));
+        }
+        return horarios;
+    }
+
+    private HorarioTrabalho lerHorario(JsonParser parser) throws IOException {
+        exigir(parser, parser.currentToken(), JsonToken.START_OBJECT);
+        HorarioTrabalho horario = new HorarioTrabalho();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = parser.currentName();
+            JsonToken valor = parser.nextToken();
+            switch (campo) {
+                case "diaDaSemana" -> horario.setDiaSemana(converterDiaDaSemana(lerTexto(parser, valor)));
+                case "horaInicio" -> horario.setHoraInicio(lerHora(parser, valor));
+                case "horaFim" -> horario.setHoraFim(lerHora(parser, valor));
+                default -> parser.skipChildren();
+            }
+        }
+        return horario;
+    }
+
+    private static String lerTexto(JsonParser parser, JsonToken valor) throws IOException {
+        return valor == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+    }
+
+    private static LocalTime lerHora(JsonParser parser, JsonToken valor) throws IOException {
+        String texto = lerTexto(parser, valor);
+        return texto != null ? LocalTime.parse(texto) : null;
+    }
+
+    private static DayOfWeek converterDiaDaSemana(String diaDaSemana) {
+        if (diaDaSemana == null) {
+            return null;
+        }
+        return switch (DiaDaSemana.valueOf(diaDaSemana)) {
+            case SEGUNDA -> DayOfWeek.MONDAY;
+            case TERCA -> DayOfWeek.TUESDAY;
+            case QUARTA -> DayOfWeek.WEDNESDAY;
+            case QUINTA -> DayOfWeek.THURSDAY;
+            case SEXTA -> DayOfWeek.FRIDAY;
+            case SABADO -> DayOfWeek.SATURDAY;
+            case DOMINGO -> DayOfWeek.SUNDAY;
+        };
+    }
+
+    private static void exigir(JsonParser parser, JsonToken atual, JsonToken esperado) throws IOException {
+        if (atual != esperado) {
+            throw new IOException("Resposta inválida do serviço de médicos: esperado " + esperado + " mas recebido " + atual
+                    + " em " + parser.currentLocation());
+        }
+    }
+
+    private enum DiaDaSemana {
+        SEGUNDA, TERCA, QUARTA, QUINTA, SEXTA, SABADO, DOMINGO
+    }
+}
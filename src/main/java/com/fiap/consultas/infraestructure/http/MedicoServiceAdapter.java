@@ -2,20 +2,18 @@ package com.fiap.consultas.infraestructure.http;
 
 import com.fiap.consultas.application.dtos.MedicoDTO;
 import com.fiap.consultas.application.ports.MedicoServicePort;
-import com.fiap.consultas.domain.entities.HorarioTrabalho;
-import lombok.Getter;
-import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.time.DayOfWeek;
-import java.time.LocalTime;
-import java.util.Collections;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
 
 @Service
@@ -23,88 +21,97 @@ public class MedicoServiceAdapter implements MedicoServicePort {
 
     private final RestTemplate restTemplate;
     private final String medicosServiceUrl;
+    private final SingleFlight<String, List<MedicoDTO>> chamadasEmAndamento;
+    private final ProtecaoServicoExterno protecao;
+    private final LeitorMedicosJson leitorMedicosJson = new LeitorMedicosJson();
+    private final CacheLimitado<String, RespostaValidada> respostasValidadas;
+
+    @Autowired
+    public MedicoServiceAdapter(RestTemplate restTemplate,
+                                @Value("${microservices.medicos.url}") String medicosServiceUrl,
+                                @Value("${microservices.single-flight.tempo-espera-ms:5000}") long tempoEsperaMs,
+                                @Qualifier("protecaoMedicos") ProtecaoServicoExterno protecao,
+                                @Value("${microservices.medicos.validadores.capacidade:1000}") int capacidadeValidadores,
+                                @Value("${microservices.medicos.validadores.validade-ms:3600000}") long validadeValidadoresMs) {
+        this(restTemplate, medicosServiceUrl, tempoEsperaMs, protecao, capacidadeValidadores,
+                Duration.ofMillis(validadeValidadoresMs), Clock.systemUTC());
+    }
 
-    public MedicoServiceAdapter(RestTemplate restTemplate, @Value("${microservices.medicos.url}") String medicosServiceUrl) {
+    MedicoServiceAdapter(RestTemplate restTemplate,
+                         String medicosServiceUrl,
+                         long tempoEsperaMs,
+                         ProtecaoServicoExterno protecao,
+                         int capacidadeValidadores,
+                         Duration validadeValidadores,
+                         Clock clock) {
         this.restTemplate = restTemplate;
         this.medicosServiceUrl = medicosServiceUrl;
+        this.chamadasEmAndamento = new SingleFlight<>(Duration.ofMillis(tempoEsperaMs));
+        this.protecao = protecao;
+        this.respostasValidadas = new CacheLimitado<>(capacidadeValidadores, validadeValidadores, clock);
     }
 
     @Override
     public List<MedicoDTO> buscarMedicosPorEspecialidadeECidade(String especialidade, String cidade) {
+        String chave = especialidade + "|" + cidade;
+        return chamadasEmAndamento.executar(chave, () -> protecao.executar(() -> buscarNoServico(chave, especialidade, cidade)));
+    }
+
+    private List<MedicoDTO> buscarNoServico(String chave, String especialidade, String cidade) {
         String url = UriComponentsBuilder
                 .fromUriString(medicosServiceUrl + "/medicos")
                 .queryParam("especialidade", especialidade)
                 .queryParam("cidade", cidade)
                 .toUriString();
 
-        ResponseEntity<List<MedicoCustom>> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                null,
-                new ParameterizedTypeReference<>() { }
-        );
-
-        List<MedicoCustom> medicos = response.getBody();
-        return medicos != null ? medicos.stream().map(this::convertToMedicoDTO).toList() : Collections.emptyList();
+        List<MedicoDTO> medicos = consultar(url, chave, respostasValidadas.obter(chave));
+        if (medicos == null) {
+            // 304 sem lista guardada para reaproveitar (entrada expirada ou removida do cache nesse meio-tempo):
+            // repete a chamada sem validadores para receber o corpo.
+            medicos = consultar(url, chave, null);
+        }
+        if (medicos == null) {
+            throw new IllegalStateException("Serviço de médicos respondeu 304 a uma requisição sem validadores");
+        }
+        return medicos;
     }
 
-    private MedicoDTO convertToMedicoDTO(MedicoCustom medico) {
-        MedicoDTO medicoDTO = new MedicoDTO();
-        medicoDTO.setId(medico.getId().toString());
-        medicoDTO.setNome(medico.getNome());
-        medicoDTO.setEspecialidade(medico.getEspecialidade());
-        medicoDTO.setCidade(medico.getCidade());
-
-        List<HorarioTrabalho> horariosConvertidos = medico.getHorariosTrabalho().stream()
-                .map(this::convertHorarioTrabalho)
-                .toList();
-
-        medicoDTO.setHorariosTrabalho(horariosConvertidos);
-
-        return medicoDTO;
+    // Devolve null só quando o serviço responde 304 e não há resposta anterior para reaproveitar.
+    private List<MedicoDTO> consultar(String url, String chave, RespostaValidada anterior) {
+        return restTemplate.execute(url, HttpMethod.GET,
+                request -> adicionarValidadores(request.getHeaders(), anterior),
+                response -> {
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        return anterior != null ? anterior.medicos() : null;
+                    }
+                    List<MedicoDTO> lidos = List.copyOf(leitorMedicosJson.ler(response.getBody()));
+                    guardarValidadores(chave, response.getHeaders(), lidos);
+                    return lidos;
+                });
     }
 
-    private HorarioTrabalho convertHorarioTrabalho(HorarioTrabalhoCustom horarioOriginal) {
-        HorarioTrabalho horarioDTO = new HorarioTrabalho();
-
-        horarioDTO.setHoraInicio(horarioOriginal.getHoraInicio());
-        horarioDTO.setHoraFim(horarioOriginal.getHoraFim());
-        horarioDTO.setDiaSemana(convertDiaDaSemana(horarioOriginal.getDiaDaSemana()));
-
-        return horarioDTO;
-    }
-
-    private DayOfWeek convertDiaDaSemana(DiaDaSemanaCustom diaDaSemana) {
-        return switch (diaDaSemana) {
-            case SEGUNDA -> DayOfWeek.MONDAY;
-            case TERCA -> DayOfWeek.TUESDAY;
-            case QUARTA -> DayOfWeek.WEDNESDAY;
-            case QUINTA -> DayOfWeek.THURSDAY;
-            case SEXTA -> DayOfWeek.FRIDAY;
-            case SABADO -> DayOfWeek.SATURDAY;
-            case DOMINGO -> DayOfWeek.SUNDAY;
-        };
+    private static void adicionarValidadores(HttpHeaders headers, RespostaValidada anterior) {
+        if (anterior == null) {
+            return;
+        }
+        if (anterior.etag() != null) {
+            headers.setIfNoneMatch(anterior.etag());
+        }
+        if (anterior.ultimaModificacao() > 0) {
+            headers.setIfModifiedSince(anterior.ultimaModificacao());
+        }
     }
 
-    @Getter
-    @Setter
-    public static class MedicoCustom {
-        private Long id;
-        private String nome;
-        private String especialidade;
-        private String cidade;
-        private List<HorarioTrabalhoCustom> horariosTrabalho;
-    }
+    private void guardarValidadores(String chave, HttpHeaders headers, List<MedicoDTO> medicos) {
+        String etag = headers.getETag();
+        long ultimaModificacao = headers.getLastModified();
 
-    @Getter
-    @Setter
-    public static class HorarioTrabalhoCustom {
-        private DiaDaSemanaCustom diaDaSemana;
-        private LocalTime horaInicio;
-        private LocalTime horaFim;
+        if (etag == null && ultimaModificacao <= 0) {
+            respostasValidadas.remover(chave);
+            return;
+        }
+        respostasValidadas.guardar(chave, new RespostaValidada(etag, ultimaModificacao, medicos));
     }
 
-    public enum DiaDaSemanaCustom {
-        SEGUNDA, TERCA, QUARTA, QUINTA, SEXTA, SABADO, DOMINGO
-    }
-}
\ No newline at end of file
+    private record RespostaValidada(String etag, long ultimaModificacao, List<MedicoDTO> medicos) { }
+}
@@ -0,0 +1,25 @@
+package com.fiap.consultas.infraestructure.http;
+
+public class OrcamentoHedging {
+
+    private static final double CAPACIDADE_MAXIMA = 10.0;
+
+    private final double proporcaoMaxima;
+    private double saldo;
+
+    public OrcamentoHedging(double proporcaoMaxima) {
+        this.proporcaoMaxima = proporcaoMaxima;
+    }
+
+    public synchronized void registrarRequisicao() {
+        saldo = Math.min(CAPACIDADE_MAXIMA, saldo + proporcaoMaxima);
+    }
+
+    public synchronized boolean tentarConsumir() {
+        if (saldo < 1.0) {
+            return false;
+        }
+        saldo -= 1.0;
+        return true;
+    }
+}
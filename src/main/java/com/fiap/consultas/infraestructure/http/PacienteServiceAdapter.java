@@ -2,24 +2,43 @@ package com.fiap.consultas.infraestructure.http;
 
 import com.fiap.consultas.application.dtos.PacienteDTO;
 import com.fiap.consultas.application.ports.PacienteServicePort;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Service
 public class PacienteServiceAdapter implements PacienteServicePort {
 
     private final RestTemplate restTemplate;
     private final String pacientesServiceUrl;
+    private final SingleFlight<String, PacienteDTO> chamadasEmAndamento;
+    private final ProtecaoServicoExterno protecao;
+    private final ExecutorHedging hedging;
 
-    public PacienteServiceAdapter(RestTemplate restTemplate, @Value("${microservices.pacientes.url}") String pacientesServiceUrl) {
+    public PacienteServiceAdapter(RestTemplate restTemplate,
+                                  @Value("${microservices.pacientes.url}") String pacientesServiceUrl,
+                                  @Value("${microservices.single-flight.tempo-espera-ms:5000}") long tempoEsperaMs,
+                                  @Qualifier("protecaoPacientes") ProtecaoServicoExterno protecao,
+                                  @Qualifier("hedgingPacientes") ExecutorHedging hedging) {
         this.restTemplate = restTemplate;
         this.pacientesServiceUrl = pacientesServiceUrl;
+        this.chamadasEmAndamento = new SingleFlight<>(Duration.ofMillis(tempoEsperaMs));
+        this.protecao = protecao;
+        this.hedging = hedging;
     }
 
+    // A proteção envolve o hedge: a chamada lógica ocupa uma só vaga do bulkhead e o circuito só vê o resultado final,
+    // não a falha da requisição perdedora interrompida pelo cancelamento.
     @Override
     public PacienteDTO buscarPacientePorCpf(String cpf) {
+        return chamadasEmAndamento.executar(cpf, () -> protecao.executar(() -> hedging.executar(() -> buscarNoServico(cpf))));
+    }
+
+    private PacienteDTO buscarNoServico(String cpf) {
         String url = pacientesServiceUrl + "/api/v1/pacientes/" + cpf;
         return restTemplate.getForObject(url, PacienteDTO.class);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.fiap.consultas.infraestructure.http;
+
+import com.fiap.consultas.application.exceptions.ServicoExternoIndisponivelException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.function.Supplier;
+
+public class ProtecaoServicoExterno {
+
+    private final String servico;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter rejeitadasPorBulkhead;
+    private final Counter rejeitadasPorCircuito;
+
+    public ProtecaoServicoExterno(String servico, Bulkhead bulkhead, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this.servico = servico;
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+
+        Gauge.builder("consultas.servico.externo.circuito.estado", circuitBreaker, cb -> cb.getEstado().ordinal())
+                .description("Estado do circuit breaker: 0 fechado, 1 meio aberto, 2 aberto")
+                .tag("servico", servico)
+                .register(meterRegistry);
+        Gauge.builder("consultas.servico.externo.chamadas.em.andamento", bulkhead, Bulkhead::chamadasEmAndamento)
+                .tag("servico", servico)
+                .register(meterRegistry);
+        this.rejeitadasPorBulkhead = Counter.builder("consultas.servico.externo.chamadas.rejeitadas")
+                .tag("servico", servico)
+                .tag("motivo", "bulkhead")
+                .register(meterRegistry);
+        this.rejeitadasPorCircuito = Counter.builder("consultas.servico.externo.chamadas.rejeitadas")
+                .tag("servico", servico)
+                .tag("motivo", "circuito_aberto")
+                .register(meterRegistry);
+    }
+
+    public <T> T executar(Supplier<T> chamada) {
+        if (!bulkhead.tentarEntrar()) {
+            rejeitadasPorBulkhead.increment();
+            throw new ServicoExternoIndisponivelException("Limite de chamadas concorrentes atingido para o serviço de " + servico);
+        }
+
+        try {
+            if (!circuitBreaker.permitirChamada()) {
+                rejeitadasPorCircuito.increment();
+                throw new ServicoExternoIndisponivelException("Circuit breaker aberto para o serviço de " + servico);
+            }
+            return executarRegistrandoResultado(chamada);
+        } finally {
+            bulkhead.sair();
+        }
+    }
+
+    public CircuitBreaker.Estado getEstadoCircuito() {
+        return circuitBreaker.getEstado();
+    }
+
+    private <T> T executarRegistrandoResultado(Supplier<T> chamada) {
+        try {
+            T resultado = chamada.get();
+            circuitBreaker.registrarSucesso();
+            return resultado;
+        } catch (HttpClientErrorException e) {
+            circuitBreaker.registrarSucesso();
+            throw e;
+        } catch (Throwable e) {
+            // Inclui Error: sem registrar a falha a sonda do meio aberto nunca seria liberada e o circuito travaria.
+            circuitBreaker.registrarFalha();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.fiap.consultas.infraestructure.http;
+
+import com.fiap.consultas.application.exceptions.ServicoExternoIndisponivelException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Chamadas concorrentes com a mesma chave compartilham uma única execução em andamento.
+// Não guarda resultado após a conclusão: não é cache, apenas deduplicação.
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> emAndamento = new ConcurrentHashMap<>();
+    private final Duration tempoMaximoEspera;
+
+    public SingleFlight(Duration tempoMaximoEspera) {
+        this.tempoMaximoEspera = tempoMaximoEspera;
+    }
+
+    public V executar(K chave, Supplier<V> chamada) {
+        CompletableFuture<V> novaChamada = new CompletableFuture<>();
+        CompletableFuture<V> chamadaExistente = emAndamento.putIfAbsent(chave, novaChamada);
+
+        if (chamadaExistente != null) {
+            return aguardar(chave, chamadaExistente);
+        }
+
+        try {
+            V resultado = chamada.get();
+            novaChamada.complete(resultado);
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            novaChamada.completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(chave, novaChamada);
+        }
+    }
+
+    public int chamadasEmAndamento() {
+        return emAndamento.size();
+    }
+
+    private V aguardar(K chave, CompletableFuture<V> chamada) {
+        try {
+            return chamada.get(tempoMaximoEspera.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServicoExternoIndisponivelException("Tempo de espera esgotado aguardando chamada em andamento para " + chave, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServicoExternoIndisponivelException("Espera interrompida aguardando chamada em andamento para " + chave, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new ServicoExternoIndisponivelException("Falha na chamada em andamento para " + chave, e.getCause());
+        }
+    }
+}
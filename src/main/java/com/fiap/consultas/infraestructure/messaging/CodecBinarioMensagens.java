@@ -0,0 +1,237 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
+import com.fiap.consultas.application.dtos.ItemNotificacaoDTO;
+import com.fiap.consultas.application.dtos.NotificacaoDTO;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Formato binário das mensagens: byte de versão, byte de tipo e os campos em ordem fixa. UUIDs vão como dois longs,
+// datas como segundos/nanos de época e enums pelo ordinal, então novas constantes só podem ser acrescentadas no fim.
+// Campos opcionais são precedidos por um marcador: ausente, valor compacto ou texto livre.
+public class CodecBinarioMensagens {
+
+    static final byte VERSAO = 1;
+    static final byte TIPO_NOTIFICACAO = 1;
+    static final byte TIPO_CONFIRMACAO = 2;
+
+    private static final byte AUSENTE = 0;
+    private static final byte COMPACTO = 1;
+    private static final byte TEXTO = 2;
+
+    public byte[] codificar(NotificacaoDTO notificacao) {
+        return escrever(TIPO_NOTIFICACAO, saida -> {
+            escreverUuid(saida, notificacao.getConsultaId());
+            escreverTexto(saida, notificacao.getNomePaciente());
+            escreverTexto(saida, notificacao.getEmail());
+            escreverTexto(saida, notificacao.getTelefone());
+            escreverTexto(saida, notificacao.getConsulta());
+            escreverTexto(saida, notificacao.getLocalConsulta());
+            escreverTexto(saida, notificacao.getNomeMedico());
+            escreverDataHora(saida, notificacao.getDataConsulta());
+            escreverEnum(saida, notificacao.getTipoNotificacao());
+            escreverItens(saida, notificacao.getConsultasAgrupadas());
+        });
+    }
+
+    public NotificacaoDTO decodificarNotificacao(byte[] conteudo) {
+        return ler(conteudo, TIPO_NOTIFICACAO, entrada -> NotificacaoDTO.builder()
+                .consultaId(lerUuid(entrada))
+                .nomePaciente(lerTexto(entrada))
+                .email(lerTexto(entrada))
+                .telefone(lerTexto(entrada))
+                .consulta(lerTexto(entrada))
+                .localConsulta(lerTexto(entrada))
+                .nomeMedico(lerTexto(entrada))
+                .dataConsulta(lerDataHora(entrada))
+                .tipoNotificacao(lerEnum(entrada, TipoNotificacao.values()))
+                .consultasAgrupadas(lerItens(entrada))
+                .build());
+    }
+
+    public byte[] codificar(ConfirmacaoConsultaDTO confirmacao) {
+        return escrever(TIPO_CONFIRMACAO, saida -> {
+            escreverIdTextual(saida, confirmacao.getConsultaId());
+            saida.writeBoolean(confirmacao.isConfirmada());
+        });
+    }
+
+    public ConfirmacaoConsultaDTO decodificarConfirmacao(byte[] conteudo) {
+        return ler(conteudo, TIPO_CONFIRMACAO, entrada -> new ConfirmacaoConsultaDTO(lerIdTextual(entrada), entrada.readBoolean()));
+    }
+
+    private byte[] escrever(byte tipo, Escrita escrita) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream saida = new DataOutputStream(bytes)) {
+            saida.writeByte(VERSAO);
+            saida.writeByte(tipo);
+            escrita.escrever(saida);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private <T> T ler(byte[] conteudo, byte tipoEsperado, Leitura<T> leitura) {
+        try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(conteudo))) {
+            byte versao = entrada.readByte();
+            byte tipo = entrada.readByte();
+            if (versao != VERSAO || tipo != tipoEsperado) {
+                throw new IllegalArgumentException("Mensagem binária não suportada: versão %d, tipo %d".formatted(versao, tipo));
+            }
+            return leitura.ler(entrada);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Mensagem binária truncada ou inválida", e);
+        }
+    }
+
+    private void escreverUuid(DataOutputStream saida, UUID uuid) throws IOException {
+        saida.writeBoolean(uuid != null);
+        if (uuid != null) {
+            saida.writeLong(uuid.getMostSignificantBits());
+            saida.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    private UUID lerUuid(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? new UUID(entrada.readLong(), entrada.readLong()) : null;
+    }
+
+    // O id da confirmação chega como texto; se for um UUID válido vai em 16 bytes, senão segue como texto.
+    private void escreverIdTextual(DataOutputStream saida, String id) throws IOException {
+        UUID uuid = converterUuid(id);
+        if (uuid != null && uuid.toString().equals(id)) {
+            saida.writeByte(COMPACTO);
+            saida.writeLong(uuid.getMostSignificantBits());
+            saida.writeLong(uuid.getLeastSignificantBits());
+        } else {
+            escreverTextoMarcado(saida, id);
+        }
+    }
+
+    private String lerIdTextual(DataInputStream entrada) throws IOException {
+        byte marcador = entrada.readByte();
+        if (marcador == COMPACTO) {
+            return new UUID(entrada.readLong(), entrada.readLong()).toString();
+        }
+        return marcador == TEXTO ? entrada.readUTF() : null;
+    }
+
+    // dataConsulta é um LocalDateTime.toString(); só vira segundos de época se a volta reproduzir o mesmo texto.
+    private void escreverDataHora(DataOutputStream saida, String dataHora) throws IOException {
+        LocalDateTime valor = converterDataHora(dataHora);
+        if (valor != null && valor.toString().equals(dataHora)) {
+            saida.writeByte(COMPACTO);
+            saida.writeLong(valor.toEpochSecond(ZoneOffset.UTC));
+            saida.writeInt(valor.getNano());
+        } else {
+            escreverTextoMarcado(saida, dataHora);
+        }
+    }
+
+    private String lerDataHora(DataInputStream entrada) throws IOException {
+        byte marcador = entrada.readByte();
+        if (marcador == COMPACTO) {
+            return LocalDateTime.ofEpochSecond(entrada.readLong(), entrada.readInt(), ZoneOffset.UTC).toString();
+        }
+        return marcador == TEXTO ? entrada.readUTF() : null;
+    }
+
+    // -1 indica lista ausente, para distinguir de uma lista vazia.
+    private void escreverItens(DataOutputStream saida, List<ItemNotificacaoDTO> itens) throws IOException {
+        saida.writeInt(itens == null ? -1 : itens.size());
+        if (itens == null) {
+            return;
+        }
+        for (ItemNotificacaoDTO item : itens) {
+            escreverUuid(saida, item.getConsultaId());
+            escreverTexto(saida, item.getLocalConsulta());
+            escreverDataHora(saida, item.getDataConsulta());
+        }
+    }
+
+    private List<ItemNotificacaoDTO> lerItens(DataInputStream entrada) throws IOException {
+        int quantidade = entrada.readInt();
+        if (quantidade < 0) {
+            return null;
+        }
+        List<ItemNotificacaoDTO> itens = new ArrayList<>(Math.min(quantidade, entrada.available()));
+        for (int i = 0; i < quantidade; i++) {
+            itens.add(new ItemNotificacaoDTO(lerUuid(entrada), lerTexto(entrada), lerDataHora(entrada)));
+        }
+        return itens;
+    }
+
+    private void escreverTextoMarcado(DataOutputStream saida, String texto) throws IOException {
+        if (texto == null) {
+            saida.writeByte(AUSENTE);
+        } else {
+            saida.writeByte(TEXTO);
+            saida.writeUTF(texto);
+        }
+    }
+
+    private void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        saida.writeBoolean(texto != null);
+        if (texto != null) {
+            saida.writeUTF(texto);
+        }
+    }
+
+    private String lerTexto(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+
+    private void escreverEnum(DataOutputStream saida, Enum<?> valor) throws IOException {
+        saida.writeByte(valor == null ? -1 : valor.ordinal());
+    }
+
+    private <E extends Enum<E>> E lerEnum(DataInputStream entrada, E[] valores) throws IOException {
+        byte ordinal = entrada.readByte();
+        if (ordinal < 0) {
+            return null;
+        }
+        if (ordinal >= valores.length) {
+            throw new IllegalArgumentException("Valor de enum desconhecido: " + ordinal);
+        }
+        return valores[ordinal];
+    }
+
+    private UUID converterUuid(String texto) {
+        try {
+            return texto == null ? null : UUID.fromString(texto);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private LocalDateTime converterDataHora(String texto) {
+        try {
+            return texto == null ? null : LocalDateTime.parse(texto);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Escrita {
+        void escrever(DataOutputStream saida) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Leitura<T> {
+        T ler(DataInputStream entrada) throws IOException;
+    }
+}
@@ -1,33 +1,201 @@
 package com.fiap.consultas.infraestructure.messaging;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
 import com.fiap.consultas.application.usecases.ReceberConfirmacaoConsultaUseCase;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.context.annotation.Bean;
+import org.springframework.integration.amqp.inbound.AmqpInboundChannelAdapter;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class ConfirmacaoConsultaConsumer {
 
+    static final String HEADER_TENTATIVAS = "x-tentativas";
+    static final String HEADER_ERRO = "x-erro";
+    static final String HEADER_FAIXA = "x-faixa-reprocessamento";
+    static final String BINDING_REPROCESSAMENTO = "reprocessarConfirmacaoConsulta-out-0";
+    static final String BINDING_DESCARTE = "descartarConfirmacaoConsulta-out-0";
+
     private final ReceberConfirmacaoConsultaUseCase receberConfirmacaoConsultaUseCase;
+    private final TravasPorChave travasConfirmacoes;
+    private final PoliticaReprocessamento politicaReprocessamento;
+    private final CompositeMessageConverter conversor;
+    private final StreamBridge streamBridge;
+    private final Counter reprocessadas;
+    private final Counter descartadas;
+
+    public ConfirmacaoConsultaConsumer(ReceberConfirmacaoConsultaUseCase receberConfirmacaoConsultaUseCase,
+                                       TravasPorChave travasConfirmacoes,
+                                       PoliticaReprocessamento politicaReprocessamento,
+                                       ConversorMensagemBinaria conversorMensagemBinaria,
+                                       ObjectMapper objectMapper,
+                                       StreamBridge streamBridge,
+                                       MeterRegistry meterRegistry) {
+        this.receberConfirmacaoConsultaUseCase = receberConfirmacaoConsultaUseCase;
+        this.travasConfirmacoes = travasConfirmacoes;
+        this.politicaReprocessamento = politicaReprocessamento;
+        MappingJackson2MessageConverter conversorJson = new MappingJackson2MessageConverter();
+        conversorJson.setObjectMapper(objectMapper);
+        this.conversor = new CompositeMessageConverter(List.of(conversorMensagemBinaria, conversorJson));
+        this.streamBridge = streamBridge;
+        this.reprocessadas = Counter.builder("consultas.confirmacoes.reprocessadas")
+                .register(meterRegistry);
+        this.descartadas = Counter.builder("consultas.confirmacoes.descartadas")
+                .register(meterRegistry);
+    }
 
+    // Binding em modo lote, confirmado só após o commit. Com consumidores concorrentes, as travas das consultas do lote
+    // ficam retidas até o commit, então dois lotes que tocam a mesma consulta são aplicados um após o outro.
+    // Se o lote falha, cada confirmação é aplicada sozinha e só as que falharem de novo seguem para a fila de
+    // reprocessamento, sem prender a thread do consumidor esperando o backoff.
+    // O lote chega em bytes porque cada mensagem pode ter sido publicada num formato diferente (JSON ou binário).
     @Bean
-    public Consumer<Message<ConfirmacaoConsultaDTO>> receberConfirmacaoConsulta() {
-        return message -> {
+    public Consumer<Message<List<byte[]>>> receberConfirmacaoConsulta() {
+        return mensagem -> {
+            List<ConfirmacaoRecebida> recebidas = converter(mensagem);
+            if (recebidas.isEmpty()) {
+                return;
+            }
+            List<ConfirmacaoConsultaDTO> confirmacoes = recebidas.stream().map(ConfirmacaoRecebida::confirmacao).toList();
+            log.info("Recebido lote de {} confirmações de consulta", confirmacoes.size());
             try {
-                ConfirmacaoConsultaDTO confirmacao = message.getPayload();
-                log.info("Recebida confirmação para consulta: {}", confirmacao.getConsultaId());
-                boolean executar = receberConfirmacaoConsultaUseCase.executar(confirmacao);
-                log.info("Consulta recebeu confirmação com sucesso: %s".formatted(executar));
-            } catch (Exception e) {
-                log.error("Erro ao processar confirmação de consulta", e);
+                int atualizadas = aplicar(confirmacoes);
+                log.info("Consultas atualizadas pelo lote: {}", atualizadas);
+            } catch (RuntimeException e) {
+                log.warn("Falha ao aplicar lote de {} confirmações, aplicando individualmente: {}", confirmacoes.size(), e.getMessage());
+                recebidas.forEach(recebida -> aplicarIndividualmente(recebida.confirmacao(), recebida.tentativas()));
             }
         };
     }
-}
\ No newline at end of file
+
+    // Cada mensagem é convertida com o próprio contentType; a que não puder ser lida vai direto para a DLQ, sem
+    // derrubar as demais confirmações do lote.
+    private List<ConfirmacaoRecebida> converter(Message<List<byte[]>> lote) {
+        List<byte[]> conteudos = lote.getPayload();
+        List<ConfirmacaoRecebida> recebidas = new ArrayList<>(conteudos.size());
+        for (int i = 0; i < conteudos.size(); i++) {
+            Message<byte[]> mensagem = MessageBuilder.withPayload(conteudos.get(i))
+                    .copyHeaders(headersDaMensagem(lote, i))
+                    .setHeaderIfAbsent(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+                    .build();
+            int tentativasRealizadas = tentativas(mensagem);
+            try {
+                if (conversor.fromMessage(mensagem, ConfirmacaoConsultaDTO.class) instanceof ConfirmacaoConsultaDTO confirmacao) {
+                    recebidas.add(new ConfirmacaoRecebida(confirmacao, tentativasRealizadas));
+                    continue;
+                }
+                rejeitar(mensagem, tentativasRealizadas, "Formato de mensagem não suportado: " + mensagem.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+            } catch (MessageConversionException | IllegalArgumentException e) {
+                rejeitar(mensagem, tentativasRealizadas, e.getMessage());
+            }
+        }
+        return recebidas;
+    }
+
+    private int aplicar(List<ConfirmacaoConsultaDTO> confirmacoes) {
+        List<String> consultaIds = confirmacoes.stream().map(ConfirmacaoConsultaDTO::getConsultaId).toList();
+        return travasConfirmacoes.executar(consultaIds, () -> receberConfirmacaoConsultaUseCase.executarLote(confirmacoes));
+    }
+
+    private void aplicarIndividualmente(ConfirmacaoConsultaDTO confirmacao, int tentativasRealizadas) {
+        try {
+            aplicar(List.of(confirmacao));
+        } catch (RuntimeException e) {
+            if (politicaReprocessamento.podeReprocessar(tentativasRealizadas)
+                    && reprocessar(confirmacao, tentativasRealizadas + 1, e)) {
+                return;
+            }
+            descartar(confirmacao, tentativasRealizadas, e);
+        }
+    }
+
+    // As filas de espera não têm consumidor: há uma por faixa de atraso, com TTL fixo, e a mensagem expirada volta à
+    // fila principal pelo dead-letter exchange. A faixa vai como routing key; a expiração da mensagem só aplica o
+    // jitter dentro da faixa e nunca passa do TTL da fila, então nenhuma mensagem espera mais que o atraso da sua faixa.
+    // Se a republicação falhar, só essa confirmação vai para a DLQ.
+    private boolean reprocessar(ConfirmacaoConsultaDTO confirmacao, int tentativa, RuntimeException erro) {
+        long faixaMs = politicaReprocessamento.faixa(tentativa).toMillis();
+        long atrasoMs = politicaReprocessamento.atraso(tentativa).toMillis();
+        Message<ConfirmacaoConsultaDTO> mensagem = MessageBuilder.withPayload(confirmacao)
+                .setHeader(HEADER_TENTATIVAS, tentativa)
+                .setHeader(HEADER_FAIXA, String.valueOf(faixaMs))
+                .setHeader(AmqpHeaders.EXPIRATION, String.valueOf(atrasoMs))
+                .build();
+        try {
+            if (!streamBridge.send(BINDING_REPROCESSAMENTO, mensagem)) {
+                log.warn("Não foi possível republicar a confirmação da consulta {} para reprocessamento", confirmacao.getConsultaId());
+                return false;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Não foi possível republicar a confirmação da consulta {} para reprocessamento: {}", confirmacao.getConsultaId(), e.getMessage());
+            return false;
+        }
+        log.warn("Confirmação da consulta {} será reprocessada em {} ms (tentativa {}): {}",
+                confirmacao.getConsultaId(), atrasoMs, tentativa, erro.getMessage());
+        reprocessadas.increment();
+        return true;
+    }
+
+    private void descartar(ConfirmacaoConsultaDTO confirmacao, int tentativasRealizadas, RuntimeException erro) {
+        log.error("Confirmação da consulta {} enviada para a DLQ após {} tentativas", confirmacao.getConsultaId(), tentativasRealizadas, erro);
+        publicar(BINDING_DESCARTE, MessageBuilder.withPayload(confirmacao)
+                .setHeader(HEADER_TENTATIVAS, tentativasRealizadas)
+                .setHeader(HEADER_ERRO, String.valueOf(erro.getMessage()))
+                .build());
+        descartadas.increment();
+    }
+
+    private void rejeitar(Message<byte[]> mensagem, int tentativasRealizadas, String erro) {
+        log.error("Confirmação ilegível enviada para a DLQ: {}", erro);
+        publicar(BINDING_DESCARTE, MessageBuilder.withPayload(mensagem.getPayload())
+                .setHeader(MessageHeaders.CONTENT_TYPE, mensagem.getHeaders().get(MessageHeaders.CONTENT_TYPE))
+                .setHeader(HEADER_TENTATIVAS, tentativasRealizadas)
+                .setHeader(HEADER_ERRO, String.valueOf(erro))
+                .build());
+        descartadas.increment();
+    }
+
+    // Se nem a DLQ aceitar a mensagem a exceção sobe e o container rejeita o lote, que cai na DLQ do binding.
+    private void publicar(String binding, Message<?> mensagem) {
+        if (!streamBridge.send(binding, mensagem)) {
+            throw new IllegalStateException("Não foi possível publicar a confirmação em " + binding);
+        }
+    }
+
+    // No modo lote do RabbitMQ os headers de cada mensagem chegam numa lista paralela ao payload.
+    private Map<String, Object> headersDaMensagem(Message<List<byte[]>> lote, int indice) {
+        Map<String, Object> headers = new HashMap<>(lote.getHeaders());
+        headers.remove(AmqpInboundChannelAdapter.CONSOLIDATED_HEADERS);
+        if (lote.getHeaders().get(AmqpInboundChannelAdapter.CONSOLIDATED_HEADERS) instanceof List<?> porMensagem
+                && indice < porMensagem.size() && porMensagem.get(indice) instanceof Map<?, ?> headersDaMensagem) {
+            headersDaMensagem.forEach((nome, valor) -> headers.put(String.valueOf(nome), valor));
+        }
+        return headers;
+    }
+
+    private int tentativas(Message<byte[]> mensagem) {
+        return mensagem.getHeaders().get(HEADER_TENTATIVAS) instanceof Number numero ? numero.intValue() : 0;
+    }
+
+    private record ConfirmacaoRecebida(ConfirmacaoConsultaDTO confirmacao, int tentativas) {
+    }
+}
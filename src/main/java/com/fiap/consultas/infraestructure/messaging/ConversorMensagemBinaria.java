@@ -0,0 +1,46 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
+import com.fiap.consultas.application.dtos.NotificacaoDTO;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeType;
+
+// Só atua quando o header contentType é o formato binário; as demais mensagens continuam com o conversor JSON.
+public class ConversorMensagemBinaria extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-consultas-binario";
+
+    private final CodecBinarioMensagens codec;
+
+    public ConversorMensagemBinaria(CodecBinarioMensagens codec) {
+        super(MimeType.valueOf(CONTENT_TYPE));
+        this.codec = codec;
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return NotificacaoDTO.class.equals(clazz) || ConfirmacaoConsultaDTO.class.equals(clazz);
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] conteudo)) {
+            return null;
+        }
+        return NotificacaoDTO.class.equals(targetClass)
+                ? codec.decodificarNotificacao(conteudo)
+                : codec.decodificarConfirmacao(conteudo);
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return switch (payload) {
+            case NotificacaoDTO notificacao -> codec.codificar(notificacao);
+            case ConfirmacaoConsultaDTO confirmacao -> codec.codificar(confirmacao);
+            default -> null;
+        };
+    }
+}
@@ -1,23 +1,83 @@
 package com.fiap.consultas.infraestructure.messaging;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fiap.consultas.application.dtos.NotificacaoDTO;
 import com.fiap.consultas.application.ports.NotificacaoServicePort;
-import lombok.RequiredArgsConstructor;
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoOutboxJpaEntity;
+import com.fiap.consultas.infraestructure.persistence.repositories.NotificacaoOutboxJpaRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.MimeTypeUtils;
 
+import java.time.LocalDateTime;
+
+// A notificação é gravada no outbox na mesma transação da alteração da consulta; o RelayNotificacoesOutbox publica depois.
+// O conteúdo já é gravado no formato de envio (JSON ou binário), para o relay não precisar serializar de novo.
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class NotificacaoServiceAdapter implements NotificacaoServicePort {
 
-    private final StreamBridge streamBridge;
-    private static final String DESTINATION_BINDING = "enviarNotificacao-out-0";
+    private final NotificacaoOutboxJpaRepository notificacaoOutboxJpaRepository;
+    private final ObjectMapper objectMapper;
+    private final CodecBinarioMensagens codecBinarioMensagens;
+    private final RelayNotificacoesOutbox relayNotificacoesOutbox;
+    private final boolean formatoBinario;
+
+    public NotificacaoServiceAdapter(NotificacaoOutboxJpaRepository notificacaoOutboxJpaRepository,
+                                     ObjectMapper objectMapper,
+                                     CodecBinarioMensagens codecBinarioMensagens,
+                                     RelayNotificacoesOutbox relayNotificacoesOutbox,
+                                     @Value("${notificacoes.formato-mensagem:application/json}") String formatoMensagem) {
+        if (!MimeTypeUtils.APPLICATION_JSON_VALUE.equals(formatoMensagem) && !ConversorMensagemBinaria.CONTENT_TYPE.equals(formatoMensagem)) {
+            throw new IllegalArgumentException("Formato de mensagem não suportado: " + formatoMensagem);
+        }
+        this.notificacaoOutboxJpaRepository = notificacaoOutboxJpaRepository;
+        this.objectMapper = objectMapper;
+        this.codecBinarioMensagens = codecBinarioMensagens;
+        this.relayNotificacoesOutbox = relayNotificacoesOutbox;
+        this.formatoBinario = ConversorMensagemBinaria.CONTENT_TYPE.equals(formatoMensagem);
+    }
 
     @Override
+    @Transactional
     public void enviarNotificacao(NotificacaoDTO notificacao) {
-        boolean send = streamBridge.send(DESTINATION_BINDING, notificacao);
-        log.info("Notificacao enviada " + send);
+        notificacaoOutboxJpaRepository.save(NotificacaoOutboxJpaEntity.builder()
+                .consultaId(notificacao.getConsultaId())
+                .tipo(notificacao.getTipoNotificacao())
+                .conteudo(serializar(notificacao))
+                .contentType(formatoBinario ? ConversorMensagemBinaria.CONTENT_TYPE : MimeTypeUtils.APPLICATION_JSON_VALUE)
+                .dataCriacao(LocalDateTime.now())
+                .build());
+        log.debug("Notificacao {} da consulta {} gravada no outbox", notificacao.getTipoNotificacao(), notificacao.getConsultaId());
+        avisarRelay();
+    }
+
+    private void avisarRelay() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relayNotificacoesOutbox.registrarPendente();
+                }
+            });
+        } else {
+            relayNotificacoesOutbox.registrarPendente();
+        }
+    }
+
+    private byte[] serializar(NotificacaoDTO notificacao) {
+        if (formatoBinario) {
+            return codecBinarioMensagens.codificar(notificacao);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(notificacao);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível serializar a notificação da consulta " + notificacao.getConsultaId(), e);
+        }
     }
 }
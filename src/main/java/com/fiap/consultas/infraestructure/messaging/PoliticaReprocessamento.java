@@ -0,0 +1,52 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Backoff exponencial com jitter: cada tentativa cai numa faixa (o atraso inicial dobrando até o máximo) e o atraso
+// sorteado fica entre a metade e o total da faixa, para que mensagens que falharam juntas (por exemplo, numa queda do
+// banco) não voltem todas ao mesmo tempo.
+public class PoliticaReprocessamento {
+
+    private final int maxTentativas;
+    private final Duration atrasoInicial;
+    private final Duration atrasoMaximo;
+
+    public PoliticaReprocessamento(int maxTentativas, Duration atrasoInicial, Duration atrasoMaximo) {
+        if (maxTentativas < 0 || atrasoInicial.isNegative() || atrasoInicial.isZero() || atrasoMaximo.compareTo(atrasoInicial) < 0) {
+            throw new IllegalArgumentException("Política de reprocessamento inválida");
+        }
+        this.maxTentativas = maxTentativas;
+        this.atrasoInicial = atrasoInicial;
+        this.atrasoMaximo = atrasoMaximo;
+    }
+
+    public boolean podeReprocessar(int tentativasRealizadas) {
+        return tentativasRealizadas < maxTentativas;
+    }
+
+    public Duration atraso(int tentativa) {
+        long base = faixa(tentativa).toMillis();
+        long metade = base / 2;
+        return Duration.ofMillis(metade + ThreadLocalRandom.current().nextLong(base - metade + 1));
+    }
+
+    public Duration faixa(int tentativa) {
+        long fator = 1L << Math.min(Math.max(tentativa - 1, 0), 30);
+        return Duration.ofMillis(Math.min(atrasoMaximo.toMillis(), atrasoInicial.toMillis() * fator));
+    }
+
+    // Uma fila de espera por faixa; a partir da última, todas as tentativas usam o atraso máximo.
+    public List<Duration> faixas() {
+        List<Duration> faixas = new ArrayList<>();
+        int tentativa = 1;
+        Duration faixa;
+        do {
+            faixa = faixa(tentativa++);
+            faixas.add(faixa);
+        } while (faixa.compareTo(atrasoMaximo) < 0 && tentativa <= 31);
+        return faixas;
+    }
+}
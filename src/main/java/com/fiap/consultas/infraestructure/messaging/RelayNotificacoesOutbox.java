@@ -0,0 +1,231 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoOutboxJpaEntity;
+import com.fiap.consultas.infraestructure.persistence.repositories.NotificacaoOutboxJpaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Publica o outbox em lotes numa thread própria, para que lentidão do broker não segure os jobs agendados.
+// Um lote sai quando acumula "tamanho-lote" notificações ou a cada "linger-ms", o que vier primeiro.
+// O lote é reservado numa transação curta ("reservado_ate"), publicado e confirmado fora de transação, e o resultado
+// é gravado numa segunda transação curta; nenhum lock de linha fica preso enquanto se espera o broker.
+@Component
+@Slf4j
+public class RelayNotificacoesOutbox implements AutoCloseable {
+
+    static final String DESTINATION_BINDING = "enviarNotificacao-out-0";
+
+    private final NotificacaoOutboxJpaRepository notificacaoOutboxJpaRepository;
+    private final StreamBridge streamBridge;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanhoLote;
+    private final Duration linger;
+    private final Duration tempoConfirmacao;
+    private final int reenviosNoLote;
+    private final int maximoTentativas;
+    private final Duration reserva;
+    private final boolean aguardarConfirmacao;
+    private final AtomicInteger pendentesDesdeUltimoLote = new AtomicInteger();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("relay-notificacoes").daemon().factory());
+    private final Counter publicadasConfirmadas;
+    private final Counter publicadasNaoConfirmadas;
+    private final Counter descartadas;
+    private final Timer latenciaConfirmacao;
+
+    public RelayNotificacoesOutbox(NotificacaoOutboxJpaRepository notificacaoOutboxJpaRepository,
+                                   StreamBridge streamBridge,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${notificacoes.outbox.tamanho-lote:100}") int tamanhoLote,
+                                   @Value("${notificacoes.outbox.linger-ms:200}") long lingerMs,
+                                   @Value("${notificacoes.outbox.tempo-confirmacao-ms:5000}") long tempoConfirmacaoMs,
+                                   @Value("${notificacoes.outbox.reenvios-no-lote:1}") int reenviosNoLote,
+                                   @Value("${notificacoes.outbox.maximo-tentativas:10}") int maximoTentativas,
+                                   @Value("${notificacoes.outbox.reserva-ms:60000}") long reservaMs,
+                                   @Value("${notificacoes.outbox.aguardar-confirmacao:true}") boolean aguardarConfirmacao) {
+        if (maximoTentativas < 1) {
+            throw new IllegalArgumentException("O máximo de tentativas do outbox deve ser positivo");
+        }
+        if (reservaMs <= tempoConfirmacaoMs * (reenviosNoLote + 1)) {
+            throw new IllegalArgumentException("A reserva do lote deve superar o tempo total de espera pelas confirmações");
+        }
+        this.notificacaoOutboxJpaRepository = notificacaoOutboxJpaRepository;
+        this.streamBridge = streamBridge;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanhoLote = tamanhoLote;
+        this.linger = Duration.ofMillis(lingerMs);
+        this.tempoConfirmacao = Duration.ofMillis(tempoConfirmacaoMs);
+        this.reenviosNoLote = reenviosNoLote;
+        this.maximoTentativas = maximoTentativas;
+        this.reserva = Duration.ofMillis(reservaMs);
+        this.aguardarConfirmacao = aguardarConfirmacao;
+        this.publicadasConfirmadas = Counter.builder("notificacoes.outbox.publicadas")
+                .tag("resultado", "confirmada")
+                .register(meterRegistry);
+        this.publicadasNaoConfirmadas = Counter.builder("notificacoes.outbox.publicadas")
+                .tag("resultado", "nao_confirmada")
+                .register(meterRegistry);
+        this.descartadas = Counter.builder("notificacoes.outbox.descartadas")
+                .register(meterRegistry);
+        this.latenciaConfirmacao = Timer.builder("notificacoes.outbox.confirmacao.latencia")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        executor.scheduleWithFixedDelay(this::publicarPendentes, linger.toMillis(), linger.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Chamado após o commit de cada notificação gravada; ao completar um lote publica sem esperar o linger.
+    public void registrarPendente() {
+        if (pendentesDesdeUltimoLote.incrementAndGet() >= tamanhoLote) {
+            pendentesDesdeUltimoLote.set(0);
+            executor.execute(this::publicarPendentes);
+        }
+    }
+
+    // Enquanto os lotes saem cheios e confirmados há fila acumulada, então publica de novo sem esperar o linger.
+    void publicarPendentes() {
+        pendentesDesdeUltimoLote.set(0);
+        try {
+            int confirmadas;
+            do {
+                confirmadas = publicarLote();
+            } while (confirmadas == tamanhoLote);
+        } catch (Exception e) {
+            log.error("Falha ao publicar notificações do outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    // Reenvia dentro do lote apenas as mensagens sem confirmação; as que esgotam os reenvios ficam no outbox até
+    // "maximo-tentativas" ciclos e então vão para notificacoes_outbox_falhas. A reserva das não confirmadas não é
+    // liberada: elas só voltam a ser publicadas quando ela vence, o que serve de espera entre os ciclos.
+    int publicarLote() {
+        List<NotificacaoOutboxJpaEntity> lote = transactionTemplate.execute(status -> reservarLote());
+        if (lote == null || lote.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> confirmadas = new ArrayList<>();
+        List<NotificacaoOutboxJpaEntity> pendentes = lote;
+        for (int tentativa = 0; tentativa <= reenviosNoLote && !pendentes.isEmpty(); tentativa++) {
+            pendentes = publicar(pendentes, confirmadas);
+        }
+        List<Long> naoConfirmadas = pendentes.stream().map(NotificacaoOutboxJpaEntity::getId).toList();
+
+        transactionTemplate.executeWithoutResult(status -> registrarResultado(confirmadas, naoConfirmadas, lote.size()));
+        publicadasConfirmadas.increment(confirmadas.size());
+        publicadasNaoConfirmadas.increment(naoConfirmadas.size());
+        return confirmadas.size();
+    }
+
+    // Se o relay cair antes de gravar o resultado, a reserva vence e o lote é publicado de novo (entrega "ao menos uma vez").
+    private List<NotificacaoOutboxJpaEntity> reservarLote() {
+        LocalDateTime agora = LocalDateTime.now();
+        List<NotificacaoOutboxJpaEntity> lote = notificacaoOutboxJpaRepository.findLoteParaPublicacao(agora, PageRequest.ofSize(tamanhoLote));
+        if (!lote.isEmpty()) {
+            notificacaoOutboxJpaRepository.reservar(lote.stream().map(NotificacaoOutboxJpaEntity::getId).toList(), agora.plus(reserva));
+        }
+        return lote;
+    }
+
+    private void registrarResultado(List<Long> confirmadas, List<Long> naoConfirmadas, int tamanho) {
+        if (!confirmadas.isEmpty()) {
+            notificacaoOutboxJpaRepository.deleteAllByIdInBatch(confirmadas);
+        }
+        if (!naoConfirmadas.isEmpty()) {
+            notificacaoOutboxJpaRepository.incrementarTentativas(naoConfirmadas);
+            log.warn("{} de {} notificações sem confirmação do broker; serão reenviadas", naoConfirmadas.size(), tamanho);
+            descartarEsgotadas(naoConfirmadas);
+        }
+    }
+
+    private void descartarEsgotadas(List<Long> naoConfirmadas) {
+        int esgotadas = notificacaoOutboxJpaRepository.copiarEsgotadasParaFalhas(naoConfirmadas, maximoTentativas, LocalDateTime.now());
+        if (esgotadas > 0) {
+            notificacaoOutboxJpaRepository.removerEsgotadas(naoConfirmadas, maximoTentativas);
+            descartadas.increment(esgotadas);
+            log.error("{} notificações esgotaram {} tentativas e foram movidas para notificacoes_outbox_falhas", esgotadas, maximoTentativas);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private List<NotificacaoOutboxJpaEntity> publicar(List<NotificacaoOutboxJpaEntity> notificacoes, List<Long> confirmadas) {
+        Map<NotificacaoOutboxJpaEntity, CorrelationData> enviadas = new LinkedHashMap<>();
+        List<NotificacaoOutboxJpaEntity> naoConfirmadas = new ArrayList<>();
+        for (NotificacaoOutboxJpaEntity notificacao : notificacoes) {
+            CorrelationData correlacao = new CorrelationData(notificacao.getId().toString());
+            long inicio = System.nanoTime();
+            correlacao.getFuture().whenComplete((confirmacao, erro) ->
+                    latenciaConfirmacao.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS));
+            if (streamBridge.send(DESTINATION_BINDING, criarMensagem(notificacao, correlacao))) {
+                enviadas.put(notificacao, correlacao);
+            } else {
+                naoConfirmadas.add(notificacao);
+            }
+        }
+
+        long prazo = System.nanoTime() + tempoConfirmacao.toNanos();
+        enviadas.forEach((notificacao, correlacao) -> {
+            if (!aguardarConfirmacao || confirmada(correlacao, prazo)) {
+                confirmadas.add(notificacao.getId());
+            } else {
+                naoConfirmadas.add(notificacao);
+            }
+        });
+        return naoConfirmadas;
+    }
+
+    private Message<byte[]> criarMensagem(NotificacaoOutboxJpaEntity notificacao, CorrelationData correlacao) {
+        return MessageBuilder.withPayload(notificacao.getConteudo())
+                .setHeader(MessageHeaders.CONTENT_TYPE, notificacao.getContentType())
+                .setHeader(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, correlacao)
+                .build();
+    }
+
+    private boolean confirmada(CorrelationData correlacao, long prazo) {
+        try {
+            long restante = Math.max(prazo - System.nanoTime(), 0);
+            return correlacao.getFuture().get(restante, TimeUnit.NANOSECONDS).isAck();
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Travas particionadas: cada chave cai numa de "particoes" travas fixas, então a memória não cresce com o número de chaves.
+// As travas de um conjunto de chaves são sempre adquiridas em ordem crescente de partição, o que evita deadlock entre lotes.
+public class TravasPorChave {
+
+    private final ReentrantLock[] travas;
+
+    public TravasPorChave(int particoes) {
+        if (particoes < 1) {
+            throw new IllegalArgumentException("É necessária ao menos uma partição de trava");
+        }
+        this.travas = new ReentrantLock[particoes];
+        for (int i = 0; i < particoes; i++) {
+            travas[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T executar(Collection<?> chaves, Supplier<T> acao) {
+        int[] particoes = chaves.stream()
+                .mapToInt(this::particao)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int adquiridas = 0;
+        try {
+            for (int particao : particoes) {
+                travas[particao].lock();
+                adquiridas++;
+            }
+            return acao.get();
+        } finally {
+            for (int i = adquiridas - 1; i >= 0; i--) {
+                travas[particoes[i]].unlock();
+            }
+        }
+    }
+
+    int particao(Object chave) {
+        int hash = Objects.hashCode(chave);
+        return Math.floorMod(hash ^ (hash >>> 16), travas.length);
+    }
+}
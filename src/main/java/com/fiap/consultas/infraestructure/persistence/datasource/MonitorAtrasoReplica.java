@@ -0,0 +1,67 @@
+package com.fiap.consultas.infraestructure.persistence.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+
+// Mede periodicamente o atraso de replicação. A réplica só é usada se o atraso medido somado ao tempo desde a
+// medição couber em "atraso-maximo-ms"; uma verificação que falha ou demora deixa as leituras na primária.
+@Slf4j
+public class MonitorAtrasoReplica {
+
+    private final JdbcTemplate replica;
+    private final String consultaAtraso;
+    private final Duration atrasoMaximo;
+    private final Clock clock;
+    private volatile Medicao ultimaMedicao;
+
+    public MonitorAtrasoReplica(DataSource replica, String consultaAtraso, Duration atrasoMaximo, MeterRegistry meterRegistry) {
+        this(replica, consultaAtraso, atrasoMaximo, meterRegistry, Clock.systemUTC());
+    }
+
+    MonitorAtrasoReplica(DataSource replica, String consultaAtraso, Duration atrasoMaximo, MeterRegistry meterRegistry, Clock clock) {
+        this.replica = new JdbcTemplate(replica);
+        this.consultaAtraso = consultaAtraso;
+        this.atrasoMaximo = atrasoMaximo;
+        this.clock = clock;
+
+        Gauge.builder("consultas.datasource.replica.atraso", this, MonitorAtrasoReplica::atrasoMedidoMs)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${consultas.datasource.replica.verificacao-ms:1000}")
+    public void verificar() {
+        long medidoEmMs = clock.millis();
+        try {
+            Double atrasoSegundos = replica.queryForObject(consultaAtraso, Double.class);
+            // Nulo quando o servidor não está em recuperação: não há o que aplicar, então não há atraso.
+            long atrasoMs = atrasoSegundos == null ? 0 : Math.max(Math.round(atrasoSegundos * 1000), 0);
+            ultimaMedicao = new Medicao(atrasoMs, medidoEmMs);
+        } catch (DataAccessException e) {
+            if (ultimaMedicao != null) {
+                log.warn("Réplica indisponível, leituras voltam para a primária: {}", e.getMessage());
+            }
+            ultimaMedicao = null;
+        }
+    }
+
+    public boolean replicaDisponivel() {
+        Medicao medicao = ultimaMedicao;
+        return medicao != null && medicao.atrasoMs() + (clock.millis() - medicao.medidoEmMs()) <= atrasoMaximo.toMillis();
+    }
+
+    private double atrasoMedidoMs() {
+        Medicao medicao = ultimaMedicao;
+        return medicao == null ? Double.NaN : medicao.atrasoMs();
+    }
+
+    private record Medicao(long atrasoMs, long medidoEmMs) { }
+}
@@ -0,0 +1,32 @@
+package com.fiap.consultas.infraestructure.persistence.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Transações somente leitura vão para a réplica enquanto o atraso dela estiver dentro do limite; o resto vai para a
+// primária. Precisa ficar atrás de um LazyConnectionDataSourceProxy: o gerenciador de transação pede a conexão antes
+// de marcar a transação como somente leitura, e o proxy adia a escolha até o primeiro comando.
+public class RoteamentoDataSource extends AbstractRoutingDataSource {
+
+    public enum Destino { PRIMARIA, REPLICA }
+
+    private final MonitorAtrasoReplica monitorAtrasoReplica;
+
+    public RoteamentoDataSource(DataSource primaria, DataSource replica, MonitorAtrasoReplica monitorAtrasoReplica) {
+        this.monitorAtrasoReplica = monitorAtrasoReplica;
+        setTargetDataSources(Map.of(Destino.PRIMARIA, primaria, Destino.REPLICA, replica));
+        setDefaultTargetDataSource(primaria);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Destino determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && monitorAtrasoReplica.replicaDisponivel()) {
+            return Destino.REPLICA;
+        }
+        return Destino.PRIMARIA;
+    }
+}
@@ -0,0 +1,26 @@
+package com.fiap.consultas.infraestructure.persistence.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "confirmacoes_processadas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConfirmacaoProcessadaJpaEntity {
+
+    @Id
+    @Column(name = "consulta_id")
+    private UUID consultaId;
+
+    @Column(name = "data_processamento", nullable = false)
+    private LocalDateTime dataProcessamento;
+}
@@ -7,12 +7,14 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
 @Table(name = "consultas")
+@DynamicUpdate
 @Data
 @Builder
 @NoArgsConstructor
@@ -54,4 +56,9 @@ public class ConsultaJpaEntity {
 
     @Column(name = "data_atualizacao", nullable = false)
     private LocalDateTime dataAtualizacao;
+
+    // Nula enquanto a consulta não foi gravada: o Spring Data usa isso para persistir direto, sem o SELECT do merge.
+    @Version
+    @Column(name = "versao", nullable = false)
+    private Long versao;
 }
@@ -0,0 +1,27 @@
+package com.fiap.consultas.infraestructure.persistence.entities;
+
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificacaoEnviadaId implements Serializable {
+
+    @Column(name = "consulta_id", nullable = false)
+    private UUID consultaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false)
+    private TipoNotificacao tipo;
+}
@@ -0,0 +1,24 @@
+package com.fiap.consultas.infraestructure.persistence.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "notificacoes_enviadas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificacaoEnviadaJpaEntity {
+
+    @EmbeddedId
+    private NotificacaoEnviadaId id;
+
+    @Column(name = "data_envio", nullable = false)
+    private LocalDateTime dataEnvio;
+}
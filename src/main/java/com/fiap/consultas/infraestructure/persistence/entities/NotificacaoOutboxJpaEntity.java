@@ -0,0 +1,47 @@
+package com.fiap.consultas.infraestructure.persistence.entities;
+
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "notificacoes_outbox")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificacaoOutboxJpaEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "consulta_id")
+    private UUID consultaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false)
+    private TipoNotificacao tipo;
+
+    @Column(name = "conteudo", nullable = false)
+    private byte[] conteudo;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "data_criacao", nullable = false)
+    private LocalDateTime dataCriacao;
+
+    @Column(name = "tentativas", nullable = false)
+    private int tentativas;
+
+    @Column(name = "reservado_ate")
+    private LocalDateTime reservadoAte;
+}
@@ -0,0 +1,32 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import com.fiap.consultas.infraestructure.persistence.entities.ConfirmacaoProcessadaJpaEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ConfirmacaoProcessadaJpaRepository extends JpaRepository<ConfirmacaoProcessadaJpaEntity, UUID> {
+
+    @Query("SELECT c.consultaId FROM ConfirmacaoProcessadaJpaEntity c WHERE c.consultaId IN :consultaIds")
+    List<UUID> findConsultaIdsByConsultaIdIn(@Param("consultaIds") Collection<UUID> consultaIds);
+
+    @Query("SELECT c.consultaId FROM ConfirmacaoProcessadaJpaEntity c WHERE c.dataProcessamento > :limite")
+    List<UUID> findConsultaIdsByDataProcessamentoAfter(@Param("limite") LocalDateTime limite);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ConfirmacaoProcessadaJpaEntity c WHERE c.consultaId = :consultaId")
+    void deleteByConsultaId(@Param("consultaId") UUID consultaId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ConfirmacaoProcessadaJpaEntity c WHERE c.dataProcessamento < :limite")
+    int deleteByDataProcessamentoBefore(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,109 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import com.fiap.consultas.domain.repositories.ConfirmacaoProcessadaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// A tabela é a fonte da verdade: registrar só grava (e devolve) as consultas ainda sem registro, e é isso que impede
+// que duas instâncias apliquem a mesma confirmação. O filtro de Bloom, local a cada instância, só antecipa o descarte
+// das duplicatas que esta instância provavelmente já viu.
+@Repository
+@Slf4j
+public class ConfirmacaoProcessadaRepositoryImpl implements ConfirmacaoProcessadaRepository {
+
+    // Inserção condicional portável entre H2 e PostgreSQL. Se outra transação gravou a mesma consulta e ainda não
+    // fez commit, a chave primária bloqueia esta até lá e então a faz falhar com DuplicateKeyException.
+    private static final String INSERIR_SE_AUSENTE = "INSERT INTO confirmacoes_processadas (consulta_id, data_processamento) " +
+            "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM confirmacoes_processadas WHERE consulta_id = ?)";
+
+    private final ConfirmacaoProcessadaJpaRepository confirmacaoProcessadaJpaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final FiltroBloom filtro;
+    private final Duration retencao;
+
+    public ConfirmacaoProcessadaRepositoryImpl(ConfirmacaoProcessadaJpaRepository confirmacaoProcessadaJpaRepository,
+                                               JdbcTemplate jdbcTemplate,
+                                               @Value("${consultas.confirmacoes.deduplicacao.capacidade:1000000}") long capacidade,
+                                               @Value("${consultas.confirmacoes.deduplicacao.taxa-falso-positivo:0.01}") double taxaFalsoPositivo,
+                                               @Value("${consultas.confirmacoes.deduplicacao.retencao-dias:30}") long retencaoDias) {
+        if (retencaoDias < 1) {
+            throw new IllegalArgumentException("A retenção das confirmações processadas deve ser positiva");
+        }
+        this.confirmacaoProcessadaJpaRepository = confirmacaoProcessadaJpaRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.filtro = new FiltroBloom(capacidade, taxaFalsoPositivo);
+        this.retencao = Duration.ofDays(retencaoDias);
+    }
+
+    // Só a janela de retenção entra no filtro; registros mais antigos são removidos por removerExpiradas.
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarFiltro() {
+        List<UUID> processadas = confirmacaoProcessadaJpaRepository.findConsultaIdsByDataProcessamentoAfter(
+                LocalDateTime.now().minus(retencao));
+        processadas.forEach(filtro::adicionar);
+        log.info("Filtro de confirmações processadas carregado com {} consultas", processadas.size());
+    }
+
+    @Scheduled(cron = "${consultas.confirmacoes.deduplicacao.limpeza-cron:0 0 4 * * *}")
+    public void removerExpiradas() {
+        int removidas = confirmacaoProcessadaJpaRepository.deleteByDataProcessamentoBefore(LocalDateTime.now().minus(retencao));
+        if (removidas > 0) {
+            log.info("{} confirmações processadas fora da retenção removidas", removidas);
+        }
+    }
+
+    // Só as consultas que o filtro indica como possivelmente processadas são conferidas na tabela. As demais não são
+    // dadas como novas: quem chama ainda precisa do resultado de registrar.
+    @Override
+    public Set<UUID> filtrarProcessadas(Collection<UUID> consultaIds) {
+        List<UUID> candidatas = consultaIds.stream()
+                .filter(filtro::podeConter)
+                .toList();
+        if (candidatas.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(confirmacaoProcessadaJpaRepository.findConsultaIdsByConsultaIdIn(candidatas));
+    }
+
+    // Um lote JDBC com uma inserção condicional por consulta; as que já tinham registro afetam zero linhas.
+    @Override
+    public Set<UUID> registrar(Collection<UUID> consultaIds) {
+        if (consultaIds.isEmpty()) {
+            return Set.of();
+        }
+        List<UUID> ids = List.copyOf(new LinkedHashSet<>(consultaIds));
+        LocalDateTime agora = LocalDateTime.now();
+        int[] linhas = jdbcTemplate.batchUpdate(INSERIR_SE_AUSENTE, ids.stream()
+                .map(id -> new Object[]{id, agora, id})
+                .toList());
+
+        Set<UUID> registradas = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (linhas[i] != 0) {
+                registradas.add(ids.get(i));
+            }
+        }
+        ids.forEach(filtro::adicionar);
+        return registradas;
+    }
+
+    // O filtro não remove chaves; a consulta continua "possivelmente processada" e é conferida na tabela.
+    @Override
+    public void removerPorConsulta(UUID consultaId) {
+        confirmacaoProcessadaJpaRepository.deleteByConsultaId(consultaId);
+    }
+}
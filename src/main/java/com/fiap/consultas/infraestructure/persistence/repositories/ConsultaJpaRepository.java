@@ -2,19 +2,84 @@ package com.fiap.consultas.infraestructure.persistence.repositories;
 
 import com.fiap.consultas.domain.enums.PrioridadeConsulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
 import com.fiap.consultas.infraestructure.persistence.entities.ConsultaJpaEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+// Só as varreduras dos jobs e as contagens de disponibilidade são somente leitura e podem ser atendidas pela réplica;
+// as demais leituras alimentam um disparo ou uma escrita logo em seguida e vão para a primária, onde um commit recente
+// já está visível. Dentro de uma transação de escrita todas se juntam a ela e leem da primária.
 public interface ConsultaJpaRepository extends JpaRepository<ConsultaJpaEntity, UUID> {
 
+    String TAMANHO_FETCH_NOTIFICACOES = "500";
+
+    // O SimpleJpaRepository marca as leituras herdadas como somente leitura; aqui elas voltam para a primária.
+    @Override
+    @Transactional
+    Optional<ConsultaJpaEntity> findById(UUID id);
+
+    @Override
+    @Transactional
+    List<ConsultaJpaEntity> findAllById(Iterable<UUID> ids);
+
     List<ConsultaJpaEntity> findByStatus(StatusConsulta status);
 
+    List<ConsultaJpaEntity> findByStatusAndPrioridadeOrderByDataCriacao(StatusConsulta status, PrioridadeConsulta prioridade);
+
+    @Query("SELECT c FROM ConsultaJpaEntity c WHERE c.status = :status AND c.dataHora >= :inicio AND c.dataHora < :fim " +
+            "AND NOT EXISTS (SELECT n FROM NotificacaoEnviadaJpaEntity n WHERE n.id.consultaId = c.id AND n.id.tipo = :tipo) " +
+            "ORDER BY c.dataHora")
+    @Transactional(readOnly = true)
+    List<ConsultaJpaEntity> findByStatusAndDataHoraBetweenNaoNotificadas(
+            @Param("status") StatusConsulta status,
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim,
+            @Param("tipo") TipoNotificacao tipo);
+
+    // Cursor no servidor lido em blocos de TAMANHO_FETCH_NOTIFICACOES linhas; o construtor na projeção
+    // devolve entidades fora do contexto de persistência, então a memória não cresce com o tamanho da onda.
+    // Precisa de uma transação aberta enquanto o stream é consumido.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TAMANHO_FETCH_NOTIFICACOES),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT new com.fiap.consultas.infraestructure.persistence.entities.ConsultaJpaEntity(c.id, c.pacienteCpf, c.medicoId, " +
+            "c.especialidade, c.cidade, c.dataHora, c.localConsulta, c.prioridade, c.status, c.dataCriacao, c.dataAtualizacao, c.versao) " +
+            "FROM ConsultaJpaEntity c WHERE c.status = :status AND c.dataHora >= :inicio AND c.dataHora < :fim " +
+            "AND NOT EXISTS (SELECT n FROM NotificacaoEnviadaJpaEntity n WHERE n.id.consultaId = c.id AND n.id.tipo = :tipo) " +
+            "ORDER BY c.pacienteCpf, c.dataHora")
+    @Transactional(readOnly = true)
+    Stream<ConsultaJpaEntity> streamByStatusAndDataHoraBetweenNaoNotificadasPorPaciente(
+            @Param("status") StatusConsulta status,
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim,
+            @Param("tipo") TipoNotificacao tipo);
+
+    @Query("SELECT c FROM ConsultaJpaEntity c WHERE c.id IN :ids AND c.status = :status AND c.dataHora >= :inicio AND c.dataHora < :fim " +
+            "AND NOT EXISTS (SELECT n FROM NotificacaoEnviadaJpaEntity n WHERE n.id.consultaId = c.id AND n.id.tipo = :tipo) " +
+            "ORDER BY c.dataHora")
+    List<ConsultaJpaEntity> findByIdInAndStatusAndDataHoraBetweenNaoNotificadas(
+            @Param("ids") Collection<UUID> ids,
+            @Param("status") StatusConsulta status,
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim,
+            @Param("tipo") TipoNotificacao tipo);
+
     @Query("SELECT c FROM ConsultaJpaEntity c WHERE c.status = :status AND c.prioridade != :prioridade AND c.especialidade = :especialidade AND c.cidade = :cidade ORDER BY c.dataHora")
     List<ConsultaJpaEntity> findByStatusEspecialidadeAndCidade(
             @Param("status") StatusConsulta status,
@@ -23,14 +88,49 @@ public interface ConsultaJpaRepository extends JpaRepository<ConsultaJpaEntity,
             @Param("prioridade") PrioridadeConsulta prioridadeConsulta);
 
 
-    @Query("SELECT c FROM ConsultaJpaEntity c WHERE c.medicoId = :medicoId AND c.dataHora = :dataHora AND c.status IN ('AGENDADA', 'CONFIRMADA')")
-    List<ConsultaJpaEntity> findByMedicoIdAndDataHora(
+    // Verificações de agenda devolvem só o escalar, sem carregar entidades no contexto de persistência.
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM consultas c WHERE c.medico_id = :medicoId AND c.data_hora = :dataHora " +
+            "AND c.status IN ('AGENDADA', 'CONFIRMADA'))", nativeQuery = true)
+    boolean existsByMedicoIdAndDataHora(
             @Param("medicoId") String medicoId,
             @Param("dataHora") LocalDateTime dataHora);
 
-    @Query("SELECT c FROM ConsultaJpaEntity c WHERE c.medicoId = :medicoId AND c.dataHora >= :inicio AND c.dataHora < :fim")
+    @Query("SELECT COUNT(c) FROM ConsultaJpaEntity c WHERE c.medicoId = :medicoId AND c.dataHora >= :inicio AND c.dataHora < :fim " +
+            "AND c.status IN ('AGENDADA', 'CONFIRMADA')")
+    @Transactional(readOnly = true)
+    long countByMedicoIdAndDataHoraBetween(
+            @Param("medicoId") String medicoId,
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim);
+
+    @Query("SELECT c.medicoId AS medicoId, COUNT(c) AS total FROM ConsultaJpaEntity c WHERE c.medicoId IN :medicoIds " +
+            "AND c.dataHora >= :inicio AND c.dataHora < :fim AND c.status IN ('AGENDADA', 'CONFIRMADA') GROUP BY c.medicoId")
+    @Transactional(readOnly = true)
+    List<ContagemPorMedico> countByMedicoIdInAndDataHoraBetween(
+            @Param("medicoIds") Collection<String> medicoIds,
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim);
+
+    @Query("SELECT c FROM ConsultaJpaEntity c WHERE c.medicoId = :medicoId AND c.dataHora >= :inicio AND c.dataHora < :fim " +
+            "AND c.status IN ('AGENDADA', 'CONFIRMADA')")
     List<ConsultaJpaEntity> findByMedicoIdAndDataHoraBetween(
             @Param("medicoId") String medicoId,
             @Param("inicio") LocalDateTime inicio,
             @Param("fim") LocalDateTime fim);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    // Incrementa a versão para que um merge concorrente da mesma consulta falhe em vez de desfazer a mudança de status.
+    @Query("UPDATE ConsultaJpaEntity c SET c.status = :novoStatus, c.dataAtualizacao = :dataAtualizacao, c.versao = c.versao + 1 " +
+            "WHERE c.id IN :ids AND c.status = :statusAtual")
+    int updateStatusByIdInAndStatus(
+            @Param("ids") Collection<UUID> ids,
+            @Param("statusAtual") StatusConsulta statusAtual,
+            @Param("novoStatus") StatusConsulta novoStatus,
+            @Param("dataAtualizacao") LocalDateTime dataAtualizacao);
+
+    interface ContagemPorMedico {
+        String getMedicoId();
+        long getTotal();
+    }
 }
@@ -3,6 +3,7 @@ package com.fiap.consultas.infraestructure.persistence.repositories;
 import com.fiap.consultas.domain.entities.Consulta;
 import com.fiap.consultas.domain.enums.PrioridadeConsulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
 import com.fiap.consultas.domain.repositories.ConsultaRepository;
 import com.fiap.consultas.infraestructure.persistence.entities.ConsultaJpaEntity;
 import lombok.RequiredArgsConstructor;
@@ -10,10 +11,13 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
@@ -21,11 +25,29 @@ public class ConsultaRepositoryImpl implements ConsultaRepository {
 
     private final ConsultaJpaRepository consultaJpaRepository;
 
+    // Consultas novas (sem versão) são persistidas direto; as existentes passam pelo merge, que só atualiza as colunas
+    // alteradas e não repete o SELECT quando a consulta foi lida na mesma transação. O merge só incrementa a versão no
+    // flush, então ele é feito antes de copiar a versão para a consulta.
     @Override
     public Consulta salvar(Consulta consulta) {
-        ConsultaJpaEntity entity = mapToEntity(consulta);
-        ConsultaJpaEntity savedEntity = consultaJpaRepository.save(entity);
-        return mapToDomain(savedEntity);
+        ConsultaJpaEntity savedEntity = consultaJpaRepository.saveAndFlush(mapToEntity(consulta));
+        consulta.setVersao(savedEntity.getVersao());
+        return consulta;
+    }
+
+    // As escritas vão para o contexto de persistência e saem num único flush, em lotes JDBC (hibernate.jdbc.batch_size).
+    @Override
+    public List<Consulta> salvarTodos(Collection<Consulta> consultas) {
+        if (consultas.isEmpty()) {
+            return List.of();
+        }
+        List<Consulta> salvas = List.copyOf(consultas);
+        List<ConsultaJpaEntity> savedEntities = consultaJpaRepository.saveAll(salvas.stream().map(this::mapToEntity).toList());
+        consultaJpaRepository.flush();
+        for (int i = 0; i < salvas.size(); i++) {
+            salvas.get(i).setVersao(savedEntities.get(i).getVersao());
+        }
+        return salvas;
     }
 
     @Override
@@ -33,6 +55,24 @@ public class ConsultaRepositoryImpl implements ConsultaRepository {
         return consultaJpaRepository.findById(id).map(this::mapToDomain);
     }
 
+    @Override
+    public List<Consulta> buscarPorIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return consultaJpaRepository.findAllById(ids).stream()
+                .map(this::mapToDomain)
+                .toList();
+    }
+
+    @Override
+    public int atualizarStatus(Collection<UUID> ids, StatusConsulta statusAtual, StatusConsulta novoStatus) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return consultaJpaRepository.updateStatusByIdInAndStatus(ids, statusAtual, novoStatus, LocalDateTime.now());
+    }
+
     @Override
     public List<Consulta> buscarPorStatus(StatusConsulta status) {
         return consultaJpaRepository.findByStatus(status).stream()
@@ -40,6 +80,29 @@ public class ConsultaRepositoryImpl implements ConsultaRepository {
                 .toList();
     }
 
+    @Override
+    public List<Consulta> buscarParaNotificacao(StatusConsulta status, LocalDateTime inicio, LocalDateTime fim, TipoNotificacao tipo) {
+        return consultaJpaRepository.findByStatusAndDataHoraBetweenNaoNotificadas(status, inicio, fim, tipo).stream()
+                .map(this::mapToDomain)
+                .toList();
+    }
+
+    @Override
+    public Stream<Consulta> percorrerParaNotificacao(StatusConsulta status, LocalDateTime inicio, LocalDateTime fim, TipoNotificacao tipo) {
+        return consultaJpaRepository.streamByStatusAndDataHoraBetweenNaoNotificadasPorPaciente(status, inicio, fim, tipo)
+                .map(this::mapToDomain);
+    }
+
+    @Override
+    public List<Consulta> buscarParaNotificacao(Collection<UUID> ids, StatusConsulta status, LocalDateTime inicio, LocalDateTime fim, TipoNotificacao tipo) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return consultaJpaRepository.findByIdInAndStatusAndDataHoraBetweenNaoNotificadas(ids, status, inicio, fim, tipo).stream()
+                .map(this::mapToDomain)
+                .toList();
+    }
+
     @Override
     public List<Consulta> buscarConsultasNaoConfirmadasPorEspecialidadeECidade(String especialidade, String cidade) {
         return consultaJpaRepository.findByStatusEspecialidadeAndCidade(StatusConsulta.AGENDADA, especialidade, cidade, PrioridadeConsulta.URGENTE).stream()
@@ -47,16 +110,23 @@ public class ConsultaRepositoryImpl implements ConsultaRepository {
                 .toList();
     }
 
+    // Uma busca por prioridade, da mais alta para a mais baixa, cada uma atendida pelo índice (status, prioridade, data_criacao);
+    // a lista já chega na ordem em que a fila é processada.
     @Override
     public List<Consulta> buscarConsultasPendentesAgendamento() {
-        return consultaJpaRepository.findByStatus(StatusConsulta.PENDENTE_AGENDAMENTO).stream()
-                .map(this::mapToDomain)
-                .collect(Collectors.toCollection(ArrayList::new));
+        List<Consulta> pendentes = new ArrayList<>();
+        for (PrioridadeConsulta prioridade : List.of(PrioridadeConsulta.values()).reversed()) {
+            pendentes.addAll(consultaJpaRepository.findByStatusAndPrioridadeOrderByDataCriacao(
+                    StatusConsulta.PENDENTE_AGENDAMENTO, prioridade).stream()
+                    .map(this::mapToDomain)
+                    .toList());
+        }
+        return pendentes;
     }
 
     @Override
     public boolean existeConsultaNoHorario(String medicoId, LocalDateTime dataHora) {
-        return !consultaJpaRepository.findByMedicoIdAndDataHora(medicoId, dataHora).isEmpty();
+        return consultaJpaRepository.existsByMedicoIdAndDataHora(medicoId, dataHora);
     }
 
     @Override
@@ -66,6 +136,23 @@ public class ConsultaRepositoryImpl implements ConsultaRepository {
                 .toList();
     }
 
+    @Override
+    public long contarConsultasPorMedicoEIntervalo(String medicoId, LocalDateTime inicio, LocalDateTime fim) {
+        return consultaJpaRepository.countByMedicoIdAndDataHoraBetween(medicoId, inicio, fim);
+    }
+
+    // Médicos sem consultas no intervalo não aparecem no GROUP BY e ficam com zero.
+    @Override
+    public Map<String, Long> contarConsultasPorMedicosEIntervalo(Collection<String> medicoIds, LocalDateTime inicio, LocalDateTime fim) {
+        Map<String, Long> contagens = new HashMap<>();
+        medicoIds.forEach(medicoId -> contagens.put(medicoId, 0L));
+        if (!medicoIds.isEmpty()) {
+            consultaJpaRepository.countByMedicoIdInAndDataHoraBetween(medicoIds, inicio, fim)
+                    .forEach(contagem -> contagens.put(contagem.getMedicoId(), contagem.getTotal()));
+        }
+        return contagens;
+    }
+
     private ConsultaJpaEntity mapToEntity(Consulta consulta) {
         return ConsultaJpaEntity.builder()
                 .id(consulta.getId())
@@ -79,6 +166,7 @@ public class ConsultaRepositoryImpl implements ConsultaRepository {
                 .status(consulta.getStatus())
                 .dataCriacao(consulta.getDataCriacao())
                 .dataAtualizacao(consulta.getDataAtualizacao())
+                .versao(consulta.getVersao())
                 .build();
     }
 
@@ -95,6 +183,7 @@ public class ConsultaRepositoryImpl implements ConsultaRepository {
                 .status(entity.getStatus())
                 .dataCriacao(entity.getDataCriacao())
                 .dataAtualizacao(entity.getDataAtualizacao())
+                .versao(entity.getVersao())
                 .build();
     }
 }
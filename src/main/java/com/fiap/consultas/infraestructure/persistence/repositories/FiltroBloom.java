@@ -0,0 +1,72 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import java.util.UUID;
+
+// Filtro de Bloom em duas gerações: "pode conter" precisa ser confirmado na fonte e "não contém" não prova nada,
+// já que chaves de gerações descartadas (ou gravadas por outra instância) não estão no filtro.
+// Quando a geração atual atinge a capacidade ela passa a ser a anterior e uma nova começa vazia, então a taxa de
+// falso positivo fica limitada sem esquecer de uma vez tudo o que foi adicionado.
+class FiltroBloom {
+
+    private final int palavras;
+    private final long totalBits;
+    private final int funcoesHash;
+    private final long capacidade;
+    private long[] atual;
+    private long[] anterior;
+    private long insercoes;
+
+    FiltroBloom(long capacidade, double taxaFalsoPositivo) {
+        if (capacidade < 1 || taxaFalsoPositivo <= 0 || taxaFalsoPositivo >= 1) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva e a taxa de falso positivo estar entre 0 e 1");
+        }
+        long bitsNecessarios = (long) Math.ceil(-capacidade * Math.log(taxaFalsoPositivo) / (Math.log(2) * Math.log(2)));
+        this.palavras = (int) Math.max(1, (bitsNecessarios + 63) / 64);
+        this.totalBits = palavras * 64L;
+        this.funcoesHash = Math.max(1, (int) Math.round((double) totalBits / capacidade * Math.log(2)));
+        this.capacidade = capacidade;
+        this.atual = new long[palavras];
+        this.anterior = new long[palavras];
+    }
+
+    synchronized void adicionar(UUID id) {
+        if (insercoes >= capacidade) {
+            anterior = atual;
+            atual = new long[palavras];
+            insercoes = 0;
+        }
+        long h1 = misturar(id.getMostSignificantBits());
+        long h2 = misturar(id.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < funcoesHash; i++) {
+            long indice = Math.floorMod(h1 + i * h2, totalBits);
+            atual[(int) (indice >>> 6)] |= 1L << indice;
+        }
+        insercoes++;
+    }
+
+    synchronized boolean podeConter(UUID id) {
+        return contem(atual, id) || contem(anterior, id);
+    }
+
+    private boolean contem(long[] bits, UUID id) {
+        long h1 = misturar(id.getMostSignificantBits());
+        long h2 = misturar(id.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < funcoesHash; i++) {
+            long indice = Math.floorMod(h1 + i * h2, totalBits);
+            if ((bits[(int) (indice >>> 6)] & (1L << indice)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Finalizador do MurmurHash3 de 64 bits.
+    private static long misturar(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xff51afd7ed558ccdL;
+        valor ^= valor >>> 33;
+        valor *= 0xc4ceb9fe1a85ec53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
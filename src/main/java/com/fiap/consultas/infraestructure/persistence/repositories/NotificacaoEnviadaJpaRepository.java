@@ -0,0 +1,19 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoEnviadaId;
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoEnviadaJpaEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+public interface NotificacaoEnviadaJpaRepository extends JpaRepository<NotificacaoEnviadaJpaEntity, NotificacaoEnviadaId> {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NotificacaoEnviadaJpaEntity n WHERE n.id.consultaId = :consultaId")
+    void deleteByConsultaId(@Param("consultaId") UUID consultaId);
+}
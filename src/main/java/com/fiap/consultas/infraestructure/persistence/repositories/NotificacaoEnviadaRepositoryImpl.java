@@ -0,0 +1,41 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.domain.repositories.NotificacaoEnviadaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class NotificacaoEnviadaRepositoryImpl implements NotificacaoEnviadaRepository {
+
+    // Mesma inserção condicional das confirmações processadas: consultas já registradas afetam zero linhas.
+    private static final String INSERIR_SE_AUSENTE = "INSERT INTO notificacoes_enviadas (consulta_id, tipo, data_envio) " +
+            "SELECT ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM notificacoes_enviadas WHERE consulta_id = ? AND tipo = ?)";
+
+    private final NotificacaoEnviadaJpaRepository notificacaoEnviadaJpaRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Um lote JDBC para todas as consultas da notificação, em vez de um merge (SELECT + INSERT) por consulta.
+    @Override
+    public void registrar(Collection<UUID> consultaIds, TipoNotificacao tipo) {
+        if (consultaIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERIR_SE_AUSENTE, consultaIds.stream()
+                .distinct()
+                .map(id -> new Object[]{id, tipo.name(), agora, id, tipo.name()})
+                .toList());
+    }
+
+    @Override
+    public void removerPorConsulta(UUID consultaId) {
+        notificacaoEnviadaJpaRepository.deleteByConsultaId(consultaId);
+    }
+}
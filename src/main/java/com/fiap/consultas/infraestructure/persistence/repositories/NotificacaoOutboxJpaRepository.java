@@ -0,0 +1,47 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoOutboxJpaEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificacaoOutboxJpaRepository extends JpaRepository<NotificacaoOutboxJpaEntity, Long> {
+
+    // lock.timeout -2 = SKIP LOCKED: instâncias concorrentes do relay não disputam o mesmo lote enquanto o reservam.
+    // Linhas com reserva vigente estão sendo publicadas por algum relay e ficam de fora.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT n FROM NotificacaoOutboxJpaEntity n WHERE n.reservadoAte IS NULL OR n.reservadoAte < :agora ORDER BY n.id")
+    List<NotificacaoOutboxJpaEntity> findLoteParaPublicacao(@Param("agora") LocalDateTime agora, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE NotificacaoOutboxJpaEntity n SET n.reservadoAte = :reservadoAte WHERE n.id IN :ids")
+    void reservar(@Param("ids") Collection<Long> ids, @Param("reservadoAte") LocalDateTime reservadoAte);
+
+    @Modifying
+    @Query("UPDATE NotificacaoOutboxJpaEntity n SET n.tentativas = n.tentativas + 1 WHERE n.id IN :ids")
+    void incrementarTentativas(@Param("ids") Collection<Long> ids);
+
+    // Notificações que esgotaram as tentativas saem do outbox para a tabela de falhas, sem travar o início da fila.
+    @Modifying
+    @Query(value = "INSERT INTO notificacoes_outbox_falhas (id, consulta_id, tipo, conteudo, content_type, data_criacao, tentativas, data_falha) " +
+            "SELECT n.id, n.consulta_id, n.tipo, n.conteudo, n.content_type, n.data_criacao, n.tentativas, :dataFalha " +
+            "FROM notificacoes_outbox n WHERE n.id IN (:ids) AND n.tentativas >= :maximoTentativas", nativeQuery = true)
+    int copiarEsgotadasParaFalhas(@Param("ids") Collection<Long> ids,
+                                  @Param("maximoTentativas") int maximoTentativas,
+                                  @Param("dataFalha") LocalDateTime dataFalha);
+
+    @Modifying
+    @Query("DELETE FROM NotificacaoOutboxJpaEntity n WHERE n.id IN :ids AND n.tentativas >= :maximoTentativas")
+    int removerEsgotadas(@Param("ids") Collection<Long> ids, @Param("maximoTentativas") int maximoTentativas);
+}
@@ -0,0 +1,85 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Operações sobre as partições mensais de consultas_com_horario (só existem no PostgreSQL, ver a migração V3).
+// Os nomes vêm do catálogo e são validados antes de entrar no SQL, já que DDL não aceita parâmetros.
+@Repository
+@RequiredArgsConstructor
+public class ParticoesConsultasRepository {
+
+    private static final Pattern NOME_PARTICAO = Pattern.compile("consultas_p(\\d{4})_(\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int criarParticoes(YearMonth inicio, YearMonth fim) {
+        Integer criadas = jdbcTemplate.queryForObject("SELECT criar_particoes_consultas(?, ?)", Integer.class,
+                Date.valueOf(inicio.atDay(1)), Date.valueOf(fim.atDay(1)));
+        return Objects.requireNonNullElse(criadas, 0);
+    }
+
+    public List<ParticaoMensal> listarParticoes() {
+        return jdbcTemplate.queryForList("SELECT filha.relname FROM pg_inherits i " +
+                        "JOIN pg_class filha ON filha.oid = i.inhrelid " +
+                        "JOIN pg_class mae ON mae.oid = i.inhparent " +
+                        "WHERE mae.relname = 'consultas_com_horario'", String.class).stream()
+                .map(NOME_PARTICAO::matcher)
+                .filter(Matcher::matches)
+                .map(nome -> new ParticaoMensal(nome.group(), YearMonth.of(Integer.parseInt(nome.group(1)), Integer.parseInt(nome.group(2)))))
+                .toList();
+    }
+
+    // COPY direto do servidor para o stream, sem materializar as linhas na aplicação; devolve o número de linhas.
+    public long exportar(String particao, OutputStream destino) {
+        String sql = "COPY " + validar(particao) + " TO STDOUT WITH (FORMAT csv, HEADER)";
+        Long linhas = jdbcTemplate.execute((ConnectionCallback<Long>) conexao -> {
+            try {
+                return conexao.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, destino);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return Objects.requireNonNullElse(linhas, 0L);
+    }
+
+    public long contar(String particao) {
+        Long linhas = jdbcTemplate.queryForObject("SELECT count(*) FROM " + validar(particao), Long.class);
+        return Objects.requireNonNullElse(linhas, 0L);
+    }
+
+    public void desanexar(String particao) {
+        jdbcTemplate.execute("ALTER TABLE consultas_com_horario DETACH PARTITION " + validar(particao));
+    }
+
+    // Libera em consultas_ids (ver a migração V8) os ids das consultas de uma partição já desanexada.
+    public int liberarIds(String particao) {
+        return jdbcTemplate.update("DELETE FROM consultas_ids i USING " + validar(particao) + " p WHERE i.id = p.id");
+    }
+
+    public void remover(String particao) {
+        jdbcTemplate.execute("DROP TABLE " + validar(particao));
+    }
+
+    private String validar(String particao) {
+        if (!NOME_PARTICAO.matcher(particao).matches()) {
+            throw new IllegalArgumentException("Nome de partição inválido: " + particao);
+        }
+        return particao;
+    }
+
+    public record ParticaoMensal(String nome, YearMonth mes) { }
+}
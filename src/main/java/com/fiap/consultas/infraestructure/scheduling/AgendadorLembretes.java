@@ -0,0 +1,199 @@
+package com.fiap.consultas.infraestructure.scheduling;
+
+import com.fiap.consultas.application.ports.AgendadorLembretesPort;
+import com.fiap.consultas.application.usecases.EnviarNotificacaoConfirmacaoUseCase;
+import com.fiap.consultas.domain.entities.Consulta;
+import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.domain.repositories.ConsultaRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class AgendadorLembretes implements AgendadorLembretesPort {
+
+    private final ConsultaRepository consultaRepository;
+    private final EnviarNotificacaoConfirmacaoUseCase enviarNotificacaoConfirmacaoUseCase;
+    private final Clock clock;
+    private final Duration horizonte;
+    private final Duration atrasoNovaTentativa;
+    private final int maximoTentativas;
+    private final TimingWheel<Lembrete> roda;
+    private final Map<Lembrete, Integer> tentativas = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AgendadorLembretes(ConsultaRepository consultaRepository,
+                              EnviarNotificacaoConfirmacaoUseCase enviarNotificacaoConfirmacaoUseCase,
+                              MeterRegistry meterRegistry,
+                              @Value("${consultas.lembretes.tick-ms:1000}") long tickMs,
+                              @Value("${consultas.lembretes.slots:64}") int slots,
+                              @Value("${consultas.lembretes.horizonte-horas:24}") long horizonteHoras,
+                              @Value("${consultas.lembretes.atraso-nova-tentativa-ms:5000}") long atrasoNovaTentativaMs,
+                              @Value("${consultas.lembretes.maximo-tentativas:3}") int maximoTentativas) {
+        this(consultaRepository, enviarNotificacaoConfirmacaoUseCase, meterRegistry,
+                Duration.ofMillis(tickMs), slots, Duration.ofHours(horizonteHoras), Duration.ofMillis(atrasoNovaTentativaMs),
+                maximoTentativas, Clock.systemDefaultZone());
+    }
+
+    AgendadorLembretes(ConsultaRepository consultaRepository,
+                       EnviarNotificacaoConfirmacaoUseCase enviarNotificacaoConfirmacaoUseCase,
+                       MeterRegistry meterRegistry,
+                       Duration tick,
+                       int slots,
+                       Duration horizonte,
+                       Duration atrasoNovaTentativa,
+                       int maximoTentativas,
+                       Clock clock) {
+        this.consultaRepository = consultaRepository;
+        this.enviarNotificacaoConfirmacaoUseCase = enviarNotificacaoConfirmacaoUseCase;
+        this.clock = clock;
+        this.horizonte = horizonte;
+        this.atrasoNovaTentativa = atrasoNovaTentativa;
+        this.maximoTentativas = maximoTentativas;
+        this.roda = new TimingWheel<>(tick, slots, clock.millis());
+
+        Gauge.builder("consultas.lembretes.pendentes", roda, TimingWheel::tamanho)
+                .register(meterRegistry);
+    }
+
+    // Dentro de uma transação a roda só é atualizada após o commit, para o disparo não ler um estado ainda não gravado.
+    @Override
+    public void programar(Consulta consulta) {
+        UUID consultaId = consulta.getId();
+        LocalDateTime prazoConfirmacao = prazoConfirmacao(consulta);
+        LocalDateTime prazoAviso = prazoAvisoDiaAnterior(consulta);
+
+        Runnable atualizacao = () -> {
+            programar(new Lembrete(consultaId, TipoNotificacao.CONFIRMACAO_CONSULTA), prazoConfirmacao);
+            programar(new Lembrete(consultaId, TipoNotificacao.AVISO_UM_DIA_ANTES), prazoAviso);
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    atualizacao.run();
+                }
+            });
+        } else {
+            atualizacao.run();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${consultas.lembretes.tick-ms:1000}")
+    public void disparar() {
+        List<Lembrete> vencidos = roda.avancar(clock.millis());
+        if (vencidos.isEmpty()) {
+            return;
+        }
+
+        Map<TipoNotificacao, List<UUID>> consultasPorTipo = vencidos.stream()
+                .collect(Collectors.groupingBy(Lembrete::tipo,
+                        Collectors.mapping(Lembrete::consultaId, Collectors.toList())));
+
+        consultasPorTipo.forEach(this::disparar);
+    }
+
+    // Os lembretes já saíram da roda: os que não foram notificados (consulta não encontrada, paciente adiado ou com
+    // falha, ou erro no disparo inteiro) voltam para ela com atraso crescente, até "maximo-tentativas" vezes.
+    // Depois disso ficam para a varredura periódica de notificações.
+    private void disparar(TipoNotificacao tipo, List<UUID> consultaIds) {
+        Set<UUID> naoNotificadas;
+        try {
+            naoNotificadas = enviarNotificacaoConfirmacaoUseCase.enviarLembretes(tipo, consultaIds);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao disparar {} lembretes de {}: {}", consultaIds.size(), tipo, e.getMessage(), e);
+            naoNotificadas = Set.copyOf(consultaIds);
+        }
+
+        for (UUID consultaId : consultaIds) {
+            Lembrete lembrete = new Lembrete(consultaId, tipo);
+            if (naoNotificadas.contains(consultaId)) {
+                reprogramar(lembrete);
+            } else {
+                tentativas.remove(lembrete);
+            }
+        }
+    }
+
+    private void reprogramar(Lembrete lembrete) {
+        int tentativa = tentativas.merge(lembrete, 1, Integer::sum);
+        if (tentativa > maximoTentativas) {
+            tentativas.remove(lembrete);
+            log.info("Lembrete {} da consulta {} não foi enviado após {} tentativas; fica para a próxima varredura",
+                    lembrete.tipo(), lembrete.consultaId(), maximoTentativas);
+            return;
+        }
+        roda.agendar(lembrete, clock.millis() + atrasoNovaTentativa.toMillis() * tentativa);
+    }
+
+    // Recarrega os prazos que vencem dentro do horizonte; cobre reinícios e alterações feitas fora dos ganchos.
+    @Scheduled(fixedRateString = "${consultas.lembretes.reconciliacao-ms:600000}")
+    public void reconciliar() {
+        LocalDateTime agora = LocalDateTime.now(clock);
+        LocalDateTime limite = agora.plus(horizonte);
+
+        List<Consulta> agendadas = consultaRepository.buscarParaNotificacao(StatusConsulta.AGENDADA,
+                agora.plusWeeks(2), limite.plusWeeks(2), TipoNotificacao.CONFIRMACAO_CONSULTA);
+        List<Consulta> confirmadas = consultaRepository.buscarParaNotificacao(StatusConsulta.CONFIRMADA,
+                agora.toLocalDate().plusDays(2).atStartOfDay(), limite.toLocalDate().plusDays(2).atStartOfDay(),
+                TipoNotificacao.AVISO_UM_DIA_ANTES);
+
+        agendadas.forEach(this::programar);
+        confirmadas.forEach(this::programar);
+        log.debug("Reconciliação de lembretes: {} confirmações e {} avisos no horizonte, {} pendentes na roda",
+                agendadas.size(), confirmadas.size(), roda.tamanho());
+    }
+
+    int lembretesPendentes() {
+        return roda.tamanho();
+    }
+
+    private void programar(Lembrete lembrete, LocalDateTime prazo) {
+        tentativas.remove(lembrete);
+        if (prazo == null || prazo.isAfter(LocalDateTime.now(clock).plus(horizonte))) {
+            roda.cancelar(lembrete);
+            return;
+        }
+        roda.agendar(lembrete, prazo.atZone(clock.getZone()).toInstant().toEpochMilli());
+    }
+
+    private LocalDateTime prazoConfirmacao(Consulta consulta) {
+        if (!StatusConsulta.AGENDADA.equals(consulta.getStatus()) || consulta.getDataHora() == null) {
+            return null;
+        }
+        return consulta.getDataHora().minusWeeks(2);
+    }
+
+    private LocalDateTime prazoAvisoDiaAnterior(Consulta consulta) {
+        if (!StatusConsulta.CONFIRMADA.equals(consulta.getStatus()) || consulta.getDataHora() == null) {
+            return null;
+        }
+        LocalDate diaAnterior = consulta.getDataHora().toLocalDate().minusDays(1);
+        if (diaAnterior.isBefore(LocalDate.now(clock))) {
+            return null;
+        }
+        return diaAnterior.atStartOfDay();
+    }
+
+    record Lembrete(UUID consultaId, TipoNotificacao tipo) { }
+}
@@ -0,0 +1,136 @@
+package com.fiap.consultas.infraestructure.scheduling;
+
+import com.fiap.consultas.infraestructure.persistence.repositories.ParticoesConsultasRepository;
+import com.fiap.consultas.infraestructure.persistence.repositories.ParticoesConsultasRepository.ParticaoMensal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.zip.GZIPOutputStream;
+
+// Mantém "meses-a-frente" partições futuras criadas e arquiva as mais antigas que "retencao-meses":
+// exporta a partição para um CSV gzip, desanexa, confere a contagem e só então libera os ids e a remove.
+@Component
+@ConditionalOnProperty(name = "consultas.particionamento.habilitado", havingValue = "true")
+@Slf4j
+public class ManutencaoParticoesConsultas {
+
+    private final ParticoesConsultasRepository particoesConsultasRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int mesesAFrente;
+    private final int retencaoMeses;
+    private final Path diretorioArquivo;
+    private final Clock clock;
+
+    @Autowired
+    public ManutencaoParticoesConsultas(ParticoesConsultasRepository particoesConsultasRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${consultas.particionamento.meses-a-frente:3}") int mesesAFrente,
+                                        @Value("${consultas.particionamento.retencao-meses:24}") int retencaoMeses,
+                                        @Value("${consultas.particionamento.diretorio-arquivo:arquivo-consultas}") String diretorioArquivo) {
+        this(particoesConsultasRepository, transactionManager, mesesAFrente, retencaoMeses, Path.of(diretorioArquivo),
+                Clock.systemDefaultZone());
+    }
+
+    ManutencaoParticoesConsultas(ParticoesConsultasRepository particoesConsultasRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 int mesesAFrente,
+                                 int retencaoMeses,
+                                 Path diretorioArquivo,
+                                 Clock clock) {
+        if (mesesAFrente < 1 || retencaoMeses < 1) {
+            throw new IllegalArgumentException("Meses à frente e retenção devem ser positivos");
+        }
+        this.particoesConsultasRepository = particoesConsultasRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mesesAFrente = mesesAFrente;
+        this.retencaoMeses = retencaoMeses;
+        this.diretorioArquivo = diretorioArquivo;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${consultas.particionamento.cron:0 30 3 * * *}")
+    public void executar() {
+        criarParticoesFuturas();
+        arquivarParticoesExpiradas();
+    }
+
+    void criarParticoesFuturas() {
+        YearMonth atual = YearMonth.now(clock);
+        int criadas = particoesConsultasRepository.criarParticoes(atual, atual.plusMonths(mesesAFrente + 1L));
+        if (criadas > 0) {
+            log.info("{} partições de consultas criadas até {}", criadas, atual.plusMonths(mesesAFrente));
+        }
+    }
+
+    void arquivarParticoesExpiradas() {
+        YearMonth limite = YearMonth.now(clock).minusMonths(retencaoMeses);
+        particoesConsultasRepository.listarParticoes().stream()
+                .filter(particao -> particao.mes().isBefore(limite))
+                .sorted(Comparator.comparing(ParticaoMensal::mes))
+                .forEach(this::arquivar);
+    }
+
+    // A exportação roda com a partição ainda anexada, sem bloquear a tabela; se alguma linha mudou entre a exportação
+    // e o DETACH, a contagem diverge, a transação desfaz o DETACH e a partição é exportada de novo no próximo ciclo.
+    // O arquivo só deixa de ser parcial depois do commit que remove a partição.
+    private void arquivar(ParticaoMensal particao) {
+        Path destino = diretorioArquivo.resolve(particao.nome() + ".csv.gz");
+        Path parcial = diretorioArquivo.resolve(particao.nome() + ".csv.gz.parcial");
+        long exportadas;
+        try {
+            Files.createDirectories(diretorioArquivo);
+            try (OutputStream saida = new GZIPOutputStream(Files.newOutputStream(parcial))) {
+                exportadas = particoesConsultasRepository.exportar(particao.nome(), saida);
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                particoesConsultasRepository.desanexar(particao.nome());
+                long atuais = particoesConsultasRepository.contar(particao.nome());
+                if (atuais != exportadas) {
+                    throw new IllegalStateException("Partição %s mudou durante a exportação: %d linhas exportadas, %d atuais"
+                            .formatted(particao.nome(), exportadas, atuais));
+                }
+                particoesConsultasRepository.liberarIds(particao.nome());
+                particoesConsultasRepository.remover(particao.nome());
+            });
+        } catch (IOException | RuntimeException e) {
+            log.error("Falha ao arquivar a partição {}: {}", particao.nome(), e.getMessage(), e);
+            apagar(parcial);
+            return;
+        }
+
+        // A partição já foi removida: se o rename falhar, o arquivo parcial é a única cópia e fica onde está.
+        try {
+            Files.move(parcial, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Partição {} arquivada em {} ({} consultas)", particao.nome(), destino, exportadas);
+        } catch (IOException e) {
+            log.error("Partição {} removida, mas o arquivo {} não foi renomeado para {}: {}",
+                    particao.nome(), parcial, destino, e.getMessage(), e);
+        }
+    }
+
+    private void apagar(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            log.warn("Não foi possível remover o arquivo parcial {}: {}", arquivo, e.getMessage());
+        }
+    }
+}
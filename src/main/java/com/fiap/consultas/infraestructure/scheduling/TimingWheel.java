@@ -0,0 +1,155 @@
+package com.fiap.consultas.infraestructure.scheduling;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Roda de tempo hierárquica: cada nível tem "slots" baldes e o tick de um nível é o intervalo inteiro do nível anterior.
+// Inserir, cancelar e expirar custam O(1); prazos distantes descem de nível conforme o relógio avança.
+public class TimingWheel<K> {
+
+    private final int slots;
+    private final List<Nivel> niveis = new ArrayList<>();
+    private final Map<K, Entrada<K>> entradas = new HashMap<>();
+    private final Set<Entrada<K>> vencidas = new LinkedHashSet<>();
+
+    public TimingWheel(Duration tick, int slots, long inicioMs) {
+        if (tick.toMillis() <= 0 || slots < 2) {
+            throw new IllegalArgumentException("Tick deve ser positivo e a roda precisa de ao menos dois slots");
+        }
+        this.slots = slots;
+        this.niveis.add(new Nivel(tick.toMillis(), inicioMs));
+    }
+
+    public synchronized void agendar(K chave, long expiracaoMs) {
+        remover(entradas.get(chave));
+        Entrada<K> entrada = new Entrada<>(chave, expiracaoMs);
+        entradas.put(chave, entrada);
+        inserir(entrada);
+    }
+
+    public synchronized boolean cancelar(K chave) {
+        Entrada<K> entrada = entradas.get(chave);
+        remover(entrada);
+        return entrada != null;
+    }
+
+    public synchronized List<K> avancar(long agoraMs) {
+        List<K> expiradas = new ArrayList<>();
+        drenar(vencidas, expiradas);
+
+        for (int i = 0; i < niveis.size(); i++) {
+            Nivel nivel = niveis.get(i);
+            long novoTempo = agoraMs - Math.floorMod(agoraMs, nivel.tick);
+            if (novoTempo <= nivel.tempoAtual) {
+                break;
+            }
+            List<Set<Entrada<K>>> baldesVencidos = nivel.avancar(novoTempo, i == 0);
+            for (Set<Entrada<K>> balde : baldesVencidos) {
+                if (i == 0) {
+                    drenar(balde, expiradas);
+                } else {
+                    List<Entrada<K>> descendo = new ArrayList<>(balde);
+                    balde.clear();
+                    descendo.forEach(this::inserir);
+                }
+            }
+        }
+        drenar(vencidas, expiradas);
+        return expiradas;
+    }
+
+    public synchronized int tamanho() {
+        return entradas.size();
+    }
+
+    private void inserir(Entrada<K> entrada) {
+        Nivel base = niveis.getFirst();
+        if (entrada.expiracaoMs < base.tempoAtual) {
+            entrada.balde = vencidas;
+            vencidas.add(entrada);
+            return;
+        }
+        for (int i = 0; ; i++) {
+            if (i == niveis.size()) {
+                Nivel anterior = niveis.get(i - 1);
+                long tick = anterior.tick * slots;
+                niveis.add(new Nivel(tick, anterior.tempoAtual));
+            }
+            Nivel nivel = niveis.get(i);
+            if (entrada.expiracaoMs < nivel.tempoAtual + nivel.tick * slots) {
+                Set<Entrada<K>> balde = nivel.balde(entrada.expiracaoMs);
+                entrada.balde = balde;
+                balde.add(entrada);
+                return;
+            }
+        }
+    }
+
+    private void remover(Entrada<K> entrada) {
+        if (entrada == null) {
+            return;
+        }
+        entrada.balde.remove(entrada);
+        entradas.remove(entrada.chave, entrada);
+    }
+
+    private void drenar(Set<Entrada<K>> balde, List<K> expiradas) {
+        for (Entrada<K> entrada : balde) {
+            entradas.remove(entrada.chave, entrada);
+            expiradas.add(entrada.chave);
+        }
+        balde.clear();
+    }
+
+    private final class Nivel {
+        private final long tick;
+        private final Set<Entrada<K>>[] baldes;
+        private long tempoAtual;
+
+        @SuppressWarnings("unchecked")
+        private Nivel(long tick, long inicioMs) {
+            this.tick = tick;
+            this.tempoAtual = inicioMs - Math.floorMod(inicioMs, tick);
+            this.baldes = new Set[slots];
+            for (int i = 0; i < slots; i++) {
+                baldes[i] = new LinkedHashSet<>();
+            }
+        }
+
+        private Set<Entrada<K>> balde(long expiracaoMs) {
+            return baldes[(int) Math.floorMod(Math.floorDiv(expiracaoMs, tick), (long) slots)];
+        }
+
+        // No nível base o balde só vence quando seu intervalo termina, para nunca disparar antes do prazo;
+        // nos níveis superiores o balde desce assim que seu intervalo começa.
+        private List<Set<Entrada<K>>> avancar(long novoTempo, boolean base) {
+            long passos = Math.min((novoTempo - tempoAtual) / tick, slots);
+            long primeiro = base ? tempoAtual : tempoAtual + tick;
+            List<Set<Entrada<K>>> vencidos = new ArrayList<>();
+            for (long passo = 0; passo < passos; passo++) {
+                Set<Entrada<K>> balde = balde(primeiro + passo * tick);
+                if (!balde.isEmpty()) {
+                    vencidos.add(balde);
+                }
+            }
+            tempoAtual = novoTempo;
+            return vencidos;
+        }
+    }
+
+    private static final class Entrada<K> {
+        private final K chave;
+        private final long expiracaoMs;
+        private Set<Entrada<K>> balde;
+
+        private Entrada(K chave, long expiracaoMs) {
+            this.chave = chave;
+            this.expiracaoMs = expiracaoMs;
+        }
+    }
+}
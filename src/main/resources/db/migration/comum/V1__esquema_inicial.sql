@@ -0,0 +1,43 @@
+-- Idempotente: bancos criados antes pelo ddl-auto=update recebem baseline na versão 0 (spring.flyway.baseline-on-migrate)
+-- e este script só cria o que estiver faltando.
+
+CREATE TABLE IF NOT EXISTS consultas (
+    id               UUID         NOT NULL,
+    paciente_cpf     VARCHAR(255) NOT NULL,
+    medico_id        VARCHAR(255),
+    especialidade    VARCHAR(255) NOT NULL,
+    cidade           VARCHAR(255) NOT NULL,
+    data_hora        TIMESTAMP(6),
+    local_consulta   VARCHAR(255),
+    prioridade       VARCHAR(255) NOT NULL,
+    status           VARCHAR(255) NOT NULL,
+    data_criacao     TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_consultas PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_consultas_status_data_hora ON consultas (status, data_hora);
+
+CREATE TABLE IF NOT EXISTS notificacoes_enviadas (
+    consulta_id UUID         NOT NULL,
+    tipo        VARCHAR(255) NOT NULL,
+    data_envio  TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_notificacoes_enviadas PRIMARY KEY (consulta_id, tipo)
+);
+
+CREATE TABLE IF NOT EXISTS notificacoes_outbox (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    consulta_id  UUID,
+    tipo         VARCHAR(255) NOT NULL,
+    conteudo     BYTEA        NOT NULL,
+    content_type VARCHAR(255) NOT NULL,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    tentativas   INTEGER      NOT NULL,
+    CONSTRAINT pk_notificacoes_outbox PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS confirmacoes_processadas (
+    consulta_id        UUID         NOT NULL,
+    data_processamento TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_confirmacoes_processadas PRIMARY KEY (consulta_id)
+);
@@ -0,0 +1,11 @@
+CREATE TABLE notificacoes_outbox_falhas (
+    id           BIGINT       NOT NULL,
+    consulta_id  UUID,
+    tipo         VARCHAR(255) NOT NULL,
+    conteudo     BYTEA        NOT NULL,
+    content_type VARCHAR(255) NOT NULL,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    tentativas   INTEGER      NOT NULL,
+    data_falha   TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_notificacoes_outbox_falhas PRIMARY KEY (id)
+);
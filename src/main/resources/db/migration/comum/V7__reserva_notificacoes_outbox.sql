@@ -0,0 +1 @@
+ALTER TABLE notificacoes_outbox ADD COLUMN reservado_ate TIMESTAMP(6);
@@ -0,0 +1,6 @@
+-- O H2 não tem índice parcial; o índice por médico cobre todos os status.
+CREATE INDEX idx_consultas_medico_data_hora_ativas ON consultas (medico_id, data_hora);
+
+CREATE INDEX idx_consultas_status_especialidade_cidade_data_hora ON consultas (status, especialidade, cidade, data_hora);
+
+CREATE INDEX idx_consultas_status_prioridade_data_criacao ON consultas (status, prioridade, data_criacao);
@@ -0,0 +1,2 @@
+-- Versão para detecção de inserção x atualização e controle otimista de concorrência em consultas.
+ALTER TABLE consultas ADD COLUMN versao BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1 @@
+CREATE INDEX idx_confirmacoes_processadas_data_processamento ON confirmacoes_processadas (data_processamento);
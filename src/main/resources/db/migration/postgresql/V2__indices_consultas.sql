@@ -0,0 +1,14 @@
+-- CONCURRENTLY não bloqueia escritas durante a criação; o Flyway executa esses comandos fora de transação.
+
+-- Conflito de horário e carga do médico só consideram consultas ativas.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_consultas_medico_data_hora_ativas
+    ON consultas (medico_id, data_hora)
+    WHERE status IN ('AGENDADA', 'CONFIRMADA');
+
+-- Consultas que podem ceder o horário para um caso urgente.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_consultas_status_especialidade_cidade_data_hora
+    ON consultas (status, especialidade, cidade, data_hora);
+
+-- Fila de consultas pendentes de agendamento.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_consultas_status_prioridade_data_criacao
+    ON consultas (status, prioridade, data_criacao);
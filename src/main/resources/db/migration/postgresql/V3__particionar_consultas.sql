@@ -0,0 +1,189 @@
+-- Consultas com horário ficam em consultas_com_horario, particionada por mês de data_hora; as ainda sem horário
+-- (pendentes de agendamento) ficam em consultas_sem_horario, sem partição. A chave primária da tabela particionada
+-- precisa incluir a coluna de partição, por isso data_hora é obrigatória ali e a chave é (id, data_hora).
+-- A aplicação continua lendo e gravando em "consultas", uma view sobre as duas tabelas cujos triggers levam cada
+-- linha para a tabela certa, inclusive quando a consulta ganha ou perde o horário.
+
+ALTER TABLE consultas RENAME TO consultas_legado;
+
+CREATE TABLE consultas_com_horario (
+    id               UUID         NOT NULL,
+    paciente_cpf     VARCHAR(255) NOT NULL,
+    medico_id        VARCHAR(255),
+    especialidade    VARCHAR(255) NOT NULL,
+    cidade           VARCHAR(255) NOT NULL,
+    data_hora        TIMESTAMP(6) NOT NULL,
+    local_consulta   VARCHAR(255),
+    prioridade       VARCHAR(255) NOT NULL,
+    status           VARCHAR(255) NOT NULL,
+    data_criacao     TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_consultas_com_horario PRIMARY KEY (id, data_hora)
+) PARTITION BY RANGE (data_hora);
+
+-- Recebe só horários fora das partições mensais criadas; criar_particoes_consultas devolve essas linhas
+-- para a partição do mês quando ela é criada.
+CREATE TABLE consultas_padrao PARTITION OF consultas_com_horario DEFAULT;
+
+CREATE TABLE consultas_sem_horario (
+    id               UUID         NOT NULL,
+    paciente_cpf     VARCHAR(255) NOT NULL,
+    medico_id        VARCHAR(255),
+    especialidade    VARCHAR(255) NOT NULL,
+    cidade           VARCHAR(255) NOT NULL,
+    data_hora        TIMESTAMP(6) CHECK (data_hora IS NULL),
+    local_consulta   VARCHAR(255),
+    prioridade       VARCHAR(255) NOT NULL,
+    status           VARCHAR(255) NOT NULL,
+    data_criacao     TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_consultas_sem_horario PRIMARY KEY (id)
+);
+
+-- Cria as partições mensais que faltam no intervalo [inicio, fim); usada também pelo job de manutenção.
+-- A partição padrão não pode ter linhas do mês de uma partição nova: nesse caso ela é desanexada, as linhas do mês
+-- passam para a nova partição e ela é anexada de novo. Cada mês roda no próprio bloco, então uma falha vira um
+-- aviso e os meses seguintes continuam sendo criados.
+CREATE OR REPLACE FUNCTION criar_particoes_consultas(inicio DATE, fim DATE) RETURNS INTEGER AS $$
+DECLARE
+    mes     DATE := date_trunc('month', inicio)::DATE;
+    proximo DATE;
+    criadas INTEGER := 0;
+    nome    TEXT;
+BEGIN
+    WHILE mes < fim LOOP
+        nome := format('consultas_p%s', to_char(mes, 'YYYY_MM'));
+        proximo := (mes + INTERVAL '1 month')::DATE;
+        IF to_regclass(nome) IS NULL THEN
+            BEGIN
+                IF EXISTS (SELECT 1 FROM consultas_padrao WHERE data_hora >= mes AND data_hora < proximo) THEN
+                    ALTER TABLE consultas_com_horario DETACH PARTITION consultas_padrao;
+                    EXECUTE format('CREATE TABLE %I PARTITION OF consultas_com_horario FOR VALUES FROM (%L) TO (%L)',
+                                   nome, mes, proximo);
+                    EXECUTE format('INSERT INTO %I SELECT * FROM consultas_padrao WHERE data_hora >= %L AND data_hora < %L',
+                                   nome, mes, proximo);
+                    DELETE FROM consultas_padrao WHERE data_hora >= mes AND data_hora < proximo;
+                    ALTER TABLE consultas_com_horario ATTACH PARTITION consultas_padrao DEFAULT;
+                ELSE
+                    EXECUTE format('CREATE TABLE %I PARTITION OF consultas_com_horario FOR VALUES FROM (%L) TO (%L)',
+                                   nome, mes, proximo);
+                END IF;
+                criadas := criadas + 1;
+            EXCEPTION WHEN OTHERS THEN
+                RAISE WARNING 'Partição % não foi criada: %', nome, SQLERRM;
+            END;
+        END IF;
+        mes := proximo;
+    END LOOP;
+    RETURN criadas;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT criar_particoes_consultas(
+               COALESCE((SELECT min(data_hora) FROM consultas_legado), current_date)::DATE,
+               (GREATEST(COALESCE((SELECT max(data_hora) FROM consultas_legado), current_date), current_date)
+                   + INTERVAL '4 months')::DATE);
+
+INSERT INTO consultas_com_horario
+SELECT id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+       data_criacao, data_atualizacao
+FROM consultas_legado
+WHERE data_hora IS NOT NULL;
+
+INSERT INTO consultas_sem_horario
+SELECT id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+       data_criacao, data_atualizacao
+FROM consultas_legado
+WHERE data_hora IS NULL;
+
+DROP TABLE consultas_legado;
+
+-- Índices criados na tabela mãe valem para todas as partições, inclusive as futuras.
+CREATE INDEX idx_consultas_status_data_hora ON consultas_com_horario (status, data_hora);
+
+CREATE INDEX idx_consultas_medico_data_hora_ativas
+    ON consultas_com_horario (medico_id, data_hora)
+    WHERE status IN ('AGENDADA', 'CONFIRMADA');
+
+CREATE INDEX idx_consultas_status_especialidade_cidade_data_hora
+    ON consultas_com_horario (status, especialidade, cidade, data_hora);
+
+CREATE INDEX idx_consultas_status_prioridade_data_criacao
+    ON consultas_com_horario (status, prioridade, data_criacao);
+
+-- Fila de consultas pendentes de agendamento.
+CREATE INDEX idx_consultas_sem_horario_status_prioridade_data_criacao
+    ON consultas_sem_horario (status, prioridade, data_criacao);
+
+CREATE VIEW consultas AS
+SELECT id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+       data_criacao, data_atualizacao
+FROM consultas_com_horario
+UNION ALL
+SELECT id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+       data_criacao, data_atualizacao
+FROM consultas_sem_horario;
+
+-- Devolve NULL quando a linha não existe mais na tabela de origem, para que a contagem de linhas afetadas
+-- informada à aplicação reflita o que de fato foi gravado.
+CREATE OR REPLACE FUNCTION gravar_consulta() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        IF NEW.data_hora IS NULL THEN
+            INSERT INTO consultas_sem_horario VALUES (NEW.*);
+        ELSE
+            INSERT INTO consultas_com_horario VALUES (NEW.*);
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    IF TG_OP = 'UPDATE' AND OLD.data_hora IS NULL AND NEW.data_hora IS NULL THEN
+        UPDATE consultas_sem_horario
+        SET (id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+             data_criacao, data_atualizacao) =
+            (NEW.id, NEW.paciente_cpf, NEW.medico_id, NEW.especialidade, NEW.cidade, NEW.data_hora,
+             NEW.local_consulta, NEW.prioridade, NEW.status, NEW.data_criacao, NEW.data_atualizacao)
+        WHERE id = OLD.id;
+        IF NOT FOUND THEN
+            RETURN NULL;
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    IF TG_OP = 'UPDATE' AND OLD.data_hora IS NOT NULL AND NEW.data_hora IS NOT NULL THEN
+        UPDATE consultas_com_horario
+        SET (id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+             data_criacao, data_atualizacao) =
+            (NEW.id, NEW.paciente_cpf, NEW.medico_id, NEW.especialidade, NEW.cidade, NEW.data_hora,
+             NEW.local_consulta, NEW.prioridade, NEW.status, NEW.data_criacao, NEW.data_atualizacao)
+        WHERE id = OLD.id AND data_hora = OLD.data_hora;
+        IF NOT FOUND THEN
+            RETURN NULL;
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    -- DELETE, ou UPDATE em que a consulta ganhou ou perdeu o horário e muda de tabela.
+    IF OLD.data_hora IS NULL THEN
+        DELETE FROM consultas_sem_horario WHERE id = OLD.id;
+    ELSE
+        DELETE FROM consultas_com_horario WHERE id = OLD.id AND data_hora = OLD.data_hora;
+    END IF;
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    IF NEW.data_hora IS NULL THEN
+        INSERT INTO consultas_sem_horario VALUES (NEW.*);
+    ELSE
+        INSERT INTO consultas_com_horario VALUES (NEW.*);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_gravar_consulta
+    INSTEAD OF INSERT OR UPDATE OR DELETE ON consultas
+    FOR EACH ROW EXECUTE FUNCTION gravar_consulta();
@@ -0,0 +1,76 @@
+-- Versão para detecção de inserção x atualização e controle otimista de concorrência em consultas.
+-- No PostgreSQL "consultas" é uma view (ver V3): a coluna entra nas duas tabelas e a view e o trigger são refeitos.
+ALTER TABLE consultas_com_horario ADD COLUMN versao BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE consultas_sem_horario ADD COLUMN versao BIGINT DEFAULT 0 NOT NULL;
+
+CREATE OR REPLACE VIEW consultas AS
+SELECT id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+       data_criacao, data_atualizacao, versao
+FROM consultas_com_horario
+UNION ALL
+SELECT id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+       data_criacao, data_atualizacao, versao
+FROM consultas_sem_horario;
+
+ALTER VIEW consultas ALTER COLUMN versao SET DEFAULT 0;
+
+-- A leitura da view não trava as linhas; por isso as escritas nas tabelas repetem a condição de versão lida,
+-- e uma atualização concorrente que chegou antes faz esta não encontrar a linha e devolver NULL
+-- (zero linhas afetadas, que o Hibernate trata como conflito otimista).
+CREATE OR REPLACE FUNCTION gravar_consulta() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        IF NEW.data_hora IS NULL THEN
+            INSERT INTO consultas_sem_horario VALUES (NEW.*);
+        ELSE
+            INSERT INTO consultas_com_horario VALUES (NEW.*);
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    IF TG_OP = 'UPDATE' AND OLD.data_hora IS NULL AND NEW.data_hora IS NULL THEN
+        UPDATE consultas_sem_horario
+        SET (id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+             data_criacao, data_atualizacao, versao) =
+            (NEW.id, NEW.paciente_cpf, NEW.medico_id, NEW.especialidade, NEW.cidade, NEW.data_hora,
+             NEW.local_consulta, NEW.prioridade, NEW.status, NEW.data_criacao, NEW.data_atualizacao, NEW.versao)
+        WHERE id = OLD.id AND versao = OLD.versao;
+        IF NOT FOUND THEN
+            RETURN NULL;
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    IF TG_OP = 'UPDATE' AND OLD.data_hora IS NOT NULL AND NEW.data_hora IS NOT NULL THEN
+        UPDATE consultas_com_horario
+        SET (id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+             data_criacao, data_atualizacao, versao) =
+            (NEW.id, NEW.paciente_cpf, NEW.medico_id, NEW.especialidade, NEW.cidade, NEW.data_hora,
+             NEW.local_consulta, NEW.prioridade, NEW.status, NEW.data_criacao, NEW.data_atualizacao, NEW.versao)
+        WHERE id = OLD.id AND data_hora = OLD.data_hora AND versao = OLD.versao;
+        IF NOT FOUND THEN
+            RETURN NULL;
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    -- DELETE, ou UPDATE em que a consulta ganhou ou perdeu o horário e muda de tabela.
+    IF OLD.data_hora IS NULL THEN
+        DELETE FROM consultas_sem_horario WHERE id = OLD.id AND versao = OLD.versao;
+    ELSE
+        DELETE FROM consultas_com_horario WHERE id = OLD.id AND data_hora = OLD.data_hora AND versao = OLD.versao;
+    END IF;
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    IF NEW.data_hora IS NULL THEN
+        INSERT INTO consultas_sem_horario VALUES (NEW.*);
+    ELSE
+        INSERT INTO consultas_com_horario VALUES (NEW.*);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,3 @@
+-- Carga do filtro de deduplicação e limpeza dos registros fora da retenção.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_confirmacoes_processadas_data_processamento
+    ON confirmacoes_processadas (data_processamento);
@@ -0,0 +1,73 @@
+-- A chave de consultas_com_horario é (id, data_hora) e a de consultas_sem_horario é só id, então nada impedia o
+-- mesmo id nas duas tabelas, ou em duas partições com horários diferentes. consultas_ids guarda um id por consulta e
+-- o trigger da view o reserva na inserção e o libera na exclusão; a troca de tabela mantém o id e não mexe nele.
+-- Se o banco já tiver ids repetidos a migração falha no INSERT abaixo e eles precisam ser resolvidos antes.
+CREATE TABLE consultas_ids (
+    id UUID NOT NULL,
+    CONSTRAINT pk_consultas_ids PRIMARY KEY (id)
+);
+
+INSERT INTO consultas_ids (id)
+SELECT id FROM consultas_com_horario
+UNION ALL
+SELECT id FROM consultas_sem_horario;
+
+CREATE OR REPLACE FUNCTION gravar_consulta() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO consultas_ids (id) VALUES (NEW.id);
+        IF NEW.data_hora IS NULL THEN
+            INSERT INTO consultas_sem_horario VALUES (NEW.*);
+        ELSE
+            INSERT INTO consultas_com_horario VALUES (NEW.*);
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    IF TG_OP = 'UPDATE' AND OLD.data_hora IS NULL AND NEW.data_hora IS NULL THEN
+        UPDATE consultas_sem_horario
+        SET (id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+             data_criacao, data_atualizacao, versao) =
+            (NEW.id, NEW.paciente_cpf, NEW.medico_id, NEW.especialidade, NEW.cidade, NEW.data_hora,
+             NEW.local_consulta, NEW.prioridade, NEW.status, NEW.data_criacao, NEW.data_atualizacao, NEW.versao)
+        WHERE id = OLD.id AND versao = OLD.versao;
+        IF NOT FOUND THEN
+            RETURN NULL;
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    IF TG_OP = 'UPDATE' AND OLD.data_hora IS NOT NULL AND NEW.data_hora IS NOT NULL THEN
+        UPDATE consultas_com_horario
+        SET (id, paciente_cpf, medico_id, especialidade, cidade, data_hora, local_consulta, prioridade, status,
+             data_criacao, data_atualizacao, versao) =
+            (NEW.id, NEW.paciente_cpf, NEW.medico_id, NEW.especialidade, NEW.cidade, NEW.data_hora,
+             NEW.local_consulta, NEW.prioridade, NEW.status, NEW.data_criacao, NEW.data_atualizacao, NEW.versao)
+        WHERE id = OLD.id AND data_hora = OLD.data_hora AND versao = OLD.versao;
+        IF NOT FOUND THEN
+            RETURN NULL;
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    -- DELETE, ou UPDATE em que a consulta ganhou ou perdeu o horário e muda de tabela.
+    IF OLD.data_hora IS NULL THEN
+        DELETE FROM consultas_sem_horario WHERE id = OLD.id AND versao = OLD.versao;
+    ELSE
+        DELETE FROM consultas_com_horario WHERE id = OLD.id AND data_hora = OLD.data_hora AND versao = OLD.versao;
+    END IF;
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM consultas_ids WHERE id = OLD.id;
+        RETURN OLD;
+    END IF;
+    IF NEW.data_hora IS NULL THEN
+        INSERT INTO consultas_sem_horario VALUES (NEW.*);
+    ELSE
+        INSERT INTO consultas_com_horario VALUES (NEW.*);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
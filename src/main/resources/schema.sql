@@ -1 +0,0 @@
-CREATE SCHEMA IF NOT EXISTS postgres_consultas;
@@ -1,5 +1,7 @@
 package bdd;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
 import com.fiap.consultas.application.dtos.RespostaAgendamentoDTO;
 import com.fiap.consultas.application.dtos.SolicitacaoAgendamentoDTO;
@@ -23,8 +25,10 @@ import org.springframework.cloud.stream.binder.test.TestChannelBinderConfigurati
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.MessageBuilder;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -53,6 +57,9 @@ public class DefinicaoPassos {
     @Autowired
     private InputDestination input;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Before
     public void setup() {
         wireMockServer = new WireMockServer(8082);
@@ -112,12 +119,12 @@ public class DefinicaoPassos {
     }
 
     @Quando("receber confirmacao")
-    public void receberConfirmacao() {
+    public void receberConfirmacao() throws JsonProcessingException {
         enviarEventoDeConfirmacao(true);
     }
 
     @Quando("receber confirmacao negativa")
-    public void receberConfirmacaoNegativa() {
+    public void receberConfirmacaoNegativa() throws JsonProcessingException {
         enviarEventoDeConfirmacao(false);
     }
 
@@ -131,13 +138,15 @@ public class DefinicaoPassos {
         assertConsultaStatus(StatusConsulta.CONFIRMADA);
     }
 
-    private void enviarEventoDeConfirmacao(boolean confirmada) {
+    private void enviarEventoDeConfirmacao(boolean confirmada) throws JsonProcessingException {
         ConfirmacaoConsultaDTO confirmacao = new ConfirmacaoConsultaDTO();
 
         confirmacao.setConfirmada(confirmada);
         confirmacao.setConsultaId(respostaAgendamentoDTO.getConsultaId().toString());
 
-        Message<ConfirmacaoConsultaDTO> message = MessageBuilder.withPayload(confirmacao).build();
+        Message<List<byte[]>> message = MessageBuilder.withPayload(List.of(objectMapper.writeValueAsBytes(confirmacao)))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+                .build();
         input.send(message, "receberConfirmacaoConsulta-in-0");
     }
 
@@ -1,5 +1,6 @@
 package com.fiap.consultas.application.usecases;
 
+import com.fiap.consultas.application.dtos.ItemNotificacaoDTO;
 import com.fiap.consultas.application.dtos.NotificacaoDTO;
 import com.fiap.consultas.application.dtos.PacienteDTO;
 import com.fiap.consultas.application.ports.NotificacaoServicePort;
@@ -22,6 +23,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -59,6 +61,7 @@ class EnviarNotificacaoConfirmacaoUseCaseIT {
     @BeforeEach
     void setUp() {
         jdbcTemplate.execute("DELETE FROM consultas");
+        jdbcTemplate.execute("DELETE FROM notificacoes_enviadas");
 
         pacienteCpf = "12345678900";
         paciente = PacienteDTO.builder()
@@ -137,6 +140,19 @@ class EnviarNotificacaoConfirmacaoUseCaseIT {
         assertEquals(TipoNotificacao.AVISO_UM_DIA_ANTES, notificacao.getTipoNotificacao());
     }
 
+    @Test
+    void naoDeveReenviarNotificacoesEmCiclosSeguintes() {
+        // Act
+        useCase.executar();
+        useCase.executar();
+        useCase.enviarLembreteDiaAnterior();
+        useCase.enviarLembreteDiaAnterior();
+
+        // Assert
+        verify(notificacaoService, times(2)).enviarNotificacao(any());
+        verify(pacienteService, times(2)).buscarPacientePorCpf(pacienteCpf);
+    }
+
     @Test
     void naoDeveEnviarNotificacaoParaConsultasForaDoPeriodo() {
         // Arrange
@@ -185,7 +201,7 @@ class EnviarNotificacaoConfirmacaoUseCaseIT {
     }
 
     @Test
-    void deveEnviarNotificacaoParaMultiplasConsultasNoPeriodo() {
+    void deveAgruparMultiplasConsultasDoPacienteNoPeriodo() {
         // Arrange
         Consulta outraConsultaAgendada = new Consulta();
         outraConsultaAgendada.setId(UUID.randomUUID());
@@ -205,11 +221,15 @@ class EnviarNotificacaoConfirmacaoUseCaseIT {
         useCase.executar();
 
         // Assert
-        verify(notificacaoService, times(2)).enviarNotificacao(any());
+        verify(notificacaoService, times(1)).enviarNotificacao(notificacaoCaptor.capture());
+        NotificacaoDTO notificacao = notificacaoCaptor.getValue();
+        assertEquals(outraConsultaAgendada.getId(), notificacao.getConsultaId());
+        assertEquals(List.of(outraConsultaAgendada.getId(), consultaAgendada.getId()),
+                notificacao.getConsultasAgrupadas().stream().map(ItemNotificacaoDTO::getConsultaId).toList());
     }
 
     @Test
-    void deveEnviarLembreteParaMultiplasConsultasDeAmanha() {
+    void deveAgruparLembretesDasMultiplasConsultasDeAmanha() {
         // Arrange
         Consulta outraConsultaAmanha = new Consulta();
         outraConsultaAmanha.setId(UUID.randomUUID());
@@ -229,7 +249,9 @@ class EnviarNotificacaoConfirmacaoUseCaseIT {
         useCase.enviarLembreteDiaAnterior();
 
         // Assert
-        verify(notificacaoService, times(2)).enviarNotificacao(any());
+        verify(notificacaoService, times(1)).enviarNotificacao(notificacaoCaptor.capture());
+        assertEquals(2, notificacaoCaptor.getValue().getConsultasAgrupadas().size());
+        verify(pacienteService, times(1)).buscarPacientePorCpf(pacienteCpf);
     }
 
     @Test
@@ -296,7 +318,8 @@ class EnviarNotificacaoConfirmacaoUseCaseIT {
         useCase.executar();
 
         // Assert
-        verify(notificacaoService, times(3)).enviarNotificacao(any());
+        verify(notificacaoService, times(1)).enviarNotificacao(notificacaoCaptor.capture());
+        assertEquals(3, notificacaoCaptor.getValue().getConsultasAgrupadas().size());
     }
 
     private void assertDatasIguaisIgnorandoNanos(String dataEsperada, String dataAtual) {
@@ -1,29 +1,42 @@
 package com.fiap.consultas.application.usecases;
 
+import com.fiap.consultas.application.dtos.ItemNotificacaoDTO;
 import com.fiap.consultas.application.dtos.NotificacaoDTO;
 import com.fiap.consultas.application.dtos.PacienteDTO;
+import com.fiap.consultas.application.exceptions.ServicoExternoIndisponivelException;
 import com.fiap.consultas.application.ports.NotificacaoServicePort;
 import com.fiap.consultas.application.ports.PacienteServicePort;
 import com.fiap.consultas.domain.entities.Consulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
 import com.fiap.consultas.domain.enums.TipoNotificacao;
 import com.fiap.consultas.domain.repositories.ConsultaRepository;
+import com.fiap.consultas.domain.repositories.NotificacaoEnviadaRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,12 +51,23 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
     @Mock
     private NotificacaoServicePort notificacaoServicePort;
 
-    @InjectMocks
+    @Mock
+    private NotificacaoEnviadaRepository notificacaoEnviadaRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private EnviarNotificacaoConfirmacaoUseCase useCase;
 
     @Captor
     private ArgumentCaptor<NotificacaoDTO> notificacaoCaptor;
 
+    @Captor
+    private ArgumentCaptor<LocalDateTime> inicioCaptor;
+
+    @Captor
+    private ArgumentCaptor<LocalDateTime> fimCaptor;
+
     private LocalDateTime dataAtual;
     private UUID consultaId;
     private String pacienteCpf;
@@ -52,6 +76,8 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
 
     @BeforeEach
     void setUp() {
+        useCase = new EnviarNotificacaoConfirmacaoUseCase(consultaRepository, pacienteServicePort,
+                notificacaoServicePort, notificacaoEnviadaRepository, new TransactionTemplate(transactionManager), 4);
         dataAtual = LocalDateTime.now();
         consultaId = UUID.randomUUID();
         pacienteCpf = "12345678900";
@@ -74,8 +100,8 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
         when(consultaAgendada.getPacienteCpf()).thenReturn(pacienteCpf);
         when(consultaAgendada.getLocalConsulta()).thenReturn(localConsulta);
 
-        when(consultaRepository.buscarPorStatus(StatusConsulta.AGENDADA))
-                .thenReturn(Collections.singletonList(consultaAgendada));
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.of(consultaAgendada));
         when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf))
                 .thenReturn(pacienteDTO);
 
@@ -93,21 +119,19 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
         assertEquals(localConsulta, notificacao.getLocalConsulta());
         assertEquals(dataAtual.plusWeeks(2).toString(), notificacao.getDataConsulta());
         assertEquals(TipoNotificacao.CONFIRMACAO_CONSULTA, notificacao.getTipoNotificacao());
+        verify(notificacaoEnviadaRepository).registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
     }
 
     @Test
-    void naoDeveEnviarNotificacaoParaConsultasAlemDe2Semanas() {
-        // Arrange
-        Consulta consultaAgendada = mock(Consulta.class);
-        when(consultaAgendada.getDataHora()).thenReturn(dataAtual.plusWeeks(3));
-
-        when(consultaRepository.buscarPorStatus(StatusConsulta.AGENDADA))
-                .thenReturn(Collections.singletonList(consultaAgendada));
-
+    void deveBuscarConsultasAgendadasDasProximasDuasSemanas() {
         // Act
         useCase.executar();
 
         // Assert
+        verify(consultaRepository).percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), inicioCaptor.capture(),
+                fimCaptor.capture(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA));
+        assertFalse(inicioCaptor.getValue().isBefore(dataAtual));
+        assertEquals(Duration.ofDays(14), Duration.between(inicioCaptor.getValue(), fimCaptor.getValue()));
         verify(notificacaoServicePort, never()).enviarNotificacao(any());
     }
 
@@ -120,8 +144,8 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
         when(consultaConfirmada.getPacienteCpf()).thenReturn(pacienteCpf);
         when(consultaConfirmada.getLocalConsulta()).thenReturn(localConsulta);
 
-        when(consultaRepository.buscarPorStatus(StatusConsulta.CONFIRMADA))
-                .thenReturn(Collections.singletonList(consultaConfirmada));
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.CONFIRMADA), any(), any(), eq(TipoNotificacao.AVISO_UM_DIA_ANTES)))
+                .thenReturn(Stream.of(consultaConfirmada));
         when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf))
                 .thenReturn(pacienteDTO);
 
@@ -139,48 +163,48 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
         assertEquals(localConsulta, notificacao.getLocalConsulta());
         assertEquals(dataAtual.plusDays(1).toString(), notificacao.getDataConsulta());
         assertEquals(TipoNotificacao.AVISO_UM_DIA_ANTES, notificacao.getTipoNotificacao());
+        verify(notificacaoEnviadaRepository).registrar(List.of(consultaId), TipoNotificacao.AVISO_UM_DIA_ANTES);
     }
 
     @Test
-    void naoDeveEnviarLembreteParaConsultasNaoAgendadasParaAmanha() {
-        // Arrange
-        Consulta consultaOutroDia = mock(Consulta.class);
-        when(consultaOutroDia.getDataHora()).thenReturn(dataAtual.plusDays(2)); // Daqui a 2 dias
-
-        when(consultaRepository.buscarPorStatus(StatusConsulta.CONFIRMADA))
-                .thenReturn(Collections.singletonList(consultaOutroDia));
-
+    void deveBuscarConsultasConfirmadasDoDiaSeguinte() {
         // Act
         useCase.enviarLembreteDiaAnterior();
 
         // Assert
-        verify(notificacaoServicePort, never()).enviarNotificacao(any());
+        verify(consultaRepository).percorrerParaNotificacao(eq(StatusConsulta.CONFIRMADA), inicioCaptor.capture(),
+                fimCaptor.capture(), eq(TipoNotificacao.AVISO_UM_DIA_ANTES));
+        LocalDateTime inicioDeAmanha = LocalDate.now().plusDays(1).atStartOfDay();
+        assertEquals(inicioDeAmanha, inicioCaptor.getValue());
+        assertEquals(inicioDeAmanha.plusDays(1), fimCaptor.getValue());
     }
 
     @Test
     void naoDeveEnviarNotificacaoQuandoNaoHaConsultasAgendadas() {
         // Arrange
-        when(consultaRepository.buscarPorStatus(StatusConsulta.AGENDADA))
-                .thenReturn(Collections.emptyList());
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.empty());
 
         // Act
         useCase.executar();
 
         // Assert
         verify(notificacaoServicePort, never()).enviarNotificacao(any());
+        verifyNoInteractions(pacienteServicePort, notificacaoEnviadaRepository);
     }
 
     @Test
     void naoDeveEnviarLembreteQuandoNaoHaConsultasConfirmadas() {
         // Arrange
-        when(consultaRepository.buscarPorStatus(StatusConsulta.CONFIRMADA))
-                .thenReturn(Collections.emptyList());
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.CONFIRMADA), any(), any(), eq(TipoNotificacao.AVISO_UM_DIA_ANTES)))
+                .thenReturn(Stream.empty());
 
         // Act
         useCase.enviarLembreteDiaAnterior();
 
         // Assert
         verify(notificacaoServicePort, never()).enviarNotificacao(any());
+        verifyNoInteractions(pacienteServicePort, notificacaoEnviadaRepository);
     }
 
     @Test
@@ -198,8 +222,8 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
         when(consulta2.getPacienteCpf()).thenReturn("22222222222");
         when(consulta2.getLocalConsulta()).thenReturn("Consultório Y");
 
-        when(consultaRepository.buscarPorStatus(StatusConsulta.AGENDADA))
-                .thenReturn(Arrays.asList(consulta1, consulta2));
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.of(consulta1, consulta2));
 
         PacienteDTO paciente1 = PacienteDTO.builder()
                 .nome("Paciente 1")
@@ -223,6 +247,7 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
 
         // Assert
         verify(notificacaoServicePort, times(2)).enviarNotificacao(any());
+        verify(notificacaoEnviadaRepository, times(2)).registrar(any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA));
     }
 
     @Test
@@ -240,8 +265,8 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
         when(consulta2.getPacienteCpf()).thenReturn("22222222222");
         when(consulta2.getLocalConsulta()).thenReturn("Consultório Y");
 
-        when(consultaRepository.buscarPorStatus(StatusConsulta.CONFIRMADA))
-                .thenReturn(Arrays.asList(consulta1, consulta2));
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.CONFIRMADA), any(), any(), eq(TipoNotificacao.AVISO_UM_DIA_ANTES)))
+                .thenReturn(Stream.of(consulta1, consulta2));
 
         PacienteDTO paciente1 = PacienteDTO.builder()
                 .nome("Paciente 1")
@@ -268,61 +293,271 @@ class EnviarNotificacaoConfirmacaoUseCaseTest {
     }
 
     @Test
-    void testeMetodoEstaProximoDuasSemanas() {
+    void deveEnviarLembretesVencidosDaRodaDeTempo() {
         // Arrange
-        LocalDateTime duasSemanasFuturo = LocalDateTime.now().plusWeeks(2);
+        Consulta consultaConfirmada = mock(Consulta.class);
+        when(consultaConfirmada.getId()).thenReturn(consultaId);
+        when(consultaConfirmada.getDataHora()).thenReturn(dataAtual.plusDays(1));
+        when(consultaConfirmada.getPacienteCpf()).thenReturn(pacienteCpf);
 
-        Consulta consultaExatamenteDuasSemanas = mock(Consulta.class);
-        when(consultaExatamenteDuasSemanas.getId()).thenReturn(UUID.randomUUID());
-        when(consultaExatamenteDuasSemanas.getDataHora()).thenReturn(duasSemanasFuturo);
-        when(consultaExatamenteDuasSemanas.getPacienteCpf()).thenReturn("11111111111");
-        when(consultaExatamenteDuasSemanas.getLocalConsulta()).thenReturn("Consultório X");
+        List<UUID> ids = List.of(consultaId, UUID.randomUUID());
+        LocalDateTime inicioDeAmanha = LocalDate.now().plusDays(1).atStartOfDay();
+        when(consultaRepository.buscarParaNotificacao(ids, StatusConsulta.CONFIRMADA, inicioDeAmanha,
+                inicioDeAmanha.plusDays(1), TipoNotificacao.AVISO_UM_DIA_ANTES))
+                .thenReturn(List.of(consultaConfirmada));
+        when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf)).thenReturn(pacienteDTO);
 
-        Consulta consultaMenosDeDuasSemanas = mock(Consulta.class);
-        when(consultaMenosDeDuasSemanas.getDataHora()).thenReturn(duasSemanasFuturo.minusDays(1));
-        when(consultaMenosDeDuasSemanas.getId()).thenReturn(UUID.randomUUID());
-        when(consultaMenosDeDuasSemanas.getPacienteCpf()).thenReturn("2222222");
-        when(consultaMenosDeDuasSemanas.getLocalConsulta()).thenReturn("Consultório X");
+        // Act
+        useCase.enviarLembretes(TipoNotificacao.AVISO_UM_DIA_ANTES, ids);
 
-        Consulta consultaMaisDeDuasSemanas = mock(Consulta.class);
-        when(consultaMaisDeDuasSemanas.getDataHora()).thenReturn(duasSemanasFuturo.plusDays(1));
+        // Assert
+        verify(notificacaoServicePort).enviarNotificacao(notificacaoCaptor.capture());
+        assertEquals(TipoNotificacao.AVISO_UM_DIA_ANTES, notificacaoCaptor.getValue().getTipoNotificacao());
+        verify(notificacaoEnviadaRepository).registrar(List.of(consultaId), TipoNotificacao.AVISO_UM_DIA_ANTES);
+    }
 
-        when(consultaRepository.buscarPorStatus(StatusConsulta.AGENDADA)).thenReturn(Arrays.asList(consultaExatamenteDuasSemanas, consultaMenosDeDuasSemanas, consultaMaisDeDuasSemanas));
+    @Test
+    void deveDevolverOsLembretesQueNaoForamNotificados() {
+        // Arrange
+        Consulta comFalha = criarConsulta(UUID.randomUUID(), "11111111111");
+        Consulta adiada = criarConsulta(UUID.randomUUID(), "22222222222");
+        Consulta enviada = criarConsulta(consultaId, pacienteCpf);
+        UUID naoEncontrada = UUID.randomUUID();
+        List<UUID> ids = List.of(comFalha.getId(), adiada.getId(), enviada.getId(), naoEncontrada);
+        when(consultaRepository.buscarParaNotificacao(eq(ids), eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(List.of(comFalha, adiada, enviada));
+        when(pacienteServicePort.buscarPacientePorCpf("11111111111")).thenThrow(new IllegalStateException("falha"));
+        when(pacienteServicePort.buscarPacientePorCpf("22222222222"))
+                .thenThrow(new ServicoExternoIndisponivelException("Circuit breaker aberto"));
+        when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf)).thenReturn(pacienteDTO);
+
+        // Act
+        Set<UUID> naoNotificadas = useCase.enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, ids);
+
+        // Assert
+        assertEquals(Set.of(comFalha.getId(), adiada.getId(), naoEncontrada), naoNotificadas);
+        verify(notificacaoEnviadaRepository).registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
+    }
+
+    @Test
+    void naoDeveAceitarTipoQueNaoELembrete() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> useCase.enviarLembretes(TipoNotificacao.REMANEJO_CONSULTA, List.of(consultaId)));
+    }
+
+    @Test
+    void deveAdiarNotificacaoQuandoServicoDePacientesIndisponivel() {
+        // Arrange
+        Consulta consultaAdiada = mock(Consulta.class);
+        when(consultaAdiada.getId()).thenReturn(UUID.randomUUID());
+        when(consultaAdiada.getPacienteCpf()).thenReturn("11111111111");
+
+        Consulta consultaEnviada = mock(Consulta.class);
+        when(consultaEnviada.getId()).thenReturn(consultaId);
+        when(consultaEnviada.getDataHora()).thenReturn(dataAtual.plusDays(5));
+        when(consultaEnviada.getPacienteCpf()).thenReturn(pacienteCpf);
+
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.of(consultaAdiada, consultaEnviada));
+        when(pacienteServicePort.buscarPacientePorCpf("11111111111"))
+                .thenThrow(new ServicoExternoIndisponivelException("Circuit breaker aberto"));
+        when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf)).thenReturn(pacienteDTO);
+
+        // Act
+        useCase.executar();
+
+        // Assert
+        verify(notificacaoServicePort, times(1)).enviarNotificacao(notificacaoCaptor.capture());
+        assertEquals(consultaId, notificacaoCaptor.getValue().getConsultaId());
+        verify(notificacaoEnviadaRepository, times(1)).registrar(any(), any());
+        verify(notificacaoEnviadaRepository).registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
+    }
+
+    @Test
+    void deveAgruparConsultasDoMesmoPacienteNumaUnicaNotificacao() {
+        // Arrange
+        Consulta posterior = criarConsulta(UUID.randomUUID(), pacienteCpf, dataAtual.plusDays(10));
+        Consulta outroPaciente = criarConsulta(UUID.randomUUID(), "22222222222", dataAtual.plusDays(3));
+        Consulta anterior = criarConsulta(UUID.randomUUID(), pacienteCpf, dataAtual.plusDays(5));
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.of(anterior, posterior, outroPaciente));
         when(pacienteServicePort.buscarPacientePorCpf(any())).thenReturn(pacienteDTO);
 
         // Act
         useCase.executar();
 
         // Assert
-        verify(notificacaoServicePort, times(2)).enviarNotificacao(any());
+        verify(pacienteServicePort, times(1)).buscarPacientePorCpf(pacienteCpf);
+        verify(pacienteServicePort, times(1)).buscarPacientePorCpf("22222222222");
+        verify(notificacaoServicePort, times(2)).enviarNotificacao(notificacaoCaptor.capture());
+
+        NotificacaoDTO agrupada = notificacaoCaptor.getAllValues().stream()
+                .filter(notificacao -> notificacao.getConsultasAgrupadas() != null)
+                .findFirst()
+                .orElseThrow();
+        assertEquals(anterior.getId(), agrupada.getConsultaId());
+        assertEquals(List.of(anterior.getId(), posterior.getId()),
+                agrupada.getConsultasAgrupadas().stream().map(ItemNotificacaoDTO::getConsultaId).toList());
+        assertEquals(posterior.getDataHora().toString(), agrupada.getConsultasAgrupadas().get(1).getDataConsulta());
+
+        NotificacaoDTO individual = notificacaoCaptor.getAllValues().stream()
+                .filter(notificacao -> notificacao.getConsultasAgrupadas() == null)
+                .findFirst()
+                .orElseThrow();
+        assertEquals(outroPaciente.getId(), individual.getConsultaId());
+
+        verify(notificacaoEnviadaRepository).registrar(List.of(anterior.getId(), posterior.getId()), TipoNotificacao.CONFIRMACAO_CONSULTA);
+        verify(notificacaoEnviadaRepository).registrar(List.of(outroPaciente.getId()), TipoNotificacao.CONFIRMACAO_CONSULTA);
+    }
+
+    @Test
+    void deveBuscarPacientesEmParaleloRespeitandoOLimite() throws Exception {
+        // Arrange
+        List<Consulta> consultas = IntStream.range(0, 20)
+                .mapToObj(i -> criarConsulta(UUID.randomUUID(), String.format("%011d", i)))
+                .toList();
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(consultas.stream());
+
+        AtomicInteger emAndamento = new AtomicInteger();
+        AtomicInteger maximoObservado = new AtomicInteger();
+        CountDownLatch limiteAtingido = new CountDownLatch(4);
+        when(pacienteServicePort.buscarPacientePorCpf(any())).thenAnswer(invocacao -> {
+            maximoObservado.accumulateAndGet(emAndamento.incrementAndGet(), Math::max);
+            limiteAtingido.countDown();
+            limiteAtingido.await(5, TimeUnit.SECONDS);
+            Thread.sleep(5);
+            emAndamento.decrementAndGet();
+            return pacienteDTO;
+        });
+
+        // Act
+        useCase.executar();
+
+        // Assert
+        assertEquals(4, maximoObservado.get());
+        verify(notificacaoServicePort, times(20)).enviarNotificacao(any());
+        verify(notificacaoEnviadaRepository, times(20)).registrar(any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA));
     }
 
     @Test
-    void testeMetodoEhAmanha() {
+    void devePropagarFalhaInesperadaAposConcluirAsDemaisTarefas() {
         // Arrange
-        LocalDateTime agora = LocalDateTime.now();
-        LocalDateTime amanha = agora.plusDays(1);
+        Consulta comFalha = criarConsulta(UUID.randomUUID(), "11111111111");
+        Consulta enviada = criarConsulta(consultaId, pacienteCpf);
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.of(comFalha, enviada));
+        when(pacienteServicePort.buscarPacientePorCpf("11111111111")).thenThrow(new IllegalStateException("falha"));
+        when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf)).thenReturn(pacienteDTO);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> useCase.executar());
+        verify(notificacaoEnviadaRepository).registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
+    }
 
-        Consulta consultaAmanha = mock(Consulta.class);
-        when(consultaAmanha.getId()).thenReturn(UUID.randomUUID());
-        when(consultaAmanha.getDataHora()).thenReturn(amanha);
-        when(consultaAmanha.getPacienteCpf()).thenReturn(pacienteCpf);
-        when(consultaAmanha.getLocalConsulta()).thenReturn(localConsulta);
+    @Test
+    void deveFecharOCursorAoFimDoCiclo() {
+        // Arrange
+        AtomicInteger fechamentos = new AtomicInteger();
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.of(criarConsulta(consultaId, pacienteCpf)).onClose(fechamentos::incrementAndGet));
+        when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf)).thenReturn(pacienteDTO);
 
-        Consulta consultaHoje = mock(Consulta.class);
-        when(consultaHoje.getDataHora()).thenReturn(agora);
+        // Act
+        useCase.executar();
 
-        Consulta consultaDepoisDeAmanha = mock(Consulta.class);
-        when(consultaDepoisDeAmanha.getDataHora()).thenReturn(agora.plusDays(2));
+        // Assert
+        assertEquals(1, fechamentos.get());
+        verify(notificacaoEnviadaRepository).registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
+    }
 
-        when(consultaRepository.buscarPorStatus(StatusConsulta.CONFIRMADA))
-                .thenReturn(Arrays.asList(consultaAmanha, consultaHoje, consultaDepoisDeAmanha));
+    @Test
+    void deveAgruparLembretesDaRodaMesmoForaDeOrdem() {
+        // Arrange
+        Consulta primeira = criarConsulta(UUID.randomUUID(), pacienteCpf, dataAtual.plusDays(1).withHour(9));
+        Consulta outroPaciente = criarConsulta(UUID.randomUUID(), "22222222222", dataAtual.plusDays(1).withHour(10));
+        Consulta segunda = criarConsulta(UUID.randomUUID(), pacienteCpf, dataAtual.plusDays(1).withHour(15));
+        List<UUID> ids = List.of(segunda.getId(), outroPaciente.getId(), primeira.getId());
+        when(consultaRepository.buscarParaNotificacao(eq(ids), eq(StatusConsulta.CONFIRMADA), any(), any(), eq(TipoNotificacao.AVISO_UM_DIA_ANTES)))
+                .thenReturn(List.of(segunda, outroPaciente, primeira));
         when(pacienteServicePort.buscarPacientePorCpf(any())).thenReturn(pacienteDTO);
 
         // Act
-        useCase.enviarLembreteDiaAnterior();
+        useCase.enviarLembretes(TipoNotificacao.AVISO_UM_DIA_ANTES, ids);
 
         // Assert
-        verify(notificacaoServicePort, times(1)).enviarNotificacao(any());
+        verify(pacienteServicePort, times(1)).buscarPacientePorCpf(pacienteCpf);
+        verify(notificacaoServicePort, times(2)).enviarNotificacao(notificacaoCaptor.capture());
+        assertTrue(notificacaoCaptor.getAllValues().stream()
+                .anyMatch(notificacao -> primeira.getId().equals(notificacao.getConsultaId())
+                        && notificacao.getConsultasAgrupadas().size() == 2));
+    }
+
+    @Test
+    void deveGravarOutboxERegistroDoPacienteNaMesmaTransacao() {
+        // Arrange
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.of(criarConsulta(consultaId, pacienteCpf)));
+        when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf)).thenReturn(pacienteDTO);
+
+        // Act
+        useCase.executar();
+
+        // Assert
+        InOrder ordem = inOrder(transactionManager, notificacaoServicePort, notificacaoEnviadaRepository);
+        ordem.verify(transactionManager).getTransaction(any());
+        ordem.verify(notificacaoServicePort).enviarNotificacao(any());
+        ordem.verify(notificacaoEnviadaRepository).registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
+        ordem.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void deveDesfazerOutboxQuandoRegistroFalha() {
+        // Arrange
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.of(criarConsulta(consultaId, pacienteCpf)));
+        when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf)).thenReturn(pacienteDTO);
+        doThrow(new IllegalStateException("falha ao registrar")).when(notificacaoEnviadaRepository).registrar(any(), any());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> useCase.executar());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void deveReunirAsFalhasDeTodosOsPacientes() {
+        // Arrange
+        Consulta primeiraFalha = criarConsulta(UUID.randomUUID(), "11111111111");
+        Consulta segundaFalha = criarConsulta(UUID.randomUUID(), "22222222222");
+        Consulta enviada = criarConsulta(consultaId, pacienteCpf);
+        when(consultaRepository.percorrerParaNotificacao(eq(StatusConsulta.AGENDADA), any(), any(), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(Stream.of(primeiraFalha, segundaFalha, enviada));
+        when(pacienteServicePort.buscarPacientePorCpf("11111111111")).thenThrow(new IllegalStateException("falha 1"));
+        when(pacienteServicePort.buscarPacientePorCpf("22222222222")).thenThrow(new IllegalStateException("falha 2"));
+        when(pacienteServicePort.buscarPacientePorCpf(pacienteCpf)).thenReturn(pacienteDTO);
+
+        // Act
+        IllegalStateException falha = assertThrows(IllegalStateException.class, () -> useCase.executar());
+
+        // Assert
+        assertEquals(1, falha.getSuppressed().length);
+        assertEquals(Set.of("falha 1", "falha 2"), Set.of(falha.getMessage(), falha.getSuppressed()[0].getMessage()));
+        verify(notificacaoEnviadaRepository).registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
+    }
+
+    private Consulta criarConsulta(UUID id, String cpf) {
+        return criarConsulta(id, cpf, dataAtual.plusWeeks(1));
+    }
+
+    private Consulta criarConsulta(UUID id, String cpf, LocalDateTime dataHora) {
+        return Consulta.builder()
+                .id(id)
+                .pacienteCpf(cpf)
+                .localConsulta(localConsulta)
+                .dataHora(dataHora)
+                .status(StatusConsulta.AGENDADA)
+                .build();
     }
-}
\ No newline at end of file
+}
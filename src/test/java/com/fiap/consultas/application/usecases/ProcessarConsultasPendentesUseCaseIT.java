@@ -3,6 +3,7 @@ package com.fiap.consultas.application.usecases;
 import com.fiap.consultas.application.dtos.MedicoDTO;
 import com.fiap.consultas.application.dtos.NotificacaoDTO;
 import com.fiap.consultas.application.dtos.PacienteDTO;
+import com.fiap.consultas.application.ports.AgendadorLembretesPort;
 import com.fiap.consultas.application.ports.MedicoServicePort;
 import com.fiap.consultas.application.ports.NotificacaoServicePort;
 import com.fiap.consultas.application.ports.PacienteServicePort;
@@ -12,6 +13,8 @@ import com.fiap.consultas.domain.enums.PrioridadeConsulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
 import com.fiap.consultas.domain.enums.TipoNotificacao;
 import com.fiap.consultas.domain.repositories.ConsultaRepository;
+import com.fiap.consultas.domain.repositories.ConfirmacaoProcessadaRepository;
+import com.fiap.consultas.domain.repositories.NotificacaoEnviadaRepository;
 import com.fiap.consultas.domain.services.AgendamentoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,6 +23,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.stream.binder.test.EnableTestBinder;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
 import java.time.LocalDateTime;
@@ -44,6 +48,12 @@ class ProcessarConsultasPendentesUseCaseIT {
     @Autowired
     private AgendamentoService agendamentoService;
 
+    @Autowired
+    private NotificacaoEnviadaRepository notificacaoEnviadaRepository;
+
+    @Autowired
+    private ConfirmacaoProcessadaRepository confirmacaoProcessadaRepository;
+
     @MockitoBean
     private PacienteServicePort pacienteServicePort;
 
@@ -53,6 +63,9 @@ class ProcessarConsultasPendentesUseCaseIT {
     @MockitoBean
     private NotificacaoServicePort notificacaoServicePort;
 
+    @MockitoBean
+    private AgendadorLembretesPort agendadorLembretesPort;
+
     private ProcessarConsultasPendentesUseCase useCase;
 
     private List<NotificacaoDTO> notificacoesEnviadas;
@@ -60,6 +73,9 @@ class ProcessarConsultasPendentesUseCaseIT {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @BeforeEach
     void setUp() {
         notificacoesEnviadas = new ArrayList<>();
@@ -75,7 +91,11 @@ class ProcessarConsultasPendentesUseCaseIT {
                 pacienteServicePort,
                 medicoServicePort,
                 notificacaoServicePort,
-                agendamentoService
+                agendamentoService,
+                notificacaoEnviadaRepository,
+                confirmacaoProcessadaRepository,
+                agendadorLembretesPort,
+                transactionTemplate
         );
         jdbcTemplate.execute("DELETE FROM consultas");
     }
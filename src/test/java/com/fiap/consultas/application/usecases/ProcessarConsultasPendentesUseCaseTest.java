@@ -3,6 +3,8 @@ package com.fiap.consultas.application.usecases;
 import com.fiap.consultas.application.dtos.MedicoDTO;
 import com.fiap.consultas.application.dtos.NotificacaoDTO;
 import com.fiap.consultas.application.dtos.PacienteDTO;
+import com.fiap.consultas.application.exceptions.ServicoExternoIndisponivelException;
+import com.fiap.consultas.application.ports.AgendadorLembretesPort;
 import com.fiap.consultas.application.ports.MedicoServicePort;
 import com.fiap.consultas.application.ports.NotificacaoServicePort;
 import com.fiap.consultas.application.ports.PacienteServicePort;
@@ -13,20 +15,29 @@ import com.fiap.consultas.domain.enums.PrioridadeConsulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
 import com.fiap.consultas.domain.enums.TipoNotificacao;
 import com.fiap.consultas.domain.repositories.ConsultaRepository;
+import com.fiap.consultas.domain.repositories.ConfirmacaoProcessadaRepository;
+import com.fiap.consultas.domain.repositories.NotificacaoEnviadaRepository;
 import com.fiap.consultas.domain.services.AgendamentoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -50,6 +61,21 @@ class ProcessarConsultasPendentesUseCaseTest {
     @Mock
     private AgendamentoService agendamentoService;
 
+    @Mock
+    private NotificacaoEnviadaRepository notificacaoEnviadaRepository;
+
+    @Mock
+    private ConfirmacaoProcessadaRepository confirmacaoProcessadaRepository;
+
+    @Mock
+    private AgendadorLembretesPort agendadorLembretesPort;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<Collection<Consulta>> consultasCaptor;
+
     private ProcessarConsultasPendentesUseCase useCase;
 
     @BeforeEach
@@ -60,7 +86,11 @@ class ProcessarConsultasPendentesUseCaseTest {
                 pacienteServicePort,
                 medicoServicePort,
                 notificacaoServicePort,
-                agendamentoService
+                agendamentoService,
+                notificacaoEnviadaRepository,
+                confirmacaoProcessadaRepository,
+                agendadorLembretesPort,
+                new TransactionTemplate(transactionManager)
         );
     }
 
@@ -125,8 +155,8 @@ class ProcessarConsultasPendentesUseCaseTest {
         when(agendamentoService.encontrarProximoHorarioDisponivel(anyList(), eq("CARDIOLOGIA"), eq("São Paulo"))).thenReturn(horarioVago);
         when(agendamentoService.buscarConsultasParaReagendar("CARDIOLOGIA", "São Paulo", PrioridadeConsulta.URGENTE)).thenReturn(Collections.emptyList());
         when(agendamentoService.isHorarioDisponivel(any(Medico.class), eq(horarioVago))).thenReturn(true);
-        when(consultaRepository.buscarConsultasPorMedicoEIntervalo(eq("med-123"), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.emptyList());
+        when(consultaRepository.contarConsultasPorMedicosEIntervalo(eq(List.of("med-123")), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Map.of("med-123", 0L));
 
         // Act
         useCase.executar();
@@ -268,10 +298,10 @@ class ProcessarConsultasPendentesUseCaseTest {
         useCase.executar();
 
         // Assert
-        ArgumentCaptor<Consulta> consultaCaptor = ArgumentCaptor.forClass(Consulta.class);
-        verify(consultaRepository, times(2)).salvar(consultaCaptor.capture());
+        verify(consultaRepository).salvarTodos(consultasCaptor.capture());
+        verify(consultaRepository, never()).salvar(any(Consulta.class));
 
-        List<Consulta> consultasSalvas = consultaCaptor.getAllValues();
+        List<Consulta> consultasSalvas = List.copyOf(consultasCaptor.getValue());
         Consulta consultaUrgenteSalva = consultasSalvas.get(0);
         Consulta consultaRemanejadaSalva = consultasSalvas.get(1);
 
@@ -286,6 +316,10 @@ class ProcessarConsultasPendentesUseCaseTest {
         assertEquals(novoHorarioParaRemanejar, consultaRemanejadaSalva.getDataHora());
 
         verify(notificacaoServicePort, times(2)).enviarNotificacao(any(NotificacaoDTO.class));
+        verify(notificacaoEnviadaRepository).removerPorConsulta(consultaParaRemanejarId);
+        verify(confirmacaoProcessadaRepository).removerPorConsulta(consultaParaRemanejarId);
+        verify(agendadorLembretesPort).programar(consultaUrgenteSalva);
+        verify(agendadorLembretesPort).programar(consultaRemanejadaSalva);
     }
 
     @Test
@@ -469,21 +503,13 @@ class ProcessarConsultasPendentesUseCaseTest {
 
         LocalDateTime horarioVago = LocalDateTime.now().plusDays(1);
 
-        List<Consulta> consultasMedico1 = Arrays.asList(
-                Consulta.builder().id(UUID.randomUUID()).build(),
-                Consulta.builder().id(UUID.randomUUID()).build(),
-                Consulta.builder().id(UUID.randomUUID()).build()
-        );
-
-        List<Consulta> consultasMedico2 = Collections.emptyList();
-
         when(consultaRepository.buscarConsultasPendentesAgendamento()).thenReturn(consultasPendentes);
         when(pacienteServicePort.buscarPacientePorCpf("12345678900")).thenReturn(pacienteDTO);
         when(medicoServicePort.buscarMedicosPorEspecialidadeECidade("DERMATOLOGIA", "São Paulo")).thenReturn(List.of(medicoDTO1, medicoDTO2));
         when(agendamentoService.encontrarProximoHorarioDisponivel(anyList(), eq("DERMATOLOGIA"), eq("São Paulo"))).thenReturn(horarioVago);
         when(agendamentoService.isHorarioDisponivel(any(Medico.class), eq(horarioVago))).thenReturn(true);
-        when(consultaRepository.buscarConsultasPorMedicoEIntervalo(eq("med-123"), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(consultasMedico1);
-        when(consultaRepository.buscarConsultasPorMedicoEIntervalo(eq("med-456"), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(consultasMedico2);
+        when(consultaRepository.contarConsultasPorMedicosEIntervalo(eq(List.of("med-123", "med-456")), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Map.of("med-123", 3L, "med-456", 0L));
 
         // Act
         useCase.executar();
@@ -570,10 +596,10 @@ class ProcessarConsultasPendentesUseCaseTest {
         useCase.executar();
 
         // Assert
-        ArgumentCaptor<Consulta> consultaCaptor = ArgumentCaptor.forClass(Consulta.class);
-        verify(consultaRepository, times(2)).salvar(consultaCaptor.capture());
+        verify(consultaRepository).salvarTodos(consultasCaptor.capture());
+        verify(consultaRepository, never()).salvar(any(Consulta.class));
 
-        List<Consulta> consultasSalvas = consultaCaptor.getAllValues();
+        List<Consulta> consultasSalvas = List.copyOf(consultasCaptor.getValue());
         Consulta consultaUrgenteSalva = consultasSalvas.get(0);
         Consulta consultaRemanejadaSalva = consultasSalvas.get(1);
 
@@ -658,6 +684,62 @@ class ProcessarConsultasPendentesUseCaseTest {
         assertEquals(StatusConsulta.AGENDADA, consultaSalva.getStatus());
     }
 
+    @Test
+    void deveAdiarConsultaQuandoServicoExternoIndisponivelEContinuarFila() {
+        // Arrange
+        Consulta consultaAdiada = Consulta.builder()
+                .id(UUID.randomUUID())
+                .pacienteCpf("12345678900")
+                .especialidade("CARDIOLOGIA")
+                .cidade("São Paulo")
+                .prioridade(PrioridadeConsulta.ALTA)
+                .status(StatusConsulta.PENDENTE_AGENDAMENTO)
+                .dataCriacao(LocalDateTime.now().minusDays(2))
+                .build();
+
+        UUID consultaProcessadaId = UUID.randomUUID();
+        Consulta consultaProcessada = Consulta.builder()
+                .id(consultaProcessadaId)
+                .pacienteCpf("98765432100")
+                .especialidade("DERMATOLOGIA")
+                .cidade("São Paulo")
+                .prioridade(PrioridadeConsulta.BAIXA)
+                .status(StatusConsulta.PENDENTE_AGENDAMENTO)
+                .dataCriacao(LocalDateTime.now().minusDays(1))
+                .build();
+
+        PacienteDTO pacienteDTO = PacienteDTO.builder()
+                .cpf("98765432100")
+                .nome("Paciente Teste")
+                .cidade("São Paulo")
+                .build();
+
+        MedicoDTO medicoDTO = MedicoDTO.builder()
+                .id("med-456")
+                .nome("Dra. Especialista")
+                .especialidade("DERMATOLOGIA")
+                .cidade("São Paulo")
+                .horariosTrabalho(List.of())
+                .build();
+
+        LocalDateTime horarioVago = LocalDateTime.now().plusDays(3);
+
+        when(consultaRepository.buscarConsultasPendentesAgendamento()).thenReturn(Arrays.asList(consultaAdiada, consultaProcessada));
+        when(pacienteServicePort.buscarPacientePorCpf("12345678900")).thenThrow(new ServicoExternoIndisponivelException("Circuit breaker aberto"));
+        when(pacienteServicePort.buscarPacientePorCpf("98765432100")).thenReturn(pacienteDTO);
+        when(medicoServicePort.buscarMedicosPorEspecialidadeECidade("DERMATOLOGIA", "São Paulo")).thenReturn(List.of(medicoDTO));
+        when(agendamentoService.encontrarProximoHorarioDisponivel(anyList(), eq("DERMATOLOGIA"), eq("São Paulo"))).thenReturn(horarioVago);
+
+        // Act
+        useCase.executar();
+
+        // Assert
+        ArgumentCaptor<Consulta> consultaCaptor = ArgumentCaptor.forClass(Consulta.class);
+        verify(consultaRepository).salvar(consultaCaptor.capture());
+        assertEquals(consultaProcessadaId, consultaCaptor.getValue().getId());
+        assertEquals(StatusConsulta.PENDENTE_AGENDAMENTO, consultaAdiada.getStatus());
+    }
+
     @Test
     void deveOrdenarPorPrioridadeEDataQuandoOrdenarConsultas() {
         // Arrange
@@ -763,4 +845,57 @@ class ProcessarConsultasPendentesUseCaseTest {
         inOrder.verify(pacienteServicePort).buscarPacientePorCpf("11111111111");
         inOrder.verify(pacienteServicePort).buscarPacientePorCpf("33333333333");
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveDesfazerSomenteAConsultaEmConflitoDeVersaoEContinuarOCiclo() {
+        // Arrange
+        Consulta emConflito = Consulta.builder()
+                .id(UUID.randomUUID())
+                .pacienteCpf("11111111111")
+                .especialidade("CARDIOLOGIA")
+                .cidade("São Paulo")
+                .prioridade(PrioridadeConsulta.MEDIA)
+                .status(StatusConsulta.PENDENTE_AGENDAMENTO)
+                .dataCriacao(LocalDateTime.now().minusDays(2))
+                .versao(0L)
+                .build();
+        Consulta seguinte = Consulta.builder()
+                .id(UUID.randomUUID())
+                .pacienteCpf("22222222222")
+                .especialidade("CARDIOLOGIA")
+                .cidade("São Paulo")
+                .prioridade(PrioridadeConsulta.MEDIA)
+                .status(StatusConsulta.PENDENTE_AGENDAMENTO)
+                .dataCriacao(LocalDateTime.now().minusDays(1))
+                .versao(0L)
+                .build();
+
+        MedicoDTO medicoDTO = MedicoDTO.builder()
+                .id("med-123")
+                .nome("Dr. Teste")
+                .especialidade("CARDIOLOGIA")
+                .cidade("São Paulo")
+                .build();
+        LocalDateTime horario = LocalDateTime.now().plusDays(1);
+
+        when(consultaRepository.buscarConsultasPendentesAgendamento()).thenReturn(new ArrayList<>(List.of(emConflito, seguinte)));
+        when(pacienteServicePort.buscarPacientePorCpf(anyString())).thenAnswer(invocation -> PacienteDTO.builder()
+                .cpf(invocation.getArgument(0))
+                .nome("Paciente")
+                .cidade("São Paulo")
+                .build());
+        when(medicoServicePort.buscarMedicosPorEspecialidadeECidade("CARDIOLOGIA", "São Paulo")).thenReturn(List.of(medicoDTO));
+        when(agendamentoService.encontrarProximoHorarioDisponivel(anyList(), eq("CARDIOLOGIA"), eq("São Paulo"))).thenReturn(horario);
+        when(consultaRepository.salvar(emConflito)).thenThrow(new ObjectOptimisticLockingFailureException(Consulta.class, emConflito.getId()));
+
+        // Act
+        useCase.executar();
+
+        // Assert
+        verify(consultaRepository).salvar(seguinte);
+        verify(agendadorLembretesPort, never()).programar(emConflito);
+        verify(agendadorLembretesPort).programar(seguinte);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+    }
+}
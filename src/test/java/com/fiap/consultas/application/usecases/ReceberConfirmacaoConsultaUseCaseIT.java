@@ -14,6 +14,7 @@ import org.springframework.cloud.stream.binder.test.EnableTestBinder;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -64,7 +65,7 @@ class ReceberConfirmacaoConsultaUseCaseIT {
         confirmacaoDTO.setConfirmada(true);
 
         // Act
-        receberConfirmacaoConsultaUseCase.executar(confirmacaoDTO);
+        receberConfirmacaoConsultaUseCase.executarLote(List.of(confirmacaoDTO));
 
         // Assert
         Optional<Consulta> consultaAtualizada = consultaRepository.buscarPorId(consultaId);
@@ -78,7 +79,7 @@ class ReceberConfirmacaoConsultaUseCaseIT {
         confirmacaoDTO.setConfirmada(false);
 
         // Act
-        receberConfirmacaoConsultaUseCase.executar(confirmacaoDTO);
+        receberConfirmacaoConsultaUseCase.executarLote(List.of(confirmacaoDTO));
 
         // Assert
         Optional<Consulta> consultaAtualizada = consultaRepository.buscarPorId(consultaId);
@@ -93,9 +94,30 @@ class ReceberConfirmacaoConsultaUseCaseIT {
         confirmacaoDTO.setConsultaId(idInexistente.toString());
 
         // Act
-        boolean executado = receberConfirmacaoConsultaUseCase.executar(confirmacaoDTO);
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(List.of(confirmacaoDTO));
 
         // Assert
-        assertFalse(executado);
+        assertEquals(0, atualizadas);
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveAplicarLoteComConfirmacoesECancelamentos() {
+        // Arrange
+        Consulta outra = consultaRepository.buscarPorId(consultaId).orElseThrow();
+        outra.setId(UUID.randomUUID());
+        outra.setVersao(null);
+        outra = consultaRepository.salvar(outra);
+        List<ConfirmacaoConsultaDTO> lote = List.of(
+                new ConfirmacaoConsultaDTO(consultaId.toString(), true),
+                new ConfirmacaoConsultaDTO(outra.getId().toString(), false),
+                new ConfirmacaoConsultaDTO(UUID.randomUUID().toString(), true));
+
+        // Act
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(lote);
+
+        // Assert
+        assertEquals(2, atualizadas);
+        assertEquals(StatusConsulta.CONFIRMADA, consultaRepository.buscarPorId(consultaId).orElseThrow().getStatus());
+        assertEquals(StatusConsulta.CANCELADA, consultaRepository.buscarPorId(outra.getId()).orElseThrow().getStatus());
+    }
+}
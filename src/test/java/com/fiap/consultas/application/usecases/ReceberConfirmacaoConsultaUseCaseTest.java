@@ -1,17 +1,27 @@
 package com.fiap.consultas.application.usecases;
 
 import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
+import com.fiap.consultas.application.ports.AgendadorLembretesPort;
 import com.fiap.consultas.domain.entities.Consulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.repositories.ConfirmacaoProcessadaRepository;
 import com.fiap.consultas.domain.repositories.ConsultaRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
-import java.util.Optional;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,12 +33,20 @@ class ReceberConfirmacaoConsultaUseCaseTest {
     @Mock
     private ConsultaRepository consultaRepository;
 
+    @Mock
+    private AgendadorLembretesPort agendadorLembretesPort;
+
+    @Mock
+    private ConfirmacaoProcessadaRepository confirmacaoProcessadaRepository;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private ReceberConfirmacaoConsultaUseCase receberConfirmacaoConsultaUseCase;
 
     private UUID consultaId;
     private Consulta consulta;
-    private ConfirmacaoConsultaDTO confirmacaoDTO;
 
     @BeforeEach
     void setUp() {
@@ -36,80 +54,172 @@ class ReceberConfirmacaoConsultaUseCaseTest {
         consulta = new Consulta();
         consulta.setId(consultaId);
         consulta.setStatus(StatusConsulta.AGENDADA);
+        lenient().when(confirmacaoProcessadaRepository.registrar(anyCollection()))
+                .thenAnswer(invocation -> new HashSet<UUID>(invocation.getArgument(0)));
+    }
+
+    @Test
+    void deveAplicarLoteComUmaAtualizacaoPorStatus() {
+        // Arrange
+        UUID outraConsultaId = UUID.randomUUID();
+        List<ConfirmacaoConsultaDTO> lote = List.of(
+                new ConfirmacaoConsultaDTO(consultaId.toString(), true),
+                new ConfirmacaoConsultaDTO(outraConsultaId.toString(), false));
+        when(consultaRepository.atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA)).thenReturn(1);
+        when(consultaRepository.atualizarStatus(List.of(outraConsultaId), StatusConsulta.AGENDADA, StatusConsulta.CANCELADA)).thenReturn(1);
+        when(consultaRepository.buscarPorIds(anyCollection())).thenReturn(List.of(consulta));
+
+        // Act
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(lote);
 
-        confirmacaoDTO = new ConfirmacaoConsultaDTO();
-        confirmacaoDTO.setConsultaId(consultaId.toString());
+        // Assert
+        assertEquals(2, atualizadas);
+        verify(consultaRepository, never()).salvar(any());
+        verify(consultaRepository, never()).buscarPorId(any());
+        verify(agendadorLembretesPort).programar(consulta);
     }
 
     @Test
-    void deveConfirmarConsultaQuandoConfirmacaoTrue() {
+    void deveConsiderarUltimaRespostaDaConsultaNoLote() {
         // Arrange
-        confirmacaoDTO.setConfirmada(true);
-        when(consultaRepository.buscarPorId(consultaId)).thenReturn(Optional.of(consulta));
+        List<ConfirmacaoConsultaDTO> lote = List.of(
+                new ConfirmacaoConsultaDTO(consultaId.toString(), true),
+                new ConfirmacaoConsultaDTO(consultaId.toString(), false));
+        when(consultaRepository.atualizarStatus(List.of(), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA)).thenReturn(0);
+        when(consultaRepository.atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CANCELADA)).thenReturn(1);
 
         // Act
-        receberConfirmacaoConsultaUseCase.executar(confirmacaoDTO);
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(lote);
 
         // Assert
-        assertEquals(StatusConsulta.CONFIRMADA, consulta.getStatus());
-        verify(consultaRepository, times(1)).salvar(consulta);
+        assertEquals(1, atualizadas);
+        verify(consultaRepository).atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CANCELADA);
     }
 
     @Test
-    void deveCancelarConsultaQuandoConfirmacaoFalse() {
+    void deveIgnorarIdInvalidoSemDescartarRestanteDoLote() {
         // Arrange
-        confirmacaoDTO.setConfirmada(false);
-        when(consultaRepository.buscarPorId(consultaId)).thenReturn(Optional.of(consulta));
+        List<ConfirmacaoConsultaDTO> lote = List.of(
+                new ConfirmacaoConsultaDTO("uuid-invalido", true),
+                new ConfirmacaoConsultaDTO(consultaId.toString(), true));
+        when(consultaRepository.atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA)).thenReturn(1);
 
         // Act
-        receberConfirmacaoConsultaUseCase.executar(confirmacaoDTO);
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(lote);
 
         // Assert
-        assertEquals(StatusConsulta.CANCELADA, consulta.getStatus());
-        verify(consultaRepository, times(1)).salvar(consulta);
+        assertEquals(1, atualizadas);
     }
 
     @Test
-    void deveIgnorarQuandoConsultaNaoEncontrada() {
+    void deveDescartarDoLoteConfirmacoesJaProcessadas() {
         // Arrange
-        when(consultaRepository.buscarPorId(any(UUID.class))).thenReturn(Optional.empty());
+        UUID outraConsultaId = UUID.randomUUID();
+        List<ConfirmacaoConsultaDTO> lote = List.of(
+                new ConfirmacaoConsultaDTO(consultaId.toString(), false),
+                new ConfirmacaoConsultaDTO(outraConsultaId.toString(), true));
+        when(confirmacaoProcessadaRepository.filtrarProcessadas(anyCollection())).thenReturn(Set.of(consultaId));
+        when(consultaRepository.atualizarStatus(List.of(outraConsultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA)).thenReturn(1);
+        when(consultaRepository.atualizarStatus(List.of(), StatusConsulta.AGENDADA, StatusConsulta.CANCELADA)).thenReturn(0);
 
         // Act
-        boolean executado = receberConfirmacaoConsultaUseCase.executar(confirmacaoDTO);
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(lote);
 
         // Assert
-        verify(consultaRepository, never()).salvar(any(Consulta.class));
-        assertFalse(executado);
+        assertEquals(1, atualizadas);
+        verify(confirmacaoProcessadaRepository).registrar(Set.of(outraConsultaId));
     }
 
     @Test
-    void deveProcessarCorretamenteUUIDNaConfirmacao() {
+    void naoDeveTocarConsultasQuandoLoteInteiroDuplicado() {
         // Arrange
-        String uuidString = consultaId.toString();
-        confirmacaoDTO.setConsultaId(uuidString);
-        confirmacaoDTO.setConfirmada(true);
+        List<ConfirmacaoConsultaDTO> lote = List.of(new ConfirmacaoConsultaDTO(consultaId.toString(), true));
+        when(confirmacaoProcessadaRepository.filtrarProcessadas(anyCollection())).thenReturn(Set.of(consultaId));
 
-        when(consultaRepository.buscarPorId(consultaId)).thenReturn(Optional.of(consulta));
+        // Act
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(lote);
+
+        // Assert
+        assertEquals(0, atualizadas);
+        verifyNoInteractions(consultaRepository, agendadorLembretesPort);
+        verify(confirmacaoProcessadaRepository, never()).registrar(any());
+    }
+
+    @Test
+    void deveAplicarSomenteConfirmacoesRegistradasPorEstaTransacao() {
+        // Arrange
+        UUID outraConsultaId = UUID.randomUUID();
+        List<ConfirmacaoConsultaDTO> lote = List.of(
+                new ConfirmacaoConsultaDTO(consultaId.toString(), true),
+                new ConfirmacaoConsultaDTO(outraConsultaId.toString(), true));
+        when(confirmacaoProcessadaRepository.registrar(anyCollection())).thenReturn(Set.of(outraConsultaId));
+        when(consultaRepository.atualizarStatus(List.of(outraConsultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA)).thenReturn(1);
+        when(consultaRepository.atualizarStatus(List.of(), StatusConsulta.AGENDADA, StatusConsulta.CANCELADA)).thenReturn(0);
 
         // Act
-        receberConfirmacaoConsultaUseCase.executar(confirmacaoDTO);
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(lote);
 
         // Assert
-        verify(consultaRepository, times(1)).buscarPorId(consultaId);
-        verify(consultaRepository, times(1)).salvar(consulta);
+        assertEquals(1, atualizadas);
+        verify(consultaRepository, never()).atualizarStatus(eq(List.of(consultaId)), any(), any());
     }
 
     @Test
-    void deveLancarExcecaoQuandoUUIDInvalido() {
+    void deveReaplicarLoteQuandoOutroConsumidorRegistraAMesmaConsulta() {
         // Arrange
-        confirmacaoDTO.setConsultaId("uuid-invalido");
+        List<ConfirmacaoConsultaDTO> lote = List.of(new ConfirmacaoConsultaDTO(consultaId.toString(), true));
+        when(confirmacaoProcessadaRepository.registrar(anyCollection()))
+                .thenThrow(new DuplicateKeyException("confirmacoes_processadas"))
+                .thenReturn(Set.of());
+
+        // Act
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(lote);
+
+        // Assert
+        assertEquals(0, atualizadas);
+        verify(confirmacaoProcessadaRepository, times(2)).registrar(anyCollection());
+        verifyNoInteractions(consultaRepository, agendadorLembretesPort);
+    }
+
+    @Test
+    void deveReaplicarLoteQuandoHaConflitoDeConcorrencia() {
+        // Arrange
+        List<ConfirmacaoConsultaDTO> lote = List.of(new ConfirmacaoConsultaDTO(consultaId.toString(), true));
+        when(consultaRepository.atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA))
+                .thenThrow(new CannotAcquireLockException("deadlock detectado"))
+                .thenReturn(1);
+
+        // Act
+        int atualizadas = receberConfirmacaoConsultaUseCase.executarLote(lote);
+
+        // Assert
+        assertEquals(1, atualizadas);
+        verify(consultaRepository, times(2)).atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA);
+        verify(confirmacaoProcessadaRepository, times(2)).registrar(Set.of(consultaId));
+    }
+
+    @Test
+    void devePropagarConflitoQuandoTentativasSeEsgotam() {
+        // Arrange
+        List<ConfirmacaoConsultaDTO> lote = List.of(new ConfirmacaoConsultaDTO(consultaId.toString(), true));
+        when(consultaRepository.atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Consulta.class, consultaId));
 
         // Act & Assert
-        assertThrows(IllegalArgumentException.class, () -> {
-            receberConfirmacaoConsultaUseCase.executar(confirmacaoDTO);
-        });
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> receberConfirmacaoConsultaUseCase.executarLote(lote));
+        verify(consultaRepository, times(ReceberConfirmacaoConsultaUseCase.MAXIMO_TENTATIVAS_CONFLITO))
+                .atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA);
+    }
 
-        verify(consultaRepository, never()).buscarPorId(any());
-        verify(consultaRepository, never()).salvar(any());
+    @Test
+    void naoDeveReaplicarLoteQuandoFalhaNaoEConflito() {
+        // Arrange
+        List<ConfirmacaoConsultaDTO> lote = List.of(new ConfirmacaoConsultaDTO(consultaId.toString(), true));
+        when(consultaRepository.atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA))
+                .thenThrow(new IllegalStateException("banco indisponível"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> receberConfirmacaoConsultaUseCase.executarLote(lote));
+        verify(consultaRepository, times(1)).atualizarStatus(List.of(consultaId), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.fiap.consultas.infraestructure.http;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheLimitadoTest {
+
+    private MutableClock clock;
+    private CacheLimitado<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T10:00:00Z"));
+        cache = new CacheLimitado<>(2, Duration.ofMinutes(10), clock);
+    }
+
+    @Test
+    void deveRetornarValorGuardado() {
+        // Act
+        cache.guardar("a", "1");
+
+        // Assert
+        assertEquals("1", cache.obter("a"));
+        assertNull(cache.obter("b"));
+    }
+
+    @Test
+    void deveDescartarEntradaUsadaHaMaisTempoAoExcederCapacidade() {
+        // Arrange
+        cache.guardar("a", "1");
+        cache.guardar("b", "2");
+        cache.obter("a");
+
+        // Act
+        cache.guardar("c", "3");
+
+        // Assert
+        assertEquals(2, cache.tamanho());
+        assertEquals("1", cache.obter("a"));
+        assertNull(cache.obter("b"));
+        assertEquals("3", cache.obter("c"));
+    }
+
+    @Test
+    void deveExpirarEntradaAposValidade() {
+        // Arrange
+        cache.guardar("a", "1");
+        clock.avancar(Duration.ofMinutes(9));
+        String antesDeExpirar = cache.obter("a");
+
+        // Act
+        clock.avancar(Duration.ofMinutes(1));
+
+        // Assert
+        assertEquals("1", antesDeExpirar);
+        assertNull(cache.obter("a"));
+        assertEquals(0, cache.tamanho());
+    }
+
+    @Test
+    void deveRenovarValidadeAoGuardarNovamente() {
+        // Arrange
+        cache.guardar("a", "1");
+        clock.avancar(Duration.ofMinutes(9));
+
+        // Act
+        cache.guardar("a", "2");
+        clock.avancar(Duration.ofMinutes(9));
+
+        // Assert
+        assertEquals("2", cache.obter("a"));
+    }
+
+    @Test
+    void deveRejeitarCapacidadeNaoPositiva() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new CacheLimitado<>(0, Duration.ofMinutes(1), clock));
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant agora;
+
+        MutableClock(Instant agora) {
+            this.agora = agora;
+        }
+
+        void avancar(Duration duracao) {
+            agora = agora.plus(duracao);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return agora;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.fiap.consultas.infraestructure.http;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private MutableClock clock;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T10:00:00Z"));
+        circuitBreaker = new CircuitBreaker(3, Duration.ofSeconds(30), clock);
+    }
+
+    @Test
+    void deveAbrirAposFalhasConsecutivas() {
+        // Act
+        circuitBreaker.registrarFalha();
+        circuitBreaker.registrarFalha();
+        boolean permitidaAntesDeAbrir = circuitBreaker.permitirChamada();
+        circuitBreaker.registrarFalha();
+
+        // Assert
+        assertTrue(permitidaAntesDeAbrir);
+        assertEquals(CircuitBreaker.Estado.ABERTO, circuitBreaker.getEstado());
+        assertFalse(circuitBreaker.permitirChamada());
+    }
+
+    @Test
+    void deveZerarFalhasAposSucesso() {
+        // Act
+        circuitBreaker.registrarFalha();
+        circuitBreaker.registrarFalha();
+        circuitBreaker.registrarSucesso();
+        circuitBreaker.registrarFalha();
+
+        // Assert
+        assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado());
+        assertTrue(circuitBreaker.permitirChamada());
+    }
+
+    @Test
+    void devePermitirApenasUmaSondaQuandoMeioAberto() {
+        // Arrange
+        abrirCircuito();
+        clock.avancar(Duration.ofSeconds(31));
+
+        // Act
+        boolean sonda = circuitBreaker.permitirChamada();
+        boolean segundaChamada = circuitBreaker.permitirChamada();
+
+        // Assert
+        assertTrue(sonda);
+        assertFalse(segundaChamada);
+        assertEquals(CircuitBreaker.Estado.MEIO_ABERTO, circuitBreaker.getEstado());
+    }
+
+    @Test
+    void deveFecharQuandoSondaTiverSucesso() {
+        // Arrange
+        abrirCircuito();
+        clock.avancar(Duration.ofSeconds(31));
+        circuitBreaker.permitirChamada();
+
+        // Act
+        circuitBreaker.registrarSucesso();
+
+        // Assert
+        assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado());
+        assertTrue(circuitBreaker.permitirChamada());
+    }
+
+    @Test
+    void deveReabrirQuandoSondaFalhar() {
+        // Arrange
+        abrirCircuito();
+        clock.avancar(Duration.ofSeconds(31));
+        circuitBreaker.permitirChamada();
+
+        // Act
+        circuitBreaker.registrarFalha();
+
+        // Assert
+        assertEquals(CircuitBreaker.Estado.ABERTO, circuitBreaker.getEstado());
+        assertFalse(circuitBreaker.permitirChamada());
+    }
+
+    private void abrirCircuito() {
+        circuitBreaker.registrarFalha();
+        circuitBreaker.registrarFalha();
+        circuitBreaker.registrarFalha();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant agora;
+
+        MutableClock(Instant agora) {
+            this.agora = agora;
+        }
+
+        void avancar(Duration duracao) {
+            agora = agora.plus(duracao);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return agora;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.fiap.consultas.infraestructure.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorHedgingTest {
+
+    private MeterRegistry meterRegistry;
+    private ExecutorHedging hedging;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (hedging != null) {
+            hedging.close();
+        }
+    }
+
+    @Test
+    void deveExecutarDiretamenteQuandoDesabilitado() {
+        // Arrange
+        hedging = criarHedging(false, 1.0);
+        Thread chamador = Thread.currentThread();
+
+        // Act
+        Thread executora = hedging.executar(Thread::currentThread);
+
+        // Assert
+        assertSame(chamador, executora);
+    }
+
+    @Test
+    void naoDeveDispararHedgeQuandoPrimariaResponderRapido() {
+        // Arrange
+        hedging = criarHedging(true, 1.0);
+        AtomicInteger chamadas = new AtomicInteger();
+
+        // Act
+        String resultado = hedging.executar(() -> {
+            chamadas.incrementAndGet();
+            return "primaria";
+        });
+
+        // Assert
+        assertEquals("primaria", resultado);
+        assertEquals(1, chamadas.get());
+        assertEquals(1, meterRegistry.get("consultas.servico.externo.hedging.latencia").tag("vencedor", "primaria").timer().count());
+        assertEquals(0.0, meterRegistry.get("consultas.servico.externo.hedging.disparados").counter().count());
+    }
+
+    @Test
+    void deveRetornarRespostaDoHedgeQuandoPrimariaDemorar() {
+        // Arrange
+        hedging = criarHedging(true, 1.0);
+        AtomicInteger chamadas = new AtomicInteger();
+
+        // Act
+        String resultado = hedging.executar(() -> {
+            if (chamadas.incrementAndGet() == 1) {
+                dormir(1000);
+                return "primaria";
+            }
+            return "hedge";
+        });
+
+        // Assert
+        assertEquals("hedge", resultado);
+        assertEquals(2, chamadas.get());
+        assertEquals(1.0, meterRegistry.get("consultas.servico.externo.hedging.disparados").counter().count());
+        assertEquals(1, meterRegistry.get("consultas.servico.externo.hedging.latencia").tag("vencedor", "hedge").timer().count());
+    }
+
+    @Test
+    void naoDeveDispararHedgeQuandoOrcamentoEsgotado() {
+        // Arrange
+        hedging = criarHedging(true, 0.1);
+        AtomicInteger chamadas = new AtomicInteger();
+
+        // Act
+        String resultado = hedging.executar(() -> {
+            chamadas.incrementAndGet();
+            dormir(100);
+            return "primaria";
+        });
+
+        // Assert
+        assertEquals("primaria", resultado);
+        assertEquals(1, chamadas.get());
+        assertEquals(1.0, meterRegistry.get("consultas.servico.externo.hedging.negados").counter().count());
+    }
+
+    @Test
+    void deveUsarHedgeQuandoPrimariaFalharDepoisDoAtraso() {
+        // Arrange
+        hedging = criarHedging(true, 1.0);
+        AtomicInteger chamadas = new AtomicInteger();
+
+        // Act
+        String resultado = hedging.executar(() -> {
+            if (chamadas.incrementAndGet() == 1) {
+                dormir(100);
+                throw new IllegalStateException("falha na primaria");
+            }
+            dormir(200);
+            return "hedge";
+        });
+
+        // Assert
+        assertEquals("hedge", resultado);
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoAmbasFalharem() {
+        // Arrange
+        hedging = criarHedging(true, 1.0);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> hedging.executar(() -> {
+            dormir(50);
+            throw new IllegalStateException("falha");
+        }));
+    }
+
+    @Test
+    void deveInterromperPrimariaQuandoHedgeVencer() throws InterruptedException {
+        // Arrange
+        hedging = criarHedging(true, 1.0);
+        AtomicInteger chamadas = new AtomicInteger();
+        CountDownLatch primariaInterrompida = new CountDownLatch(1);
+
+        // Act
+        String resultado = hedging.executar(() -> {
+            if (chamadas.incrementAndGet() == 1) {
+                aguardarInterrupcao(primariaInterrompida);
+                return "primaria";
+            }
+            return "hedge";
+        });
+
+        // Assert
+        assertEquals("hedge", resultado);
+        assertTrue(primariaInterrompida.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void deveInterromperHedgeQuandoPrimariaVencer() throws InterruptedException {
+        // Arrange
+        hedging = criarHedging(true, 1.0);
+        AtomicInteger chamadas = new AtomicInteger();
+        CountDownLatch hedgeInterrompido = new CountDownLatch(1);
+
+        // Act
+        String resultado = hedging.executar(() -> {
+            if (chamadas.incrementAndGet() == 1) {
+                dormir(100);
+                return "primaria";
+            }
+            aguardarInterrupcao(hedgeInterrompido);
+            return "hedge";
+        });
+
+        // Assert
+        assertEquals("primaria", resultado);
+        assertTrue(hedgeInterrompido.await(1, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("consultas.servico.externo.hedging.latencia").tag("vencedor", "primaria").timer().count());
+    }
+
+    @Test
+    void deveRegistrarNaJanelaSomenteALatenciaDasPrimarias() {
+        // Arrange
+        JanelaLatencias janela = new JanelaLatencias(10, 2);
+        hedging = new ExecutorHedging("pacientes", true, 0.95, Duration.ofMillis(20), Duration.ofMillis(10),
+                1.0, meterRegistry, janela);
+        AtomicInteger chamadas = new AtomicInteger();
+
+        // Act
+        hedging.executar(() -> {
+            if (chamadas.incrementAndGet() == 1) {
+                dormir(5000);
+                return "primaria";
+            }
+            return "hedge";
+        });
+        boolean janelaComUmaAmostra = janela.percentil(1.0).isEmpty();
+        hedging.executar(() -> "primaria");
+
+        // Assert
+        assertTrue(janelaComUmaAmostra);
+        Duration maisLenta = janela.percentil(1.0).orElseThrow();
+        assertTrue(maisLenta.compareTo(Duration.ofMillis(20)) >= 0);
+        assertTrue(maisLenta.compareTo(Duration.ofSeconds(5)) < 0);
+    }
+
+    private ExecutorHedging criarHedging(boolean habilitado, double proporcaoMaxima) {
+        return new ExecutorHedging("pacientes", habilitado, 0.95, Duration.ofMillis(20), Duration.ofMillis(10),
+                proporcaoMaxima, meterRegistry);
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void aguardarInterrupcao(CountDownLatch interrompida) {
+        try {
+            Thread.sleep(5000);
+        } catch (InterruptedException e) {
+            interrompida.countDown();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.fiap.consultas.infraestructure.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JanelaLatenciasTest {
+
+    @Test
+    void naoDeveCalcularPercentilSemAmostrasSuficientes() {
+        // Arrange
+        JanelaLatencias janela = new JanelaLatencias(10, 3);
+        janela.registrar(100);
+        janela.registrar(200);
+
+        // Act
+        Optional<Duration> percentil = janela.percentil(0.95);
+
+        // Assert
+        assertTrue(percentil.isEmpty());
+    }
+
+    @Test
+    void deveCalcularPercentilDasAmostrasMaisRecentes() {
+        // Arrange
+        JanelaLatencias janela = new JanelaLatencias(4, 1);
+        janela.registrar(Duration.ofMillis(1000).toNanos());
+        for (int i = 1; i <= 4; i++) {
+            janela.registrar(Duration.ofMillis(i * 10L).toNanos());
+        }
+
+        // Act & Assert
+        assertEquals(Duration.ofMillis(40), janela.percentil(0.95).orElseThrow());
+        assertEquals(Duration.ofMillis(20), janela.percentil(0.5).orElseThrow());
+    }
+}
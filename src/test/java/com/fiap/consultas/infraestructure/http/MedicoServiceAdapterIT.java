@@ -7,10 +7,6 @@ import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.util.List;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fiap.consultas.application.dtos.MedicoDTO;
 import com.fiap.consultas.domain.entities.HorarioTrabalho;
 
@@ -26,8 +22,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.client.HttpServerErrorException;
 
-import java.util.ArrayList;
-
 @SpringBootTest
 @EnableTestBinder
 class MedicoServiceAdapterIT {
@@ -35,16 +29,11 @@ class MedicoServiceAdapterIT {
     @Autowired
     private MedicoServiceAdapter medicoServiceAdapter;
 
-    private ObjectMapper objectMapper;
-
     private WireMockServer wireMockServer;
 
 
     @BeforeEach
     void setUp() {
-        objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         wireMockServer = new WireMockServer(9192, 0);
         wireMockServer.start();
         WireMock.configureFor("localhost", 9192);
@@ -58,20 +47,18 @@ class MedicoServiceAdapterIT {
     }
 
     @Test
-    void deveRetornarMedicosQuandoServicoExternoRetornarDados() throws JsonProcessingException {
+    void deveRetornarMedicosQuandoServicoExternoRetornarDados() {
         // Arrange
         String especialidade = "Cardiologia";
         String cidade = "Campinas";
 
-        List<MedicoServiceAdapter.MedicoCustom> medicosMock = criarMedicosMock();
-
         stubFor(get(urlPathEqualTo("/medicos"))
                 .withQueryParam("especialidade", equalTo(especialidade))
                 .withQueryParam("cidade", equalTo(cidade))
                 .willReturn(aResponse()
                         .withStatus(HttpStatus.OK.value())
                         .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-                        .withBody(objectMapper.writeValueAsString(medicosMock))));
+                        .withBody(criarMedicosMock())));
 
         // Act
         List<MedicoDTO> resultado = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade(especialidade, cidade);
@@ -144,53 +131,27 @@ class MedicoServiceAdapterIT {
                 .withQueryParam("cidade", equalTo(cidade)));
     }
 
-    private List<MedicoServiceAdapter.MedicoCustom> criarMedicosMock() {
-        List<MedicoServiceAdapter.MedicoCustom> medicos = new ArrayList<>();
-
-        // Primeiro médico
-        MedicoServiceAdapter.MedicoCustom medico1 = new MedicoServiceAdapter.MedicoCustom();
-        medico1.setId(1L);
-        medico1.setNome("Dr. João Silva");
-        medico1.setEspecialidade("Cardiologia");
-        medico1.setCidade("Campinas");
-
-        // Horários do primeiro médico
-        List<MedicoServiceAdapter.HorarioTrabalhoCustom> horarios1 = new ArrayList<>();
-
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario1 = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.SEGUNDA, 9, 18);
-
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario2 = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.QUARTA, 9, 18);
-
-        horarios1.add(horario1);
-        horarios1.add(horario2);
-        medico1.setHorariosTrabalho(horarios1);
-
-        // Segundo médico
-        MedicoServiceAdapter.MedicoCustom medico2 = new MedicoServiceAdapter.MedicoCustom();
-        medico2.setId(2L);
-        medico2.setNome("Dra. Maria Oliveira");
-        medico2.setEspecialidade("Cardiologia");
-        medico2.setCidade("Campinas");
-
-        // Horários do segundo médico
-        List<MedicoServiceAdapter.HorarioTrabalhoCustom> horarios2 = new ArrayList<>();
-
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.TERCA, 10, 19);
-
-        horarios2.add(horario);
-        medico2.setHorariosTrabalho(horarios2);
-
-        medicos.add(medico1);
-        medicos.add(medico2);
-
-        return medicos;
-    }
-
-    private static MedicoServiceAdapter.HorarioTrabalhoCustom getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom segunda, int inicio, int fim) {
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario1 = new MedicoServiceAdapter.HorarioTrabalhoCustom();
-        horario1.setDiaDaSemana(segunda);
-        horario1.setHoraInicio(LocalTime.of(inicio, 0));
-        horario1.setHoraFim(LocalTime.of(fim, 0));
-        return horario1;
+    private String criarMedicosMock() {
+        return """
+                [{
+                    "id": 1,
+                    "nome": "Dr. João Silva",
+                    "especialidade": "Cardiologia",
+                    "cidade": "Campinas",
+                    "horariosTrabalho": [
+                        {"diaDaSemana": "SEGUNDA", "horaInicio": "09:00:00", "horaFim": "18:00:00"},
+                        {"diaDaSemana": "QUARTA", "horaInicio": "09:00:00", "horaFim": "18:00:00"}
+                    ]
+                },
+                {
+                    "id": 2,
+                    "nome": "Dra. Maria Oliveira",
+                    "especialidade": "Cardiologia",
+                    "cidade": "Campinas",
+                    "horariosTrabalho": [
+                        {"diaDaSemana": "TERCA", "horaInicio": "10:00:00", "horaFim": "19:00:00"}
+                    ]
+                }]
+                """;
     }
-}
\ No newline at end of file
+}
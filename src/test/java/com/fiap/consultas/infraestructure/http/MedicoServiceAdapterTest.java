@@ -1,43 +1,48 @@
 package com.fiap.consultas.infraestructure.http;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.headerDoesNotExist;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.queryParam;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.hamcrest.Matchers.startsWith;
 
 import com.fiap.consultas.application.dtos.MedicoDTO;
 import com.fiap.consultas.domain.entities.HorarioTrabalho;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Clock;
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
-@ExtendWith(MockitoExtension.class)
 class MedicoServiceAdapterTest {
 
-    @Mock
-    private RestTemplate restTemplate;
+    private MockRestServiceServer servidor;
 
     private MedicoServiceAdapter medicoServiceAdapter;
     private static final String MEDICOS_SERVICE_URL = "http://localhost:8082";
 
     @BeforeEach
     void setUp() {
-        medicoServiceAdapter = new MedicoServiceAdapter(restTemplate, MEDICOS_SERVICE_URL);
+        RestTemplate restTemplate = new RestTemplate();
+        servidor = MockRestServiceServer.bindTo(restTemplate).build();
+        medicoServiceAdapter = new MedicoServiceAdapter(restTemplate, MEDICOS_SERVICE_URL, 5000, criarProtecao(),
+                1, Duration.ofHours(1), Clock.systemUTC());
     }
 
     @Test
@@ -46,17 +51,11 @@ class MedicoServiceAdapterTest {
         String especialidade = "Cardiologia";
         String cidade = "Campinas";
 
-        List<MedicoServiceAdapter.MedicoCustom> medicosMock = criarMedicosMock();
-
-        ResponseEntity<List<MedicoServiceAdapter.MedicoCustom>> responseEntity =
-                new ResponseEntity<>(medicosMock, HttpStatus.OK);
-
-        when(restTemplate.exchange(
-                anyString(),
-                eq(HttpMethod.GET),
-                eq(null),
-                any(ParameterizedTypeReference.class)))
-                .thenReturn(responseEntity);
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(queryParam("especialidade", especialidade))
+                .andExpect(queryParam("cidade", cidade))
+                .andRespond(withSuccess(criarMedicosJson(), MediaType.APPLICATION_JSON));
 
         // Act
         List<MedicoDTO> resultado = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade(especialidade, cidade);
@@ -80,37 +79,37 @@ class MedicoServiceAdapterTest {
         assertHorario(horarios.get(4), DayOfWeek.SATURDAY);
         assertHorario(horarios.getLast(), DayOfWeek.SUNDAY);
 
-        ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
-        verify(restTemplate).exchange(
-                urlCaptor.capture(),
-                eq(HttpMethod.GET),
-                eq(null),
-                any(ParameterizedTypeReference.class));
-
-        String urlCapturada = urlCaptor.getValue();
-        assertTrue(urlCapturada.contains(MEDICOS_SERVICE_URL + "/medicos"));
-        assertTrue(urlCapturada.contains("especialidade=" + especialidade));
-        assertTrue(urlCapturada.contains("cidade=" + cidade));
+        MedicoDTO segundoMedico = resultado.getLast();
+        assertEquals("2", segundoMedico.getId());
+        assertEquals(DayOfWeek.TUESDAY, segundoMedico.getHorariosTrabalho().getFirst().getDiaSemana());
+        assertEquals(LocalTime.of(10, 0), segundoMedico.getHorariosTrabalho().getFirst().getHoraInicio());
+        assertEquals(LocalTime.of(19, 0), segundoMedico.getHorariosTrabalho().getFirst().getHoraFim());
+
+        servidor.verify();
     }
 
     @Test
     void deveRetornarListaVaziaQuandoNaoExistiremMedicos() {
         // Arrange
-        String especialidade = "Neurologia";
-        String cidade = "Campinas";
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
 
-        ResponseEntity<List<MedicoServiceAdapter.MedicoCustom>> responseEntity =
-                new ResponseEntity<>(Collections.emptyList(), HttpStatus.OK);
+        // Act
+        List<MedicoDTO> resultado = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Neurologia", "Campinas");
 
-        when(restTemplate.exchange(
-                anyString(),
-                eq(HttpMethod.GET),
-                eq(null),
-                any(ParameterizedTypeReference.class)))
-                .thenReturn(responseEntity);
+        // Assert
+        assertNotNull(resultado);
+        assertTrue(resultado.isEmpty());
+    }
+
+    @Test
+    void deveRetornarListaVaziaQuandoBodyForNulo() {
+        // Arrange
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andRespond(withStatus(HttpStatus.OK));
 
         // Act
-        List<MedicoDTO> resultado = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade(especialidade, cidade);
+        List<MedicoDTO> resultado = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Pediatria", "Campinas");
 
         // Assert
         assertNotNull(resultado);
@@ -118,47 +117,160 @@ class MedicoServiceAdapterTest {
     }
 
     @Test
-    void deveRetornarListaVaziaQuandoBodyForNulo() {
+    void deveIgnorarCamposDesconhecidosEHorariosNulos() {
         // Arrange
-        String especialidade = "Pediatria";
-        String cidade = "Campinas";
+        String json = """
+                [{"id": 7, "nome": "Dr. Novo", "crm": {"numero": 123, "uf": "SP"}, "especialidade": "Pediatria",
+                  "cidade": "Campinas", "horariosTrabalho": null, "ativo": true}]
+                """;
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andRespond(withSuccess(json, MediaType.APPLICATION_JSON));
+
+        // Act
+        List<MedicoDTO> resultado = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Pediatria", "Campinas");
 
-        // Configurar o mock do RestTemplate para retornar body nulo
-        ResponseEntity<List<MedicoServiceAdapter.MedicoCustom>> responseEntity =
-                new ResponseEntity<>(null, HttpStatus.OK);
+        // Assert
+        assertEquals(1, resultado.size());
+        assertEquals("7", resultado.getFirst().getId());
+        assertEquals("Pediatria", resultado.getFirst().getEspecialidade());
+        assertTrue(resultado.getFirst().getHorariosTrabalho().isEmpty());
+    }
 
-        when(restTemplate.exchange(
-                anyString(),
-                eq(HttpMethod.GET),
-                eq(null),
-                any(ParameterizedTypeReference.class)))
-                .thenReturn(responseEntity);
+    @Test
+    void deveReutilizarListaQuandoServicoResponderNaoModificado() {
+        // Arrange
+        HttpHeaders validadores = new HttpHeaders();
+        validadores.setETag("\"v1\"");
+        validadores.setLastModified(1_700_000_000_000L);
+
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+                .andRespond(withSuccess(criarMedicosJson(), MediaType.APPLICATION_JSON).headers(validadores));
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(header(HttpHeaders.IF_MODIFIED_SINCE, "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
 
         // Act
-        List<MedicoDTO> resultado = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade(especialidade, cidade);
+        List<MedicoDTO> primeira = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
+        List<MedicoDTO> segunda = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
 
         // Assert
-        assertNotNull(resultado);
-        assertTrue(resultado.isEmpty());
+        assertEquals(2, segunda.size());
+        assertSame(primeira, segunda);
+        servidor.verify();
     }
 
     @Test
-    void deveLancarExcecaoQuandoServicoRetornarErro() {
+    void deveAtualizarListaQuandoServicoRetornarNovaVersao() {
         // Arrange
-        String especialidade = "Oftalmologia";
-        String cidade = "Campinas";
+        HttpHeaders versao1 = new HttpHeaders();
+        versao1.setETag("\"v1\"");
+        HttpHeaders versao2 = new HttpHeaders();
+        versao2.setETag("\"v2\"");
+
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andRespond(withSuccess(criarMedicosJson(), MediaType.APPLICATION_JSON).headers(versao1));
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON).headers(versao2));
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v2\""))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        // Act
+        medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
+        List<MedicoDTO> atualizada = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
+        List<MedicoDTO> revalidada = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
+
+        // Assert
+        assertTrue(atualizada.isEmpty());
+        assertTrue(revalidada.isEmpty());
+        servidor.verify();
+    }
+
+    @Test
+    void naoDeveEnviarValidadoresQuandoServicoNaoInformarVersao() {
+        // Arrange
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andRespond(withSuccess(criarMedicosJson(), MediaType.APPLICATION_JSON));
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+                .andExpect(headerDoesNotExist(HttpHeaders.IF_MODIFIED_SINCE))
+                .andRespond(withSuccess(criarMedicosJson(), MediaType.APPLICATION_JSON));
+
+        // Act
+        medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
+        medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
+
+        // Assert
+        servidor.verify();
+    }
+
+    @Test
+    void deveRepetirSemValidadoresQuandoReceberNaoModificadoSemListaGuardada() {
+        // Arrange
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+                .andExpect(headerDoesNotExist(HttpHeaders.IF_MODIFIED_SINCE))
+                .andRespond(withSuccess(criarMedicosJson(), MediaType.APPLICATION_JSON));
+
+        // Act
+        List<MedicoDTO> resultado = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
+
+        // Assert
+        assertEquals(2, resultado.size());
+        servidor.verify();
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoServicoResponderNaoModificadoSemValidadores() {
+        // Arrange
+        servidor.expect(ExpectedCount.twice(), requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
 
-        // Configurar o mock do RestTemplate para lançar exceção
-        when(restTemplate.exchange(
-                anyString(),
-                eq(HttpMethod.GET),
-                eq(null),
-                any(ParameterizedTypeReference.class)))
-                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+                () -> medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas"));
+        servidor.verify();
+    }
+
+    @Test
+    void deveDescartarValidadoresQuandoCacheExcederCapacidade() {
+        // Arrange
+        HttpHeaders validadores = new HttpHeaders();
+        validadores.setETag("\"v1\"");
+
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos?especialidade=Cardiologia")))
+                .andRespond(withSuccess(criarMedicosJson(), MediaType.APPLICATION_JSON).headers(validadores));
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos?especialidade=Pediatria")))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON).headers(validadores));
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos?especialidade=Cardiologia")))
+                .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+                .andRespond(withSuccess(criarMedicosJson(), MediaType.APPLICATION_JSON).headers(validadores));
+
+        // Act
+        medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
+        medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Pediatria", "Campinas");
+        List<MedicoDTO> resultado = medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Cardiologia", "Campinas");
+
+        // Assert
+        assertEquals(2, resultado.size());
+        servidor.verify();
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoServicoRetornarErro() {
+        // Arrange
+        servidor.expect(requestTo(startsWith(MEDICOS_SERVICE_URL + "/medicos")))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
 
         // Act & Assert
         assertThrows(HttpClientErrorException.class, () -> {
-            medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade(especialidade, cidade);
+            medicoServiceAdapter.buscarMedicosPorEspecialidadeECidade("Oftalmologia", "Campinas");
         });
     }
 
@@ -168,59 +280,38 @@ class MedicoServiceAdapterTest {
         assertEquals(LocalTime.of(18, 0), horario.getHoraFim());
     }
 
-    private List<MedicoServiceAdapter.MedicoCustom> criarMedicosMock() {
-        List<MedicoServiceAdapter.MedicoCustom> medicos = new ArrayList<>();
-
-        // Primeiro médico
-        MedicoServiceAdapter.MedicoCustom medico1 = new MedicoServiceAdapter.MedicoCustom();
-        medico1.setId(1L);
-        medico1.setNome("Dr. João Silva");
-        medico1.setEspecialidade("Cardiologia");
-        medico1.setCidade("Campinas");
-
-        // Horários do primeiro médico
-        List<MedicoServiceAdapter.HorarioTrabalhoCustom> horarios1 = new ArrayList<>();
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario1 = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.SEGUNDA, 9, 18);
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario2 = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.QUARTA, 9, 18);
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario3 = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.QUINTA, 9, 18);
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario4 = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.SEXTA, 9, 18);
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario5 = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.SABADO, 9, 18);
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario6 = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.DOMINGO, 9, 18);
-
-        horarios1.add(horario1);
-        horarios1.add(horario2);
-        horarios1.add(horario3);
-        horarios1.add(horario4);
-        horarios1.add(horario5);
-        horarios1.add(horario6);
-        medico1.setHorariosTrabalho(horarios1);
-
-        // Segundo médico
-        MedicoServiceAdapter.MedicoCustom medico2 = new MedicoServiceAdapter.MedicoCustom();
-        medico2.setId(2L);
-        medico2.setNome("Dra. Maria Oliveira");
-        medico2.setEspecialidade("Cardiologia");
-        medico2.setCidade("Campinas");
-
-        // Horários do segundo médico
-        List<MedicoServiceAdapter.HorarioTrabalhoCustom> horarios2 = new ArrayList<>();
-
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario = getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom.TERCA, 10, 19);
-
-        horarios2.add(horario);
-        medico2.setHorariosTrabalho(horarios2);
-
-        medicos.add(medico1);
-        medicos.add(medico2);
-
-        return medicos;
+    private static String criarMedicosJson() {
+        return """
+                [{
+                    "id": 1,
+                    "nome": "Dr. João Silva",
+                    "especialidade": "Cardiologia",
+                    "cidade": "Campinas",
+                    "horariosTrabalho": [
+                        {"diaDaSemana": "SEGUNDA", "horaInicio": "09:00:00", "horaFim": "18:00:00"},
+                        {"diaDaSemana": "QUARTA", "horaInicio": "09:00:00", "horaFim": "18:00:00"},
+                        {"diaDaSemana": "QUINTA", "horaInicio": "09:00:00", "horaFim": "18:00:00"},
+                        {"diaDaSemana": "SEXTA", "horaInicio": "09:00:00", "horaFim": "18:00:00"},
+                        {"diaDaSemana": "SABADO", "horaInicio": "09:00:00", "horaFim": "18:00:00"},
+                        {"diaDaSemana": "DOMINGO", "horaInicio": "09:00:00", "horaFim": "18:00:00"}
+                    ]
+                },
+                {
+                    "id": 2,
+                    "nome": "Dra. Maria Oliveira",
+                    "especialidade": "Cardiologia",
+                    "cidade": "Campinas",
+                    "horariosTrabalho": [
+                        {"diaDaSemana": "TERCA", "horaInicio": "10:00:00", "horaFim": "19:00:00"}
+                    ]
+                }]
+                """;
     }
 
-    private static MedicoServiceAdapter.HorarioTrabalhoCustom getHorarioTrabalhoCustom(MedicoServiceAdapter.DiaDaSemanaCustom segunda, int inicio, int fim) {
-        MedicoServiceAdapter.HorarioTrabalhoCustom horario1 = new MedicoServiceAdapter.HorarioTrabalhoCustom();
-        horario1.setDiaDaSemana(segunda);
-        horario1.setHoraInicio(LocalTime.of(inicio, 0));
-        horario1.setHoraFim(LocalTime.of(fim, 0));
-        return horario1;
+    private static ProtecaoServicoExterno criarProtecao() {
+        return new ProtecaoServicoExterno("medicos",
+                new Bulkhead(10, Duration.ofMillis(100)),
+                new CircuitBreaker(5, Duration.ofSeconds(30), Clock.systemUTC()),
+                new SimpleMeterRegistry());
     }
-}
\ No newline at end of file
+}
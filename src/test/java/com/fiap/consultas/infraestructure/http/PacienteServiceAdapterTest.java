@@ -1,19 +1,28 @@
 package com.fiap.consultas.infraestructure.http;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import com.fiap.consultas.application.dtos.PacienteDTO;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @ExtendWith(MockitoExtension.class)
 class PacienteServiceAdapterTest {
 
@@ -25,7 +34,7 @@ class PacienteServiceAdapterTest {
 
     @BeforeEach
     void setUp() {
-        pacienteServiceAdapter = new PacienteServiceAdapter(restTemplate, PACIENTES_SERVICE_URL);
+        pacienteServiceAdapter = new PacienteServiceAdapter(restTemplate, PACIENTES_SERVICE_URL, 5000, criarProtecao(), criarHedgingDesabilitado());
     }
 
     @Test
@@ -68,4 +77,54 @@ class PacienteServiceAdapterTest {
         // Assert
         verify(restTemplate, times(1)).getForObject(urlEsperada, PacienteDTO.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    void naoDeveRegistrarFalhaNoCircuitoQuandoHedgeVencer() throws InterruptedException {
+        // Arrange
+        String cpf = "12345678900";
+        String url = PACIENTES_SERVICE_URL + "/api/v1/pacientes/" + cpf;
+        CircuitBreaker circuitBreaker = new CircuitBreaker(5, Duration.ofSeconds(30), Clock.systemUTC());
+        Bulkhead bulkhead = new Bulkhead(10, Duration.ofMillis(100));
+        ProtecaoServicoExterno protecao = new ProtecaoServicoExterno("pacientes", bulkhead, circuitBreaker, new SimpleMeterRegistry());
+        PacienteDTO paciente = PacienteDTO.builder().cpf(cpf).build();
+        AtomicInteger chamadas = new AtomicInteger();
+        CountDownLatch primariaInterrompida = new CountDownLatch(1);
+        when(restTemplate.getForObject(url, PacienteDTO.class)).thenAnswer(invocacao -> {
+            if (chamadas.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    primariaInterrompida.countDown();
+                    throw new ResourceAccessException("leitura interrompida");
+                }
+            }
+            return paciente;
+        });
+
+        try (ExecutorHedging hedging = new ExecutorHedging("pacientes", true, 0.95, Duration.ofMillis(20),
+                Duration.ofMillis(10), 1.0, new SimpleMeterRegistry())) {
+            PacienteServiceAdapter adapter = new PacienteServiceAdapter(restTemplate, PACIENTES_SERVICE_URL, 5000, protecao, hedging);
+
+            // Act
+            PacienteDTO resultado = adapter.buscarPacientePorCpf(cpf);
+
+            // Assert
+            assertEquals(paciente, resultado);
+            assertTrue(primariaInterrompida.await(1, TimeUnit.SECONDS));
+            assertEquals(0, circuitBreaker.getFalhasConsecutivas());
+            assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado());
+            assertEquals(0, bulkhead.chamadasEmAndamento());
+        }
+    }
+
+    private static ProtecaoServicoExterno criarProtecao() {
+        return new ProtecaoServicoExterno("pacientes",
+                new Bulkhead(10, Duration.ofMillis(100)),
+                new CircuitBreaker(5, Duration.ofSeconds(30), Clock.systemUTC()),
+                new SimpleMeterRegistry());
+    }
+
+    private static ExecutorHedging criarHedgingDesabilitado() {
+        return new ExecutorHedging("pacientes", false, 0.95, Duration.ofMillis(200), Duration.ofMillis(20), 0.05, new SimpleMeterRegistry());
+    }
+}
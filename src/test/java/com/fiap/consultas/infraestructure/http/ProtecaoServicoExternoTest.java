@@ -0,0 +1,112 @@
+package com.fiap.consultas.infraestructure.http;
+
+import com.fiap.consultas.application.exceptions.ServicoExternoIndisponivelException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProtecaoServicoExternoTest {
+
+    private MeterRegistry meterRegistry;
+    private Bulkhead bulkhead;
+    private ProtecaoServicoExterno protecao;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new Bulkhead(1, Duration.ofMillis(50));
+        protecao = new ProtecaoServicoExterno("pacientes", bulkhead,
+                new CircuitBreaker(2, Duration.ofMinutes(1), Clock.systemUTC()), meterRegistry);
+    }
+
+    @Test
+    void deveFalharRapidamenteQuandoCircuitoAberto() {
+        // Arrange
+        AtomicInteger chamadas = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            assertThrows(HttpServerErrorException.class, () -> protecao.executar(() -> {
+                chamadas.incrementAndGet();
+                throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+            }));
+        }
+
+        // Act & Assert
+        assertThrows(ServicoExternoIndisponivelException.class, () -> protecao.executar(chamadas::incrementAndGet));
+        assertEquals(2, chamadas.get());
+        assertEquals(CircuitBreaker.Estado.ABERTO, protecao.getEstadoCircuito());
+        assertEquals(2.0, meterRegistry.get("consultas.servico.externo.circuito.estado").tag("servico", "pacientes").gauge().value());
+        assertEquals(1.0, meterRegistry.get("consultas.servico.externo.chamadas.rejeitadas").tag("motivo", "circuito_aberto").counter().count());
+    }
+
+    @Test
+    void deveLiberarASondaQuandoElaLancaError() {
+        // Arrange
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ZERO, Clock.systemUTC());
+        ProtecaoServicoExterno protecaoSemEspera = new ProtecaoServicoExterno("medicos", bulkhead, circuitBreaker, meterRegistry);
+        assertThrows(HttpServerErrorException.class, () -> protecaoSemEspera.executar(() -> {
+            throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+        }));
+
+        // Act
+        assertThrows(StackOverflowError.class, () -> protecaoSemEspera.executar(() -> {
+            throw new StackOverflowError();
+        }));
+
+        // Assert
+        assertEquals(CircuitBreaker.Estado.ABERTO, circuitBreaker.getEstado());
+        assertEquals("ok", protecaoSemEspera.executar(() -> "ok"));
+        assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado());
+        assertEquals(0, bulkhead.chamadasEmAndamento());
+    }
+
+    @Test
+    void naoDeveAbrirCircuitoPorErroDoCliente() {
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertThrows(HttpClientErrorException.class, () -> protecao.executar(() -> {
+                throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+            }));
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.Estado.FECHADO, protecao.getEstadoCircuito());
+        assertEquals("ok", protecao.executar(() -> "ok"));
+    }
+
+    @Test
+    void deveRejeitarQuandoLimiteDeChamadasConcorrentesForAtingido() throws Exception {
+        // Arrange
+        CountDownLatch liberarChamada = new CountDownLatch(1);
+        Thread chamadaLenta = Thread.ofVirtual().start(() -> protecao.executar(() -> {
+            try {
+                return liberarChamada.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        await().atMost(2, TimeUnit.SECONDS).until(() -> bulkhead.chamadasEmAndamento() == 1);
+
+        // Act & Assert
+        assertThrows(ServicoExternoIndisponivelException.class, () -> protecao.executar(() -> "ok"));
+        assertEquals(1.0, meterRegistry.get("consultas.servico.externo.chamadas.rejeitadas").tag("motivo", "bulkhead").counter().count());
+
+        liberarChamada.countDown();
+        chamadaLenta.join(2000);
+        assertEquals(0, bulkhead.chamadasEmAndamento());
+        assertEquals("ok", protecao.executar(() -> "ok"));
+    }
+}
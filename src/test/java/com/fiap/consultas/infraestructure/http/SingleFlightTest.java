@@ -0,0 +1,125 @@
+package com.fiap.consultas.infraestructure.http;
+
+import com.fiap.consultas.application.exceptions.ServicoExternoIndisponivelException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void deveCompartilharChamadaEmAndamentoEntreRequisicoesIguais() throws Exception {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+        CountDownLatch liberarChamada = new CountDownLatch(1);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        // Act
+        Future<String> primeira = executor.submit(() -> singleFlight.executar("cpf", () -> {
+            execucoes.incrementAndGet();
+            aguardar(liberarChamada);
+            return "resultado";
+        }));
+        await().atMost(2, TimeUnit.SECONDS).until(() -> singleFlight.chamadasEmAndamento() == 1);
+        Future<String> segunda = executor.submit(() -> singleFlight.executar("cpf", () -> {
+            execucoes.incrementAndGet();
+            return "outro";
+        }));
+        Thread.sleep(100);
+        liberarChamada.countDown();
+
+        // Assert
+        assertEquals("resultado", primeira.get(2, TimeUnit.SECONDS));
+        assertEquals("resultado", segunda.get(2, TimeUnit.SECONDS));
+        assertEquals(1, execucoes.get());
+        assertEquals(0, singleFlight.chamadasEmAndamento());
+    }
+
+    @Test
+    void deveExecutarNovamenteAposConclusaoDaChamadaAnterior() {
+        // Arrange
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+        AtomicInteger execucoes = new AtomicInteger();
+
+        // Act
+        singleFlight.executar("chave", execucoes::incrementAndGet);
+        Integer resultado = singleFlight.executar("chave", execucoes::incrementAndGet);
+
+        // Assert
+        assertEquals(2, resultado);
+    }
+
+    @Test
+    void devePropagarExcecaoParaQuemAguardaAChamada() throws Exception {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+        CountDownLatch liberarChamada = new CountDownLatch(1);
+
+        // Act
+        Future<String> primeira = executor.submit(() -> singleFlight.executar("cpf", () -> {
+            aguardar(liberarChamada);
+            throw new IllegalStateException("falha no servico");
+        }));
+        await().atMost(2, TimeUnit.SECONDS).until(() -> singleFlight.chamadasEmAndamento() == 1);
+        Future<String> segunda = executor.submit(() -> singleFlight.executar("cpf", () -> "nao executado"));
+        Thread.sleep(100);
+        liberarChamada.countDown();
+
+        // Assert
+        Exception excecaoPrimeira = assertThrows(Exception.class, () -> primeira.get(2, TimeUnit.SECONDS));
+        Exception excecaoSegunda = assertThrows(Exception.class, () -> segunda.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, excecaoPrimeira.getCause());
+        assertInstanceOf(IllegalStateException.class, excecaoSegunda.getCause());
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoEsperaExcederTempoMaximo() throws Exception {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch liberarChamada = new CountDownLatch(1);
+
+        Future<String> primeira = executor.submit(() -> singleFlight.executar("cpf", () -> {
+            aguardar(liberarChamada);
+            return "resultado";
+        }));
+        await().atMost(2, TimeUnit.SECONDS).until(() -> singleFlight.chamadasEmAndamento() == 1);
+
+        // Act & Assert
+        assertThrows(ServicoExternoIndisponivelException.class,
+                () -> singleFlight.executar("cpf", () -> "nao executado"));
+
+        liberarChamada.countDown();
+        assertEquals("resultado", primeira.get(2, TimeUnit.SECONDS));
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
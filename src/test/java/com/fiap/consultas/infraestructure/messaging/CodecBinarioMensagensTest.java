@@ -0,0 +1,135 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
+import com.fiap.consultas.application.dtos.ItemNotificacaoDTO;
+import com.fiap.consultas.application.dtos.NotificacaoDTO;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodecBinarioMensagensTest {
+
+    private final CodecBinarioMensagens codec = new CodecBinarioMensagens();
+
+    @Test
+    void deveCodificarEDecodificarNotificacao() {
+        // Arrange
+        NotificacaoDTO notificacao = criarNotificacao(LocalDateTime.of(2025, 3, 10, 14, 30).toString());
+
+        // Act
+        NotificacaoDTO decodificada = codec.decodificarNotificacao(codec.codificar(notificacao));
+
+        // Assert
+        assertEquals(notificacao, decodificada);
+    }
+
+    @Test
+    void deveGerarConteudoMenorQueJson() throws Exception {
+        // Arrange
+        NotificacaoDTO notificacao = criarNotificacao(LocalDateTime.of(2025, 3, 10, 14, 30).toString());
+        byte[] json = new ObjectMapper().writeValueAsBytes(notificacao);
+
+        // Act
+        byte[] binario = codec.codificar(notificacao);
+
+        // Assert
+        assertTrue(binario.length < json.length / 2, "binário: " + binario.length + " bytes, JSON: " + json.length);
+    }
+
+    @Test
+    void deveManterDataConsultaComoTextoQuandoNaoForIso() {
+        // Arrange
+        NotificacaoDTO notificacao = criarNotificacao("2023-10-15 14:30");
+
+        // Act
+        NotificacaoDTO decodificada = codec.decodificarNotificacao(codec.codificar(notificacao));
+
+        // Assert
+        assertEquals("2023-10-15 14:30", decodificada.getDataConsulta());
+    }
+
+    @Test
+    void deveCodificarNotificacaoAgrupada() {
+        // Arrange
+        NotificacaoDTO notificacao = criarNotificacao(LocalDateTime.of(2025, 3, 10, 14, 30).toString());
+        notificacao.setConsultasAgrupadas(List.of(
+                new ItemNotificacaoDTO(notificacao.getConsultaId(), "Clínica Central", notificacao.getDataConsulta()),
+                new ItemNotificacaoDTO(UUID.randomUUID(), null, "2025-03-12 09:00")));
+
+        // Act
+        NotificacaoDTO decodificada = codec.decodificarNotificacao(codec.codificar(notificacao));
+
+        // Assert
+        assertEquals(notificacao, decodificada);
+    }
+
+    @Test
+    void deveManterCamposNulos() {
+        // Arrange
+        NotificacaoDTO notificacao = NotificacaoDTO.builder().build();
+
+        // Act
+        NotificacaoDTO decodificada = codec.decodificarNotificacao(codec.codificar(notificacao));
+
+        // Assert
+        assertEquals(notificacao, decodificada);
+    }
+
+    @Test
+    void deveCodificarEDecodificarConfirmacao() {
+        // Arrange
+        ConfirmacaoConsultaDTO comUuid = new ConfirmacaoConsultaDTO(UUID.randomUUID().toString(), true);
+        ConfirmacaoConsultaDTO comIdInvalido = new ConfirmacaoConsultaDTO("id-invalido", false);
+
+        // Act
+        byte[] conteudoComUuid = codec.codificar(comUuid);
+
+        // Assert
+        assertEquals(comUuid, codec.decodificarConfirmacao(conteudoComUuid));
+        assertEquals(comIdInvalido, codec.decodificarConfirmacao(codec.codificar(comIdInvalido)));
+        assertEquals(20, conteudoComUuid.length);
+    }
+
+    @Test
+    void deveRejeitarVersaoOuTipoDesconhecido() {
+        // Arrange
+        byte[] conteudo = codec.codificar(new ConfirmacaoConsultaDTO(UUID.randomUUID().toString(), true));
+        byte[] outraVersao = conteudo.clone();
+        outraVersao[0] = 99;
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> codec.decodificarConfirmacao(outraVersao));
+        assertThrows(IllegalArgumentException.class, () -> codec.decodificarNotificacao(conteudo));
+    }
+
+    @Test
+    void deveRejeitarConteudoTruncado() {
+        // Arrange
+        byte[] conteudo = codec.codificar(criarNotificacao("2023-10-15 14:30"));
+        byte[] truncado = Arrays.copyOf(conteudo, conteudo.length / 2);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> codec.decodificarNotificacao(truncado));
+    }
+
+    private NotificacaoDTO criarNotificacao(String dataConsulta) {
+        return NotificacaoDTO.builder()
+                .consultaId(UUID.randomUUID())
+                .nomePaciente("João Silva")
+                .email("joao.silva@example.com")
+                .telefone("11999999999")
+                .consulta("Consulta de rotina")
+                .localConsulta("Clínica Central")
+                .nomeMedico("Dra. Maria Santos")
+                .dataConsulta(dataConsulta)
+                .tipoNotificacao(TipoNotificacao.CONFIRMACAO_CONSULTA)
+                .build();
+    }
+}
@@ -1,20 +1,30 @@
 package com.fiap.consultas.infraestructure.messaging;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
 import com.fiap.consultas.domain.enums.StatusConsulta;
 import com.fiap.consultas.infraestructure.persistence.entities.ConsultaJpaEntity;
+import com.fiap.consultas.infraestructure.persistence.repositories.ConfirmacaoProcessadaJpaRepository;
 import com.fiap.consultas.infraestructure.persistence.repositories.ConsultaJpaRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.stream.binder.test.EnableTestBinder;
 import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.integration.amqp.inbound.AmqpInboundChannelAdapter;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -31,17 +41,30 @@ class ConfirmacaoConsultaConsumerIT {
     @Autowired
     private InputDestination input;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CodecBinarioMensagens codec;
+
     @Autowired
     private ConsultaJpaRepository consultaRepository;
 
+    @Autowired
+    private Declarables filasReprocessamentoConfirmacoes;
+
+    @Autowired
+    private ConfirmacaoProcessadaJpaRepository confirmacaoProcessadaRepository;
+
     @AfterEach
     void clean() {
         consultaRepository.deleteAll();
+        confirmacaoProcessadaRepository.deleteAll();
     }
 
     @Test
     @Sql("/scripts/inserir-consulta-agendada.sql")
-    void deveConfirmarConsultaAoReceberMensagemDeConfirmacao() {
+    void deveConfirmarConsultaAoReceberMensagemDeConfirmacao() throws JsonProcessingException {
         // Arrange
         String consultaId = "123e4567-e89b-12d3-a456-426614174000";
 
@@ -50,7 +73,9 @@ class ConfirmacaoConsultaConsumerIT {
                 .confirmada(true)
                 .build();
 
-        Message<ConfirmacaoConsultaDTO> message = MessageBuilder.withPayload(dto).build();
+        Message<List<byte[]>> message = MessageBuilder.withPayload(List.of(objectMapper.writeValueAsBytes(dto)))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+                .build();
 
         // Act
         input.send(message, "receberConfirmacaoConsulta-in-0");
@@ -65,7 +90,7 @@ class ConfirmacaoConsultaConsumerIT {
 
     @Test
     @Sql("/scripts/inserir-consulta-agendada.sql")
-    void deveCancelarConsultaAoReceberMensagemDeNaoConfirmacao() {
+    void deveCancelarConsultaAoReceberMensagemDeNaoConfirmacao() throws JsonProcessingException {
         // Arrange
         String consultaId = "123e4567-e89b-12d3-a456-426614174000";
 
@@ -74,7 +99,89 @@ class ConfirmacaoConsultaConsumerIT {
                 .confirmada(false)
                 .build();
 
-        Message<ConfirmacaoConsultaDTO> message = MessageBuilder.withPayload(dto).build();
+        Message<List<byte[]>> message = MessageBuilder.withPayload(List.of(objectMapper.writeValueAsBytes(dto)))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+                .build();
+
+        // Act
+        input.send(message, "receberConfirmacaoConsulta-in-0");
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            Optional<ConsultaJpaEntity> consultaAtualizada = consultaRepository.findById(UUID.fromString(consultaId));
+            assertThat(consultaAtualizada).isPresent();
+            assertThat(consultaAtualizada.get().getStatus()).isEqualTo(StatusConsulta.CANCELADA);
+        });
+    }
+
+    @Test
+    @Sql("/scripts/inserir-consulta-agendada.sql")
+    void deveAplicarLoteDeConfirmacoesRecebidoNumaUnicaMensagem() throws JsonProcessingException {
+        // Arrange
+        String consultaId = "123e4567-e89b-12d3-a456-426614174000";
+
+        List<ConfirmacaoConsultaDTO> lote = List.of(
+                ConfirmacaoConsultaDTO.builder().consultaId("000e0000-e00b-00d0-a000-000000000000").confirmada(true).build(),
+                ConfirmacaoConsultaDTO.builder().consultaId(consultaId).confirmada(true).build());
+
+        Message<List<byte[]>> message = MessageBuilder.withPayload(List.of(
+                        objectMapper.writeValueAsBytes(lote.get(0)), objectMapper.writeValueAsBytes(lote.get(1))))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+                .build();
+
+        // Act
+        input.send(message, "receberConfirmacaoConsulta-in-0");
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            Optional<ConsultaJpaEntity> consultaAtualizada = consultaRepository.findById(UUID.fromString(consultaId));
+            assertThat(consultaAtualizada).isPresent();
+            assertThat(consultaAtualizada.get().getStatus()).isEqualTo(StatusConsulta.CONFIRMADA);
+        });
+    }
+
+    @Test
+    @Sql("/scripts/inserir-consulta-agendada.sql")
+    void deveConfirmarConsultaAoReceberLoteBinario() {
+        // Arrange
+        String consultaId = "123e4567-e89b-12d3-a456-426614174000";
+
+        ConfirmacaoConsultaDTO dto = ConfirmacaoConsultaDTO.builder()
+                .consultaId(consultaId)
+                .confirmada(true)
+                .build();
+
+        Message<List<byte[]>> message = MessageBuilder.withPayload(List.of(codec.codificar(dto)))
+                .setHeader(MessageHeaders.CONTENT_TYPE, ConversorMensagemBinaria.CONTENT_TYPE)
+                .build();
+
+        // Act
+        input.send(message, "receberConfirmacaoConsulta-in-0");
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            Optional<ConsultaJpaEntity> consultaAtualizada = consultaRepository.findById(UUID.fromString(consultaId));
+            assertThat(consultaAtualizada).isPresent();
+            assertThat(consultaAtualizada.get().getStatus()).isEqualTo(StatusConsulta.CONFIRMADA);
+        });
+    }
+
+    @Test
+    @Sql("/scripts/inserir-consulta-agendada.sql")
+    void deveAplicarLoteMistoConvertendoCadaMensagemPeloSeuContentType() throws JsonProcessingException {
+        // Arrange
+        String consultaId = "123e4567-e89b-12d3-a456-426614174000";
+        String consultaInexistente = "000e0000-e00b-00d0-a000-000000000000";
+
+        // O header do lote fica com o formato da primeira mensagem; os demais só aparecem nos headers consolidados.
+        Message<List<byte[]>> message = MessageBuilder.withPayload(List.of(
+                        objectMapper.writeValueAsBytes(ConfirmacaoConsultaDTO.builder().consultaId(consultaInexistente).confirmada(true).build()),
+                        codec.codificar(ConfirmacaoConsultaDTO.builder().consultaId(consultaId).confirmada(false).build())))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+                .setHeader(AmqpInboundChannelAdapter.CONSOLIDATED_HEADERS, List.of(
+                        Map.of(MessageHeaders.CONTENT_TYPE, "application/json"),
+                        Map.of(MessageHeaders.CONTENT_TYPE, ConversorMensagemBinaria.CONTENT_TYPE)))
+                .build();
 
         // Act
         input.send(message, "receberConfirmacaoConsulta-in-0");
@@ -88,7 +195,30 @@ class ConfirmacaoConsultaConsumerIT {
     }
 
     @Test
-    void deveManterIntegridadeDoBancoDadosAoReceberMensagemInvalida() {
+    void deveDeclararUmaFilaDeEsperaComTtlFixoPorFaixaDeAtraso() {
+        // Act
+        List<Queue> filas = filasReprocessamentoConfirmacoes.getDeclarablesByType(Queue.class);
+        List<Binding> ligacoes = filasReprocessamentoConfirmacoes.getDeclarablesByType(Binding.class);
+
+        // Assert
+        assertThat(filas).extracting(Queue::getName).containsExactly(
+                "confirmacao-consulta-reprocessamento.aguardando-1000",
+                "confirmacao-consulta-reprocessamento.aguardando-2000",
+                "confirmacao-consulta-reprocessamento.aguardando-4000",
+                "confirmacao-consulta-reprocessamento.aguardando-8000",
+                "confirmacao-consulta-reprocessamento.aguardando-16000",
+                "confirmacao-consulta-reprocessamento.aguardando-32000",
+                "confirmacao-consulta-reprocessamento.aguardando-60000");
+        assertThat(filas.getFirst().getArguments())
+                .containsEntry("x-message-ttl", 1000)
+                .containsEntry("x-dead-letter-exchange", "confirmacao-consulta-dlx")
+                .containsEntry("x-dead-letter-routing-key", "reprocessamento");
+        assertThat(ligacoes).extracting(Binding::getRoutingKey)
+                .containsExactly("1000", "2000", "4000", "8000", "16000", "32000", "60000");
+    }
+
+    @Test
+    void deveManterIntegridadeDoBancoDadosAoReceberMensagemInvalida() throws JsonProcessingException {
         // Arrange
         String consultaIdInexistente = "000e0000-e00b-00d0-a000-000000000000";
 
@@ -97,7 +227,9 @@ class ConfirmacaoConsultaConsumerIT {
                 .confirmada(true)
                 .build();
 
-        Message<ConfirmacaoConsultaDTO> message = MessageBuilder.withPayload(dto).build();
+        Message<List<byte[]>> message = MessageBuilder.withPayload(List.of(objectMapper.writeValueAsBytes(dto)))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+                .build();
 
         long countAntes = consultaRepository.count();
 
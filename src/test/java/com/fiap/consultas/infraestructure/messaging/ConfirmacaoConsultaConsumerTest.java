@@ -1,17 +1,34 @@
 package com.fiap.consultas.infraestructure.messaging;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
 import com.fiap.consultas.application.usecases.ReceberConfirmacaoConsultaUseCase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.integration.amqp.inbound.AmqpInboundChannelAdapter;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -20,64 +37,268 @@ class ConfirmacaoConsultaConsumerTest {
     @Mock
     private ReceberConfirmacaoConsultaUseCase receberConfirmacaoConsultaUseCase;
 
-    private Consumer<Message<ConfirmacaoConsultaDTO>> messageConsumer;
+    @Mock
+    private StreamBridge streamBridge;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private Consumer<Message<List<byte[]>>> messageConsumer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CodecBinarioMensagens codec = new CodecBinarioMensagens();
+
+    private final ConfirmacaoConsultaDTO confirmada = ConfirmacaoConsultaDTO.builder().consultaId("123").confirmada(true).build();
+    private final ConfirmacaoConsultaDTO recusada = ConfirmacaoConsultaDTO.builder().consultaId("789").confirmada(false).build();
 
     @BeforeEach
     void setUp() {
-        ConfirmacaoConsultaConsumer confirmacaoConsultaConsumer = new ConfirmacaoConsultaConsumer(receberConfirmacaoConsultaUseCase);
+        meterRegistry = new SimpleMeterRegistry();
+        ConfirmacaoConsultaConsumer confirmacaoConsultaConsumer = new ConfirmacaoConsultaConsumer(receberConfirmacaoConsultaUseCase,
+                new TravasPorChave(16), new PoliticaReprocessamento(3, Duration.ofSeconds(1), Duration.ofSeconds(10)),
+                new ConversorMensagemBinaria(codec), objectMapper, streamBridge, meterRegistry);
         messageConsumer = confirmacaoConsultaConsumer.receberConfirmacaoConsulta();
     }
 
     @Test
-    void deveChamarUseCaseAoReceberMensagemValida() {
+    void deveChamarUseCaseComLoteRecebido() {
+        // Arrange
+        List<ConfirmacaoConsultaDTO> lote = List.of(confirmada, recusada);
+
+        // Act
+        messageConsumer.accept(MessageBuilder.withPayload(json(lote)).build());
+
+        // Assert
+        verify(receberConfirmacaoConsultaUseCase, times(1)).executarLote(lote);
+        verifyNoInteractions(streamBridge);
+    }
+
+    @Test
+    void deveReprocessarComAtrasoSomenteConfirmacaoQueFalhaIndividualmente() {
+        // Arrange
+        List<ConfirmacaoConsultaDTO> lote = List.of(confirmada, recusada);
+        when(receberConfirmacaoConsultaUseCase.executarLote(lote)).thenThrow(new RuntimeException("Erro simulado"));
+        when(receberConfirmacaoConsultaUseCase.executarLote(List.of(confirmada))).thenReturn(1);
+        when(receberConfirmacaoConsultaUseCase.executarLote(List.of(recusada))).thenThrow(new RuntimeException("Erro simulado"));
+        when(streamBridge.send(eq(ConfirmacaoConsultaConsumer.BINDING_REPROCESSAMENTO), any(Message.class))).thenReturn(true);
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+
+        // Act
+        messageConsumer.accept(MessageBuilder.withPayload(json(lote)).build());
+
+        // Assert
+        verify(streamBridge).send(eq(ConfirmacaoConsultaConsumer.BINDING_REPROCESSAMENTO), captor.capture());
+        Message<?> reprocessamento = captor.getValue();
+        assertEquals(recusada, reprocessamento.getPayload());
+        assertEquals(1, reprocessamento.getHeaders().get(ConfirmacaoConsultaConsumer.HEADER_TENTATIVAS));
+        long atrasoMs = Long.parseLong((String) reprocessamento.getHeaders().get(AmqpHeaders.EXPIRATION));
+        assertTrue(atrasoMs >= 500 && atrasoMs <= 1000);
+        assertEquals("1000", reprocessamento.getHeaders().get(ConfirmacaoConsultaConsumer.HEADER_FAIXA));
+        assertEquals(1.0, meterRegistry.get("consultas.confirmacoes.reprocessadas").counter().count());
+    }
+
+    @Test
+    void deveEscolherAFaixaDeEsperaPelaTentativa() {
         // Arrange
-        String consultaId = "123";
-        ConfirmacaoConsultaDTO dto = ConfirmacaoConsultaDTO.builder()
-                .consultaId(consultaId)
-                .confirmada(true)
-                .build();
-        Message<ConfirmacaoConsultaDTO> message = MessageBuilder.withPayload(dto).build();
+        List<ConfirmacaoConsultaDTO> lote = List.of(confirmada);
+        when(receberConfirmacaoConsultaUseCase.executarLote(lote)).thenThrow(new RuntimeException("Erro simulado"));
+        when(streamBridge.send(eq(ConfirmacaoConsultaConsumer.BINDING_REPROCESSAMENTO), any(Message.class))).thenReturn(true);
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
 
         // Act
-        messageConsumer.accept(message);
+        messageConsumer.accept(MessageBuilder.withPayload(json(lote))
+                .setHeader(ConfirmacaoConsultaConsumer.HEADER_TENTATIVAS, 2)
+                .build());
 
         // Assert
-        verify(receberConfirmacaoConsultaUseCase, times(1)).executar(dto);
+        verify(streamBridge).send(eq(ConfirmacaoConsultaConsumer.BINDING_REPROCESSAMENTO), captor.capture());
+        Message<?> reprocessamento = captor.getValue();
+        assertEquals(3, reprocessamento.getHeaders().get(ConfirmacaoConsultaConsumer.HEADER_TENTATIVAS));
+        assertEquals("4000", reprocessamento.getHeaders().get(ConfirmacaoConsultaConsumer.HEADER_FAIXA));
+        long atrasoMs = Long.parseLong((String) reprocessamento.getHeaders().get(AmqpHeaders.EXPIRATION));
+        assertTrue(atrasoMs >= 2000 && atrasoMs <= 4000);
     }
 
     @Test
-    void deveCapturarExcecaoQuandoUseCaseFalhar() {
+    void deveAplicarIndividualmenteQuandoLoteEsgotaTentativasPorConflito() {
         // Arrange
-        String consultaId = "456";
-        ConfirmacaoConsultaDTO dto = ConfirmacaoConsultaDTO.builder()
-                .consultaId(consultaId)
-                .confirmada(true)
-                .build();
-        Message<ConfirmacaoConsultaDTO> message = MessageBuilder.withPayload(dto).build();
+        List<ConfirmacaoConsultaDTO> lote = List.of(confirmada, recusada);
+        when(receberConfirmacaoConsultaUseCase.executarLote(lote))
+                .thenThrow(new ObjectOptimisticLockingFailureException("Consulta", "123"));
+        when(receberConfirmacaoConsultaUseCase.executarLote(List.of(confirmada))).thenReturn(1);
+        when(receberConfirmacaoConsultaUseCase.executarLote(List.of(recusada))).thenReturn(1);
 
-        doThrow(new RuntimeException("Erro simulado")).when(receberConfirmacaoConsultaUseCase).executar(dto);
+        // Act
+        messageConsumer.accept(MessageBuilder.withPayload(json(lote)).build());
+
+        // Assert
+        verify(receberConfirmacaoConsultaUseCase).executarLote(List.of(confirmada));
+        verify(receberConfirmacaoConsultaUseCase).executarLote(List.of(recusada));
+        verifyNoInteractions(streamBridge);
+    }
+
+    @Test
+    void deveEnviarParaDlqAposEsgotarTentativas() {
+        // Arrange
+        List<ConfirmacaoConsultaDTO> lote = List.of(recusada);
+        when(receberConfirmacaoConsultaUseCase.executarLote(lote)).thenThrow(new RuntimeException("Erro simulado"));
+        when(streamBridge.send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE), any(Message.class))).thenReturn(true);
 
         // Act
-        messageConsumer.accept(message);
+        messageConsumer.accept(MessageBuilder.withPayload(json(lote))
+                .setHeader(ConfirmacaoConsultaConsumer.HEADER_TENTATIVAS, 3)
+                .build());
 
         // Assert
-        verify(receberConfirmacaoConsultaUseCase, times(1)).executar(dto);
+        verify(streamBridge).send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE), any(Message.class));
+        verify(streamBridge, never()).send(eq(ConfirmacaoConsultaConsumer.BINDING_REPROCESSAMENTO), any(Message.class));
+        assertEquals(1.0, meterRegistry.get("consultas.confirmacoes.descartadas").counter().count());
     }
 
     @Test
-    void deveProcessarMensagemQuandoConsultaNaoConfirmada() {
+    void deveLerTentativasDeCadaMensagemDoLote() {
         // Arrange
-        String consultaId = "789";
-        ConfirmacaoConsultaDTO dto = ConfirmacaoConsultaDTO.builder()
-                .consultaId(consultaId)
-                .confirmada(false)
-                .build();
-        Message<ConfirmacaoConsultaDTO> message = MessageBuilder.withPayload(dto).build();
+        List<ConfirmacaoConsultaDTO> lote = List.of(confirmada, recusada);
+        when(receberConfirmacaoConsultaUseCase.executarLote(any())).thenThrow(new RuntimeException("Erro simulado"));
+        when(streamBridge.send(any(String.class), any(Message.class))).thenReturn(true);
 
         // Act
-        messageConsumer.accept(message);
+        messageConsumer.accept(MessageBuilder.withPayload(json(lote))
+                .setHeader(AmqpInboundChannelAdapter.CONSOLIDATED_HEADERS, List.of(
+                        Map.of(ConfirmacaoConsultaConsumer.HEADER_TENTATIVAS, 1),
+                        Map.of(ConfirmacaoConsultaConsumer.HEADER_TENTATIVAS, 3)))
+                .build());
 
         // Assert
-        verify(receberConfirmacaoConsultaUseCase, times(1)).executar(dto);
+        verify(streamBridge).send(eq(ConfirmacaoConsultaConsumer.BINDING_REPROCESSAMENTO),
+                argThat((Message<?> mensagem) -> confirmada.equals(mensagem.getPayload())
+                        && Integer.valueOf(2).equals(mensagem.getHeaders().get(ConfirmacaoConsultaConsumer.HEADER_TENTATIVAS))));
+        verify(streamBridge).send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE),
+                argThat((Message<?> mensagem) -> recusada.equals(mensagem.getPayload())));
+    }
+
+    @Test
+    void deveEnviarSomenteAConfirmacaoParaDlqQuandoNaoConsegueRepublicar() {
+        // Arrange
+        List<ConfirmacaoConsultaDTO> lote = List.of(confirmada, recusada);
+        when(receberConfirmacaoConsultaUseCase.executarLote(lote)).thenThrow(new RuntimeException("Erro simulado"));
+        when(receberConfirmacaoConsultaUseCase.executarLote(List.of(confirmada))).thenThrow(new RuntimeException("Erro simulado"));
+        when(receberConfirmacaoConsultaUseCase.executarLote(List.of(recusada))).thenThrow(new RuntimeException("Erro simulado"));
+        when(streamBridge.send(eq(ConfirmacaoConsultaConsumer.BINDING_REPROCESSAMENTO), any(Message.class)))
+                .thenReturn(false)
+                .thenReturn(true);
+        when(streamBridge.send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE), any(Message.class))).thenReturn(true);
+
+        // Act
+        messageConsumer.accept(MessageBuilder.withPayload(json(lote)).build());
+
+        // Assert
+        verify(streamBridge).send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE),
+                argThat((Message<?> mensagem) -> confirmada.equals(mensagem.getPayload())));
+        verify(streamBridge, times(2)).send(eq(ConfirmacaoConsultaConsumer.BINDING_REPROCESSAMENTO), any(Message.class));
+        assertEquals(1.0, meterRegistry.get("consultas.confirmacoes.descartadas").counter().count());
+        assertEquals(1.0, meterRegistry.get("consultas.confirmacoes.reprocessadas").counter().count());
+    }
+
+    @Test
+    void deveEnviarParaDlqQuandoRepublicacaoLancarExcecao() {
+        // Arrange
+        List<ConfirmacaoConsultaDTO> lote = List.of(confirmada);
+        when(receberConfirmacaoConsultaUseCase.executarLote(lote)).thenThrow(new RuntimeException("Erro simulado"));
+        when(streamBridge.send(eq(ConfirmacaoConsultaConsumer.BINDING_REPROCESSAMENTO), any(Message.class)))
+                .thenThrow(new IllegalStateException("broker indisponível"));
+        when(streamBridge.send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE), any(Message.class))).thenReturn(true);
+
+        // Act
+        messageConsumer.accept(MessageBuilder.withPayload(json(lote)).build());
+
+        // Assert
+        verify(streamBridge).send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE), any(Message.class));
+        assertEquals(0.0, meterRegistry.get("consultas.confirmacoes.reprocessadas").counter().count());
+    }
+
+    @Test
+    void devePropagarExcecaoQuandoNaoConsegueRepublicarNemDescartar() {
+        // Arrange
+        List<ConfirmacaoConsultaDTO> lote = List.of(confirmada);
+        when(receberConfirmacaoConsultaUseCase.executarLote(lote)).thenThrow(new RuntimeException("Erro simulado"));
+        when(streamBridge.send(any(String.class), any(Message.class))).thenReturn(false);
+        Message<List<byte[]>> mensagem = MessageBuilder.withPayload(json(lote)).build();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> messageConsumer.accept(mensagem));
+    }
+
+    @Test
+    void deveConverterLoteBinario() {
+        // Arrange
+        List<byte[]> conteudos = List.of(codec.codificar(confirmada), codec.codificar(recusada));
+
+        // Act
+        messageConsumer.accept(MessageBuilder.withPayload(conteudos)
+                .setHeader(MessageHeaders.CONTENT_TYPE, ConversorMensagemBinaria.CONTENT_TYPE)
+                .build());
+
+        // Assert
+        verify(receberConfirmacaoConsultaUseCase).executarLote(List.of(confirmada, recusada));
+    }
+
+    @Test
+    void deveConverterCadaMensagemDoLoteComSeuProprioContentType() throws JsonProcessingException {
+        // Arrange
+        List<byte[]> conteudos = List.of(codec.codificar(confirmada), objectMapper.writeValueAsBytes(recusada));
+
+        // Act
+        messageConsumer.accept(MessageBuilder.withPayload(conteudos)
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+                .setHeader(AmqpInboundChannelAdapter.CONSOLIDATED_HEADERS, List.of(
+                        Map.of(MessageHeaders.CONTENT_TYPE, ConversorMensagemBinaria.CONTENT_TYPE),
+                        Map.of(MessageHeaders.CONTENT_TYPE, "application/json")))
+                .build());
+
+        // Assert
+        verify(receberConfirmacaoConsultaUseCase).executarLote(List.of(confirmada, recusada));
+        verifyNoInteractions(streamBridge);
+    }
+
+    @Test
+    void deveEnviarParaDlqSomenteMensagemIlegivelDoLote() throws JsonProcessingException {
+        // Arrange
+        byte[] ilegivel = "nao e json".getBytes(StandardCharsets.UTF_8);
+        List<byte[]> conteudos = List.of(objectMapper.writeValueAsBytes(confirmada), ilegivel);
+        when(streamBridge.send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE), any(Message.class))).thenReturn(true);
+
+        // Act
+        messageConsumer.accept(MessageBuilder.withPayload(conteudos).build());
+
+        // Assert
+        verify(receberConfirmacaoConsultaUseCase).executarLote(List.of(confirmada));
+        verify(streamBridge).send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE),
+                argThat((Message<?> mensagem) -> mensagem.getPayload() instanceof byte[] conteudo && Arrays.equals(ilegivel, conteudo)));
+        assertEquals(1.0, meterRegistry.get("consultas.confirmacoes.descartadas").counter().count());
+    }
+
+    @Test
+    void deveEnviarParaDlqMensagemComContentTypeNaoSuportado() {
+        // Arrange
+        when(streamBridge.send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE), any(Message.class))).thenReturn(true);
+
+        // Act
+        messageConsumer.accept(MessageBuilder.withPayload(List.of(codec.codificar(confirmada)))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "text/plain")
+                .build());
+
+        // Assert
+        verifyNoInteractions(receberConfirmacaoConsultaUseCase);
+        verify(streamBridge).send(eq(ConfirmacaoConsultaConsumer.BINDING_DESCARTE), any(Message.class));
+    }
+
+    private List<byte[]> json(List<ConfirmacaoConsultaDTO> confirmacoes) {
+        return confirmacoes.stream().map(confirmacao -> {
+            try {
+                return objectMapper.writeValueAsBytes(confirmacao);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList();
     }
-}
\ No newline at end of file
+}
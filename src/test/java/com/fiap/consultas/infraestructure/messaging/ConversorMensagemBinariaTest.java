@@ -0,0 +1,74 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import com.fiap.consultas.application.dtos.ConfirmacaoConsultaDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversorMensagemBinariaTest {
+
+    private final CodecBinarioMensagens codec = new CodecBinarioMensagens();
+    private final ConversorMensagemBinaria conversor = new ConversorMensagemBinaria(codec);
+
+    @Test
+    void deveConverterMensagemComContentTypeBinario() {
+        // Arrange
+        ConfirmacaoConsultaDTO confirmacao = new ConfirmacaoConsultaDTO(UUID.randomUUID().toString(), true);
+        Message<byte[]> mensagem = MessageBuilder.withPayload(codec.codificar(confirmacao))
+                .setHeader(MessageHeaders.CONTENT_TYPE, ConversorMensagemBinaria.CONTENT_TYPE)
+                .build();
+
+        // Act
+        Object convertida = conversor.fromMessage(mensagem, ConfirmacaoConsultaDTO.class);
+
+        // Assert
+        assertEquals(confirmacao, convertida);
+    }
+
+    @Test
+    void deveIgnorarMensagemJson() {
+        // Arrange
+        Message<byte[]> mensagem = MessageBuilder.withPayload("{\"consultaId\":\"1\",\"confirmada\":true}".getBytes())
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+                .build();
+
+        // Act
+        Object convertida = conversor.fromMessage(mensagem, ConfirmacaoConsultaDTO.class);
+
+        // Assert
+        assertNull(convertida);
+    }
+
+    @Test
+    void deveIgnorarMensagemSemContentType() {
+        // Arrange
+        ConfirmacaoConsultaDTO confirmacao = new ConfirmacaoConsultaDTO(UUID.randomUUID().toString(), true);
+        Message<byte[]> mensagem = MessageBuilder.withPayload(codec.codificar(confirmacao)).build();
+
+        // Act
+        Object convertida = conversor.fromMessage(mensagem, ConfirmacaoConsultaDTO.class);
+
+        // Assert
+        assertNull(convertida);
+    }
+
+    @Test
+    void deveCodificarPayloadAoGerarMensagem() {
+        // Arrange
+        ConfirmacaoConsultaDTO confirmacao = new ConfirmacaoConsultaDTO(UUID.randomUUID().toString(), false);
+        MessageHeaders headers = new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, ConversorMensagemBinaria.CONTENT_TYPE));
+
+        // Act
+        Message<?> mensagem = conversor.toMessage(confirmacao, headers);
+
+        // Assert
+        assertNotNull(mensagem);
+        assertEquals(confirmacao, codec.decodificarConfirmacao((byte[]) mensagem.getPayload()));
+    }
+}
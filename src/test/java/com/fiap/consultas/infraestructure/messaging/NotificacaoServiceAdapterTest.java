@@ -1,16 +1,20 @@
 package com.fiap.consultas.infraestructure.messaging;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fiap.consultas.application.dtos.NotificacaoDTO;
 import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoOutboxJpaEntity;
+import com.fiap.consultas.infraestructure.persistence.repositories.NotificacaoOutboxJpaRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.cloud.stream.function.StreamBridge;
 
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
 
@@ -18,22 +22,72 @@ import static org.mockito.Mockito.times;
 class NotificacaoServiceAdapterTest {
 
     @Mock
-    private StreamBridge streamBridge;
+    private NotificacaoOutboxJpaRepository notificacaoOutboxJpaRepository;
 
-    private NotificacaoServiceAdapter notificacaoServiceAdapter;
+    @Mock
+    private RelayNotificacoesOutbox relayNotificacoesOutbox;
 
-    private static final String DESTINATION_BINDING = "enviarNotificacao-out-0";
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final CodecBinarioMensagens codecBinarioMensagens = new CodecBinarioMensagens();
+
+    private NotificacaoServiceAdapter notificacaoServiceAdapter;
 
     @BeforeEach
     void setUp() {
-        notificacaoServiceAdapter = new NotificacaoServiceAdapter(streamBridge);
+        notificacaoServiceAdapter = new NotificacaoServiceAdapter(notificacaoOutboxJpaRepository, objectMapper,
+                codecBinarioMensagens, relayNotificacoesOutbox, "application/json");
     }
 
     @Test
-    void deveEnviarNotificacaoComSucesso() {
+    void deveGravarNotificacaoNoOutbox() throws Exception {
         // Arrange
         UUID consultaId = UUID.randomUUID();
-        NotificacaoDTO notificacao = NotificacaoDTO.builder()
+        NotificacaoDTO notificacao = criarNotificacao(consultaId);
+        ArgumentCaptor<NotificacaoOutboxJpaEntity> captor = ArgumentCaptor.forClass(NotificacaoOutboxJpaEntity.class);
+
+        // Act
+        notificacaoServiceAdapter.enviarNotificacao(notificacao);
+
+        // Assert
+        verify(notificacaoOutboxJpaRepository, times(1)).save(captor.capture());
+        NotificacaoOutboxJpaEntity registro = captor.getValue();
+        assertEquals(consultaId, registro.getConsultaId());
+        assertEquals(TipoNotificacao.ENTRADA_LISTA_ESPERA, registro.getTipo());
+        assertEquals(0, registro.getTentativas());
+        assertNotNull(registro.getDataCriacao());
+        assertEquals("application/json", registro.getContentType());
+        assertEquals(notificacao, objectMapper.readValue(registro.getConteudo(), NotificacaoDTO.class));
+        verify(relayNotificacoesOutbox).registrarPendente();
+    }
+
+    @Test
+    void deveGravarNotificacaoNoFormatoBinarioQuandoConfigurado() {
+        // Arrange
+        NotificacaoServiceAdapter adapterBinario = new NotificacaoServiceAdapter(notificacaoOutboxJpaRepository, objectMapper,
+                codecBinarioMensagens, relayNotificacoesOutbox, ConversorMensagemBinaria.CONTENT_TYPE);
+        NotificacaoDTO notificacao = criarNotificacao(UUID.randomUUID());
+        ArgumentCaptor<NotificacaoOutboxJpaEntity> captor = ArgumentCaptor.forClass(NotificacaoOutboxJpaEntity.class);
+
+        // Act
+        adapterBinario.enviarNotificacao(notificacao);
+
+        // Assert
+        verify(notificacaoOutboxJpaRepository).save(captor.capture());
+        NotificacaoOutboxJpaEntity registro = captor.getValue();
+        assertEquals(ConversorMensagemBinaria.CONTENT_TYPE, registro.getContentType());
+        assertEquals(notificacao, codecBinarioMensagens.decodificarNotificacao(registro.getConteudo()));
+    }
+
+    @Test
+    void deveRejeitarFormatoDeMensagemDesconhecido() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new NotificacaoServiceAdapter(notificacaoOutboxJpaRepository,
+                objectMapper, codecBinarioMensagens, relayNotificacoesOutbox, "text/plain"));
+    }
+
+    private NotificacaoDTO criarNotificacao(UUID consultaId) {
+        return NotificacaoDTO.builder()
                 .consultaId(consultaId)
                 .nomePaciente("João Silva")
                 .email("joao.silva@example.com")
@@ -44,11 +98,5 @@ class NotificacaoServiceAdapterTest {
                 .dataConsulta("2023-10-15 14:30")
                 .tipoNotificacao(TipoNotificacao.ENTRADA_LISTA_ESPERA)
                 .build();
-
-        // Act
-        notificacaoServiceAdapter.enviarNotificacao(notificacao);
-
-        // Assert
-        verify(streamBridge, times(1)).send(DESTINATION_BINDING, notificacao);
     }
-}
\ No newline at end of file
+}
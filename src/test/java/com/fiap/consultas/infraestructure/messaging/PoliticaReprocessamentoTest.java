@@ -0,0 +1,61 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoliticaReprocessamentoTest {
+
+    private final PoliticaReprocessamento politica = new PoliticaReprocessamento(5, Duration.ofSeconds(1), Duration.ofSeconds(10));
+
+    @Test
+    void deveDobrarAtrasoACadaTentativaComJitter() {
+        for (int i = 0; i < 100; i++) {
+            assertEntre(500, 1000, politica.atraso(1));
+            assertEntre(1000, 2000, politica.atraso(2));
+            assertEntre(2000, 4000, politica.atraso(3));
+        }
+    }
+
+    @Test
+    void deveLimitarAtrasoAoMaximoConfigurado() {
+        for (int i = 0; i < 100; i++) {
+            assertEntre(5000, 10000, politica.atraso(10));
+            assertEntre(5000, 10000, politica.atraso(100));
+        }
+    }
+
+    @Test
+    void devePermitirReprocessarAteOMaximoDeTentativas() {
+        assertTrue(politica.podeReprocessar(0));
+        assertTrue(politica.podeReprocessar(4));
+        assertFalse(politica.podeReprocessar(5));
+    }
+
+    @Test
+    void deveDobrarAsFaixasAteOAtrasoMaximo() {
+        assertEquals(List.of(Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(4), Duration.ofSeconds(8),
+                Duration.ofSeconds(10)), politica.faixas());
+        assertEquals(Duration.ofSeconds(4), politica.faixa(3));
+        assertEquals(Duration.ofSeconds(10), politica.faixa(50));
+    }
+
+    @Test
+    void deveRejeitarAtrasoInicialZero() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PoliticaReprocessamento(3, Duration.ZERO, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void deveRejeitarAtrasoMaximoMenorQueInicial() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PoliticaReprocessamento(3, Duration.ofSeconds(10), Duration.ofSeconds(1)));
+    }
+
+    private void assertEntre(long minimoMs, long maximoMs, Duration atraso) {
+        assertTrue(atraso.toMillis() >= minimoMs && atraso.toMillis() <= maximoMs, "atraso fora da faixa: " + atraso);
+    }
+}
@@ -0,0 +1,293 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoOutboxJpaEntity;
+import com.fiap.consultas.infraestructure.persistence.repositories.NotificacaoOutboxJpaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.data.domain.Pageable;
+import org.springframework.messaging.Message;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RelayNotificacoesOutboxTest {
+
+    private static final String DESTINATION_BINDING = "enviarNotificacao-out-0";
+
+    @Mock
+    private NotificacaoOutboxJpaRepository notificacaoOutboxJpaRepository;
+
+    @Mock
+    private StreamBridge streamBridge;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RelayNotificacoesOutbox relay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = criarRelay(0, true);
+    }
+
+    @Test
+    void deveRemoverDoOutboxSomenteAsConfirmadas() {
+        // Arrange
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(1L), criarRegistro(2L)));
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenAnswer(invocation -> {
+            Message<?> mensagem = invocation.getArgument(1);
+            CorrelationData correlacao = mensagem.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, CorrelationData.class);
+            correlacao.getFuture().complete(new CorrelationData.Confirm("1".equals(correlacao.getId()), null));
+            return true;
+        });
+
+        // Act
+        int confirmadas = relay.publicarLote();
+
+        // Assert
+        assertEquals(1, confirmadas);
+        verify(notificacaoOutboxJpaRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(notificacaoOutboxJpaRepository).incrementarTentativas(List.of(2L));
+    }
+
+    @Test
+    void deveManterNoOutboxQuandoBrokerNaoConfirmaNoPrazo() {
+        // Arrange
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(1L)));
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenReturn(true);
+
+        // Act
+        int confirmadas = relay.publicarLote();
+
+        // Assert
+        assertEquals(0, confirmadas);
+        verify(notificacaoOutboxJpaRepository, never()).deleteAllByIdInBatch(any());
+        verify(notificacaoOutboxJpaRepository).incrementarTentativas(List.of(1L));
+    }
+
+    @Test
+    void deveManterNoOutboxQuandoEnvioFalha() {
+        // Arrange
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(1L)));
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenReturn(false);
+
+        // Act
+        relay.publicarLote();
+
+        // Assert
+        verify(notificacaoOutboxJpaRepository).incrementarTentativas(List.of(1L));
+    }
+
+    @Test
+    void devePublicarPayloadGravadoComoJson() {
+        // Arrange
+        relay = criarRelay(0, false);
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(7L)));
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenReturn(true);
+
+        // Act
+        relay.publicarLote();
+
+        // Assert
+        verify(streamBridge).send(eq(DESTINATION_BINDING), argThat((Message<?> mensagem) ->
+                "{\"consultaId\":7}".equals(new String((byte[]) mensagem.getPayload(), StandardCharsets.UTF_8))
+                        && "application/json".equals(String.valueOf(mensagem.getHeaders().get("contentType")))));
+        verify(notificacaoOutboxJpaRepository).deleteAllByIdInBatch(List.of(7L));
+    }
+
+    @Test
+    void devePublicarNovamenteEnquantoLotesSaemCheios() {
+        // Arrange
+        relay = criarRelay(0, false);
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(1L), criarRegistro(2L)))
+                .thenReturn(List.of(criarRegistro(3L)));
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenReturn(true);
+
+        // Act
+        relay.publicarPendentes();
+
+        // Assert
+        verify(notificacaoOutboxJpaRepository, times(2)).findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class));
+        verify(streamBridge, times(3)).send(eq(DESTINATION_BINDING), any(Message.class));
+    }
+
+    @Test
+    void naoDeveFazerNadaQuandoOutboxVazio() {
+        // Arrange
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of());
+
+        // Act
+        int confirmadas = relay.publicarLote();
+
+        // Assert
+        assertEquals(0, confirmadas);
+        verifyNoInteractions(streamBridge);
+    }
+
+    @Test
+    void deveReenviarNoLoteSomenteAsNaoConfirmadas() {
+        // Arrange
+        relay = criarRelay(1, true);
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(1L), criarRegistro(2L)));
+        AtomicInteger enviosDaSegunda = new AtomicInteger();
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenAnswer(invocation -> {
+            Message<?> mensagem = invocation.getArgument(1);
+            CorrelationData correlacao = mensagem.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, CorrelationData.class);
+            boolean ack = "1".equals(correlacao.getId()) || enviosDaSegunda.incrementAndGet() > 1;
+            correlacao.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+            return true;
+        });
+
+        // Act
+        int confirmadas = relay.publicarLote();
+
+        // Assert
+        assertEquals(2, confirmadas);
+        assertEquals(2, enviosDaSegunda.get());
+        verify(streamBridge, times(3)).send(eq(DESTINATION_BINDING), any(Message.class));
+        verify(notificacaoOutboxJpaRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(notificacaoOutboxJpaRepository, never()).incrementarTentativas(any());
+    }
+
+    @Test
+    void deveMoverParaFalhasNotificacoesQueEsgotamTentativas() {
+        // Arrange
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(1L), criarRegistro(2L)));
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenReturn(false);
+        when(notificacaoOutboxJpaRepository.copiarEsgotadasParaFalhas(eq(List.of(1L, 2L)), eq(3), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        // Act
+        relay.publicarLote();
+
+        // Assert
+        InOrder ordem = inOrder(notificacaoOutboxJpaRepository);
+        ordem.verify(notificacaoOutboxJpaRepository).incrementarTentativas(List.of(1L, 2L));
+        ordem.verify(notificacaoOutboxJpaRepository).copiarEsgotadasParaFalhas(eq(List.of(1L, 2L)), eq(3), any(LocalDateTime.class));
+        ordem.verify(notificacaoOutboxJpaRepository).removerEsgotadas(List.of(1L, 2L), 3);
+        assertEquals(1.0, meterRegistry.get("notificacoes.outbox.descartadas").counter().count());
+    }
+
+    @Test
+    void naoDeveRemoverDoOutboxQuandoNenhumaEsgotouTentativas() {
+        // Arrange
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(1L)));
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenReturn(false);
+
+        // Act
+        relay.publicarLote();
+
+        // Assert
+        verify(notificacaoOutboxJpaRepository).copiarEsgotadasParaFalhas(eq(List.of(1L)), eq(3), any(LocalDateTime.class));
+        verify(notificacaoOutboxJpaRepository, never()).removerEsgotadas(any(), anyInt());
+    }
+
+    @Test
+    void deveRejeitarMaximoDeTentativasInvalido() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new RelayNotificacoesOutbox(notificacaoOutboxJpaRepository,
+                streamBridge, transactionManager, meterRegistry, 2, 200, 100, 0, 0, 1000, true));
+    }
+
+    @Test
+    void deveRejeitarReservaMenorQueEsperaPelasConfirmacoes() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new RelayNotificacoesOutbox(notificacaoOutboxJpaRepository,
+                streamBridge, transactionManager, meterRegistry, 2, 200, 100, 1, 3, 200, true));
+    }
+
+    @Test
+    void devePublicarForaDaTransacaoQueReservaOLote() {
+        // Arrange
+        relay = criarRelay(0, false);
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(1L)));
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenReturn(true);
+        LocalDateTime antes = LocalDateTime.now();
+
+        // Act
+        relay.publicarLote();
+
+        // Assert
+        ArgumentCaptor<LocalDateTime> reservadoAte = ArgumentCaptor.forClass(LocalDateTime.class);
+        InOrder ordem = inOrder(notificacaoOutboxJpaRepository, transactionManager, streamBridge);
+        ordem.verify(notificacaoOutboxJpaRepository).reservar(eq(List.of(1L)), reservadoAte.capture());
+        ordem.verify(transactionManager).commit(any());
+        ordem.verify(streamBridge).send(eq(DESTINATION_BINDING), any(Message.class));
+        ordem.verify(transactionManager).getTransaction(any());
+        ordem.verify(notificacaoOutboxJpaRepository).deleteAllByIdInBatch(List.of(1L));
+        ordem.verify(transactionManager).commit(any());
+        assertFalse(reservadoAte.getValue().isBefore(antes.plusSeconds(1)));
+    }
+
+    @Test
+    void deveRegistrarMetricasDeVazaoELatenciaDeConfirmacao() {
+        // Arrange
+        when(notificacaoOutboxJpaRepository.findLoteParaPublicacao(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(criarRegistro(1L), criarRegistro(2L)));
+        when(streamBridge.send(eq(DESTINATION_BINDING), any(Message.class))).thenAnswer(invocation -> {
+            Message<?> mensagem = invocation.getArgument(1);
+            CorrelationData correlacao = mensagem.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, CorrelationData.class);
+            if ("1".equals(correlacao.getId())) {
+                correlacao.getFuture().complete(new CorrelationData.Confirm(true, null));
+            }
+            return true;
+        });
+
+        // Act
+        relay.publicarLote();
+
+        // Assert
+        assertEquals(1.0, meterRegistry.get("notificacoes.outbox.publicadas").tag("resultado", "confirmada").counter().count());
+        assertEquals(1.0, meterRegistry.get("notificacoes.outbox.publicadas").tag("resultado", "nao_confirmada").counter().count());
+        assertEquals(1, meterRegistry.get("notificacoes.outbox.confirmacao.latencia").timer().count());
+    }
+
+    private RelayNotificacoesOutbox criarRelay(int reenviosNoLote, boolean aguardarConfirmacao) {
+        return new RelayNotificacoesOutbox(notificacaoOutboxJpaRepository, streamBridge, transactionManager,
+                meterRegistry, 2, 200, 100, reenviosNoLote, 3, 1000, aguardarConfirmacao);
+    }
+
+    private NotificacaoOutboxJpaEntity criarRegistro(Long id) {
+        return NotificacaoOutboxJpaEntity.builder()
+                .id(id)
+                .consultaId(UUID.randomUUID())
+                .tipo(TipoNotificacao.CONFIRMACAO_CONSULTA)
+                .conteudo(("{\"consultaId\":" + id + "}").getBytes(StandardCharsets.UTF_8))
+                .contentType("application/json")
+                .dataCriacao(LocalDateTime.now())
+                .build();
+    }
+}
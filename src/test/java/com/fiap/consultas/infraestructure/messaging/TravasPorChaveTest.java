@@ -0,0 +1,137 @@
+package com.fiap.consultas.infraestructure.messaging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TravasPorChaveTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void deveSerializarExecucoesQueCompartilhamChave() throws Exception {
+        // Arrange
+        TravasPorChave travas = new TravasPorChave(16);
+        CountDownLatch dentroDaPrimeira = new CountDownLatch(1);
+        CountDownLatch liberarPrimeira = new CountDownLatch(1);
+        AtomicInteger execucoesSimultaneas = new AtomicInteger();
+        AtomicInteger maximoSimultaneas = new AtomicInteger();
+
+        // Act
+        Future<Integer> primeira = executor.submit(() -> travas.executar(List.of("a", "b"), () -> {
+            maximoSimultaneas.accumulateAndGet(execucoesSimultaneas.incrementAndGet(), Math::max);
+            dentroDaPrimeira.countDown();
+            aguardar(liberarPrimeira);
+            return execucoesSimultaneas.decrementAndGet();
+        }));
+        assertTrue(dentroDaPrimeira.await(2, TimeUnit.SECONDS));
+        Future<Integer> segunda = executor.submit(() -> travas.executar(List.of("b", "c"), () -> {
+            maximoSimultaneas.accumulateAndGet(execucoesSimultaneas.incrementAndGet(), Math::max);
+            return execucoesSimultaneas.decrementAndGet();
+        }));
+        Thread.sleep(100);
+
+        // Assert
+        assertFalse(segunda.isDone());
+        liberarPrimeira.countDown();
+        assertEquals(0, primeira.get(2, TimeUnit.SECONDS));
+        assertEquals(0, segunda.get(2, TimeUnit.SECONDS));
+        assertEquals(1, maximoSimultaneas.get());
+    }
+
+    @Test
+    void devePermitirExecucoesConcorrentesEmParticoesDiferentes() throws Exception {
+        // Arrange
+        TravasPorChave travas = new TravasPorChave(16);
+        String chaveA = "a";
+        String chaveB = IntStream.range(0, 1000).mapToObj(String::valueOf)
+                .filter(chave -> travas.particao(chave) != travas.particao(chaveA))
+                .findFirst()
+                .orElseThrow();
+        CountDownLatch ambasDentro = new CountDownLatch(2);
+
+        // Act
+        Future<Boolean> primeira = executor.submit(() -> travas.executar(List.of(chaveA), () -> aguardarOutra(ambasDentro)));
+        Future<Boolean> segunda = executor.submit(() -> travas.executar(List.of(chaveB), () -> aguardarOutra(ambasDentro)));
+
+        // Assert
+        assertTrue(primeira.get(2, TimeUnit.SECONDS));
+        assertTrue(segunda.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void naoDeveEntrarEmDeadlockComChavesEmOrdemInversa() throws Exception {
+        // Arrange
+        TravasPorChave travas = new TravasPorChave(8);
+        List<String> chaves = IntStream.range(0, 20).mapToObj(i -> "consulta-" + i).toList();
+        List<String> chavesInvertidas = chaves.reversed();
+        AtomicInteger contador = new AtomicInteger();
+
+        // Act
+        List<Future<?>> execucoes = IntStream.range(0, 200)
+                .mapToObj(i -> executor.submit(() -> travas.executar(i % 2 == 0 ? chaves : chavesInvertidas,
+                        contador::incrementAndGet)))
+                .<Future<?>>map(future -> future)
+                .toList();
+        for (Future<?> execucao : execucoes) {
+            execucao.get(5, TimeUnit.SECONDS);
+        }
+
+        // Assert
+        assertEquals(200, contador.get());
+    }
+
+    @Test
+    void deveLiberarTravasQuandoAcaoFalha() {
+        // Arrange
+        TravasPorChave travas = new TravasPorChave(4);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> travas.executar(List.of("a"), () -> {
+            throw new IllegalStateException("falha");
+        }));
+        Integer resultado = travas.executar(List.of("a"), () -> 1);
+
+        // Assert
+        assertEquals(1, resultado);
+    }
+
+    private boolean aguardarOutra(CountDownLatch ambasDentro) {
+        ambasDentro.countDown();
+        try {
+            return ambasDentro.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
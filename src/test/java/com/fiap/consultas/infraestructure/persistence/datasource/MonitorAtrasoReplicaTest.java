@@ -0,0 +1,144 @@
+package com.fiap.consultas.infraestructure.persistence.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonitorAtrasoReplicaTest {
+
+    private JdbcDataSource replica;
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        replica = new JdbcDataSource();
+        replica.setURL("jdbc:h2:mem:replica-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        clock = new MutableClock(Instant.parse("2025-01-01T10:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void naoDeveUsarReplicaAntesDaPrimeiraVerificacao() {
+        // Arrange
+        MonitorAtrasoReplica monitor = criarMonitor("SELECT 0");
+
+        // Act & Assert
+        assertFalse(monitor.replicaDisponivel());
+    }
+
+    @Test
+    void deveUsarReplicaQuandoAtrasoEstaDentroDoLimite() {
+        // Arrange
+        MonitorAtrasoReplica monitor = criarMonitor("SELECT 2.5");
+
+        // Act
+        monitor.verificar();
+
+        // Assert
+        assertTrue(monitor.replicaDisponivel());
+        assertEquals(2500, meterRegistry.get("consultas.datasource.replica.atraso").gauge().value());
+    }
+
+    @Test
+    void deveDescartarReplicaQuandoAtrasoUltrapassaOLimite() {
+        // Arrange
+        MonitorAtrasoReplica monitor = criarMonitor("SELECT 6");
+
+        // Act
+        monitor.verificar();
+
+        // Assert
+        assertFalse(monitor.replicaDisponivel());
+    }
+
+    @Test
+    void deveSomarOTempoDesdeAUltimaMedicaoAoAtraso() {
+        // Arrange
+        MonitorAtrasoReplica monitor = criarMonitor("SELECT 2");
+        monitor.verificar();
+
+        // Act
+        clock.avancar(Duration.ofSeconds(3));
+        boolean noLimite = monitor.replicaDisponivel();
+        clock.avancar(Duration.ofMillis(1));
+        boolean aposOLimite = monitor.replicaDisponivel();
+
+        // Assert
+        assertTrue(noLimite);
+        assertFalse(aposOLimite);
+    }
+
+    @Test
+    void deveConsiderarAtrasoZeroQuandoServidorNaoEstaEmRecuperacao() {
+        // Arrange
+        MonitorAtrasoReplica monitor = criarMonitor("SELECT CAST(NULL AS DOUBLE PRECISION)");
+
+        // Act
+        monitor.verificar();
+
+        // Assert
+        assertTrue(monitor.replicaDisponivel());
+    }
+
+    @Test
+    void deveVoltarParaPrimariaQuandoVerificacaoFalha() {
+        // Arrange
+        MonitorAtrasoReplica monitor = criarMonitor("SELECT atraso FROM status_replicacao");
+        JdbcTemplate jdbcReplica = new JdbcTemplate(replica);
+        jdbcReplica.execute("CREATE TABLE status_replicacao (atraso DOUBLE PRECISION)");
+        jdbcReplica.update("INSERT INTO status_replicacao VALUES (0)");
+        monitor.verificar();
+        assertTrue(monitor.replicaDisponivel());
+
+        // Act
+        jdbcReplica.execute("DROP TABLE status_replicacao");
+        monitor.verificar();
+
+        // Assert
+        assertFalse(monitor.replicaDisponivel());
+    }
+
+    private MonitorAtrasoReplica criarMonitor(String consultaAtraso) {
+        return new MonitorAtrasoReplica(replica, consultaAtraso, Duration.ofSeconds(5), meterRegistry, clock);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant agora;
+
+        MutableClock(Instant agora) {
+            this.agora = agora;
+        }
+
+        void avancar(Duration duracao) {
+            agora = agora.plus(duracao);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return agora;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.fiap.consultas.infraestructure.persistence.datasource;
+
+import com.fiap.consultas.domain.entities.Consulta;
+import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.domain.repositories.ConsultaRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.EnableTestBinder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A "réplica" é uma segunda base H2 com o mesmo esquema que nunca recebe as escritas da primária, como uma réplica
+// atrasada: o que existe só nela prova uma leitura da réplica, e o que existe só na primária prova uma leitura da primária.
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + RoteamentoDataSourceIT.URL_PRIMARIA,
+        "consultas.datasource.replica.habilitada=true",
+        "consultas.datasource.replica.url=" + RoteamentoDataSourceIT.URL_REPLICA,
+        "consultas.datasource.replica.username=sa",
+        "consultas.datasource.replica.consulta-atraso=SELECT 0"
+})
+@EnableTestBinder
+class RoteamentoDataSourceIT {
+
+    static final String URL_REPLICA = "jdbc:h2:mem:replica-roteamento;DB_CLOSE_DELAY=-1";
+    static final String URL_PRIMARIA = "jdbc:h2:mem:primaria-roteamento;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private ConsultaRepository consultaRepository;
+
+    @Autowired
+    private MonitorAtrasoReplica monitorAtrasoReplica;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UUID consultaSomenteNaReplica;
+
+    @BeforeAll
+    static void criarEsquemaDaReplica() {
+        Flyway.configure()
+                .dataSource(URL_REPLICA, "sa", "")
+                .locations("classpath:db/migration/comum", "classpath:db/migration/h2")
+                .load()
+                .migrate();
+    }
+
+    @BeforeEach
+    void setUp() {
+        consultaSomenteNaReplica = inserir(URL_REPLICA, StatusConsulta.AGENDADA, null);
+        monitorAtrasoReplica.verificar();
+    }
+
+    @Test
+    void deveLerDaReplicaEmTransacaoSomenteLeitura() {
+        // Arrange
+        TransactionTemplate somenteLeitura = new TransactionTemplate(transactionManager);
+        somenteLeitura.setReadOnly(true);
+
+        // Act
+        Boolean encontrada = somenteLeitura.execute(status -> consultaRepository.buscarPorId(consultaSomenteNaReplica).isPresent());
+
+        // Assert
+        assertEquals(Boolean.TRUE, encontrada);
+    }
+
+    @Test
+    void deveLerDaPrimariaNasBuscasPorIdForaDeTransacao() {
+        // Arrange
+        UUID consultaSomenteNaPrimaria = inserir(URL_PRIMARIA, StatusConsulta.AGENDADA, null);
+
+        // Act & Assert
+        assertTrue(consultaRepository.buscarPorId(consultaSomenteNaPrimaria).isPresent());
+        assertFalse(consultaRepository.buscarPorId(consultaSomenteNaReplica).isPresent());
+    }
+
+    @Test
+    void deveLerDaPrimariaAsConsultasDoDisparoDeLembretes() {
+        // Arrange
+        LocalDateTime agora = LocalDateTime.now();
+        UUID consultaSomenteNaPrimaria = inserir(URL_PRIMARIA, StatusConsulta.AGENDADA, agora.plusWeeks(1));
+
+        // Act
+        List<Consulta> consultas = consultaRepository.buscarParaNotificacao(List.of(consultaSomenteNaPrimaria),
+                StatusConsulta.AGENDADA, agora, agora.plusWeeks(2), TipoNotificacao.CONFIRMACAO_CONSULTA);
+
+        // Assert
+        assertEquals(List.of(consultaSomenteNaPrimaria), consultas.stream().map(Consulta::getId).toList());
+    }
+
+    @Test
+    void deveLerDaPrimariaAFilaDeConsultasPendentes() {
+        // Arrange
+        UUID consultaSomenteNaPrimaria = inserir(URL_PRIMARIA, StatusConsulta.PENDENTE_AGENDAMENTO, null);
+
+        // Act
+        List<Consulta> pendentes = consultaRepository.buscarConsultasPendentesAgendamento();
+
+        // Assert
+        assertTrue(pendentes.stream().anyMatch(consulta -> consulta.getId().equals(consultaSomenteNaPrimaria)));
+    }
+
+    @Test
+    void deveLerDaReplicaAsVarredurasEAsContagensDeDisponibilidade() {
+        // Arrange
+        LocalDateTime agora = LocalDateTime.now();
+        String medicoId = "MED-" + UUID.randomUUID();
+        UUID consultaSomenteNaReplica = inserir(URL_REPLICA, StatusConsulta.CONFIRMADA, agora.plusDays(3), medicoId);
+
+        // Act
+        List<Consulta> varridas = consultaRepository.buscarParaNotificacao(StatusConsulta.CONFIRMADA,
+                agora, agora.plusWeeks(1), TipoNotificacao.AVISO_UM_DIA_ANTES);
+        Map<String, Long> contagens = consultaRepository.contarConsultasPorMedicosEIntervalo(List.of(medicoId),
+                agora, agora.plusWeeks(1));
+
+        // Assert
+        assertTrue(varridas.stream().anyMatch(consulta -> consulta.getId().equals(consultaSomenteNaReplica)));
+        assertEquals(1L, contagens.get(medicoId));
+        assertEquals(1L, consultaRepository.contarConsultasPorMedicoEIntervalo(medicoId, agora, agora.plusWeeks(1)));
+    }
+
+    @Test
+    void deveLerDaPrimariaEmTransacaoDeEscrita() {
+        // Act
+        Boolean encontrada = new TransactionTemplate(transactionManager)
+                .execute(status -> consultaRepository.buscarPorId(consultaSomenteNaReplica).isPresent());
+
+        // Assert
+        assertEquals(Boolean.FALSE, encontrada);
+    }
+
+    private static UUID inserir(String url, StatusConsulta status, LocalDateTime dataHora) {
+        return inserir(url, status, dataHora, null);
+    }
+
+    private static UUID inserir(String url, StatusConsulta status, LocalDateTime dataHora, String medicoId) {
+        UUID id = UUID.randomUUID();
+        LocalDateTime agora = LocalDateTime.now();
+        new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")).update(
+                "INSERT INTO consultas (id, paciente_cpf, medico_id, especialidade, cidade, data_hora, prioridade, status, " +
+                        "data_criacao, data_atualizacao) VALUES (?, '12345678900', ?, 'Cardiologia', 'São Paulo', ?, 'MEDIA', ?, ?, ?)",
+                id, medicoId, dataHora, status.name(), agora, agora);
+        return id;
+    }
+}
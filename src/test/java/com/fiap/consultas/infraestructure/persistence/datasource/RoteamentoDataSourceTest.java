@@ -0,0 +1,111 @@
+package com.fiap.consultas.infraestructure.persistence.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Duas bases H2 em memória fazem o papel da primária e da réplica; cada uma responde com o próprio nome.
+class RoteamentoDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transacaoLeitura;
+    private TransactionTemplate transacaoEscrita;
+    private JdbcTemplate jdbcReplica;
+    private MonitorAtrasoReplica monitor;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primaria = criarBase("primaria");
+        DataSource replica = criarBase("replica");
+        jdbcReplica = new JdbcTemplate(replica);
+        jdbcReplica.execute("CREATE TABLE status_replicacao (atraso DOUBLE PRECISION)");
+        jdbcReplica.update("INSERT INTO status_replicacao VALUES (0)");
+        monitor = new MonitorAtrasoReplica(replica, "SELECT atraso FROM status_replicacao", Duration.ofSeconds(5),
+                new SimpleMeterRegistry());
+        monitor.verificar();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(new RoteamentoDataSource(primaria, replica, monitor));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transacaoEscrita = new TransactionTemplate(transactionManager);
+        transacaoLeitura = new TransactionTemplate(transactionManager);
+        transacaoLeitura.setReadOnly(true);
+    }
+
+    @Test
+    void deveEnviarTransacaoSomenteLeituraParaReplica() {
+        // Act
+        String base = transacaoLeitura.execute(status -> baseAtual());
+
+        // Assert
+        assertEquals("replica", base);
+    }
+
+    @Test
+    void deveEnviarTransacaoDeEscritaParaPrimaria() {
+        // Act
+        String base = transacaoEscrita.execute(status -> baseAtual());
+
+        // Assert
+        assertEquals("primaria", base);
+    }
+
+    @Test
+    void deveEnviarChamadasForaDeTransacaoParaPrimaria() {
+        // Act
+        String base = baseAtual();
+
+        // Assert
+        assertEquals("primaria", base);
+    }
+
+    @Test
+    void deveLerDaPrimariaQuandoReplicaEstaAtrasada() {
+        // Arrange
+        jdbcReplica.update("UPDATE status_replicacao SET atraso = 30");
+        monitor.verificar();
+
+        // Act
+        String base = transacaoLeitura.execute(status -> baseAtual());
+
+        // Assert
+        assertEquals("primaria", base);
+    }
+
+    @Test
+    void deveLerDaPrimariaQuandoReplicaEstaIndisponivel() {
+        // Arrange
+        jdbcReplica.execute("DROP TABLE status_replicacao");
+        monitor.verificar();
+
+        // Act
+        String base = transacaoLeitura.execute(status -> baseAtual());
+
+        // Assert
+        assertEquals("primaria", base);
+    }
+
+    private String baseAtual() {
+        return jdbcTemplate.queryForObject("SELECT nome FROM identificacao", String.class);
+    }
+
+    private DataSource criarBase(String nome) {
+        JdbcDataSource base = new JdbcDataSource();
+        base.setURL("jdbc:h2:mem:" + nome + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(base);
+        jdbc.execute("CREATE TABLE identificacao (nome VARCHAR(20))");
+        jdbc.update("INSERT INTO identificacao VALUES (?)", nome);
+        return base;
+    }
+}
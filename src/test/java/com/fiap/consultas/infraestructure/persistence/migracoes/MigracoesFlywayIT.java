@@ -0,0 +1,42 @@
+package com.fiap.consultas.infraestructure.persistence.migracoes;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Simula um banco criado pelo ddl-auto=update, sem histórico do Flyway e com só parte do esquema.
+class MigracoesFlywayIT {
+
+    @Test
+    void deveAdotarBancoCriadoSemFlywayComBaseline() {
+        // Arrange
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:ddl_auto;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE consultas (id UUID NOT NULL PRIMARY KEY, paciente_cpf VARCHAR(255) NOT NULL, " +
+                "medico_id VARCHAR(255), especialidade VARCHAR(255) NOT NULL, cidade VARCHAR(255) NOT NULL, " +
+                "data_hora TIMESTAMP(6), local_consulta VARCHAR(255), prioridade VARCHAR(255) NOT NULL, " +
+                "status VARCHAR(255) NOT NULL, data_criacao TIMESTAMP(6) NOT NULL, data_atualizacao TIMESTAMP(6) NOT NULL)");
+        jdbcTemplate.update("INSERT INTO consultas VALUES (RANDOM_UUID(), '12345678900', NULL, 'Cardiologia', 'São Paulo', " +
+                "NULL, NULL, 'ALTA', 'PENDENTE_AGENDAMENTO', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/comum", "classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load();
+
+        // Act
+        MigrateResult resultado = flyway.migrate();
+
+        // Assert
+        assertTrue(resultado.success);
+        assertEquals("1", resultado.migrations.getFirst().version);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM consultas", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notificacoes_outbox", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT versao FROM consultas", Integer.class));
+    }
+}
@@ -0,0 +1,214 @@
+package com.fiap.consultas.infraestructure.persistence.migracoes;
+
+import com.fiap.consultas.infraestructure.persistence.repositories.ParticoesConsultasRepository;
+import com.fiap.consultas.infraestructure.scheduling.ManutencaoParticoesConsultas;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Roda a cadeia real de migrações do PostgreSQL sobre uma tabela "consultas" já populada (como antes da V3) e
+// exercita a view, os triggers e o job de manutenção das partições.
+@Testcontainers(disabledWithoutDocker = true)
+class ParticionamentoConsultasPostgresIT {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:17.2");
+
+    private static final UUID LEGADA_PENDENTE = UUID.randomUUID();
+    private static final UUID LEGADA_AGENDADA = UUID.randomUUID();
+    private static final UUID LEGADA_EXPIRADA = UUID.randomUUID();
+    private static final YearMonth MES_EXPIRADO = YearMonth.now().minusMonths(6);
+
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path diretorio;
+
+    @BeforeAll
+    static void migrar() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        flyway().target("2").load().migrate();
+        jdbcTemplate.update("INSERT INTO consultas (id, paciente_cpf, medico_id, especialidade, cidade, data_hora, " +
+                "local_consulta, prioridade, status, data_criacao, data_atualizacao) VALUES " +
+                "(?, '12345678900', NULL, 'Cardiologia', 'São Paulo', NULL, NULL, 'ALTA', 'PENDENTE_AGENDAMENTO', now(), now()), " +
+                "(?, '12345678900', 'MED001', 'Cardiologia', 'São Paulo', ?, 'Hospital', 'ALTA', 'AGENDADA', now(), now()), " +
+                "(?, '98765432100', 'MED002', 'Ortopedia', 'São Paulo', ?, 'Hospital', 'BAIXA', 'REALIZADA', now(), now())",
+                LEGADA_PENDENTE, LEGADA_AGENDADA, LocalDateTime.now().plusDays(1),
+                LEGADA_EXPIRADA, MES_EXPIRADO.atDay(10).atTime(10, 0));
+
+        flyway().load().migrate();
+    }
+
+    @Test
+    void deveMigrarConsultasLegadasParaATabelaDeCadaUma() {
+        // Assert
+        assertEquals(1, contar("SELECT count(*) FROM consultas_sem_horario WHERE id = ?", LEGADA_PENDENTE));
+        assertEquals(1, contar("SELECT count(*) FROM consultas_com_horario WHERE id = ?", LEGADA_AGENDADA));
+        assertEquals(1, contar("SELECT count(*) FROM consultas_ids WHERE id = ?", LEGADA_AGENDADA));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT versao FROM consultas WHERE id = ?", Long.class, LEGADA_PENDENTE));
+    }
+
+    @Test
+    void deveGravarPelaViewNaTabelaDeAcordoComOHorario() {
+        // Arrange
+        UUID pendente = UUID.randomUUID();
+        UUID agendada = UUID.randomUUID();
+
+        // Act
+        inserir(pendente, null);
+        inserir(agendada, LocalDateTime.now().plusMonths(1));
+        int atualizadas = jdbcTemplate.update("UPDATE consultas SET status = 'CONFIRMADA', versao = 1 WHERE id = ? AND versao = 0",
+                agendada);
+
+        // Assert
+        assertEquals(1, atualizadas);
+        assertEquals(1, contar("SELECT count(*) FROM consultas_sem_horario WHERE id = ?", pendente));
+        assertEquals(1, contar("SELECT count(*) FROM consultas_com_horario WHERE id = ? AND status = 'CONFIRMADA' AND versao = 1",
+                agendada));
+    }
+
+    @Test
+    void deveRejeitarIdJaUsadoNaOutraTabela() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        inserir(id, null);
+
+        // Act & Assert
+        assertThrows(DuplicateKeyException.class, () -> inserir(id, LocalDateTime.now().plusMonths(1)));
+        assertEquals(0, contar("SELECT count(*) FROM consultas_com_horario WHERE id = ?", id));
+    }
+
+    @Test
+    void deveMoverConsultaEntreAsTabelasQuandoGanhaOuPerdeOHorario() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        inserir(id, null);
+
+        // Act
+        int agendada = jdbcTemplate.update("UPDATE consultas SET data_hora = ?, status = 'AGENDADA', versao = 1 " +
+                "WHERE id = ? AND versao = 0", LocalDateTime.now().plusMonths(1), id);
+        int cancelada = jdbcTemplate.update("UPDATE consultas SET data_hora = NULL, status = 'PENDENTE_AGENDAMENTO', versao = 2 " +
+                "WHERE id = ? AND versao = 1", id);
+
+        // Assert
+        assertEquals(1, agendada);
+        assertEquals(1, cancelada);
+        assertEquals(0, contar("SELECT count(*) FROM consultas_com_horario WHERE id = ?", id));
+        assertEquals(1, contar("SELECT count(*) FROM consultas_sem_horario WHERE id = ? AND versao = 2", id));
+        assertEquals(1, contar("SELECT count(*) FROM consultas_ids WHERE id = ?", id));
+    }
+
+    @Test
+    void deveAfetarZeroLinhasQuandoOutraTransacaoAtualizouAntes() throws Exception {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        inserir(id, LocalDateTime.now().plusMonths(1));
+
+        try (Connection primeira = dataSource.getConnection(); Connection segunda = dataSource.getConnection()) {
+            primeira.setAutoCommit(false);
+            try (PreparedStatement update = primeira.prepareStatement(
+                    "UPDATE consultas SET status = 'CONFIRMADA', versao = 1 WHERE id = ? AND versao = 0")) {
+                update.setObject(1, id);
+                assertEquals(1, update.executeUpdate());
+            }
+
+            // A segunda leitura ainda vê a versão 0 pela view e fica esperando a trava da linha na tabela.
+            CompletableFuture<Integer> concorrente = CompletableFuture.supplyAsync(() -> {
+                try (PreparedStatement update = segunda.prepareStatement(
+                        "UPDATE consultas SET status = 'CANCELADA', versao = 1 WHERE id = ? AND versao = 0")) {
+                    update.setObject(1, id);
+                    return update.executeUpdate();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            aguardarTravaPendente();
+
+            // Act
+            primeira.commit();
+
+            // Assert
+            assertEquals(0, concorrente.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals("CONFIRMADA", jdbcTemplate.queryForObject("SELECT status FROM consultas WHERE id = ?", String.class, id));
+    }
+
+    @Test
+    void deveArquivarParticaoExpiradaELiberarOsIds() throws Exception {
+        // Arrange
+        ParticoesConsultasRepository repository = new ParticoesConsultasRepository(jdbcTemplate);
+        ManutencaoParticoesConsultas manutencao = new ManutencaoParticoesConsultas(repository,
+                new DataSourceTransactionManager(dataSource), 3, 3, diretorio.toString());
+        assertEquals(1, contar("SELECT count(*) FROM " + particao(MES_EXPIRADO) + " WHERE id = ?", LEGADA_EXPIRADA));
+
+        // Act
+        manutencao.executar();
+
+        // Assert
+        assertTrue(Files.exists(diretorio.resolve(particao(MES_EXPIRADO) + ".csv.gz")));
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, particao(MES_EXPIRADO)));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class,
+                particao(YearMonth.now().plusMonths(3))));
+        assertEquals(0, contar("SELECT count(*) FROM consultas WHERE id = ?", LEGADA_EXPIRADA));
+        assertEquals(0, contar("SELECT count(*) FROM consultas_ids WHERE id = ?", LEGADA_EXPIRADA));
+        assertEquals(1, contar("SELECT count(*) FROM consultas_ids WHERE id = ?", LEGADA_AGENDADA));
+    }
+
+    // Como no perfil dev: o CREATE INDEX CONCURRENTLY da V2 ficaria esperando a transação que segura o lock do Flyway.
+    private static FluentConfiguration flyway() {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/comum", "classpath:db/migration/postgresql")
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+    }
+
+    private static void inserir(UUID id, LocalDateTime dataHora) {
+        jdbcTemplate.update("INSERT INTO consultas (id, paciente_cpf, medico_id, especialidade, cidade, data_hora, " +
+                "local_consulta, prioridade, status, data_criacao, data_atualizacao) " +
+                "VALUES (?, '12345678900', NULL, 'Cardiologia', 'São Paulo', ?::timestamp, NULL, 'ALTA', ?, now(), now())",
+                id, dataHora, dataHora == null ? "PENDENTE_AGENDAMENTO" : "AGENDADA");
+    }
+
+    private static int contar(String sql, Object... argumentos) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, argumentos);
+    }
+
+    private static String particao(YearMonth mes) {
+        return "consultas_p" + mes.format(DateTimeFormatter.ofPattern("yyyy_MM"));
+    }
+
+    private static void aguardarTravaPendente() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (contar("SELECT count(*) FROM pg_locks WHERE NOT granted") > 0) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("A atualização concorrente não chegou a esperar pela trava");
+    }
+}
@@ -0,0 +1,110 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase
+@Import(ConfirmacaoProcessadaRepositoryImpl.class)
+class ConfirmacaoProcessadaRepositoryImplIT {
+
+    @Autowired
+    private ConfirmacaoProcessadaJpaRepository confirmacaoProcessadaJpaRepository;
+
+    @Autowired
+    private ConfirmacaoProcessadaRepositoryImpl confirmacaoProcessadaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        confirmacaoProcessadaJpaRepository.deleteAll();
+    }
+
+    @Test
+    void deveIdentificarConfirmacoesJaProcessadas() {
+        // Arrange
+        UUID processada = UUID.randomUUID();
+        UUID nova = UUID.randomUUID();
+        confirmacaoProcessadaRepository.registrar(List.of(processada));
+
+        // Act
+        Set<UUID> resultado = confirmacaoProcessadaRepository.filtrarProcessadas(List.of(processada, nova));
+
+        // Assert
+        assertEquals(Set.of(processada), resultado);
+    }
+
+    @Test
+    void deveManterUmRegistroPorConsulta() {
+        // Arrange
+        UUID consultaId = UUID.randomUUID();
+
+        // Act
+        Set<UUID> primeiro = confirmacaoProcessadaRepository.registrar(List.of(consultaId));
+        Set<UUID> segundo = confirmacaoProcessadaRepository.registrar(List.of(consultaId));
+
+        // Assert
+        assertEquals(Set.of(consultaId), primeiro);
+        assertTrue(segundo.isEmpty());
+        assertEquals(1, confirmacaoProcessadaJpaRepository.count());
+    }
+
+    @Test
+    void deveRegistrarSomenteConsultasAindaNaoProcessadas() {
+        // Arrange
+        UUID processada = UUID.randomUUID();
+        UUID nova = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO confirmacoes_processadas (consulta_id, data_processamento) VALUES (?, ?)",
+                processada, LocalDateTime.now());
+
+        // Act
+        Set<UUID> registradas = confirmacaoProcessadaRepository.registrar(List.of(processada, nova));
+
+        // Assert
+        assertEquals(Set.of(nova), registradas);
+        assertEquals(2, confirmacaoProcessadaJpaRepository.count());
+    }
+
+    @Test
+    void deveRemoverSomenteConfirmacoesForaDaRetencao() {
+        // Arrange
+        UUID antiga = UUID.randomUUID();
+        UUID recente = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO confirmacoes_processadas (consulta_id, data_processamento) VALUES (?, ?)",
+                antiga, LocalDateTime.now().minusDays(31));
+        confirmacaoProcessadaRepository.registrar(List.of(recente));
+
+        // Act
+        confirmacaoProcessadaRepository.removerExpiradas();
+
+        // Assert
+        assertEquals(Set.of(recente), Set.copyOf(confirmacaoProcessadaJpaRepository.findConsultaIdsByConsultaIdIn(List.of(antiga, recente))));
+    }
+
+    @Test
+    void deveVoltarAAceitarConfirmacaoAposRemocao() {
+        // Arrange
+        UUID consultaId = UUID.randomUUID();
+        confirmacaoProcessadaRepository.registrar(List.of(consultaId));
+
+        // Act
+        confirmacaoProcessadaRepository.removerPorConsulta(consultaId);
+
+        // Assert
+        assertTrue(confirmacaoProcessadaRepository.filtrarProcessadas(List.of(consultaId)).isEmpty());
+    }
+}
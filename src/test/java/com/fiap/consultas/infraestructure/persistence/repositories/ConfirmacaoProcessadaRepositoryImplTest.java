@@ -0,0 +1,135 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConfirmacaoProcessadaRepositoryImplTest {
+
+    @Mock
+    private ConfirmacaoProcessadaJpaRepository confirmacaoProcessadaJpaRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ConfirmacaoProcessadaRepositoryImpl confirmacaoProcessadaRepository;
+
+    @BeforeEach
+    void setUp() {
+        confirmacaoProcessadaRepository = new ConfirmacaoProcessadaRepositoryImpl(confirmacaoProcessadaJpaRepository,
+                jdbcTemplate, 1000, 0.01, 30);
+    }
+
+    @Test
+    void naoDeveConsultarTabelaParaConsultasAusentesDoFiltro() {
+        // Act
+        Set<UUID> processadas = confirmacaoProcessadaRepository.filtrarProcessadas(List.of(UUID.randomUUID(), UUID.randomUUID()));
+
+        // Assert
+        assertTrue(processadas.isEmpty());
+        verifyNoInteractions(confirmacaoProcessadaJpaRepository);
+    }
+
+    @Test
+    void deveConferirNaTabelaConsultasQueOFiltroIndicaComoProcessadas() {
+        // Arrange
+        UUID registrada = UUID.randomUUID();
+        UUID nova = UUID.randomUUID();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+        confirmacaoProcessadaRepository.registrar(List.of(registrada));
+        when(confirmacaoProcessadaJpaRepository.findConsultaIdsByConsultaIdIn(List.of(registrada))).thenReturn(List.of(registrada));
+
+        // Act
+        Set<UUID> processadas = confirmacaoProcessadaRepository.filtrarProcessadas(List.of(registrada, nova));
+
+        // Assert
+        assertEquals(Set.of(registrada), processadas);
+    }
+
+    @Test
+    void deveDevolverSomenteConsultasGravadasPeloRegistro() {
+        // Arrange
+        UUID nova = UUID.randomUUID();
+        UUID jaRegistrada = UUID.randomUUID();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        when(jdbcTemplate.batchUpdate(anyString(), captor.capture())).thenReturn(new int[]{1, 0});
+
+        // Act
+        Set<UUID> registradas = confirmacaoProcessadaRepository.registrar(List.of(nova, jaRegistrada));
+
+        // Assert
+        assertEquals(Set.of(nova), registradas);
+        Object[] argumentos = captor.getValue().getFirst();
+        assertEquals(nova, argumentos[0]);
+        assertInstanceOf(LocalDateTime.class, argumentos[1]);
+        assertEquals(nova, argumentos[2]);
+        verify(confirmacaoProcessadaJpaRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void deveCarregarFiltroSomenteComConfirmacoesDaRetencao() {
+        // Arrange
+        UUID consultaId = UUID.randomUUID();
+        ArgumentCaptor<LocalDateTime> limite = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(confirmacaoProcessadaJpaRepository.findConsultaIdsByDataProcessamentoAfter(limite.capture())).thenReturn(List.of(consultaId));
+        when(confirmacaoProcessadaJpaRepository.findConsultaIdsByConsultaIdIn(List.of(consultaId))).thenReturn(List.of(consultaId));
+
+        // Act
+        confirmacaoProcessadaRepository.carregarFiltro();
+        Set<UUID> processadas = confirmacaoProcessadaRepository.filtrarProcessadas(List.of(consultaId));
+
+        // Assert
+        assertEquals(Set.of(consultaId), processadas);
+        assertTrue(limite.getValue().isBefore(LocalDateTime.now().minusDays(29)));
+        assertTrue(limite.getValue().isAfter(LocalDateTime.now().minusDays(31)));
+    }
+
+    @Test
+    void deveRemoverConfirmacoesForaDaRetencao() {
+        // Arrange
+        ArgumentCaptor<LocalDateTime> limite = ArgumentCaptor.forClass(LocalDateTime.class);
+
+        // Act
+        confirmacaoProcessadaRepository.removerExpiradas();
+
+        // Assert
+        verify(confirmacaoProcessadaJpaRepository).deleteByDataProcessamentoBefore(limite.capture());
+        assertTrue(limite.getValue().isBefore(LocalDateTime.now().minusDays(29)));
+    }
+
+    @Test
+    void deveRemoverConfirmacaoDaConsulta() {
+        // Arrange
+        UUID consultaId = UUID.randomUUID();
+
+        // Act
+        confirmacaoProcessadaRepository.removerPorConsulta(consultaId);
+
+        // Assert
+        verify(confirmacaoProcessadaJpaRepository).deleteByConsultaId(consultaId);
+    }
+
+    @Test
+    void deveRejeitarRetencaoInvalida() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new ConfirmacaoProcessadaRepositoryImpl(
+                confirmacaoProcessadaJpaRepository, jdbcTemplate, 1000, 0.01, 0));
+    }
+}
@@ -0,0 +1,215 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import com.fiap.consultas.domain.enums.PrioridadeConsulta;
+import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.infraestructure.persistence.entities.ConsultaJpaEntity;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cada teste chama um método do repositório, captura o SQL que o Hibernate gerou (StatementInspector) e pede ao H2 o
+// plano desse SQL, para que a verificação acompanhe mudanças no JPQL. A tabela recebe uma massa com muitos médicos e
+// poucos status e passa por ANALYZE, para o otimizador ter seletividade real.
+@DataJpaTest
+@AutoConfigureTestDatabase
+@Import(ConsultaJpaRepositoryIndicesIT.CapturaSql.class)
+class ConsultaJpaRepositoryIndicesIT {
+
+    private static final List<String> STATUS = List.of("PENDENTE_AGENDAMENTO", "AGENDADA", "CONFIRMADA", "CANCELADA");
+    private static final List<String> PRIORIDADES = List.of("BAIXA", "MEDIA", "ALTA", "URGENTE");
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ConsultaJpaRepository consultaJpaRepository;
+
+    @Autowired
+    private NotificacaoOutboxJpaRepository notificacaoOutboxJpaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CapturaSql capturaSql;
+
+    @BeforeEach
+    void setup() {
+        for (int i = 0; i < 2000; i++) {
+            entityManager.persist(ConsultaJpaEntity.builder()
+                    .id(UUID.randomUUID())
+                    .pacienteCpf(String.format("%011d", i % 700))
+                    .medicoId("MEDICO" + (i % 200))
+                    .especialidade("Especialidade" + (i % 20))
+                    .cidade("Cidade" + (i % 30))
+                    .dataHora(INICIO.plusHours(i % 40))
+                    .localConsulta("Consultório")
+                    .prioridade(PrioridadeConsulta.valueOf(PRIORIDADES.get(i % PRIORIDADES.size())))
+                    .status(StatusConsulta.valueOf(STATUS.get(i % STATUS.size())))
+                    .dataCriacao(INICIO.minusDays(i % 60))
+                    .dataAtualizacao(INICIO)
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.getEntityManager().createNativeQuery("ANALYZE").executeUpdate();
+        capturaSql.limpar();
+    }
+
+    @Test
+    void deveUsarIndiceDeStatusEDataNaBuscaParaNotificacao() {
+        // Act
+        consultaJpaRepository.findByStatusAndDataHoraBetweenNaoNotificadas(StatusConsulta.AGENDADA, INICIO,
+                INICIO.plusHours(3), TipoNotificacao.CONFIRMACAO_CONSULTA);
+        String plano = explicarUltimaInstrucao();
+
+        // Assert
+        assertUsaIndice(plano, "IDX_CONSULTAS_STATUS_DATA_HORA");
+        assertUsaIndice(plano, "PRIMARY_KEY");
+    }
+
+    @Test
+    void deveUsarIndiceDeStatusEDataNoPercursoParaNotificacao() {
+        // Act
+        try (Stream<ConsultaJpaEntity> consultas = consultaJpaRepository.streamByStatusAndDataHoraBetweenNaoNotificadasPorPaciente(
+                StatusConsulta.AGENDADA, INICIO, INICIO.plusHours(3), TipoNotificacao.CONFIRMACAO_CONSULTA)) {
+            consultas.count();
+        }
+        String plano = explicarUltimaInstrucao();
+
+        // Assert
+        assertUsaIndice(plano, "IDX_CONSULTAS_STATUS_DATA_HORA");
+    }
+
+    @Test
+    void deveUsarIndiceDeStatusPrioridadeEDataNaFilaDePendentes() {
+        // Act
+        consultaJpaRepository.findByStatusAndPrioridadeOrderByDataCriacao(StatusConsulta.PENDENTE_AGENDAMENTO, PrioridadeConsulta.URGENTE);
+        String plano = explicarUltimaInstrucao();
+
+        // Assert
+        assertUsaIndice(plano, "IDX_CONSULTAS_STATUS_PRIORIDADE_DATA_CRIACAO");
+    }
+
+    @Test
+    void deveUsarIndiceDeEspecialidadeECidadeNaBuscaDeConsultasParaRemanejar() {
+        // Act
+        consultaJpaRepository.findByStatusEspecialidadeAndCidade(StatusConsulta.AGENDADA, "Cardiologia", "São Paulo",
+                PrioridadeConsulta.URGENTE);
+        String plano = explicarUltimaInstrucao();
+
+        // Assert
+        assertUsaIndice(plano, "IDX_CONSULTAS_STATUS_ESPECIALIDADE_CIDADE_DATA_HORA");
+    }
+
+    @Test
+    void deveUsarIndiceDoMedicoNaVerificacaoDeHorario() {
+        // Act
+        consultaJpaRepository.existsByMedicoIdAndDataHora("MEDICO7", INICIO.plusHours(2));
+        String plano = explicarUltimaInstrucao();
+
+        // Assert
+        assertUsaIndice(plano, "IDX_CONSULTAS_MEDICO_DATA_HORA_ATIVAS");
+    }
+
+    @Test
+    void deveUsarIndiceDoMedicoNaBuscaPorIntervalo() {
+        // Act
+        consultaJpaRepository.findByMedicoIdAndDataHoraBetween("MEDICO7", INICIO, INICIO.plusDays(1));
+        String plano = explicarUltimaInstrucao();
+
+        // Assert
+        assertUsaIndice(plano, "IDX_CONSULTAS_MEDICO_DATA_HORA_ATIVAS");
+    }
+
+    @Test
+    void deveUsarIndiceDoMedicoNaContagemDeCarga() {
+        // Act
+        consultaJpaRepository.countByMedicoIdAndDataHoraBetween("MEDICO7", INICIO, INICIO.plusDays(1));
+        String planoPorMedico = explicarUltimaInstrucao();
+        consultaJpaRepository.countByMedicoIdInAndDataHoraBetween(List.of("MEDICO7", "MEDICO8"), INICIO, INICIO.plusDays(1));
+        String planoPorMedicos = explicarUltimaInstrucao();
+
+        // Assert
+        assertUsaIndice(planoPorMedico, "IDX_CONSULTAS_MEDICO_DATA_HORA_ATIVAS");
+        assertUsaIndice(planoPorMedicos, "IDX_CONSULTAS_MEDICO_DATA_HORA_ATIVAS");
+    }
+
+    @Test
+    void deveUsarChavePrimariaNaAtualizacaoDeStatusEmLote() {
+        // Act
+        consultaJpaRepository.updateStatusByIdInAndStatus(List.of(UUID.randomUUID(), UUID.randomUUID()),
+                StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA, INICIO);
+        String plano = explicarUltimaInstrucao();
+
+        // Assert
+        assertUsaIndice(plano, "PRIMARY_KEY");
+    }
+
+    @Test
+    void deveUsarChavePrimariaNoLoteDoOutbox() {
+        // Act
+        notificacaoOutboxJpaRepository.findLoteParaPublicacao(INICIO, PageRequest.ofSize(100));
+        String plano = explicarUltimaInstrucao();
+
+        // Assert
+        assertUsaIndice(plano, "PRIMARY_KEY");
+        assertTrue(plano.contains("index sorted"), plano);
+    }
+
+    // Os parâmetros ficam sem valor: o H2 monta o plano do SQL preparado, como faria na execução.
+    private String explicarUltimaInstrucao() {
+        String sql = capturaSql.ultima();
+        return jdbcTemplate.query(conexao -> conexao.prepareStatement("EXPLAIN " + sql),
+                (ResultSetExtractor<String>) resultado -> resultado.next() ? resultado.getString(1) : "");
+    }
+
+    private void assertUsaIndice(String plano, String indice) {
+        assertTrue(plano.toUpperCase().contains(indice), () -> "Índice " + indice + " não usado no plano:\n" + plano);
+    }
+
+    static class CapturaSql implements StatementInspector, HibernatePropertiesCustomizer {
+
+        private final List<String> instrucoes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            instrucoes.add(sql);
+            return sql;
+        }
+
+        @Override
+        public void customize(Map<String, Object> propriedades) {
+            propriedades.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+        }
+
+        void limpar() {
+            instrucoes.clear();
+        }
+
+        String ultima() {
+            assertFalse(instrucoes.isEmpty(), "Nenhum SQL foi gerado pelo repositório");
+            return instrucoes.getLast();
+        }
+    }
+}
@@ -3,22 +3,31 @@ package com.fiap.consultas.infraestructure.persistence.repositories;
 import com.fiap.consultas.domain.entities.Consulta;
 import com.fiap.consultas.domain.enums.PrioridadeConsulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
 import com.fiap.consultas.infraestructure.persistence.entities.ConsultaJpaEntity;
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoEnviadaId;
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoEnviadaJpaEntity;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @AutoConfigureTestDatabase
 @Import(ConsultaRepositoryImpl.class)
 class ConsultaRepositoryImplIT {
@@ -29,6 +38,12 @@ class ConsultaRepositoryImplIT {
     @Autowired
     private ConsultaRepositoryImpl consultaRepository;
 
+    @Autowired
+    private NotificacaoEnviadaJpaRepository notificacaoEnviadaJpaRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
     private UUID id;
     private LocalDateTime agora;
     private ConsultaJpaEntity consultaJpaEntity;
@@ -89,6 +104,135 @@ class ConsultaRepositoryImplIT {
         assertTrue(savedEntity.isPresent());
     }
 
+    @Test
+    void deveInserirConsultaNovaSemConsultarOBancoAntes() {
+        // Arrange
+        Statistics estatisticas = estatisticas();
+        estatisticas.clear();
+
+        // Act
+        Consulta resultado = consultaRepository.salvar(consulta);
+        entityManager.flush();
+
+        // Assert
+        assertEquals(0L, resultado.getVersao());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+        assertEquals(1, estatisticas.getEntityInsertCount());
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void deveSalvarTodasAsConsultasNovasNumUnicoLoteJdbc() {
+        // Arrange
+        List<Consulta> novas = List.of(criarConsulta(), criarConsulta(), criarConsulta());
+        Statistics estatisticas = estatisticas();
+        estatisticas.clear();
+
+        // Act
+        List<Consulta> resultado = consultaRepository.salvarTodos(novas);
+        entityManager.flush();
+
+        // Assert
+        assertEquals(3, resultado.size());
+        assertTrue(resultado.stream().allMatch(salva -> Long.valueOf(0L).equals(salva.getVersao())));
+        assertEquals(3, estatisticas.getEntityInsertCount());
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+        assertEquals(3, consultaJpaRepository.count());
+    }
+
+    @Test
+    void deveAtualizarConsultaExistenteIncrementandoAVersao() {
+        // Arrange
+        consultaJpaRepository.save(consultaJpaEntity);
+        entityManager.flush();
+        entityManager.clear();
+        Consulta existente = consultaRepository.buscarPorId(id).orElseThrow();
+        existente.confirmar();
+
+        // Act
+        consultaRepository.salvar(existente);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Assert
+        ConsultaJpaEntity atualizada = consultaJpaRepository.findById(id).orElseThrow();
+        assertEquals(StatusConsulta.CONFIRMADA, atualizada.getStatus());
+        assertEquals(1L, atualizada.getVersao());
+    }
+
+    @Test
+    void deveDevolverAVersaoIncrementadaAoAtualizarDentroDaTransacao() {
+        // Arrange
+        consultaJpaRepository.save(consultaJpaEntity);
+        entityManager.flush();
+        entityManager.clear();
+        Consulta existente = consultaRepository.buscarPorId(id).orElseThrow();
+        existente.confirmar();
+        Statistics estatisticas = estatisticas();
+        estatisticas.clear();
+
+        // Act
+        Consulta resultado = consultaRepository.salvar(existente);
+
+        // Assert
+        assertEquals(1L, resultado.getVersao());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+        assertEquals(1, estatisticas.getEntityUpdateCount());
+    }
+
+    @Test
+    void deveDevolverAsVersoesIncrementadasAoAtualizarEmLote() {
+        // Arrange
+        ConsultaJpaEntity outraEntity = criarEntity(StatusConsulta.AGENDADA, LocalDateTime.now().plusDays(3));
+        consultaJpaRepository.saveAll(List.of(consultaJpaEntity, outraEntity));
+        entityManager.flush();
+        entityManager.clear();
+        List<Consulta> existentes = consultaRepository.buscarPorIds(List.of(id, outraEntity.getId()));
+        existentes.forEach(Consulta::confirmar);
+
+        // Act
+        List<Consulta> resultado = consultaRepository.salvarTodos(existentes);
+
+        // Assert
+        assertTrue(resultado.stream().allMatch(salva -> Long.valueOf(1L).equals(salva.getVersao())));
+    }
+
+    @Test
+    void deveRejeitarAtualizacaoComVersaoDesatualizada() {
+        // Arrange
+        consultaJpaRepository.save(consultaJpaEntity);
+        entityManager.flush();
+        entityManager.clear();
+        Consulta desatualizada = consultaRepository.buscarPorId(id).orElseThrow();
+        Consulta atual = consultaRepository.buscarPorId(id).orElseThrow();
+        atual.confirmar();
+        consultaRepository.salvar(atual);
+        entityManager.flush();
+        entityManager.clear();
+        desatualizada.setStatus(StatusConsulta.CANCELADA);
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> consultaRepository.salvar(desatualizada));
+    }
+
+    @Test
+    void naoDeveSobrescreverMudancaDeStatusEmLoteComConsultaDesatualizada() {
+        // Arrange
+        consultaJpaRepository.save(consultaJpaEntity);
+        entityManager.flush();
+        entityManager.clear();
+        Consulta lidaPeloAgendador = consultaRepository.buscarPorId(id).orElseThrow();
+        consultaRepository.atualizarStatus(List.of(id), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA);
+        lidaPeloAgendador.marcarParaRemanejo();
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> consultaRepository.salvar(lidaPeloAgendador));
+        entityManager.clear();
+        ConsultaJpaEntity atual = consultaJpaRepository.findById(id).orElseThrow();
+        assertEquals(StatusConsulta.CONFIRMADA, atual.getStatus());
+        assertEquals(1L, atual.getVersao());
+    }
+
     @Test
     void deveBuscarPorId() {
         // Arrange
@@ -128,6 +272,106 @@ class ConsultaRepositoryImplIT {
         assertEquals(consulta.getId(), resultado.getFirst().getId());
     }
 
+    @Test
+    void deveBuscarParaNotificacaoSomenteConsultasNaJanelaAindaNaoNotificadas() {
+        // Arrange
+        consultaJpaRepository.save(consultaJpaEntity);
+
+        ConsultaJpaEntity foraDaJanela = criarEntity(StatusConsulta.AGENDADA, agora.plusDays(2));
+        consultaJpaRepository.save(foraDaJanela);
+
+        ConsultaJpaEntity outroStatus = criarEntity(StatusConsulta.CONFIRMADA, agora);
+        consultaJpaRepository.save(outroStatus);
+
+        ConsultaJpaEntity jaNotificada = criarEntity(StatusConsulta.AGENDADA, agora);
+        consultaJpaRepository.save(jaNotificada);
+        notificacaoEnviadaJpaRepository.save(NotificacaoEnviadaJpaEntity.builder()
+                .id(new NotificacaoEnviadaId(jaNotificada.getId(), TipoNotificacao.CONFIRMACAO_CONSULTA))
+                .dataEnvio(agora)
+                .build());
+
+        // Act
+        List<Consulta> resultado = consultaRepository.buscarParaNotificacao(StatusConsulta.AGENDADA,
+                agora.minusHours(1), agora.plusDays(1), TipoNotificacao.CONFIRMACAO_CONSULTA);
+
+        // Assert
+        assertEquals(1, resultado.size());
+        assertEquals(id, resultado.getFirst().getId());
+    }
+
+    @Test
+    void devePercorrerConsultasParaNotificacaoOrdenadasPorPacienteEData() {
+        // Arrange
+        ConsultaJpaEntity posterior = criarEntity(StatusConsulta.AGENDADA, agora.plusHours(3));
+        ConsultaJpaEntity outroPaciente = criarEntity(StatusConsulta.AGENDADA, agora.plusHours(1));
+        outroPaciente.setPacienteCpf("00000000000");
+        ConsultaJpaEntity anterior = criarEntity(StatusConsulta.AGENDADA, agora.plusHours(2));
+        ConsultaJpaEntity jaNotificada = criarEntity(StatusConsulta.AGENDADA, agora.plusHours(2));
+        consultaJpaRepository.saveAll(List.of(posterior, outroPaciente, anterior, jaNotificada));
+        notificacaoEnviadaJpaRepository.save(NotificacaoEnviadaJpaEntity.builder()
+                .id(new NotificacaoEnviadaId(jaNotificada.getId(), TipoNotificacao.CONFIRMACAO_CONSULTA))
+                .dataEnvio(agora)
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<UUID> resultado;
+        try (Stream<Consulta> consultas = consultaRepository.percorrerParaNotificacao(StatusConsulta.AGENDADA,
+                agora, agora.plusDays(1), TipoNotificacao.CONFIRMACAO_CONSULTA)) {
+            resultado = consultas.map(Consulta::getId).toList();
+        }
+
+        // Assert
+        assertEquals(List.of(outroPaciente.getId(), anterior.getId(), posterior.getId()), resultado);
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void deveAtualizarStatusSomenteDasConsultasInformadas() {
+        // Arrange
+        consultaJpaRepository.save(consultaJpaEntity);
+        ConsultaJpaEntity naoInformada = consultaJpaRepository.save(criarEntity(StatusConsulta.AGENDADA, agora));
+
+        // Act
+        int atualizadas = consultaRepository.atualizarStatus(List.of(id, UUID.randomUUID()), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA);
+
+        // Assert
+        assertEquals(1, atualizadas);
+        assertEquals(StatusConsulta.CONFIRMADA, consultaRepository.buscarPorId(id).orElseThrow().getStatus());
+        assertEquals(StatusConsulta.AGENDADA, consultaRepository.buscarPorId(naoInformada.getId()).orElseThrow().getStatus());
+        assertEquals(1, consultaRepository.buscarPorIds(List.of(id)).size());
+    }
+
+    @Test
+    void naoDeveAtualizarStatusDeConsultaForaDoStatusAtualEsperado() {
+        // Arrange
+        ConsultaJpaEntity confirmada = consultaJpaRepository.save(criarEntity(StatusConsulta.CONFIRMADA, agora));
+
+        // Act
+        int atualizadas = consultaRepository.atualizarStatus(List.of(confirmada.getId()), StatusConsulta.AGENDADA, StatusConsulta.CANCELADA);
+
+        // Assert
+        assertEquals(0, atualizadas);
+        assertEquals(StatusConsulta.CONFIRMADA, consultaRepository.buscarPorId(confirmada.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void deveBuscarParaNotificacaoSomenteIdsInformados() {
+        // Arrange
+        consultaJpaRepository.save(consultaJpaEntity);
+        ConsultaJpaEntity naoInformada = consultaJpaRepository.save(criarEntity(StatusConsulta.AGENDADA, agora));
+
+        // Act
+        List<Consulta> resultado = consultaRepository.buscarParaNotificacao(List.of(id), StatusConsulta.AGENDADA,
+                agora.minusHours(1), agora.plusDays(1), TipoNotificacao.CONFIRMACAO_CONSULTA);
+
+        // Assert
+        assertEquals(1, resultado.size());
+        assertEquals(id, resultado.getFirst().getId());
+        assertNotEquals(naoInformada.getId(), resultado.getFirst().getId());
+    }
+
     @Test
     void deveBuscarConsultasNaoConfirmadasPorEspecialidadeECidade() {
         // Arrange
@@ -205,4 +449,85 @@ class ConsultaRepositoryImplIT {
         assertEquals(1, resultado.size());
         assertEquals(consulta.getId(), resultado.getFirst().getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveVerificarHorarioConsiderandoSomenteConsultasAtivasSemCarregarEntidades() {
+        // Arrange
+        LocalDateTime horario = LocalDateTime.of(2030, 1, 7, 10, 0);
+        LocalDateTime horarioCancelado = horario.plusHours(1);
+        consultaJpaRepository.saveAll(List.of(criarEntity(StatusConsulta.CONFIRMADA, horario),
+                criarEntity(StatusConsulta.CANCELADA, horarioCancelado)));
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        boolean ocupado = consultaRepository.existeConsultaNoHorario("MEDICO123", horario);
+        boolean cancelado = consultaRepository.existeConsultaNoHorario("MEDICO123", horarioCancelado);
+        boolean outroMedico = consultaRepository.existeConsultaNoHorario("MEDICO456", horario);
+
+        // Assert
+        assertTrue(ocupado);
+        assertFalse(cancelado);
+        assertFalse(outroMedico);
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void deveContarConsultasAtivasPorMedicoNoIntervalo() {
+        // Arrange
+        LocalDateTime inicio = LocalDateTime.of(2030, 1, 7, 0, 0);
+        ConsultaJpaEntity outroMedico = criarEntity(StatusConsulta.AGENDADA, inicio.plusHours(9));
+        outroMedico.setMedicoId("MEDICO456");
+        consultaJpaRepository.saveAll(List.of(
+                criarEntity(StatusConsulta.AGENDADA, inicio.plusHours(8)),
+                criarEntity(StatusConsulta.CONFIRMADA, inicio.plusHours(9)),
+                criarEntity(StatusConsulta.CANCELADA, inicio.plusHours(10)),
+                criarEntity(StatusConsulta.AGENDADA, inicio.plusDays(1).plusHours(8)),
+                outroMedico));
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        long total = consultaRepository.contarConsultasPorMedicoEIntervalo("MEDICO123", inicio, inicio.plusDays(1));
+        Map<String, Long> porMedico = consultaRepository.contarConsultasPorMedicosEIntervalo(
+                List.of("MEDICO123", "MEDICO456", "MEDICO789"), inicio, inicio.plusDays(1));
+
+        // Assert
+        assertEquals(2L, total);
+        assertEquals(Map.of("MEDICO123", 2L, "MEDICO456", 1L, "MEDICO789", 0L), porMedico);
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    private Consulta criarConsulta() {
+        return Consulta.builder()
+                .id(UUID.randomUUID())
+                .pacienteCpf("12345678900")
+                .especialidade("Cardiologia")
+                .cidade("São Paulo")
+                .prioridade(PrioridadeConsulta.MEDIA)
+                .status(StatusConsulta.PENDENTE_AGENDAMENTO)
+                .dataCriacao(agora)
+                .dataAtualizacao(agora)
+                .build();
+    }
+
+    private Statistics estatisticas() {
+        return entityManager.getEntityManager().unwrap(Session.class).getSessionFactory().getStatistics();
+    }
+
+    private ConsultaJpaEntity criarEntity(StatusConsulta status, LocalDateTime dataHora) {
+        return ConsultaJpaEntity.builder()
+                .id(UUID.randomUUID())
+                .pacienteCpf("12345678900")
+                .medicoId("MEDICO123")
+                .especialidade("Cardiologia")
+                .cidade("São Paulo")
+                .dataHora(dataHora)
+                .localConsulta("Hospital A")
+                .prioridade(PrioridadeConsulta.MEDIA)
+                .status(status)
+                .dataCriacao(agora)
+                .dataAtualizacao(agora)
+                .build();
+    }
+}
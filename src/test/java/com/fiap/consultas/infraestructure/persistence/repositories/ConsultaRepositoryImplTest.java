@@ -3,22 +3,27 @@ package com.fiap.consultas.infraestructure.persistence.repositories;
 import com.fiap.consultas.domain.entities.Consulta;
 import com.fiap.consultas.domain.enums.PrioridadeConsulta;
 import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
 import com.fiap.consultas.infraestructure.persistence.entities.ConsultaJpaEntity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -72,7 +77,7 @@ class ConsultaRepositoryImplTest {
     @Test
     void deveSalvar() {
         // Arrange
-        when(consultaJpaRepository.save(any(ConsultaJpaEntity.class))).thenReturn(consultaJpaEntity);
+        when(consultaJpaRepository.saveAndFlush(any(ConsultaJpaEntity.class))).thenReturn(consultaJpaEntity);
 
         // Act
         Consulta resultado = consultaRepository.salvar(consulta);
@@ -81,7 +86,54 @@ class ConsultaRepositoryImplTest {
         assertNotNull(resultado);
         assertEquals(consulta.getId(), resultado.getId());
         assertEquals(consulta.getPacienteCpf(), resultado.getPacienteCpf());
-        verify(consultaJpaRepository, times(1)).save(any(ConsultaJpaEntity.class));
+        verify(consultaJpaRepository, times(1)).saveAndFlush(any(ConsultaJpaEntity.class));
+    }
+
+    @Test
+    void deveDevolverAConsultaComAVersaoGravada() {
+        // Arrange
+        consultaJpaEntity.setVersao(3L);
+        consulta.setVersao(2L);
+        when(consultaJpaRepository.saveAndFlush(any(ConsultaJpaEntity.class))).thenReturn(consultaJpaEntity);
+
+        // Act
+        Consulta resultado = consultaRepository.salvar(consulta);
+
+        // Assert
+        assertSame(consulta, resultado);
+        assertEquals(3L, resultado.getVersao());
+        verify(consultaJpaRepository).saveAndFlush(argThat(entity -> Long.valueOf(2L).equals(entity.getVersao())));
+    }
+
+    @Test
+    void deveSalvarTodasNumaUnicaChamadaAoRepositorio() {
+        // Arrange
+        ConsultaJpaEntity outraEntity = ConsultaJpaEntity.builder().id(UUID.randomUUID()).versao(0L).build();
+        Consulta outra = Consulta.builder().id(outraEntity.getId()).build();
+        consultaJpaEntity.setVersao(1L);
+        when(consultaJpaRepository.saveAll(anyList())).thenReturn(List.of(consultaJpaEntity, outraEntity));
+
+        // Act
+        List<Consulta> resultado = consultaRepository.salvarTodos(List.of(consulta, outra));
+
+        // Assert
+        assertEquals(List.of(consulta, outra), resultado);
+        assertEquals(1L, consulta.getVersao());
+        assertEquals(0L, outra.getVersao());
+        InOrder ordem = inOrder(consultaJpaRepository);
+        ordem.verify(consultaJpaRepository, times(1)).saveAll(anyList());
+        ordem.verify(consultaJpaRepository).flush();
+        verify(consultaJpaRepository, never()).save(any());
+    }
+
+    @Test
+    void naoDeveAcionarORepositorioAoSalvarListaVazia() {
+        // Act
+        List<Consulta> resultado = consultaRepository.salvarTodos(List.of());
+
+        // Assert
+        assertTrue(resultado.isEmpty());
+        verifyNoInteractions(consultaJpaRepository);
     }
 
     @Test
@@ -112,6 +164,43 @@ class ConsultaRepositoryImplTest {
         verify(consultaJpaRepository, times(1)).findById(idInexistente);
     }
 
+    @Test
+    void deveBuscarPorIds() {
+        // Arrange
+        when(consultaJpaRepository.findAllById(List.of(id))).thenReturn(List.of(consultaJpaEntity));
+
+        // Act
+        List<Consulta> resultado = consultaRepository.buscarPorIds(List.of(id));
+
+        // Assert
+        assertEquals(1, resultado.size());
+        assertEquals(id, resultado.getFirst().getId());
+    }
+
+    @Test
+    void deveAtualizarStatusEmLote() {
+        // Arrange
+        List<UUID> ids = List.of(id, UUID.randomUUID());
+        when(consultaJpaRepository.updateStatusByIdInAndStatus(eq(ids), eq(StatusConsulta.AGENDADA), eq(StatusConsulta.CONFIRMADA),
+                any(LocalDateTime.class))).thenReturn(2);
+
+        // Act
+        int atualizadas = consultaRepository.atualizarStatus(ids, StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA);
+
+        // Assert
+        assertEquals(2, atualizadas);
+    }
+
+    @Test
+    void naoDeveAtualizarStatusQuandoListaDeIdsVazia() {
+        // Act
+        int atualizadas = consultaRepository.atualizarStatus(List.of(), StatusConsulta.AGENDADA, StatusConsulta.CONFIRMADA);
+
+        // Assert
+        assertEquals(0, atualizadas);
+        verifyNoInteractions(consultaJpaRepository);
+    }
+
     @Test
     void deveBuscarPorStatus() {
         // Arrange
@@ -127,6 +216,55 @@ class ConsultaRepositoryImplTest {
         verify(consultaJpaRepository, times(1)).findByStatus(StatusConsulta.AGENDADA);
     }
 
+    @Test
+    void deveBuscarParaNotificacao() {
+        // Arrange
+        LocalDateTime inicio = agora.minusHours(1);
+        LocalDateTime fim = agora.plusDays(1);
+        when(consultaJpaRepository.findByStatusAndDataHoraBetweenNaoNotificadas(
+                StatusConsulta.AGENDADA, inicio, fim, TipoNotificacao.CONFIRMACAO_CONSULTA))
+                .thenReturn(List.of(consultaJpaEntity));
+
+        // Act
+        List<Consulta> resultado = consultaRepository.buscarParaNotificacao(
+                StatusConsulta.AGENDADA, inicio, fim, TipoNotificacao.CONFIRMACAO_CONSULTA);
+
+        // Assert
+        assertEquals(1, resultado.size());
+        assertEquals(consulta.getId(), resultado.getFirst().getId());
+    }
+
+    @Test
+    void devePercorrerConsultasParaNotificacao() {
+        // Arrange
+        LocalDateTime inicio = agora.minusHours(1);
+        LocalDateTime fim = agora.plusDays(1);
+        when(consultaJpaRepository.streamByStatusAndDataHoraBetweenNaoNotificadasPorPaciente(
+                StatusConsulta.AGENDADA, inicio, fim, TipoNotificacao.CONFIRMACAO_CONSULTA))
+                .thenReturn(Stream.of(consultaJpaEntity));
+
+        // Act
+        List<Consulta> resultado;
+        try (Stream<Consulta> consultas = consultaRepository.percorrerParaNotificacao(
+                StatusConsulta.AGENDADA, inicio, fim, TipoNotificacao.CONFIRMACAO_CONSULTA)) {
+            resultado = consultas.toList();
+        }
+
+        // Assert
+        assertEquals(List.of(consulta), resultado);
+    }
+
+    @Test
+    void naoDeveConsultarBancoQuandoListaDeIdsVazia() {
+        // Act
+        List<Consulta> resultado = consultaRepository.buscarParaNotificacao(List.of(), StatusConsulta.AGENDADA,
+                agora, agora.plusDays(1), TipoNotificacao.CONFIRMACAO_CONSULTA);
+
+        // Assert
+        assertTrue(resultado.isEmpty());
+        verifyNoInteractions(consultaJpaRepository);
+    }
+
     @Test
     void deveBuscarConsultasNaoConfirmadasPorEspecialidadeECidade() {
         // Arrange
@@ -149,42 +287,56 @@ class ConsultaRepositoryImplTest {
     @Test
     void deveBuscarConsultasPendentesAgendamento() {
         // Arrange
-        List<ConsultaJpaEntity> consultaJpaEntities = List.of(consultaJpaEntity);
-        when(consultaJpaRepository.findByStatus(StatusConsulta.PENDENTE_AGENDAMENTO)).thenReturn(consultaJpaEntities);
+        ConsultaJpaEntity urgente = ConsultaJpaEntity.builder()
+                .id(UUID.randomUUID())
+                .pacienteCpf("98765432100")
+                .especialidade("Cardiologia")
+                .cidade("São Paulo")
+                .prioridade(PrioridadeConsulta.URGENTE)
+                .status(StatusConsulta.PENDENTE_AGENDAMENTO)
+                .dataCriacao(agora)
+                .dataAtualizacao(agora)
+                .build();
+        when(consultaJpaRepository.findByStatusAndPrioridadeOrderByDataCriacao(any(StatusConsulta.class), any(PrioridadeConsulta.class)))
+                .thenReturn(List.of());
+        when(consultaJpaRepository.findByStatusAndPrioridadeOrderByDataCriacao(StatusConsulta.PENDENTE_AGENDAMENTO, consultaJpaEntity.getPrioridade()))
+                .thenReturn(List.of(consultaJpaEntity));
+        when(consultaJpaRepository.findByStatusAndPrioridadeOrderByDataCriacao(StatusConsulta.PENDENTE_AGENDAMENTO, PrioridadeConsulta.URGENTE))
+                .thenReturn(List.of(urgente));
 
         // Act
         List<Consulta> resultado = consultaRepository.buscarConsultasPendentesAgendamento();
 
         // Assert
-        assertEquals(1, resultado.size());
-        verify(consultaJpaRepository, times(1)).findByStatus(StatusConsulta.PENDENTE_AGENDAMENTO);
+        assertEquals(List.of(urgente.getId(), consultaJpaEntity.getId()), resultado.stream().map(Consulta::getId).toList());
+        verify(consultaJpaRepository, times(PrioridadeConsulta.values().length))
+                .findByStatusAndPrioridadeOrderByDataCriacao(eq(StatusConsulta.PENDENTE_AGENDAMENTO), any(PrioridadeConsulta.class));
     }
 
     @Test
     void deveRetornarTrueQuandoExisteConsultaNoHorario() {
         // Arrange
-        List<ConsultaJpaEntity> consultaJpaEntities = List.of(consultaJpaEntity);
-        when(consultaJpaRepository.findByMedicoIdAndDataHora("MEDICO123", agora)).thenReturn(consultaJpaEntities);
+        when(consultaJpaRepository.existsByMedicoIdAndDataHora("MEDICO123", agora)).thenReturn(true);
 
         // Act
         boolean resultado = consultaRepository.existeConsultaNoHorario("MEDICO123", agora);
 
         // Assert
         assertTrue(resultado);
-        verify(consultaJpaRepository, times(1)).findByMedicoIdAndDataHora("MEDICO123", agora);
+        verify(consultaJpaRepository, times(1)).existsByMedicoIdAndDataHora("MEDICO123", agora);
     }
 
     @Test
     void deveRetornarFalseQuandoNaoExisteConsultaNoHorario() {
         // Arrange
-        when(consultaJpaRepository.findByMedicoIdAndDataHora("MEDICO123", agora)).thenReturn(new ArrayList<>());
+        when(consultaJpaRepository.existsByMedicoIdAndDataHora("MEDICO123", agora)).thenReturn(false);
 
         // Act
         boolean resultado = consultaRepository.existeConsultaNoHorario("MEDICO123", agora);
 
         // Assert
         assertFalse(resultado);
-        verify(consultaJpaRepository, times(1)).findByMedicoIdAndDataHora("MEDICO123", agora);
+        verify(consultaJpaRepository, times(1)).existsByMedicoIdAndDataHora("MEDICO123", agora);
     }
 
     @Test
@@ -205,4 +357,47 @@ class ConsultaRepositoryImplTest {
         verify(consultaJpaRepository, times(1))
                 .findByMedicoIdAndDataHoraBetween("MEDICO123", inicio, fim);
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveContarConsultasPorMedicoEIntervalo() {
+        // Arrange
+        LocalDateTime inicio = agora.minusHours(1);
+        LocalDateTime fim = agora.plusHours(1);
+        when(consultaJpaRepository.countByMedicoIdAndDataHoraBetween("MEDICO123", inicio, fim)).thenReturn(3L);
+
+        // Act
+        long resultado = consultaRepository.contarConsultasPorMedicoEIntervalo("MEDICO123", inicio, fim);
+
+        // Assert
+        assertEquals(3L, resultado);
+        verify(consultaJpaRepository, never()).findByMedicoIdAndDataHoraBetween(any(), any(), any());
+    }
+
+    @Test
+    void deveContarConsultasPorMedicosPreenchendoZeroParaMedicosSemConsultas() {
+        // Arrange
+        LocalDateTime inicio = agora.minusHours(1);
+        LocalDateTime fim = agora.plusHours(1);
+        ConsultaJpaRepository.ContagemPorMedico contagem = mock(ConsultaJpaRepository.ContagemPorMedico.class);
+        when(contagem.getMedicoId()).thenReturn("MEDICO123");
+        when(contagem.getTotal()).thenReturn(2L);
+        when(consultaJpaRepository.countByMedicoIdInAndDataHoraBetween(List.of("MEDICO123", "MEDICO456"), inicio, fim))
+                .thenReturn(List.of(contagem));
+
+        // Act
+        Map<String, Long> resultado = consultaRepository.contarConsultasPorMedicosEIntervalo(List.of("MEDICO123", "MEDICO456"), inicio, fim);
+
+        // Assert
+        assertEquals(Map.of("MEDICO123", 2L, "MEDICO456", 0L), resultado);
+    }
+
+    @Test
+    void naoDeveConsultarContagemParaListaVaziaDeMedicos() {
+        // Act
+        Map<String, Long> resultado = consultaRepository.contarConsultasPorMedicosEIntervalo(List.of(), agora, agora.plusHours(1));
+
+        // Assert
+        assertTrue(resultado.isEmpty());
+        verifyNoInteractions(consultaJpaRepository);
+    }
+}
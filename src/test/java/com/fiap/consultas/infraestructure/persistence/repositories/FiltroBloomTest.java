@@ -0,0 +1,78 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FiltroBloomTest {
+
+    @Test
+    void deveReconhecerTodasAsChavesAdicionadas() {
+        // Arrange
+        FiltroBloom filtro = new FiltroBloom(1000, 0.01);
+        List<UUID> ids = Stream.generate(UUID::randomUUID).limit(1000).toList();
+
+        // Act
+        ids.forEach(filtro::adicionar);
+
+        // Assert
+        assertTrue(ids.stream().allMatch(filtro::podeConter));
+    }
+
+    @Test
+    void deveManterTaxaDeFalsoPositivoProximaDaConfigurada() {
+        // Arrange
+        FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+        Stream.generate(UUID::randomUUID).limit(10_000).forEach(filtro::adicionar);
+
+        // Act
+        long falsosPositivos = Stream.generate(UUID::randomUUID).limit(10_000)
+                .filter(filtro::podeConter)
+                .count();
+
+        // Assert
+        assertTrue(falsosPositivos < 300, "falsos positivos: " + falsosPositivos);
+    }
+
+    @Test
+    void deveManterGeracaoAnteriorAoAtingirCapacidade() {
+        // Arrange
+        FiltroBloom filtro = new FiltroBloom(2, 0.01);
+        UUID primeira = UUID.randomUUID();
+        filtro.adicionar(primeira);
+        filtro.adicionar(UUID.randomUUID());
+
+        // Act
+        UUID terceira = UUID.randomUUID();
+        filtro.adicionar(terceira);
+
+        // Assert
+        assertTrue(filtro.podeConter(terceira));
+        assertTrue(filtro.podeConter(primeira));
+    }
+
+    @Test
+    void deveDescartarChavesDeGeracoesMaisAntigasQueAAnterior() {
+        // Arrange
+        FiltroBloom filtro = new FiltroBloom(1000, 0.01);
+        List<UUID> primeiraGeracao = Stream.generate(UUID::randomUUID).limit(1000).toList();
+        primeiraGeracao.forEach(filtro::adicionar);
+
+        // Act
+        Stream.generate(UUID::randomUUID).limit(2000).forEach(filtro::adicionar);
+
+        // Assert
+        long reconhecidas = primeiraGeracao.stream().filter(filtro::podeConter).count();
+        assertTrue(reconhecidas < 60, "chaves antigas reconhecidas: " + reconhecidas);
+    }
+
+    @Test
+    void deveRejeitarParametrosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(10, 1.0));
+    }
+}
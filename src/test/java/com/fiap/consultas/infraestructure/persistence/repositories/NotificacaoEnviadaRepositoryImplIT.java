@@ -0,0 +1,78 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoEnviadaId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase
+@Import(NotificacaoEnviadaRepositoryImpl.class)
+class NotificacaoEnviadaRepositoryImplIT {
+
+    @Autowired
+    private NotificacaoEnviadaJpaRepository notificacaoEnviadaJpaRepository;
+
+    @Autowired
+    private NotificacaoEnviadaRepositoryImpl notificacaoEnviadaRepository;
+
+    @BeforeEach
+    void setup() {
+        notificacaoEnviadaJpaRepository.deleteAll();
+    }
+
+    @Test
+    void deveManterUmRegistroPorConsultaETipo() {
+        // Arrange
+        UUID consultaId = UUID.randomUUID();
+
+        // Act
+        notificacaoEnviadaRepository.registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
+        notificacaoEnviadaRepository.registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
+        notificacaoEnviadaRepository.registrar(List.of(consultaId), TipoNotificacao.AVISO_UM_DIA_ANTES);
+
+        // Assert
+        assertEquals(2, notificacaoEnviadaJpaRepository.count());
+    }
+
+    @Test
+    void deveRegistrarTodasAsConsultasDaNotificacaoNumLote() {
+        // Arrange
+        UUID jaRegistrada = UUID.randomUUID();
+        UUID nova = UUID.randomUUID();
+        notificacaoEnviadaRepository.registrar(List.of(jaRegistrada), TipoNotificacao.CONFIRMACAO_CONSULTA);
+
+        // Act
+        notificacaoEnviadaRepository.registrar(List.of(jaRegistrada, nova, nova), TipoNotificacao.CONFIRMACAO_CONSULTA);
+
+        // Assert
+        assertEquals(2, notificacaoEnviadaJpaRepository.count());
+        assertTrue(notificacaoEnviadaJpaRepository.existsById(new NotificacaoEnviadaId(nova, TipoNotificacao.CONFIRMACAO_CONSULTA)));
+    }
+
+    @Test
+    void deveRemoverTodasAsNotificacoesDaConsulta() {
+        // Arrange
+        UUID consultaId = UUID.randomUUID();
+        UUID outraConsulta = UUID.randomUUID();
+        notificacaoEnviadaRepository.registrar(List.of(consultaId), TipoNotificacao.CONFIRMACAO_CONSULTA);
+        notificacaoEnviadaRepository.registrar(List.of(consultaId), TipoNotificacao.AVISO_UM_DIA_ANTES);
+        notificacaoEnviadaRepository.registrar(List.of(outraConsulta), TipoNotificacao.CONFIRMACAO_CONSULTA);
+
+        // Act
+        notificacaoEnviadaRepository.removerPorConsulta(consultaId);
+
+        // Assert
+        assertEquals(1, notificacaoEnviadaJpaRepository.count());
+        assertTrue(notificacaoEnviadaJpaRepository.existsById(new NotificacaoEnviadaId(outraConsulta, TipoNotificacao.CONFIRMACAO_CONSULTA)));
+    }
+}
@@ -0,0 +1,76 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificacaoEnviadaRepositoryImplTest {
+
+    @Mock
+    private NotificacaoEnviadaJpaRepository notificacaoEnviadaJpaRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private NotificacaoEnviadaRepositoryImpl notificacaoEnviadaRepository;
+
+    @Test
+    void deveRegistrarConsultasNumUnicoLote() {
+        // Arrange
+        UUID consultaId = UUID.randomUUID();
+        UUID outraConsulta = UUID.randomUUID();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+
+        // Act
+        notificacaoEnviadaRepository.registrar(List.of(consultaId, outraConsulta), TipoNotificacao.AVISO_UM_DIA_ANTES);
+
+        // Assert
+        verify(jdbcTemplate).batchUpdate(anyString(), captor.capture());
+        List<Object[]> argumentos = captor.getValue();
+        assertEquals(2, argumentos.size());
+        assertEquals(consultaId, argumentos.getFirst()[0]);
+        assertEquals("AVISO_UM_DIA_ANTES", argumentos.getFirst()[1]);
+        assertInstanceOf(LocalDateTime.class, argumentos.getFirst()[2]);
+        assertEquals(outraConsulta, argumentos.get(1)[0]);
+        verify(notificacaoEnviadaJpaRepository, never()).save(any());
+    }
+
+    @Test
+    void naoDeveGravarQuandoNaoHaConsultas() {
+        // Act
+        notificacaoEnviadaRepository.registrar(List.of(), TipoNotificacao.CONFIRMACAO_CONSULTA);
+
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void deveRemoverPorConsulta() {
+        // Arrange
+        UUID consultaId = UUID.randomUUID();
+
+        // Act
+        notificacaoEnviadaRepository.removerPorConsulta(consultaId);
+
+        // Assert
+        verify(notificacaoEnviadaJpaRepository).deleteByConsultaId(consultaId);
+        verify(notificacaoEnviadaJpaRepository, never()).save(any());
+    }
+}
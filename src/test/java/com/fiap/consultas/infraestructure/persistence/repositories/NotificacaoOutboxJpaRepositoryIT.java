@@ -0,0 +1,81 @@
+package com.fiap.consultas.infraestructure.persistence.repositories;
+
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.infraestructure.persistence.entities.NotificacaoOutboxJpaEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase
+class NotificacaoOutboxJpaRepositoryIT {
+
+    @Autowired
+    private NotificacaoOutboxJpaRepository notificacaoOutboxJpaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        notificacaoOutboxJpaRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM notificacoes_outbox_falhas");
+    }
+
+    @Test
+    void deveMoverParaFalhasSomenteNotificacoesQueEsgotaramTentativas() {
+        // Arrange
+        Long esgotada = notificacaoOutboxJpaRepository.save(criarRegistro(3)).getId();
+        Long pendente = notificacaoOutboxJpaRepository.save(criarRegistro(1)).getId();
+        List<Long> ids = List.of(esgotada, pendente);
+
+        // Act
+        int copiadas = notificacaoOutboxJpaRepository.copiarEsgotadasParaFalhas(ids, 3, LocalDateTime.now());
+        int removidas = notificacaoOutboxJpaRepository.removerEsgotadas(ids, 3);
+
+        // Assert
+        assertEquals(1, copiadas);
+        assertEquals(1, removidas);
+        assertEquals(List.of(pendente), notificacaoOutboxJpaRepository.findAll().stream().map(NotificacaoOutboxJpaEntity::getId).toList());
+        assertEquals(List.of(esgotada), jdbcTemplate.queryForList("SELECT id FROM notificacoes_outbox_falhas", Long.class));
+    }
+
+    @Test
+    void deveIgnorarNotificacoesComReservaVigente() {
+        // Arrange
+        LocalDateTime agora = LocalDateTime.now();
+        Long reservada = notificacaoOutboxJpaRepository.save(criarRegistro(0)).getId();
+        Long reservaVencida = notificacaoOutboxJpaRepository.save(criarRegistro(0)).getId();
+        Long livre = notificacaoOutboxJpaRepository.save(criarRegistro(0)).getId();
+        notificacaoOutboxJpaRepository.reservar(List.of(reservada), agora.plusMinutes(1));
+        notificacaoOutboxJpaRepository.reservar(List.of(reservaVencida), agora.minusMinutes(1));
+
+        // Act
+        List<NotificacaoOutboxJpaEntity> lote = notificacaoOutboxJpaRepository.findLoteParaPublicacao(agora, PageRequest.ofSize(10));
+
+        // Assert
+        assertEquals(List.of(reservaVencida, livre), lote.stream().map(NotificacaoOutboxJpaEntity::getId).toList());
+    }
+
+    private NotificacaoOutboxJpaEntity criarRegistro(int tentativas) {
+        return NotificacaoOutboxJpaEntity.builder()
+                .consultaId(UUID.randomUUID())
+                .tipo(TipoNotificacao.CONFIRMACAO_CONSULTA)
+                .conteudo("{}".getBytes(StandardCharsets.UTF_8))
+                .contentType("application/json")
+                .dataCriacao(LocalDateTime.now())
+                .tentativas(tentativas)
+                .build();
+    }
+}
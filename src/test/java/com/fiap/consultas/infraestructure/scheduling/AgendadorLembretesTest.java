@@ -0,0 +1,271 @@
+package com.fiap.consultas.infraestructure.scheduling;
+
+import com.fiap.consultas.application.usecases.EnviarNotificacaoConfirmacaoUseCase;
+import com.fiap.consultas.domain.entities.Consulta;
+import com.fiap.consultas.domain.enums.StatusConsulta;
+import com.fiap.consultas.domain.enums.TipoNotificacao;
+import com.fiap.consultas.domain.repositories.ConsultaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AgendadorLembretesTest {
+
+    private MutableClock clock;
+    private ConsultaRepository consultaRepository;
+    private EnviarNotificacaoConfirmacaoUseCase enviarNotificacaoConfirmacaoUseCase;
+    private AgendadorLembretes agendador;
+    private LocalDateTime agora;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T10:00:00Z"));
+        agora = LocalDateTime.now(clock);
+        consultaRepository = mock(ConsultaRepository.class);
+        enviarNotificacaoConfirmacaoUseCase = mock(EnviarNotificacaoConfirmacaoUseCase.class);
+        agendador = new AgendadorLembretes(consultaRepository, enviarNotificacaoConfirmacaoUseCase, new SimpleMeterRegistry(),
+                Duration.ofSeconds(1), 64, Duration.ofHours(24), Duration.ofSeconds(5), 3, clock);
+    }
+
+    @Test
+    void deveDispararConfirmacaoDuasSemanasAntesDaConsulta() {
+        // Arrange
+        Consulta consulta = criarConsulta(StatusConsulta.AGENDADA, agora.plusWeeks(2).plusHours(3));
+        agendador.programar(consulta);
+
+        // Act
+        clock.avancar(Duration.ofHours(3).minusSeconds(1));
+        agendador.disparar();
+        verifyNoInteractions(enviarNotificacaoConfirmacaoUseCase);
+
+        clock.avancar(Duration.ofSeconds(2));
+        agendador.disparar();
+
+        // Assert
+        verify(enviarNotificacaoConfirmacaoUseCase).enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, List.of(consulta.getId()));
+        assertEquals(0, agendador.lembretesPendentes());
+    }
+
+    @Test
+    void deveDispararAvisoNoInicioDoDiaAnterior() {
+        // Arrange
+        Consulta consulta = criarConsulta(StatusConsulta.CONFIRMADA, agora.toLocalDate().plusDays(2).atTime(9, 0));
+        agendador.programar(consulta);
+
+        // Act
+        clock.avancar(Duration.ofHours(14).minusSeconds(1));
+        agendador.disparar();
+        verifyNoInteractions(enviarNotificacaoConfirmacaoUseCase);
+
+        clock.avancar(Duration.ofSeconds(2));
+        agendador.disparar();
+
+        // Assert
+        verify(enviarNotificacaoConfirmacaoUseCase).enviarLembretes(TipoNotificacao.AVISO_UM_DIA_ANTES, List.of(consulta.getId()));
+    }
+
+    @Test
+    void deveDispararImediatamenteQuandoPrazoJaPassou() {
+        // Arrange
+        Consulta consulta = criarConsulta(StatusConsulta.AGENDADA, agora.plusDays(3));
+        agendador.programar(consulta);
+
+        // Act
+        clock.avancar(Duration.ofSeconds(1));
+        agendador.disparar();
+
+        // Assert
+        verify(enviarNotificacaoConfirmacaoUseCase).enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, List.of(consulta.getId()));
+    }
+
+    @Test
+    void deveTrocarConfirmacaoPorAvisoQuandoConsultaConfirmada() {
+        // Arrange
+        Consulta consulta = criarConsulta(StatusConsulta.AGENDADA, agora.plusWeeks(2).plusHours(1));
+        agendador.programar(consulta);
+
+        // Act
+        consulta.setStatus(StatusConsulta.CONFIRMADA);
+        agendador.programar(consulta);
+        clock.avancar(Duration.ofHours(2));
+        agendador.disparar();
+
+        // Assert
+        verifyNoInteractions(enviarNotificacaoConfirmacaoUseCase);
+        assertEquals(0, agendador.lembretesPendentes());
+    }
+
+    @Test
+    void deveRemoverLembretesQuandoConsultaCancelada() {
+        // Arrange
+        Consulta consulta = criarConsulta(StatusConsulta.CONFIRMADA, agora.plusDays(1).plusHours(2));
+        agendador.programar(consulta);
+        assertEquals(1, agendador.lembretesPendentes());
+
+        // Act
+        consulta.setStatus(StatusConsulta.CANCELADA);
+        agendador.programar(consulta);
+
+        // Assert
+        assertEquals(0, agendador.lembretesPendentes());
+    }
+
+    @Test
+    void naoDeveGuardarPrazosAlemDoHorizonte() {
+        // Arrange
+        Consulta consulta = criarConsulta(StatusConsulta.AGENDADA, agora.plusWeeks(5));
+
+        // Act
+        agendador.programar(consulta);
+
+        // Assert
+        assertEquals(0, agendador.lembretesPendentes());
+    }
+
+    @Test
+    void deveCarregarPrazosDoHorizonteNaReconciliacao() {
+        // Arrange
+        Consulta agendada = criarConsulta(StatusConsulta.AGENDADA, agora.plusWeeks(2).plusHours(5));
+        Consulta confirmada = criarConsulta(StatusConsulta.CONFIRMADA, agora.toLocalDate().plusDays(2).atTime(8, 0));
+        when(consultaRepository.buscarParaNotificacao(eq(StatusConsulta.AGENDADA), eq(agora.plusWeeks(2)),
+                eq(agora.plusHours(24).plusWeeks(2)), eq(TipoNotificacao.CONFIRMACAO_CONSULTA)))
+                .thenReturn(List.of(agendada));
+        when(consultaRepository.buscarParaNotificacao(eq(StatusConsulta.CONFIRMADA), any(LocalDateTime.class),
+                any(LocalDateTime.class), eq(TipoNotificacao.AVISO_UM_DIA_ANTES)))
+                .thenReturn(List.of(confirmada));
+
+        // Act
+        agendador.reconciliar();
+        clock.avancar(Duration.ofHours(6));
+        agendador.disparar();
+
+        // Assert
+        assertEquals(1, agendador.lembretesPendentes());
+        verify(enviarNotificacaoConfirmacaoUseCase).enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, List.of(agendada.getId()));
+        verify(enviarNotificacaoConfirmacaoUseCase, never()).enviarLembretes(eq(TipoNotificacao.AVISO_UM_DIA_ANTES), any());
+    }
+
+    @Test
+    void deveReprogramarComAtrasoLembreteNaoNotificado() {
+        // Arrange
+        Consulta consulta = criarConsulta(StatusConsulta.AGENDADA, agora.plusDays(3));
+        List<UUID> ids = List.of(consulta.getId());
+        when(enviarNotificacaoConfirmacaoUseCase.enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, ids))
+                .thenReturn(Set.of(consulta.getId()))
+                .thenReturn(Set.of());
+        agendador.programar(consulta);
+
+        // Act
+        clock.avancar(Duration.ofSeconds(1));
+        agendador.disparar();
+        assertEquals(1, agendador.lembretesPendentes());
+
+        clock.avancar(Duration.ofSeconds(4));
+        agendador.disparar();
+        verify(enviarNotificacaoConfirmacaoUseCase, times(1)).enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, ids);
+
+        clock.avancar(Duration.ofSeconds(2));
+        agendador.disparar();
+
+        // Assert
+        verify(enviarNotificacaoConfirmacaoUseCase, times(2)).enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, ids);
+        assertEquals(0, agendador.lembretesPendentes());
+    }
+
+    @Test
+    void deveManterNaRodaOsLembretesQuandoODisparoFalha() {
+        // Arrange
+        Consulta agendada = criarConsulta(StatusConsulta.AGENDADA, agora.plusDays(3));
+        Consulta confirmada = criarConsulta(StatusConsulta.CONFIRMADA, agora.plusHours(20));
+        when(enviarNotificacaoConfirmacaoUseCase.enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, List.of(agendada.getId())))
+                .thenThrow(new IllegalStateException("banco indisponível"))
+                .thenReturn(Set.of());
+        agendador.programar(agendada);
+        agendador.programar(confirmada);
+
+        // Act
+        clock.avancar(Duration.ofSeconds(1));
+        agendador.disparar();
+
+        // Assert
+        verify(enviarNotificacaoConfirmacaoUseCase).enviarLembretes(TipoNotificacao.AVISO_UM_DIA_ANTES, List.of(confirmada.getId()));
+        assertEquals(1, agendador.lembretesPendentes());
+
+        clock.avancar(Duration.ofSeconds(6));
+        agendador.disparar();
+        verify(enviarNotificacaoConfirmacaoUseCase, times(2))
+                .enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, List.of(agendada.getId()));
+        assertEquals(0, agendador.lembretesPendentes());
+    }
+
+    @Test
+    void deveDesistirDoLembreteAposOMaximoDeTentativas() {
+        // Arrange
+        Consulta consulta = criarConsulta(StatusConsulta.AGENDADA, agora.plusDays(3));
+        List<UUID> ids = List.of(consulta.getId());
+        when(enviarNotificacaoConfirmacaoUseCase.enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, ids))
+                .thenReturn(Set.of(consulta.getId()));
+        agendador.programar(consulta);
+
+        // Act
+        for (int i = 0; i < 40; i++) {
+            clock.avancar(Duration.ofSeconds(1));
+            agendador.disparar();
+        }
+
+        // Assert
+        verify(enviarNotificacaoConfirmacaoUseCase, times(4)).enviarLembretes(TipoNotificacao.CONFIRMACAO_CONSULTA, ids);
+        assertEquals(0, agendador.lembretesPendentes());
+    }
+
+    private Consulta criarConsulta(StatusConsulta status, LocalDateTime dataHora) {
+        return Consulta.builder()
+                .id(UUID.randomUUID())
+                .status(status)
+                .dataHora(dataHora)
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant agora;
+
+        MutableClock(Instant agora) {
+            this.agora = agora;
+        }
+
+        void avancar(Duration duracao) {
+            agora = agora.plus(duracao);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return agora;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.fiap.consultas.infraestructure.scheduling;
+
+import com.fiap.consultas.infraestructure.persistence.repositories.ParticoesConsultasRepository;
+import com.fiap.consultas.infraestructure.persistence.repositories.ParticoesConsultasRepository.ParticaoMensal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ManutencaoParticoesConsultasTest {
+
+    private static final String CSV = "id,paciente_cpf\n1,12345678900\n2,98765432100\n";
+
+    @Mock
+    private ParticoesConsultasRepository particoesConsultasRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path diretorio;
+
+    private ManutencaoParticoesConsultas manutencao;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2025-06-15T03:30:00Z"), ZoneOffset.UTC);
+        manutencao = new ManutencaoParticoesConsultas(particoesConsultasRepository, transactionManager, 3, 24, diretorio, clock);
+    }
+
+    @Test
+    void deveCriarParticoesDoMesAtualAteOsMesesAFrente() {
+        // Arrange
+        when(particoesConsultasRepository.listarParticoes()).thenReturn(List.of());
+
+        // Act
+        manutencao.executar();
+
+        // Assert
+        verify(particoesConsultasRepository).criarParticoes(YearMonth.of(2025, 6), YearMonth.of(2025, 10));
+        verify(particoesConsultasRepository, never()).exportar(anyString(), any());
+    }
+
+    @Test
+    void deveArquivarSomenteParticoesForaDaRetencao() throws IOException {
+        // Arrange
+        when(particoesConsultasRepository.listarParticoes()).thenReturn(List.of(
+                new ParticaoMensal("consultas_p2023_05", YearMonth.of(2023, 5)),
+                new ParticaoMensal("consultas_p2023_06", YearMonth.of(2023, 6)),
+                new ParticaoMensal("consultas_p2025_06", YearMonth.of(2025, 6))));
+        when(particoesConsultasRepository.exportar(eq("consultas_p2023_05"), any())).thenAnswer(invocation -> {
+            OutputStream saida = invocation.getArgument(1);
+            saida.write(CSV.getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        });
+        when(particoesConsultasRepository.contar("consultas_p2023_05")).thenReturn(2L);
+
+        // Act
+        manutencao.arquivarParticoesExpiradas();
+
+        // Assert
+        InOrder ordem = inOrder(particoesConsultasRepository);
+        ordem.verify(particoesConsultasRepository).exportar(eq("consultas_p2023_05"), any());
+        ordem.verify(particoesConsultasRepository).desanexar("consultas_p2023_05");
+        ordem.verify(particoesConsultasRepository).contar("consultas_p2023_05");
+        ordem.verify(particoesConsultasRepository).liberarIds("consultas_p2023_05");
+        ordem.verify(particoesConsultasRepository).remover("consultas_p2023_05");
+        verify(particoesConsultasRepository, never()).exportar(eq("consultas_p2023_06"), any());
+        verify(particoesConsultasRepository, never()).exportar(eq("consultas_p2025_06"), any());
+
+        Path arquivo = diretorio.resolve("consultas_p2023_05.csv.gz");
+        try (InputStream entrada = new GZIPInputStream(Files.newInputStream(arquivo))) {
+            assertEquals(CSV, new String(entrada.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(Files.exists(diretorio.resolve("consultas_p2023_05.csv.gz.parcial")));
+    }
+
+    @Test
+    void naoDeveRemoverParticaoQuandoContagemDivergeDaExportacao() {
+        // Arrange
+        when(particoesConsultasRepository.listarParticoes()).thenReturn(List.of(
+                new ParticaoMensal("consultas_p2023_01", YearMonth.of(2023, 1))));
+        when(particoesConsultasRepository.exportar(eq("consultas_p2023_01"), any())).thenReturn(10L);
+        when(particoesConsultasRepository.contar("consultas_p2023_01")).thenReturn(11L);
+
+        // Act
+        manutencao.arquivarParticoesExpiradas();
+
+        // Assert
+        verify(particoesConsultasRepository).desanexar("consultas_p2023_01");
+        verify(particoesConsultasRepository, never()).liberarIds(anyString());
+        verify(particoesConsultasRepository, never()).remover(anyString());
+        verify(transactionManager).rollback(any());
+        assertFalse(Files.exists(diretorio.resolve("consultas_p2023_01.csv.gz")));
+        assertFalse(Files.exists(diretorio.resolve("consultas_p2023_01.csv.gz.parcial")));
+    }
+
+    @Test
+    void naoDeveArquivarArquivoQuandoCommitFalha() {
+        // Arrange
+        when(particoesConsultasRepository.listarParticoes()).thenReturn(List.of(
+                new ParticaoMensal("consultas_p2023_03", YearMonth.of(2023, 3))));
+        when(particoesConsultasRepository.exportar(eq("consultas_p2023_03"), any())).thenReturn(4L);
+        when(particoesConsultasRepository.contar("consultas_p2023_03")).thenReturn(4L);
+        doThrow(new TransactionSystemException("commit falhou")).when(transactionManager).commit(any());
+
+        // Act
+        manutencao.arquivarParticoesExpiradas();
+
+        // Assert
+        verify(particoesConsultasRepository).remover("consultas_p2023_03");
+        assertFalse(Files.exists(diretorio.resolve("consultas_p2023_03.csv.gz")));
+        assertFalse(Files.exists(diretorio.resolve("consultas_p2023_03.csv.gz.parcial")));
+    }
+
+    @Test
+    void deveContinuarArquivandoQuandoUmaParticaoFalha() {
+        // Arrange
+        when(particoesConsultasRepository.listarParticoes()).thenReturn(List.of(
+                new ParticaoMensal("consultas_p2023_02", YearMonth.of(2023, 2)),
+                new ParticaoMensal("consultas_p2023_01", YearMonth.of(2023, 1))));
+        when(particoesConsultasRepository.exportar(eq("consultas_p2023_01"), any()))
+                .thenThrow(new IllegalStateException("conexão perdida"));
+        when(particoesConsultasRepository.exportar(eq("consultas_p2023_02"), any())).thenReturn(0L);
+        when(particoesConsultasRepository.contar("consultas_p2023_02")).thenReturn(0L);
+
+        // Act
+        manutencao.arquivarParticoesExpiradas();
+
+        // Assert
+        verify(particoesConsultasRepository, never()).desanexar("consultas_p2023_01");
+        verify(particoesConsultasRepository).remover("consultas_p2023_02");
+        assertTrue(Files.exists(diretorio.resolve("consultas_p2023_02.csv.gz")));
+    }
+
+    @Test
+    void deveRejeitarConfiguracaoInvalida() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new ManutencaoParticoesConsultas(particoesConsultasRepository,
+                transactionManager, 3, 0, diretorio, Clock.systemUTC()));
+    }
+}
@@ -0,0 +1,134 @@
+package com.fiap.consultas.infraestructure.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long INICIO = 1_000_000L;
+
+    private TimingWheel<String> roda;
+
+    @BeforeEach
+    void setUp() {
+        roda = new TimingWheel<>(Duration.ofMillis(10), 8, INICIO);
+    }
+
+    @Test
+    void naoDeveExpirarAntesDoPrazo() {
+        // Arrange
+        roda.agendar("a", INICIO + 35);
+
+        // Act
+        List<String> antes = roda.avancar(INICIO + 34);
+        List<String> depois = roda.avancar(INICIO + 40);
+
+        // Assert
+        assertTrue(antes.isEmpty());
+        assertEquals(List.of("a"), depois);
+        assertEquals(0, roda.tamanho());
+    }
+
+    @Test
+    void deveExpirarPrazosDistantesAposDescerDeNivel() {
+        // Arrange
+        long prazo = INICIO + 10 * 8 * 8 * 3 + 5;
+        roda.agendar("distante", prazo);
+        roda.agendar("proximo", INICIO + 15);
+
+        // Act
+        List<String> primeiras = roda.avancar(INICIO + 20);
+        List<String> intermediarias = roda.avancar(prazo - 10);
+        List<String> finais = roda.avancar(prazo + 10);
+
+        // Assert
+        assertEquals(List.of("proximo"), primeiras);
+        assertTrue(intermediarias.isEmpty());
+        assertEquals(List.of("distante"), finais);
+    }
+
+    @Test
+    void deveExpirarImediatamentePrazoJaVencido() {
+        // Arrange
+        roda.avancar(INICIO + 100);
+        roda.agendar("atrasado", INICIO + 50);
+
+        // Act
+        List<String> expiradas = roda.avancar(INICIO + 100);
+
+        // Assert
+        assertEquals(List.of("atrasado"), expiradas);
+    }
+
+    @Test
+    void deveSubstituirPrazoDaMesmaChave() {
+        // Arrange
+        roda.agendar("a", INICIO + 15);
+        roda.agendar("a", INICIO + 500);
+
+        // Act
+        List<String> noPrazoAntigo = roda.avancar(INICIO + 20);
+        List<String> noPrazoNovo = roda.avancar(INICIO + 510);
+
+        // Assert
+        assertTrue(noPrazoAntigo.isEmpty());
+        assertEquals(List.of("a"), noPrazoNovo);
+        assertEquals(0, roda.tamanho());
+    }
+
+    @Test
+    void naoDeveExpirarChaveCancelada() {
+        // Arrange
+        roda.agendar("a", INICIO + 15);
+        roda.agendar("b", INICIO + 15);
+
+        // Act
+        boolean cancelada = roda.cancelar("a");
+        List<String> expiradas = roda.avancar(INICIO + 20);
+
+        // Assert
+        assertTrue(cancelada);
+        assertFalse(roda.cancelar("inexistente"));
+        assertEquals(List.of("b"), expiradas);
+    }
+
+    @Test
+    void deveExpirarTudoAposSaltoMaiorQueAVoltaCompleta() {
+        // Arrange
+        for (int i = 0; i < 100; i++) {
+            roda.agendar("c" + i, INICIO + 7L * i);
+        }
+
+        // Act
+        List<String> expiradas = roda.avancar(INICIO + 100_000);
+
+        // Assert
+        assertEquals(100, expiradas.size());
+        assertEquals(0, roda.tamanho());
+    }
+
+    @Test
+    void deveExpirarCadaPrazoNoTickCorreto() {
+        // Arrange
+        for (int i = 1; i <= 1000; i++) {
+            roda.agendar("c" + i, INICIO + 3L * i);
+        }
+
+        // Act & Assert
+        int total = 0;
+        for (long agora = INICIO; agora <= INICIO + 3000 + 10; agora += 10) {
+            for (String chave : roda.avancar(agora)) {
+                long prazo = INICIO + 3L * Integer.parseInt(chave.substring(1));
+                assertTrue(prazo <= agora, "expirou antes do prazo: " + chave);
+                assertTrue(agora - prazo <= 10, "expirou com atraso: " + chave);
+                total++;
+            }
+        }
+        assertEquals(1000, total);
+    }
+}